@@ -0,0 +1,66 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter } from 'k6/metrics';
+
+// Confronto prodotti sincronizzati al secondo tra PUT /products (uno per richiesta)
+// e PUT /products/batch. Eseguire contro il mock Mockoon con latenza sulle route products:
+//   k6 run -e BATCH_SIZE=100 k6/product-batch.js
+// L'obiettivo è products_synced{scenario:batch} >= 10x products_synced{scenario:single}.
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8000';
+const BATCH_SIZE = parseInt(__ENV.BATCH_SIZE || '100');
+const productsSynced = new Counter('products_synced');
+
+export const options = {
+    scenarios: {
+        single: {
+            executor: 'constant-vus',
+            exec: 'single',
+            vus: 10,
+            duration: '1m',
+        },
+        batch: {
+            executor: 'constant-vus',
+            exec: 'batch',
+            vus: 10,
+            duration: '1m',
+            startTime: '1m10s',
+        },
+    },
+};
+
+const headers = {
+    'X-STORE': '1',
+    'X-SOURCE': '10124',
+};
+
+function product(i) {
+    return {
+        title: `Prodotto k6 ${i}`,
+        categorySourceId: '1',
+        price: 10.5,
+        vatRate: 22,
+        quantity: i % 10,
+        sourceId: '10124',
+    };
+}
+
+export function single() {
+    const res = http.put(`${BASE_URL}/products`, JSON.stringify(product(__ITER)),
+        { headers: Object.assign({ 'Content-Type': 'application/json' }, headers) });
+    if (check(res, { 'status 200': (r) => r.status === 200 && r.json('success') === true })) {
+        productsSynced.add(1);
+    }
+}
+
+export function batch() {
+    const lines = [];
+    for (let i = 0; i < BATCH_SIZE; i++) {
+        lines.push(JSON.stringify(product(i)));
+    }
+    const res = http.put(`${BASE_URL}/products/batch`, lines.join('\n'),
+        { headers: Object.assign({ 'Content-Type': 'application/x-ndjson' }, headers), timeout: '120s' });
+    if (check(res, { 'status 200': (r) => r.status === 200 })) {
+        productsSynced.add(res.json('data').filter((item) => item.success).length);
+    }
+}
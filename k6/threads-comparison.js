@@ -0,0 +1,82 @@
+import http from 'k6/http';
+import { check } from 'k6';
+
+// Confronto throughput tra modalità platform thread e virtual thread.
+// Avviare l'applicazione due volte, una per modalità, e lanciare lo stesso profilo:
+//   spring.profiles.active=dev          -> k6 run -e MODE=platform k6/threads-comparison.js
+//   spring.profiles.active=dev,virtual  -> k6 run -e MODE=virtual k6/threads-comparison.js
+// Il riepilogo di ogni run viene salvato in k6/results/<MODE>-summary.json.
+// Perché la differenza sia visibile l'upstream deve avere latenza (es. 200ms sulle
+// route products del mock Mockoon) e il numero di richieste concorrenti deve superare
+// server.tomcat.threads.max (200 di default).
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8000';
+const MODE = __ENV.MODE || 'platform';
+
+export const options = {
+    discardResponseBodies: true,
+    scenarios: {
+        products: {
+            executor: 'ramping-arrival-rate',
+            exec: 'updateProduct',
+            startRate: 100,
+            timeUnit: '1s',
+            preAllocatedVUs: 500,
+            maxVUs: 2000,
+            stages: [
+                { target: 500, duration: '30s' },
+                { target: 1500, duration: '1m' },
+                { target: 1500, duration: '1m' },
+            ],
+        },
+        categories: {
+            executor: 'constant-arrival-rate',
+            exec: 'getCategories',
+            rate: 200,
+            timeUnit: '1s',
+            duration: '2m30s',
+            preAllocatedVUs: 100,
+            maxVUs: 500,
+        },
+    },
+    thresholds: {
+        'http_req_failed': ['rate<0.01'],
+        'http_req_duration{scenario:products}': ['p(95)<1000'],
+    },
+    tags: { mode: MODE },
+};
+
+const headers = {
+    'Content-Type': 'application/json',
+    'X-STORE': '1',
+    'X-SOURCE': '10124',
+};
+
+export function updateProduct() {
+    const body = JSON.stringify({
+        title: 'Prodotto k6',
+        categorySourceId: '1',
+        price: 10.5,
+        vatRate: 22,
+        quantity: 3,
+        sourceId: '10124',
+    });
+    const res = http.put(`${BASE_URL}/products`, body, { headers });
+    check(res, { 'status 200': (r) => r.status === 200 });
+}
+
+export function getCategories() {
+    const res = http.get(`${BASE_URL}/categories`, { headers });
+    check(res, { 'status 200': (r) => r.status === 200 });
+}
+
+export function handleSummary(data) {
+    const reqs = data.metrics.http_reqs.values;
+    const duration = data.metrics.http_req_duration.values;
+    const line = `[${MODE}] throughput ${reqs.rate.toFixed(1)} req/s, p95 ${duration['p(95)'].toFixed(1)} ms, `
+        + `richieste ${reqs.count}, errori ${(data.metrics.http_req_failed.values.rate * 100).toFixed(2)}%\n`;
+    return {
+        stdout: line,
+        [`k6/results/${MODE}-summary.json`]: JSON.stringify(data, null, 2),
+    };
+}
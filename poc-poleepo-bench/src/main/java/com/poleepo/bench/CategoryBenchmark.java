@@ -0,0 +1,144 @@
+package com.poleepo.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.service.CredentialRegistry;
+import com.poleepo.usecase.retrievecategory.model.CategoryDto;
+import com.poleepo.usecase.retrievecategory.model.CategoryTree;
+import com.poleepo.usecase.retrievecategory.model.response.CategoryResponse;
+import com.poleepo.usecase.retrievecategory.service.CategoryCache;
+import com.poleepo.usecase.retrievecategory.service.CategoryFlattener;
+import com.poleepo.usecase.retrievecategory.service.CategoryServiceImpl;
+import com.poleepo.usecase.retrievecategory.service.ICategoryGatewayDriver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flattening of a synthetic category tree with {@code width} children per node and
+ * {@code depth} levels, i.e. {@code width^depth} leaves. {@code flatten} and
+ * {@code flattenStreaming} measure the work GET /categories does on a cache miss, from
+ * the typed tree and from the raw body; {@code getCategory} the call served from
+ * {@link CategoryCache}, token check included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CategoryBenchmark {
+
+    private static final String TOKEN = "Bearer category-token";
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"3", "5"})
+    private int depth;
+
+    @Param({"4", "8"})
+    private int width;
+
+    private List<CategoryResponse> categories;
+    private byte[] body;
+    private CategoryFlattener categoryFlattener;
+    private CategoryServiceImpl categoryService;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        categories = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            String id = String.valueOf(i);
+            categories.add(new CategoryResponse(id, "Category " + id, children(id, depth - 1)));
+        }
+        body = mapper.writeValueAsBytes(categories);
+        categoryFlattener = new CategoryFlattener(mapper);
+
+        CategoryProperties categoryProperties = CategoryProperties.builder()
+                .defaultToken("category-token")
+                .availableToken("category-token")
+                .build();
+        CredentialRegistry credentialRegistry = new CredentialRegistry(categoryProperties,
+                ProductProperties.builder().build(), CheckConfigProperties.builder().build());
+        CategoryCache categoryCache = new CategoryCache(new StubCategoryGatewayDriver(categories), categoryFlattener,
+                categoryProperties, new SimpleMeterRegistry());
+        categoryService = new CategoryServiceImpl(categoryCache, credentialRegistry);
+        categoryService.getCategory("1", "2", TOKEN);
+    }
+
+    private List<CategoryTree> children(String parentId, int levels) {
+        if (levels == 0) {
+            return null;
+        }
+        List<CategoryTree> children = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            String id = parentId + "." + i;
+            children.add(new CategoryTree(id, "Category " + id, children(id, levels - 1)));
+        }
+        return children;
+    }
+
+    @Benchmark
+    public List<CategoryDto> flatten() {
+        return categoryFlattener.flatten(categories);
+    }
+
+    @Benchmark
+    public List<CategoryDto> flattenStreaming() {
+        return categoryFlattener.flatten(chunks()).collectList().block();
+    }
+
+    @Benchmark
+    public List<CategoryDto> getCategory() {
+        return categoryService.getCategory("1", "2", TOKEN);
+    }
+
+    private Flux<DataBuffer> chunks() {
+        return Flux.range(0, (body.length + CHUNK_SIZE - 1) / CHUNK_SIZE)
+                .map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(
+                        Arrays.copyOfRange(body, chunk * CHUNK_SIZE, Math.min(body.length, (chunk + 1) * CHUNK_SIZE))));
+    }
+
+    private record StubCategoryGatewayDriver(List<CategoryResponse> categories) implements ICategoryGatewayDriver {
+
+        @Override
+        public List<CategoryResponse> getCategories(String authorizationHeader) {
+            return categories;
+        }
+
+        @Override
+        public List<CategoryDto> getLeafCategories(String authorizationHeader) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Mono<List<CategoryResponse>> getCategoriesReactive(String authorizationHeader) {
+            return Mono.just(categories);
+        }
+
+        @Override
+        public Flux<CategoryDto> getLeafCategoriesReactive(String authorizationHeader) {
+            return Flux.error(new UnsupportedOperationException());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.poleepo.bench;
+
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.service.CredentialRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token lookups of {@link CredentialRegistry} done on every product, category and
+ * configuration request. {@code shopId} covers a mapped shop and the fallback to the
+ * default token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CredentialBenchmark {
+
+    @Param({"10205", "99999"})
+    private String shopId;
+
+    private CredentialRegistry credentialRegistry;
+
+    @Setup
+    public void setUp() {
+        credentialRegistry = new CredentialRegistry(
+                CategoryProperties.builder().defaultToken("category-1").availableToken("category-1,category-2").build(),
+                ProductProperties.builder().defaultToken("product-default").availableToken("product-1,product-2")
+                        .shopTokens(Map.of("10124", 0, "10205", 1)).build(),
+                CheckConfigProperties.builder().availableToken("check-1,check-2").build());
+    }
+
+    @Benchmark
+    public String productAuthorizationHeader() {
+        return credentialRegistry.productAuthorizationHeader(shopId);
+    }
+
+    @Benchmark
+    public boolean isCheckConfigTokenValid() {
+        return credentialRegistry.isCheckConfigTokenValid("check-2", shopId);
+    }
+
+    @Benchmark
+    public boolean isCategoryHeaderValid() {
+        return credentialRegistry.isCategoryHeaderValid("Bearer category-2");
+    }
+}
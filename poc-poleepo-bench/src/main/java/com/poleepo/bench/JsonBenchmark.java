@@ -0,0 +1,93 @@
+package com.poleepo.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.model.response.ResponseDto;
+import com.poleepo.usecase.updateproduct.model.request.CreateOrUpdateProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of the body sent to the products service and of the
+ * envelope returned by the product endpoints, with an {@link ObjectMapper} configured
+ * like the one of the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    private static final TypeReference<ResponseDto<ProductResponse>> PRODUCT_RESPONSE = new TypeReference<>() {
+    };
+
+    private ObjectMapper mapper;
+    private CreateOrUpdateProductRequest productRequest;
+    private byte[] productRequestJson;
+    private ResponseDto<ProductResponse> productResponse;
+    private byte[] productResponseJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        productRequest = CreateOrUpdateProductRequest.builder()
+                .information(CreateOrUpdateProductRequest.Information.builder()
+                        .title("Prodotto di prova")
+                        .category("3.1.4")
+                        .build())
+                .offer(CreateOrUpdateProductRequest.Offer.builder()
+                        .price(19.99)
+                        .vat(22.0)
+                        .build())
+                .shopId(10124)
+                .build();
+        productRequestJson = mapper.writeValueAsBytes(productRequest);
+        productResponse = ResponseDto.<ProductResponse>builder()
+                .success(true)
+                .data(ProductResponse.builder()
+                        .title("Prodotto di prova")
+                        .categorySourceId("3.1.4")
+                        .price(19.99)
+                        .vatRate(22.0)
+                        .quantity(10)
+                        .sourceId(10124)
+                        .build())
+                .build();
+        productResponseJson = mapper.writeValueAsBytes(productResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeProductRequest() throws IOException {
+        return mapper.writeValueAsBytes(productRequest);
+    }
+
+    @Benchmark
+    public CreateOrUpdateProductRequest deserializeProductRequest() throws IOException {
+        return mapper.readValue(productRequestJson, CreateOrUpdateProductRequest.class);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws IOException {
+        return mapper.writeValueAsBytes(productResponse);
+    }
+
+    @Benchmark
+    public ResponseDto<ProductResponse> deserializeResponse() throws IOException {
+        return mapper.readValue(productResponseJson, PRODUCT_RESPONSE);
+    }
+}
@@ -0,0 +1,133 @@
+package com.poleepo.bench;
+
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.service.CredentialRegistry;
+import com.poleepo.usecase.retrievecategory.service.CategoryIndex;
+import com.poleepo.usecase.updateproduct.model.request.CreateOrUpdateProductRequest;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.request.UpdateQuantityRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductResponse;
+import com.poleepo.usecase.updateproduct.service.IProductGatewayDriver;
+import com.poleepo.usecase.updateproduct.service.ProductChangeDetector;
+import com.poleepo.usecase.updateproduct.service.ProductServiceImpl;
+import com.poleepo.usecase.updateproduct.service.QuantityUpdateCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductServiceImpl} around a gateway driver that answers at once: measures the
+ * mapping of the incoming product to the upstream requests, the token resolution and
+ * the response building. Change detection is off, so every call goes through both the
+ * offer and the quantity request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductBenchmark {
+
+    private ProductServiceImpl productService;
+    private ProductRequest newProduct;
+    private ProductRequest existingProduct;
+
+    @Setup
+    public void setUp() {
+        ProductProperties productProperties = ProductProperties.builder()
+                .defaultToken("product-default")
+                .availableToken("product-1,product-2")
+                .shopTokens(Map.of("10124", 0))
+                .changeDetection(ProductProperties.ChangeDetection.builder().enabled(false).build())
+                .build();
+        CredentialRegistry credentialRegistry = new CredentialRegistry(CategoryProperties.builder().build(),
+                productProperties, CheckConfigProperties.builder().build());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StubProductGatewayDriver productGatewayDriver = new StubProductGatewayDriver();
+        productService = new ProductServiceImpl(productGatewayDriver, credentialRegistry, null,
+                new ProductChangeDetector(productProperties, meterRegistry),
+                new QuantityUpdateCoalescer(productGatewayDriver, productProperties, meterRegistry),
+                new CategoryIndex(null, credentialRegistry, CategoryProperties.builder()
+                        .index(CategoryProperties.Index.builder().enabled(false).build())
+                        .build(), meterRegistry));
+
+        newProduct = product(null);
+        existingProduct = product("10205");
+    }
+
+    private static ProductRequest product(String sourceId) {
+        return ProductRequest.builder()
+                .title("Prodotto di prova")
+                .categorySourceId("3.1.4")
+                .price(19.99)
+                .vatRate(22.0)
+                .quantity(10)
+                .sourceId(sourceId)
+                .build();
+    }
+
+    @Benchmark
+    public ProductResponse createProduct() {
+        return productService.createOrUpdateProduct(newProduct, "10124", "1", null);
+    }
+
+    @Benchmark
+    public ProductResponse updateProduct() {
+        return productService.createOrUpdateProduct(existingProduct, "10124", "1", null);
+    }
+
+    @Benchmark
+    public ProductResponse updateProductReactive() {
+        return productService.createOrUpdateProductReactive(existingProduct, "10124", "1", null).block();
+    }
+
+    private static final class StubProductGatewayDriver implements IProductGatewayDriver {
+
+        private static final String PRODUCT_ID = "10205";
+
+        @Override
+        public String createProduct(String authorizationHeader, CreateOrUpdateProductRequest createOrUpdateProductRequest) {
+            return PRODUCT_ID;
+        }
+
+        @Override
+        public String updateProduct(String authorizationHeader, String productId, CreateOrUpdateProductRequest createOrUpdateProductRequest) {
+            return productId;
+        }
+
+        @Override
+        public String updateQuantity(String authorizationHeader, String productId, UpdateQuantityRequest quantityRequest) {
+            return productId;
+        }
+
+        @Override
+        public Mono<String> createProductReactive(String authorizationHeader, CreateOrUpdateProductRequest createOrUpdateProductRequest) {
+            return Mono.just(PRODUCT_ID);
+        }
+
+        @Override
+        public Mono<String> updateProductReactive(String authorizationHeader, String productId, CreateOrUpdateProductRequest createOrUpdateProductRequest) {
+            return Mono.just(productId);
+        }
+
+        @Override
+        public Mono<String> updateQuantityReactive(String authorizationHeader, String productId, UpdateQuantityRequest quantityRequest) {
+            return Mono.just(productId);
+        }
+    }
+}
@@ -8,4 +8,8 @@ public class CostantConfig {
     public static final String BASE_URI = "";
     public static final String X_STORE = "X-STORE";
     public static final String X_SOURCE = "X-SOURCE";
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String X_CORRELATION_ID = "X-Correlation-ID";
+    public static final String REACTIVE_PROFILE = "reactive";
+    public static final String SERVLET_PROFILE = "!" + REACTIVE_PROFILE;
 }
@@ -0,0 +1,25 @@
+package com.poleepo.config;
+
+import lombok.Generated;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import static com.poleepo.config.CostantConfig.REACTIVE_PROFILE;
+
+/**
+ * Reactive API mode. Tomcat is on the classpath for the servlet controllers and
+ * would otherwise be picked as reactive server too: declaring the Netty factory
+ * keeps the reactive controllers on the event loop shared with the WebClients.
+ */
+@Configuration
+@Profile(REACTIVE_PROFILE)
+@Generated
+public class ReactiveConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
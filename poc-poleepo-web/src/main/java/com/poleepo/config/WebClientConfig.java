@@ -0,0 +1,105 @@
+package com.poleepo.config;
+
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.HttpClientProperties;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.service.CorrelationId;
+import com.poleepo.service.GatewayMetrics;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import lombok.Generated;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One long-lived WebClient per upstream, each on its own Reactor Netty connection
+ * pool. Pool gauges (active, idle, pending connections) are published by Reactor
+ * Netty under {@code reactor.netty.connection.provider.*}, tagged with the pool name;
+ * the status of each response feeds the {@link GatewayMetrics} timers and every call
+ * carries the {@code X-Correlation-ID} of the request it serves.
+ */
+@Configuration
+@Generated
+public class WebClientConfig {
+
+    public static final String PRODUCT_WEB_CLIENT = "productWebClient";
+    public static final String CATEGORY_WEB_CLIENT = "categoryWebClient";
+    public static final String CHECK_CONFIG_WEB_CLIENT = "checkConfigWebClient";
+
+    private static final String PRODUCT_POOL = "productPool";
+    private static final String CATEGORY_POOL = "categoryPool";
+    private static final String CHECK_CONFIG_POOL = "checkConfigPool";
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider productPool(ProductProperties productProperties) {
+        return connectionProvider(PRODUCT_POOL, productProperties.getClient());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider categoryPool(CategoryProperties categoryProperties) {
+        return connectionProvider(CATEGORY_POOL, categoryProperties.getClient());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider checkConfigPool(CheckConfigProperties checkConfigProperties) {
+        return connectionProvider(CHECK_CONFIG_POOL, checkConfigProperties.getClient());
+    }
+
+    @Bean(PRODUCT_WEB_CLIENT)
+    public WebClient productWebClient(WebClient.Builder webClientBuilder, ProductProperties productProperties,
+                                      @Qualifier(PRODUCT_POOL) ConnectionProvider productPool,
+                                      GatewayMetrics gatewayMetrics) {
+        return webClient(webClientBuilder, productPool, productProperties.getClient(), gatewayMetrics);
+    }
+
+    @Bean(CATEGORY_WEB_CLIENT)
+    public WebClient categoryWebClient(WebClient.Builder webClientBuilder, CategoryProperties categoryProperties,
+                                       @Qualifier(CATEGORY_POOL) ConnectionProvider categoryPool,
+                                       GatewayMetrics gatewayMetrics) {
+        return webClient(webClientBuilder, categoryPool, categoryProperties.getClient(), gatewayMetrics);
+    }
+
+    @Bean(CHECK_CONFIG_WEB_CLIENT)
+    public WebClient checkConfigWebClient(WebClient.Builder webClientBuilder, CheckConfigProperties checkConfigProperties,
+                                          @Qualifier(CHECK_CONFIG_POOL) ConnectionProvider checkConfigPool,
+                                          GatewayMetrics gatewayMetrics) {
+        return webClient(webClientBuilder, checkConfigPool, checkConfigProperties.getClient(), gatewayMetrics);
+    }
+
+    private static ConnectionProvider connectionProvider(String name, HttpClientProperties client) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(client.getMaxConnections())
+                .pendingAcquireMaxCount(client.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(client.getPendingAcquireTimeout())
+                .maxIdleTime(client.getMaxIdleTime())
+                .maxLifeTime(client.getMaxLifeTime())
+                .evictInBackground(client.getEvictInBackground())
+                .metrics(true)
+                .build();
+    }
+
+    private static WebClient webClient(WebClient.Builder webClientBuilder, ConnectionProvider connectionProvider,
+                                       HttpClientProperties client, GatewayMetrics gatewayMetrics) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) client.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, client.isKeepAlive())
+                .keepAlive(client.isKeepAlive())
+                .responseTimeout(client.getResponseTimeout())
+                .doOnConnected(connection -> connection.addHandlerLast(
+                        new ReadTimeoutHandler(client.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS)));
+
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(CorrelationId.propagationFilter())
+                .filter(gatewayMetrics.statusFilter())
+                .build();
+    }
+}
@@ -4,10 +4,14 @@ import com.poleepo.service.LoggingInterceptor;
 import lombok.Generated;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import static com.poleepo.config.CostantConfig.SERVLET_PROFILE;
+
 @Configuration
+@Profile(SERVLET_PROFILE)
 @RequiredArgsConstructor
 @Generated
 public class WebConfig implements WebMvcConfigurer {
@@ -7,6 +7,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
@@ -18,6 +19,7 @@ import java.util.List;
 import static com.poleepo.config.CostantConfig.*;
 
 @RestController
+@Profile(SERVLET_PROFILE)
 @RequestMapping(BASE_URI)
 @Tag(name = "Categorie", description = "Operazioni sulle categorie")
 @RequiredArgsConstructor
@@ -1,7 +1,10 @@
 package com.poleepo.controller;
 
+import com.poleepo.usecase.checkconfig.model.request.ConfigurationBatchRequest;
 import com.poleepo.usecase.checkconfig.model.request.ConfigurationRequest;
+import com.poleepo.usecase.checkconfig.model.response.ConfigurationBatchResult;
 import com.poleepo.model.response.ResponseDto;
+import com.poleepo.usecase.checkconfig.service.IConfigurationBatchService;
 import com.poleepo.usecase.checkconfig.service.IConfigurationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -9,18 +12,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 import static com.poleepo.config.CostantConfig.*;
 
 @RestController
+@Profile(SERVLET_PROFILE)
 @RequestMapping(BASE_URI + "/configurations")
 @Tag(name = "Configurazioni", description = "Operazioni sulle configurazioni")
 @RequiredArgsConstructor
 public class ConfigurationController {
 
     private final IConfigurationService configurationService;
+    private final IConfigurationBatchService configurationBatchService;
 
     @Operation(summary = "Crea o aggiorna una configurazione", description = "Crea o aggiorna la configurazione per uno store e una source specifici.")
     @ApiResponses(value = {
@@ -40,4 +48,20 @@ public class ConfigurationController {
                 .data(request.getShopId())
                 .build());
     }
+
+    @Operation(summary = "Registra un elenco di configurazioni", description = "Verifica i negozi con una chiamata per token distinto, inserisce le configurazioni valide e restituisce un esito per ogni elemento, nello stesso ordine.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch elaborato, esito per singola configurazione")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<ResponseDto<List<ConfigurationBatchResult>>> createConfigurations(
+            @RequestBody List<ConfigurationBatchRequest> requests) {
+
+        List<ConfigurationBatchResult> response = configurationBatchService.createConfigurations(requests).block();
+
+        return ResponseEntity.ok(ResponseDto.<List<ConfigurationBatchResult>>builder()
+                .success(true)
+                .data(response)
+                .build());
+    }
 }
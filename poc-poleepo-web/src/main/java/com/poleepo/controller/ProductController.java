@@ -2,26 +2,44 @@ package com.poleepo.controller;
 
 import com.poleepo.model.response.ResponseDto;
 import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductBatchResult;
 import com.poleepo.usecase.updateproduct.model.response.ProductResponse;
+import com.poleepo.usecase.updateproduct.model.response.ProductSyncJobResponse;
+import com.poleepo.usecase.updateproduct.service.IProductBatchService;
 import com.poleepo.usecase.updateproduct.service.IProductService;
+import com.poleepo.usecase.updateproduct.service.IProductSyncJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import static com.poleepo.config.CostantConfig.*;
 
 @RestController
+@Profile(SERVLET_PROFILE)
 @RequestMapping(BASE_URI + "/products")
 @Tag(name = "Prodotto", description = "Operazioni sul prodotto")
 @RequiredArgsConstructor
 public class ProductController {
 
     private final IProductService productService;
+    private final IProductBatchService productBatchService;
+    private final IProductSyncJobService productSyncJobService;
 
     @Operation(summary = "Crea o aggiorna un prodotto", description = "Crea o aggiorna un prodotto per uno store e una source specifici.")
     @ApiResponses(value = {
@@ -43,4 +61,153 @@ public class ProductController {
                 .build());
 
     }
+
+    @Operation(summary = "Crea o aggiorna un prodotto una sola volta", description = "Come PUT /products: le richieste ripetute con la stessa Idempotency-Key ricevono il primo esito senza nuove chiamate al marketplace.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Prodotto creato/aggiornato con successo"),
+            @ApiResponse(responseCode = "400", description = "Richiesta non valida")
+    })
+    @PutMapping(headers = IDEMPOTENCY_KEY)
+    public ResponseEntity<ResponseDto<ProductResponse>> createOrUpdateProductIdempotent(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @RequestHeader(IDEMPOTENCY_KEY) String idempotencyKey,
+            @Valid @RequestBody ProductRequest request,
+            @RequestHeader(value = "Authorization",required = false) String authorizationHeader){
+
+        ProductResponse response = productService.createOrUpdateProduct(request, source, store, authorizationHeader, idempotencyKey);
+
+        return ResponseEntity.ok(ResponseDto.<ProductResponse>builder()
+                .success(true)
+                .data(response)
+                .build());
+    }
+
+    @Operation(summary = "Accoda la sincronizzazione di un prodotto", description = "Salva la richiesta in coda e risponde subito con l'id del job da interrogare su GET /products/jobs/{id}.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job accodato"),
+            @ApiResponse(responseCode = "400", description = "Richiesta non valida")
+    })
+    @PutMapping(params = "async=true")
+    public ResponseEntity<ResponseDto<ProductSyncJobResponse>> createOrUpdateProductAsync(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @Valid @RequestBody ProductRequest request){
+
+        ProductSyncJobResponse response = productSyncJobService.enqueue(request, source, store);
+
+        return ResponseEntity.accepted()
+                .location(URI.create(BASE_URI + "/products/jobs/" + response.getId()))
+                .body(ResponseDto.<ProductSyncJobResponse>builder()
+                        .success(true)
+                        .data(response)
+                        .build());
+    }
+
+    @Operation(summary = "Accoda la sincronizzazione di un prodotto una sola volta", description = "Come PUT /products?async=true: le richieste ripetute con la stessa Idempotency-Key ricevono l'id del job gia' accodato.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job accodato"),
+            @ApiResponse(responseCode = "400", description = "Richiesta non valida")
+    })
+    @PutMapping(params = "async=true", headers = IDEMPOTENCY_KEY)
+    public ResponseEntity<ResponseDto<ProductSyncJobResponse>> createOrUpdateProductAsyncIdempotent(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @RequestHeader(IDEMPOTENCY_KEY) String idempotencyKey,
+            @Valid @RequestBody ProductRequest request){
+
+        ProductSyncJobResponse response = productSyncJobService.enqueue(request, source, store, idempotencyKey);
+
+        return ResponseEntity.accepted()
+                .location(URI.create(BASE_URI + "/products/jobs/" + response.getId()))
+                .body(ResponseDto.<ProductSyncJobResponse>builder()
+                        .success(true)
+                        .data(response)
+                        .build());
+    }
+
+    @Operation(summary = "Stato di un job di sincronizzazione", description = "Restituisce lo stato del job e, se completato, l'id del prodotto sul marketplace.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stato del job")
+    })
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ResponseDto<ProductSyncJobResponse>> getJob(@PathVariable Long id){
+
+        ProductSyncJobResponse response = productSyncJobService.getJob(id);
+
+        return ResponseEntity.ok(ResponseDto.<ProductSyncJobResponse>builder()
+                .success(true)
+                .data(response)
+                .build());
+    }
+
+    @Operation(summary = "Crea o aggiorna un elenco di prodotti", description = "Accetta un array JSON di prodotti e restituisce un esito per ogni prodotto, nello stesso ordine.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch elaborato, esito per singolo prodotto")
+    })
+    @PutMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResponseDto<List<ProductBatchResult>>> createOrUpdateProducts(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @RequestBody List<ProductRequest> requests,
+            @RequestHeader(value = "Authorization",required = false) String authorizationHeader){
+
+        List<ProductBatchResult> response = productBatchService
+                .createOrUpdateProducts(Flux.fromIterable(requests), source, store, authorizationHeader)
+                .collectList()
+                .block();
+
+        return ResponseEntity.ok(ResponseDto.<List<ProductBatchResult>>builder()
+                .success(true)
+                .data(response)
+                .build());
+    }
+
+    @Operation(summary = "Accoda la sincronizzazione di un elenco di prodotti", description = "Salva un job per ogni prodotto in un'unica transazione e risponde subito con gli id dei job, nello stesso ordine.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job accodati")
+    })
+    @PutMapping(value = "/batch", params = "async=true", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResponseDto<List<ProductSyncJobResponse>>> createOrUpdateProductsAsync(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @RequestBody List<ProductRequest> requests){
+
+        List<ProductSyncJobResponse> response = productSyncJobService.enqueueAll(requests, source, store);
+
+        return ResponseEntity.accepted()
+                .body(ResponseDto.<List<ProductSyncJobResponse>>builder()
+                        .success(true)
+                        .data(response)
+                        .build());
+    }
+
+    @Operation(summary = "Crea o aggiorna un flusso NDJSON di prodotti", description = "Accetta un prodotto per riga (application/x-ndjson) e restituisce un esito per ogni riga, nello stesso ordine.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch elaborato, esito per singolo prodotto")
+    })
+    @PutMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseDto<List<ProductBatchResult>>> createOrUpdateProductsNdjson(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            InputStream body,
+            @RequestHeader(value = "Authorization",required = false) String authorizationHeader){
+
+        // lines are read lazily as the pipeline asks for more products, on boundedElastic rather than the Tomcat request thread
+        Flux<String> lines = Flux.using(
+                        () -> new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)),
+                        reader -> Flux.fromStream(reader.lines()),
+                        reader -> {})
+                .subscribeOn(Schedulers.boundedElastic());
+
+        List<ProductBatchResult> response = productBatchService
+                .createOrUpdateProductsNdjson(lines, source, store, authorizationHeader)
+                .collectList()
+                .block();
+
+        return ResponseEntity.ok(ResponseDto.<List<ProductBatchResult>>builder()
+                .success(true)
+                .data(response)
+                .build());
+    }
 }
@@ -0,0 +1,66 @@
+package com.poleepo.controller;
+
+import com.poleepo.model.response.ResponseDto;
+import com.poleepo.usecase.checkconfig.model.request.ConfigurationBatchRequest;
+import com.poleepo.usecase.checkconfig.model.request.ConfigurationRequest;
+import com.poleepo.usecase.checkconfig.model.response.ConfigurationBatchResult;
+import com.poleepo.usecase.checkconfig.service.IConfigurationBatchService;
+import com.poleepo.usecase.checkconfig.service.IConfigurationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static com.poleepo.config.CostantConfig.*;
+
+@RestController
+@Profile(REACTIVE_PROFILE)
+@RequestMapping(BASE_URI + "/configurations")
+@Tag(name = "Configurazioni", description = "Operazioni sulle configurazioni")
+@RequiredArgsConstructor
+public class ReactiveConfigurationController {
+
+    private final IConfigurationService configurationService;
+    private final IConfigurationBatchService configurationBatchService;
+
+    @Operation(summary = "Crea o aggiorna una configurazione", description = "Crea o aggiorna la configurazione per uno store e una source specifici.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Configurazione creata/aggiornata con successo"),
+            @ApiResponse(responseCode = "400", description = "Richiesta non valida")
+    })
+    @PostMapping
+    public Mono<ResponseEntity<ResponseDto<String>>> createConfiguration(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @Valid @RequestBody ConfigurationRequest request) {
+
+        return configurationService.createOrUpdateConfigurationReactive(store, source, request)
+                .map(response -> ResponseEntity.ok(ResponseDto.<String>builder()
+                        .success(true)
+                        .data(request.getShopId())
+                        .build()));
+    }
+
+    @Operation(summary = "Registra un elenco di configurazioni", description = "Verifica i negozi con una chiamata per token distinto, inserisce le configurazioni valide e restituisce un esito per ogni elemento, nello stesso ordine.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch elaborato, esito per singola configurazione")
+    })
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<ResponseDto<List<ConfigurationBatchResult>>>> createConfigurations(
+            @RequestBody List<ConfigurationBatchRequest> requests) {
+
+        return configurationBatchService.createConfigurations(requests)
+                .map(response -> ResponseEntity.ok(ResponseDto.<List<ConfigurationBatchResult>>builder()
+                        .success(true)
+                        .data(response)
+                        .build()));
+    }
+}
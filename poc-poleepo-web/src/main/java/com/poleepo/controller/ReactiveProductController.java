@@ -0,0 +1,187 @@
+package com.poleepo.controller;
+
+import com.poleepo.model.response.ResponseDto;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductBatchResult;
+import com.poleepo.usecase.updateproduct.model.response.ProductResponse;
+import com.poleepo.usecase.updateproduct.model.response.ProductSyncJobResponse;
+import com.poleepo.usecase.updateproduct.service.IProductBatchService;
+import com.poleepo.usecase.updateproduct.service.IProductService;
+import com.poleepo.usecase.updateproduct.service.IProductSyncJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+
+import static com.poleepo.config.CostantConfig.*;
+
+@RestController
+@Profile(REACTIVE_PROFILE)
+@RequestMapping(BASE_URI + "/products")
+@Tag(name = "Prodotto", description = "Operazioni sul prodotto")
+@RequiredArgsConstructor
+public class ReactiveProductController {
+
+    private final IProductService productService;
+    private final IProductBatchService productBatchService;
+    private final IProductSyncJobService productSyncJobService;
+
+    @Operation(summary = "Crea o aggiorna un prodotto", description = "Crea o aggiorna un prodotto per uno store e una source specifici.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Prodotto creato/aggiornato con successo"),
+            @ApiResponse(responseCode = "400", description = "Richiesta non valida")
+    })
+    @PutMapping
+    public Mono<ResponseEntity<ResponseDto<ProductResponse>>> createOrUpdateProduct(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @Valid @RequestBody ProductRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authorizationHeader) {
+
+        return productService.createOrUpdateProductReactive(request, source, store, authorizationHeader)
+                .map(response -> ResponseEntity.ok(ResponseDto.<ProductResponse>builder()
+                        .success(true)
+                        .data(response)
+                        .build()));
+    }
+
+    @Operation(summary = "Crea o aggiorna un prodotto una sola volta", description = "Come PUT /products: le richieste ripetute con la stessa Idempotency-Key ricevono il primo esito senza nuove chiamate al marketplace.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Prodotto creato/aggiornato con successo"),
+            @ApiResponse(responseCode = "400", description = "Richiesta non valida")
+    })
+    @PutMapping(headers = IDEMPOTENCY_KEY)
+    public Mono<ResponseEntity<ResponseDto<ProductResponse>>> createOrUpdateProductIdempotent(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @RequestHeader(IDEMPOTENCY_KEY) String idempotencyKey,
+            @Valid @RequestBody ProductRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authorizationHeader) {
+
+        return productService.createOrUpdateProductReactive(request, source, store, authorizationHeader, idempotencyKey)
+                .map(response -> ResponseEntity.ok(ResponseDto.<ProductResponse>builder()
+                        .success(true)
+                        .data(response)
+                        .build()));
+    }
+
+    @Operation(summary = "Accoda la sincronizzazione di un prodotto", description = "Salva la richiesta in coda e risponde subito con l'id del job da interrogare su GET /products/jobs/{id}.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job accodato"),
+            @ApiResponse(responseCode = "400", description = "Richiesta non valida")
+    })
+    @PutMapping(params = "async=true")
+    public Mono<ResponseEntity<ResponseDto<ProductSyncJobResponse>>> createOrUpdateProductAsync(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @Valid @RequestBody ProductRequest request) {
+
+        return productSyncJobService.enqueueReactive(request, source, store)
+                .map(response -> ResponseEntity.accepted()
+                        .location(URI.create(BASE_URI + "/products/jobs/" + response.getId()))
+                        .body(ResponseDto.<ProductSyncJobResponse>builder()
+                                .success(true)
+                                .data(response)
+                                .build()));
+    }
+
+    @Operation(summary = "Accoda la sincronizzazione di un prodotto una sola volta", description = "Come PUT /products?async=true: le richieste ripetute con la stessa Idempotency-Key ricevono l'id del job gia' accodato.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job accodato"),
+            @ApiResponse(responseCode = "400", description = "Richiesta non valida")
+    })
+    @PutMapping(params = "async=true", headers = IDEMPOTENCY_KEY)
+    public Mono<ResponseEntity<ResponseDto<ProductSyncJobResponse>>> createOrUpdateProductAsyncIdempotent(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @RequestHeader(IDEMPOTENCY_KEY) String idempotencyKey,
+            @Valid @RequestBody ProductRequest request) {
+
+        return productSyncJobService.enqueueReactive(request, source, store, idempotencyKey)
+                .map(response -> ResponseEntity.accepted()
+                        .location(URI.create(BASE_URI + "/products/jobs/" + response.getId()))
+                        .body(ResponseDto.<ProductSyncJobResponse>builder()
+                                .success(true)
+                                .data(response)
+                                .build()));
+    }
+
+    @Operation(summary = "Stato di un job di sincronizzazione", description = "Restituisce lo stato del job e, se completato, l'id del prodotto sul marketplace.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stato del job")
+    })
+    @GetMapping("/jobs/{id}")
+    public Mono<ResponseEntity<ResponseDto<ProductSyncJobResponse>>> getJob(@PathVariable Long id) {
+
+        return productSyncJobService.getJobReactive(id)
+                .map(response -> ResponseEntity.ok(ResponseDto.<ProductSyncJobResponse>builder()
+                        .success(true)
+                        .data(response)
+                        .build()));
+    }
+
+    @Operation(summary = "Crea o aggiorna un elenco di prodotti", description = "Accetta un array JSON di prodotti e restituisce un esito per ogni prodotto, nello stesso ordine.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch elaborato, esito per singolo prodotto")
+    })
+    @PutMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ResponseDto<List<ProductBatchResult>>>> createOrUpdateProducts(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @RequestBody Flux<ProductRequest> requests,
+            @RequestHeader(value = "Authorization", required = false) String authorizationHeader) {
+
+        return toResponse(productBatchService.createOrUpdateProducts(requests, source, store, authorizationHeader));
+    }
+
+    @Operation(summary = "Accoda la sincronizzazione di un elenco di prodotti", description = "Salva un job per ogni prodotto in un'unica transazione e risponde subito con gli id dei job, nello stesso ordine.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job accodati")
+    })
+    @PutMapping(value = "/batch", params = "async=true", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ResponseDto<List<ProductSyncJobResponse>>>> createOrUpdateProductsAsync(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @RequestBody List<ProductRequest> requests) {
+
+        return productSyncJobService.enqueueAllReactive(requests, source, store)
+                .map(response -> ResponseEntity.accepted()
+                        .body(ResponseDto.<List<ProductSyncJobResponse>>builder()
+                                .success(true)
+                                .data(response)
+                                .build()));
+    }
+
+    @Operation(summary = "Crea o aggiorna un flusso NDJSON di prodotti", description = "Accetta un prodotto per riga (application/x-ndjson) e restituisce un esito per ogni riga, nello stesso ordine.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch elaborato, esito per singolo prodotto")
+    })
+    @PutMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<ResponseDto<List<ProductBatchResult>>>> createOrUpdateProductsNdjson(
+            @RequestHeader(X_STORE) String store,
+            @RequestHeader(X_SOURCE) String source,
+            @RequestBody Flux<String> lines,
+            @RequestHeader(value = "Authorization", required = false) String authorizationHeader) {
+
+        return toResponse(productBatchService.createOrUpdateProductsNdjson(lines, source, store, authorizationHeader));
+    }
+
+    private static Mono<ResponseEntity<ResponseDto<List<ProductBatchResult>>>> toResponse(Flux<ProductBatchResult> results) {
+        return results.collectList()
+                .map(response -> ResponseEntity.ok(ResponseDto.<List<ProductBatchResult>>builder()
+                        .success(true)
+                        .data(response)
+                        .build()));
+    }
+}
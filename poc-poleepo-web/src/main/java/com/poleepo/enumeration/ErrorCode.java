@@ -11,7 +11,11 @@ public enum ErrorCode {
     CONFIGURATION_NOT_VALID(3, "Configuration not valid"),
     PRODUCT_NOT_CREATED(4, "Product not created"),
     PRODUCT_NOT_UPDATED(5, "Product not updated"),
-    CONFIGURATION_NOT_FOUND(6, "Configuration not found");
+    CONFIGURATION_NOT_FOUND(6, "Configuration not found"),
+    JOB_NOT_FOUND(7, "Job not found"),
+    IDEMPOTENCY_KEY_REUSED(8, "Idempotency key reused with a different request"),
+    UPSTREAM_THROTTLED(9, "Marketplace busy, retry later"),
+    CATEGORY_NOT_VALID(10, "Category not valid");
 
     private final int code;
     private final String message;
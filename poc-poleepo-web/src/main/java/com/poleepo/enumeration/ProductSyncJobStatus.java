@@ -0,0 +1,11 @@
+package com.poleepo.enumeration;
+
+import lombok.Generated;
+
+@Generated
+public enum ProductSyncJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,7 @@
+package com.poleepo.exception;
+
+public class CategoryNotValidException extends RuntimeException {
+    public CategoryNotValidException(String message) {
+        super(message);
+    }
+}
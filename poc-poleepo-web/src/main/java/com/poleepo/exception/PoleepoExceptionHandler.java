@@ -6,6 +6,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 @ControllerAdvice
 public class PoleepoExceptionHandler {
@@ -20,6 +21,15 @@ public class PoleepoExceptionHandler {
                 .build());
     }
 
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<ResponseDto<String>> handleWebExchangeBindException() {
+        return ResponseEntity.ok().body(ResponseDto.<String>builder()
+                .success(false)
+                .error(ErrorCode.MISSING_REQUIRED_FIELD.getCode())
+                .message(ErrorCode.MISSING_REQUIRED_FIELD.getMessage())
+                .build());
+    }
+
     @ExceptionHandler(ShopNotFoundException.class)
     public ResponseEntity<ResponseDto<String>> handleShopNotFoundException() {
         return ResponseEntity.status(HttpStatus.OK).body(ResponseDto.<String>builder()
@@ -83,4 +93,40 @@ public class PoleepoExceptionHandler {
                 .build());
     }
 
+    @ExceptionHandler(JobNotFoundException.class)
+    public ResponseEntity<ResponseDto<String>> handleJobNotFoundException() {
+        return ResponseEntity.status(HttpStatus.OK).body(ResponseDto.<String>builder()
+                .success(false)
+                .error(ErrorCode.JOB_NOT_FOUND.getCode())
+                .message(ErrorCode.JOB_NOT_FOUND.getMessage())
+                .build());
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ResponseDto<String>> handleIdempotencyKeyReusedException() {
+        return ResponseEntity.status(HttpStatus.OK).body(ResponseDto.<String>builder()
+                .success(false)
+                .error(ErrorCode.IDEMPOTENCY_KEY_REUSED.getCode())
+                .message(ErrorCode.IDEMPOTENCY_KEY_REUSED.getMessage())
+                .build());
+    }
+
+    @ExceptionHandler(UpstreamThrottledException.class)
+    public ResponseEntity<ResponseDto<String>> handleUpstreamThrottledException() {
+        return ResponseEntity.status(HttpStatus.OK).body(ResponseDto.<String>builder()
+                .success(false)
+                .error(ErrorCode.UPSTREAM_THROTTLED.getCode())
+                .message(ErrorCode.UPSTREAM_THROTTLED.getMessage())
+                .build());
+    }
+
+    @ExceptionHandler(CategoryNotValidException.class)
+    public ResponseEntity<ResponseDto<String>> handleCategoryNotValidException() {
+        return ResponseEntity.status(HttpStatus.OK).body(ResponseDto.<String>builder()
+                .success(false)
+                .error(ErrorCode.CATEGORY_NOT_VALID.getCode())
+                .message(ErrorCode.CATEGORY_NOT_VALID.getMessage())
+                .build());
+    }
+
 }
@@ -0,0 +1,7 @@
+package com.poleepo.exception;
+
+public class UpstreamThrottledException extends RuntimeException {
+    public UpstreamThrottledException(String message) {
+        super(message);
+    }
+}
@@ -4,6 +4,8 @@ import lombok.*;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @Component
 @Data
 @Builder
@@ -16,4 +18,50 @@ public class CategoryProperties {
     private String url;
     private String defaultToken;
     private String availableToken;
+    @Builder.Default
+    private HttpClientProperties client = new HttpClientProperties();
+    private boolean streaming;
+    @Builder.Default
+    private Cache cache = new Cache();
+    @Builder.Default
+    private Index index = new Index();
+
+    /**
+     * Tuning of the flattened category cache, keyed by the token sent upstream.
+     * Entries are reloaded in background after {@code refreshAfterWrite} and
+     * dropped after {@code expireAfterWrite}: in between the stale list is
+     * served while the reload runs or when the upstream is failing.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class Cache {
+
+        @Builder.Default
+        private long maximumSize = 100;
+        @Builder.Default
+        private Duration refreshAfterWrite = Duration.ofMinutes(10);
+        @Builder.Default
+        private Duration expireAfterWrite = Duration.ofHours(6);
+    }
+
+    /**
+     * Local index of the leaf category ids, rebuilt every {@code refreshInterval} from
+     * the category cache of the default token. Product requests with a category missing
+     * from it are rejected without calling the marketplace.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class Index {
+
+        @Builder.Default
+        private boolean enabled = true;
+        @Builder.Default
+        private Duration refreshInterval = Duration.ofMinutes(10);
+    }
 }
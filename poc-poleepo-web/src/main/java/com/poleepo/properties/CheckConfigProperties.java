@@ -4,6 +4,8 @@ import lombok.*;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @Component
 @Data
 @Builder
@@ -15,4 +17,71 @@ public class CheckConfigProperties {
 
     private String url;
     private String availableToken;
+    @Builder.Default
+    private HttpClientProperties client = new HttpClientProperties();
+    @Builder.Default
+    private Cache cache = new Cache();
+    @Builder.Default
+    private Batch batch = new Batch();
+    @Builder.Default
+    private Shops shops = new Shops();
+
+    /**
+     * Tuning of the configuration near-cache, keyed by store and source. Changes written
+     * by other instances are read from the {@code configuration_change} table every
+     * {@code pollInterval}; {@code expireAfterWrite} bounds the staleness of an entry
+     * whose change was missed. Change rows older than {@code changeRetention} are purged.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class Cache {
+
+        @Builder.Default
+        private long maximumSize = 10000;
+        @Builder.Default
+        private Duration expireAfterWrite = Duration.ofHours(1);
+        @Builder.Default
+        private Duration pollInterval = Duration.ofSeconds(5);
+        @Builder.Default
+        private Duration changeRetention = Duration.ofDays(1);
+    }
+
+    /**
+     * Tuning of POST /configurations/batch: at most {@code concurrency} check-config calls,
+     * one per distinct token, and inserts sent in JDBC batches of {@code jdbcBatchSize} rows.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class Batch {
+
+        @Builder.Default
+        private int concurrency = 8;
+        @Builder.Default
+        private int jdbcBatchSize = 500;
+    }
+
+    /**
+     * Tuning of the cache of the shop ids returned by the check-config service, keyed by
+     * API token. A token rejected with 401 is remembered for {@code unauthorizedTtl}.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class Shops {
+
+        @Builder.Default
+        private long maximumSize = 1000;
+        @Builder.Default
+        private Duration ttl = Duration.ofMinutes(10);
+        @Builder.Default
+        private Duration unauthorizedTtl = Duration.ofMinutes(1);
+    }
 }
@@ -0,0 +1,129 @@
+package com.poleepo.properties;
+
+import lombok.*;
+
+import java.time.Duration;
+
+/**
+ * Connection pool, timeouts and resilience of the WebClient dedicated to one upstream,
+ * bound under the {@code client} key of the upstream properties
+ * (e.g. {@code product.config.client.max-connections}).
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Generated
+public class HttpClientProperties {
+
+    @Builder.Default
+    private int maxConnections = 50;
+    @Builder.Default
+    private int pendingAcquireMaxCount = 500;
+    @Builder.Default
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+    @Builder.Default
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    @Builder.Default
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+    @Builder.Default
+    private Duration evictInBackground = Duration.ofSeconds(30);
+    @Builder.Default
+    private boolean keepAlive = true;
+    @Builder.Default
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    @Builder.Default
+    private Duration readTimeout = Duration.ofSeconds(10);
+    @Builder.Default
+    private Duration responseTimeout = Duration.ofSeconds(10);
+    @Builder.Default
+    private Retry retry = new Retry();
+    @Builder.Default
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    @Builder.Default
+    private Hedge hedge = new Hedge();
+
+    /**
+     * Retries of the idempotent calls on 5xx and connection errors: at most
+     * {@code maxRetries}, with exponential backoff from {@code minBackoff} to
+     * {@code maxBackoff} and {@code jitter}. Each endpoint earns {@code budgetRatio}
+     * retries per call, and holds at most {@code budgetBurst}: when the budget is spent
+     * the error is returned at once.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class Retry {
+
+        @Builder.Default
+        private int maxRetries = 2;
+        @Builder.Default
+        private Duration minBackoff = Duration.ofMillis(100);
+        @Builder.Default
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        @Builder.Default
+        private double jitter = 0.5;
+        @Builder.Default
+        private double budgetRatio = 0.2;
+        @Builder.Default
+        private int budgetBurst = 10;
+    }
+
+    /**
+     * Circuit breaker of each endpoint: opens when {@code failureRateThreshold} percent
+     * of the last {@code slidingWindowSize} calls (at least {@code minimumNumberOfCalls})
+     * failed with a 5xx or a connection error, rejects every call for
+     * {@code waitDurationInOpenState}, then lets {@code permittedCallsInHalfOpenState}
+     * calls probe the upstream.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class CircuitBreaker {
+
+        @Builder.Default
+        private boolean enabled = true;
+        @Builder.Default
+        private float failureRateThreshold = 50;
+        @Builder.Default
+        private int slidingWindowSize = 20;
+        @Builder.Default
+        private int minimumNumberOfCalls = 10;
+        @Builder.Default
+        private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+        @Builder.Default
+        private int permittedCallsInHalfOpenState = 3;
+    }
+
+    /**
+     * Hedging of the idempotent reads, off by default: when the first attempt has not
+     * answered within {@code delay} a second identical request is sent and the first
+     * response wins. Without {@code delay} the observed p95 of the endpoint is used,
+     * never below {@code minDelay}, and {@code initialDelay} until one is observed.
+     * Each endpoint earns {@code maxRate} hedges per call and holds at most
+     * {@code maxBurst}.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class Hedge {
+
+        @Builder.Default
+        private boolean enabled = false;
+        private Duration delay;
+        @Builder.Default
+        private Duration minDelay = Duration.ofMillis(20);
+        @Builder.Default
+        private Duration initialDelay = Duration.ofMillis(500);
+        @Builder.Default
+        private double maxRate = 0.05;
+        @Builder.Default
+        private int maxBurst = 5;
+    }
+}
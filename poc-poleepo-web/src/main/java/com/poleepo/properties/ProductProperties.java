@@ -4,6 +4,10 @@ import lombok.*;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
 @Component
 @Data
 @Builder
@@ -19,4 +23,177 @@ public class ProductProperties {
     private String defaultToken;
     private String availableToken;
     private String shopIds;
+    /**
+     * Position in {@code available-token} of the token of each shop, also used for the
+     * {@code check.config.available-token} of the same shop.
+     */
+    @Builder.Default
+    private Map<String, Integer> shopTokens = new HashMap<>();
+    @Builder.Default
+    private HttpClientProperties client = new HttpClientProperties();
+    @Builder.Default
+    private Batch batch = new Batch();
+    @Builder.Default
+    private Jobs jobs = new Jobs();
+    @Builder.Default
+    private Idempotency idempotency = new Idempotency();
+    @Builder.Default
+    private ChangeDetection changeDetection = new ChangeDetection();
+    @Builder.Default
+    private QuantityCoalescing quantityCoalescing = new QuantityCoalescing();
+    @Builder.Default
+    private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    /**
+     * Tuning of PUT /products/batch. {@code concurrency} is the number of products
+     * synced with the upstream at the same time: keep it within
+     * {@code client.max-connections}, each in-flight product holds one connection.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class Batch {
+
+        @Builder.Default
+        private int concurrency = 64;
+    }
+
+    /**
+     * Tuning of the product-sync job queue behind PUT /products?async=true. Every
+     * {@code pollInterval} the worker claims PENDING jobs, at most {@code claimSize} per
+     * query, up to {@code concurrency} in flight. The worker refreshes its RUNNING jobs
+     * every {@code heartbeatInterval}, which must stay well below {@code staleAfter}:
+     * jobs without a heartbeat for {@code staleAfter} are put back in the queue. A failed job is tried again after
+     * {@code retryBackoff} times its attempts, up to {@code maxAttempts}. Batches are
+     * enqueued in JDBC batches of {@code jdbcBatchSize} rows.
+     * Set {@code worker-enabled=false} on instances that should only accept jobs.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class Jobs {
+
+        @Builder.Default
+        private boolean workerEnabled = true;
+        @Builder.Default
+        private int concurrency = 32;
+        @Builder.Default
+        private Duration pollInterval = Duration.ofMillis(200);
+        @Builder.Default
+        private Duration staleAfter = Duration.ofMinutes(5);
+        @Builder.Default
+        private Duration heartbeatInterval = Duration.ofMinutes(1);
+        @Builder.Default
+        private int claimSize = 100;
+        @Builder.Default
+        private int maxAttempts = 3;
+        @Builder.Default
+        private Duration retryBackoff = Duration.ofSeconds(30);
+        @Builder.Default
+        private int jdbcBatchSize = 500;
+    }
+
+    /**
+     * Results of PUT /products sent with an {@code Idempotency-Key}, replayed for
+     * {@code ttl}. With {@code persistent} they are also written to the
+     * {@code product_idempotency_key} table, so a retry landing on another instance
+     * or after a restart is replayed too.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class Idempotency {
+
+        @Builder.Default
+        private long maximumSize = 10_000;
+        @Builder.Default
+        private Duration ttl = Duration.ofHours(24);
+        @Builder.Default
+        private boolean persistent = false;
+    }
+
+    /**
+     * Fingerprints of the last offer and quantity pushed per product, used to skip
+     * upstream calls that would not change anything. Keep {@code expireAfterWrite}
+     * longer than the interval between two full catalog pushes.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class ChangeDetection {
+
+        @Builder.Default
+        private boolean enabled = true;
+        @Builder.Default
+        private long maximumSize = 200_000;
+        @Builder.Default
+        private Duration expireAfterWrite = Duration.ofHours(48);
+    }
+
+    /**
+     * Write-behind of the quantity calls: when {@code enabled} only the latest quantity
+     * per product is sent, every {@code window} or once {@code maxPending} products are
+     * waiting. {@code concurrency} bounds the calls of one flush; on shutdown pending
+     * quantities are flushed for at most {@code shutdownTimeout}.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class QuantityCoalescing {
+
+        @Builder.Default
+        private boolean enabled = false;
+        @Builder.Default
+        private Duration window = Duration.ofSeconds(2);
+        @Builder.Default
+        private int maxPending = 1000;
+        @Builder.Default
+        private int concurrency = 16;
+        @Builder.Default
+        private int maxAttempts = 3;
+        @Builder.Default
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    /**
+     * AIMD limit of the product calls in flight per API token. The limit starts at
+     * {@code initialLimit}, grows by one per round trip while it is used and shrinks by
+     * {@code backoffRatio} on a 429/503 or a call slower than {@code latencyThreshold},
+     * within {@code minLimit} and {@code maxLimit}. Calls over the limit wait in a queue
+     * of at most {@code maxQueue} for {@code queueTimeout}, then are rejected.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Generated
+    public static class ConcurrencyLimit {
+
+        @Builder.Default
+        private boolean enabled = true;
+        @Builder.Default
+        private int initialLimit = 20;
+        @Builder.Default
+        private int minLimit = 1;
+        @Builder.Default
+        private int maxLimit = 100;
+        @Builder.Default
+        private double backoffRatio = 0.9;
+        @Builder.Default
+        private Duration latencyThreshold = Duration.ofSeconds(2);
+        @Builder.Default
+        private int maxQueue = 100;
+        @Builder.Default
+        private Duration queueTimeout = Duration.ofMillis(500);
+    }
 }
@@ -0,0 +1,88 @@
+package com.poleepo.service;
+
+import io.micrometer.context.ThreadLocalAccessor;
+import org.slf4j.MDC;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.poleepo.config.CostantConfig.X_CORRELATION_ID;
+
+/**
+ * Correlation id of the request being served, kept in the MDC under {@link #MDC_KEY}.
+ * An incoming {@code X-Correlation-ID} is reused when it is a plain token of at most
+ * {@value #MAX_LENGTH} characters, otherwise a random UUID is drawn from
+ * {@link ThreadLocalRandom}: no {@code SecureRandom}, so no contention under load.
+ * Registered as a context-propagation accessor, so with
+ * {@code spring.reactor.context-propagation=auto} the id follows the Reactor context
+ * across thread hops and {@link #propagationFilter()} sends it to the upstreams.
+ */
+public class CorrelationId implements ThreadLocalAccessor<String> {
+
+    public static final String MDC_KEY = "correlationId";
+
+    private static final int MAX_LENGTH = 64;
+
+    public static String resolve(String incoming) {
+        return isValid(incoming) ? incoming : generate();
+    }
+
+    public static String generate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & ~(0xC000L << 48)) | (0x8000L << 48);
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+    /**
+     * Adds the correlation id of the calling request to every upstream call, read from
+     * the Reactor context or, when the call was not subscribed from a request, the MDC.
+     */
+    public static ExchangeFilterFunction propagationFilter() {
+        return (request, next) -> Mono.deferContextual(context -> {
+            String correlationId = context.<String>getOrEmpty(MDC_KEY).orElseGet(() -> MDC.get(MDC_KEY));
+            if (correlationId == null || request.headers().containsKey(X_CORRELATION_ID)) {
+                return next.exchange(request);
+            }
+            return next.exchange(ClientRequest.from(request).header(X_CORRELATION_ID, correlationId).build());
+        });
+    }
+
+    private static boolean isValid(String correlationId) {
+        if (correlationId == null || correlationId.isEmpty() || correlationId.length() > MAX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < correlationId.length(); i++) {
+            char c = correlationId.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == ':';
+            if (!allowed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Object key() {
+        return MDC_KEY;
+    }
+
+    @Override
+    public String getValue() {
+        return MDC.get(MDC_KEY);
+    }
+
+    @Override
+    public void setValue(String value) {
+        MDC.put(MDC_KEY, value);
+    }
+
+    @Override
+    public void setValue() {
+        MDC.remove(MDC_KEY);
+    }
+}
@@ -0,0 +1,102 @@
+package com.poleepo.service;
+
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.ProductProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tokens of the upstream services, resolved once at startup from the {@code available-token}
+ * and {@code default-token} properties instead of splitting them on every request. Each
+ * shop of {@code product.config.shop-tokens} uses the token at the configured position of
+ * {@code available-token}: lookups are map reads on an immutable snapshot.
+ */
+@Component
+public class CredentialRegistry {
+
+    private static final String BEARER = "Bearer ";
+
+    private final Snapshot snapshot;
+
+    public CredentialRegistry(CategoryProperties categoryProperties, ProductProperties productProperties,
+                              CheckConfigProperties checkConfigProperties) {
+        this.snapshot = build(categoryProperties, productProperties, checkConfigProperties);
+    }
+
+    /**
+     * Header for the product calls of {@code shopId}: the shop token, or the default one
+     * when the shop is null or unknown.
+     */
+    public String productAuthorizationHeader(String shopId) {
+        String header = shopId == null ? null : snapshot.productHeaders().get(shopId);
+        return header != null ? header : snapshot.productDefaultHeader();
+    }
+
+    /**
+     * Whether {@code authorizationHeader} is the product header of a shop or the default one.
+     */
+    public boolean isProductHeaderKnown(String authorizationHeader) {
+        return authorizationHeader != null && (authorizationHeader.equals(snapshot.productDefaultHeader())
+                || snapshot.productHeaders().containsValue(authorizationHeader));
+    }
+
+    /**
+     * Whether {@code apiToken} is the check-config token of {@code shopId}.
+     */
+    public boolean isCheckConfigTokenValid(String apiToken, String shopId) {
+        return apiToken != null && shopId != null && apiToken.equals(snapshot.checkConfigTokens().get(shopId));
+    }
+
+    /**
+     * Whether {@code authorizationHeader}, with or without the {@code Bearer} prefix, is
+     * one of the category tokens. Nothing is accepted when no default token is configured.
+     */
+    public boolean isCategoryHeaderValid(String authorizationHeader) {
+        return authorizationHeader != null && snapshot.categoryHeaders().contains(authorizationHeader);
+    }
+
+    public String categoryDefaultToken() {
+        return snapshot.categoryDefaultToken();
+    }
+
+    private static Snapshot build(CategoryProperties categoryProperties, ProductProperties productProperties,
+                                  CheckConfigProperties checkConfigProperties) {
+        String[] productTokens = split(productProperties.getAvailableToken());
+        String[] checkConfigTokens = split(checkConfigProperties.getAvailableToken());
+        Map<String, String> productHeaders = new HashMap<>();
+        Map<String, String> checkConfigTokensByShop = new HashMap<>();
+        productProperties.getShopTokens().forEach((shopId, index) -> {
+            if (index < productTokens.length) {
+                productHeaders.put(shopId, BEARER + productTokens[index]);
+            }
+            if (index < checkConfigTokens.length) {
+                checkConfigTokensByShop.put(shopId, checkConfigTokens[index]);
+            }
+        });
+        Set<String> categoryHeaders = new HashSet<>();
+        if (categoryProperties.getDefaultToken() != null) {
+            for (String token : split(categoryProperties.getAvailableToken())) {
+                categoryHeaders.add(token);
+                categoryHeaders.add(BEARER + token);
+            }
+        }
+        return new Snapshot(Map.copyOf(productHeaders),
+                BEARER + productProperties.getDefaultToken(),
+                Map.copyOf(checkConfigTokensByShop),
+                Set.copyOf(categoryHeaders),
+                categoryProperties.getDefaultToken());
+    }
+
+    private static String[] split(String tokens) {
+        return tokens == null ? new String[0] : tokens.split(",");
+    }
+
+    private record Snapshot(Map<String, String> productHeaders, String productDefaultHeader,
+                            Map<String, String> checkConfigTokens, Set<String> categoryHeaders, String categoryDefaultToken) {
+    }
+}
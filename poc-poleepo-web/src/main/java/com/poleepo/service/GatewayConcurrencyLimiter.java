@@ -0,0 +1,267 @@
+package com.poleepo.service;
+
+import com.poleepo.exception.UpstreamThrottledException;
+import com.poleepo.properties.ProductProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive limit of the product calls in flight per API token, configured under
+ * {@code product.config.concurrency-limit}. The marketplace throttles per token: the
+ * limit grows while the calls succeed and shrinks as soon as the upstream answers 429
+ * or 503, or slows down past the latency threshold, so that each token is kept near
+ * the concurrency the upstream tolerates. Calls over the limit wait in a bounded queue
+ * and fail with {@link UpstreamThrottledException} when it is full or they waited too
+ * long. Only the tokens known to the {@link CredentialRegistry} get a limit of their own;
+ * any other header shares a single one, so neither the limits nor their meters grow
+ * with what callers send. Latency is taken on the last attempt of a call, marked by
+ * {@link #attempt}, so retries and their backoff do not read as a slow upstream. Limit,
+ * calls in flight and queue length are published per token as {@value #LIMIT_METRIC},
+ * {@value #IN_FLIGHT_METRIC} and {@value #QUEUE_METRIC}, tagged with a fingerprint of
+ * the token, never the token itself, or with {@value #UNKNOWN_TOKEN}.
+ */
+@Component
+@Slf4j
+public class GatewayConcurrencyLimiter {
+
+    public static final String LIMIT_METRIC = "gateway.limit";
+    public static final String IN_FLIGHT_METRIC = "gateway.limit.in_flight";
+    public static final String QUEUE_METRIC = "gateway.limit.queue";
+    public static final String REJECTED_METRIC = "gateway.limit.rejected";
+    public static final String UNKNOWN_TOKEN = "unknown";
+
+    private final ProductProperties.ConcurrencyLimit config;
+    private final CredentialRegistry credentialRegistry;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TokenLimit> limits = new ConcurrentHashMap<>();
+
+    public GatewayConcurrencyLimiter(ProductProperties productProperties, CredentialRegistry credentialRegistry,
+                                     MeterRegistry meterRegistry) {
+        this.config = productProperties.getConcurrencyLimit();
+        this.credentialRegistry = credentialRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs {@code call} once the token of {@code authorizationHeader} has a free slot.
+     */
+    public <T> Mono<T> limited(String authorizationHeader, Mono<T> call) {
+        if (!config.isEnabled()) {
+            return call;
+        }
+        String key = credentialRegistry.isProductHeaderKnown(authorizationHeader) ? authorizationHeader : UNKNOWN_TOKEN;
+        TokenLimit limit = limits.computeIfAbsent(key, this::tokenLimit);
+        return Mono.usingWhen(limit.acquire(),
+                permit -> call.contextWrite(context -> context.put(Permit.class, permit)),
+                permit -> Mono.fromRunnable(() -> permit.release(Signal.SUCCESS)),
+                (permit, e) -> Mono.fromRunnable(() -> permit.release(isThrottled(e) ? Signal.THROTTLED : Signal.IGNORED)),
+                permit -> Mono.fromRunnable(() -> permit.release(Signal.IGNORED)));
+    }
+
+    /**
+     * Marks the start of one attempt of a call run by {@link #limited}: placed inside the
+     * retry, it restarts the latency measure of the call at every attempt.
+     */
+    public <T> Mono<T> attempt(Mono<T> call) {
+        return Mono.deferContextual(context -> {
+            context.<Permit>getOrEmpty(Permit.class).ifPresent(Permit::attemptStarted);
+            return call;
+        });
+    }
+
+    static boolean isThrottled(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == HttpStatus.TOO_MANY_REQUESTS.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value();
+        }
+        return false;
+    }
+
+    private TokenLimit tokenLimit(String key) {
+        Tags tags = Tags.of("upstream", GatewayMetrics.PRODUCT, "token", UNKNOWN_TOKEN.equals(key) ? UNKNOWN_TOKEN : fingerprint(key));
+        TokenLimit limit = new TokenLimit(config, Counter.builder(REJECTED_METRIC)
+                .description("Product calls rejected by the concurrency limit")
+                .tags(tags)
+                .register(meterRegistry));
+        Gauge.builder(LIMIT_METRIC, limit, TokenLimit::limit)
+                .description("Concurrency limit of the product calls")
+                .tags(tags)
+                .strongReference(true)
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_METRIC, limit, TokenLimit::inFlight)
+                .description("Product calls in flight")
+                .tags(tags)
+                .strongReference(true)
+                .register(meterRegistry);
+        Gauge.builder(QUEUE_METRIC, limit, TokenLimit::queued)
+                .description("Product calls waiting for the concurrency limit")
+                .tags(tags)
+                .strongReference(true)
+                .register(meterRegistry);
+        return limit;
+    }
+
+    static String fingerprint(String authorizationHeader) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(authorizationHeader.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 4);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private enum Signal {
+        SUCCESS, THROTTLED, IGNORED
+    }
+
+    /**
+     * Limit, calls in flight and queue of one token. State changes happen under a
+     * {@link ReentrantLock}, not a monitor, so that virtual threads are never pinned;
+     * queued calls are resumed outside of it.
+     */
+    static final class TokenLimit {
+
+        private final ProductProperties.ConcurrencyLimit config;
+        private final Counter rejected;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Deque<Sinks.One<Permit>> waiters = new ArrayDeque<>();
+        private double limit;
+        private int inFlight;
+
+        TokenLimit(ProductProperties.ConcurrencyLimit config, Counter rejected) {
+            this.config = config;
+            this.rejected = rejected;
+            this.limit = config.getInitialLimit();
+        }
+
+        double limit() {
+            return locked(() -> limit);
+        }
+
+        int inFlight() {
+            return locked(() -> inFlight);
+        }
+
+        int queued() {
+            return locked(waiters::size);
+        }
+
+        Mono<Permit> acquire() {
+            return Mono.defer(() -> {
+                Sinks.One<Permit> waiter;
+                lock.lock();
+                try {
+                    if (inFlight < (int) limit) {
+                        inFlight++;
+                        return Mono.just(new Permit(this));
+                    }
+                    if (waiters.size() >= config.getMaxQueue()) {
+                        return Mono.error(this::reject);
+                    }
+                    waiter = Sinks.one();
+                    waiters.addLast(waiter);
+                } finally {
+                    lock.unlock();
+                }
+                return waiter.asMono()
+                        .timeout(config.getQueueTimeout(), Mono.defer(() -> leave(waiter)
+                                ? Mono.error(reject())
+                                : waiter.asMono()))
+                        .doOnCancel(() -> {
+                            if (!leave(waiter)) {
+                                // the slot was handed over while the caller gave up
+                                waiter.asMono().subscribe(permit -> permit.release(Signal.IGNORED));
+                            }
+                        });
+            });
+        }
+
+        private boolean leave(Sinks.One<Permit> waiter) {
+            return locked(() -> waiters.remove(waiter));
+        }
+
+        private <T> T locked(Supplier<T> read) {
+            lock.lock();
+            try {
+                return read.get();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private UpstreamThrottledException reject() {
+            rejected.increment();
+            return new UpstreamThrottledException("Limite di chiamate concorrenti raggiunto per il token");
+        }
+
+        private void release(Signal signal, long elapsedNanos) {
+            List<Sinks.One<Permit>> resumed = new ArrayList<>();
+            lock.lock();
+            try {
+                inFlight--;
+                if (signal == Signal.THROTTLED || elapsedNanos > config.getLatencyThreshold().toNanos()) {
+                    double previous = limit;
+                    limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+                    if ((int) previous != (int) limit) {
+                        log.warn("Limite di concorrenza ridotto a {}", (int) limit);
+                    }
+                } else if (signal == Signal.SUCCESS && inFlight + 1 >= limit / 2) {
+                    limit = Math.min(config.getMaxLimit(), limit + 1 / limit);
+                }
+                while (inFlight < (int) limit && !waiters.isEmpty()) {
+                    inFlight++;
+                    resumed.add(waiters.pollFirst());
+                }
+            } finally {
+                lock.unlock();
+            }
+            resumed.forEach(waiter -> waiter.tryEmitValue(new Permit(this)));
+        }
+    }
+
+    /**
+     * Slot held by one call, released exactly once.
+     */
+    static final class Permit {
+
+        private final TokenLimit limit;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long start = System.nanoTime();
+
+        Permit(TokenLimit limit) {
+            this.limit = limit;
+        }
+
+        void attemptStarted() {
+            start = System.nanoTime();
+        }
+
+        void release(Signal signal) {
+            if (released.compareAndSet(false, true)) {
+                limit.release(signal, System.nanoTime() - start);
+            }
+        }
+    }
+}
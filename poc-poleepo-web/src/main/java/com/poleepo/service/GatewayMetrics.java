@@ -0,0 +1,89 @@
+package com.poleepo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.http.Outcome;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency of the calls to the marketplace, published as the {@code gateway.requests}
+ * timer tagged with {@code upstream}, {@code operation}, {@code outcome} and the HTTP
+ * {@code status}. A call is timed from subscription until its result, body decoding
+ * included, has been emitted. The status is read by {@link #statusFilter()}, registered
+ * on every upstream WebClient; calls that got no response are tagged with status
+ * {@code IO_ERROR}, or {@code CANCELLED} when the caller gave up.
+ * Percentiles and SLO buckets are set with the
+ * {@code management.metrics.distribution.*.gateway.requests} properties.
+ */
+@Component
+@RequiredArgsConstructor
+public class GatewayMetrics {
+
+    public static final String TIMER = "gateway.requests";
+
+    public static final String PRODUCT = "product";
+    public static final String CATEGORY = "category";
+    public static final String CHECK_CONFIG = "checkConfig";
+
+    private static final String STATUS_KEY = GatewayMetrics.class.getName() + ".status";
+    private static final int NO_STATUS = 0;
+
+    private final MeterRegistry meterRegistry;
+
+    public <T> Mono<T> timed(String upstream, String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            AtomicInteger status = new AtomicInteger(NO_STATUS);
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call
+                    .doFinally(signal -> sample.stop(timer(upstream, operation, status.get(), signal)))
+                    .contextWrite(context -> context.put(STATUS_KEY, status));
+        });
+    }
+
+    public <T> Flux<T> timed(String upstream, String operation, Flux<T> call) {
+        return Flux.defer(() -> {
+            AtomicInteger status = new AtomicInteger(NO_STATUS);
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call
+                    .doFinally(signal -> sample.stop(timer(upstream, operation, status.get(), signal)))
+                    .contextWrite(context -> context.put(STATUS_KEY, status));
+        });
+    }
+
+    /**
+     * Hands the status of each response to the {@link #timed} call it belongs to.
+     */
+    public ExchangeFilterFunction statusFilter() {
+        return (request, next) -> Mono.deferContextual(context -> next.exchange(request)
+                .doOnNext(response -> context.<AtomicInteger>getOrEmpty(STATUS_KEY)
+                        .ifPresent(status -> status.set(response.statusCode().value()))));
+    }
+
+    private Timer timer(String upstream, String operation, int status, SignalType signal) {
+        String statusTag;
+        String outcome;
+        if (status != NO_STATUS) {
+            statusTag = String.valueOf(status);
+            outcome = Outcome.forStatus(status).name();
+        } else {
+            statusTag = switch (signal) {
+                case CANCEL -> "CANCELLED";
+                case ON_ERROR -> "IO_ERROR";
+                default -> "NONE";
+            };
+            outcome = Outcome.UNKNOWN.name();
+        }
+        return Timer.builder(TIMER)
+                .description("Calls to the marketplace APIs")
+                .tags(Tags.of("upstream", upstream, "operation", operation, "outcome", outcome, "status", statusTag))
+                .register(meterRegistry);
+    }
+}
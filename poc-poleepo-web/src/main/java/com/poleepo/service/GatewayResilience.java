@@ -0,0 +1,353 @@
+package com.poleepo.service;
+
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.HttpClientProperties;
+import com.poleepo.properties.ProductProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.http.Outcome;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Circuit breaker and retries of the calls to the marketplace, per endpoint
+ * ({@code upstream.operation}) and configured per upstream under {@code client.retry}
+ * and {@code client.circuit-breaker}. Only 5xx responses and connection errors count:
+ * a 4xx means the upstream is up and the request is wrong. While a breaker is open its
+ * calls fail at once with {@code CallNotPermittedException}; breaker states and call
+ * counts are published under {@code resilience4j.circuitbreaker.*}, retries under
+ * {@value #RETRIES_METRIC}.
+ * Retries are applied outside the breaker, so a retry is refused as soon as it opens.
+ * Drivers go through {@link #decorate}, which fixes the order of all these wrappers.
+ * Reads may also be hedged under {@code client.hedge}, counted under {@value #HEDGES_METRIC};
+ * without a fixed {@code hedge.delay} the p95 of {@link GatewayMetrics#TIMER} must be published
+ * under {@code management.metrics.distribution.percentiles}, or startup fails.
+ */
+@Component
+@Slf4j
+public class GatewayResilience {
+
+    public static final String RETRIES_METRIC = "gateway.retries";
+    public static final String HEDGES_METRIC = "gateway.hedges";
+
+    private static final long TOKEN = 1000;
+    private static final long HEDGE_DELAY_REFRESH = Duration.ofSeconds(1).toNanos();
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final double PERCENTILE_TOLERANCE = 1e-6;
+
+    private final Map<String, HttpClientProperties> clients;
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final GatewayMetrics gatewayMetrics;
+    private final GatewayConcurrencyLimiter gatewayConcurrencyLimiter;
+
+    public GatewayResilience(ProductProperties productProperties, CategoryProperties categoryProperties,
+                             CheckConfigProperties checkConfigProperties, MetricsProperties metricsProperties,
+                             MeterRegistry meterRegistry, GatewayMetrics gatewayMetrics,
+                             GatewayConcurrencyLimiter gatewayConcurrencyLimiter) {
+        this.clients = Map.of(
+                GatewayMetrics.PRODUCT, productProperties.getClient(),
+                GatewayMetrics.CATEGORY, categoryProperties.getClient(),
+                GatewayMetrics.CHECK_CONFIG, checkConfigProperties.getClient());
+        this.meterRegistry = meterRegistry;
+        this.gatewayMetrics = gatewayMetrics;
+        this.gatewayConcurrencyLimiter = gatewayConcurrencyLimiter;
+        checkHedgePercentile(metricsProperties);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+    }
+
+    /**
+     * Kind of a call to the marketplace, which decides how {@link #decorate} protects it.
+     */
+    public enum CallType {
+        /** Idempotent read: retried and hedged. */
+        READ,
+        /** Idempotent write: retried. */
+        IDEMPOTENT,
+        /** Call that must not be repeated: guarded by the breaker only. */
+        UNSAFE
+    }
+
+    /**
+     * Call to the marketplace with every protection in the order shared by all drivers,
+     * from the outside in: breaker with retries or breaker alone, hedge for reads, the
+     * {@link GatewayMetrics#TIMER} timer, then the attempt mark of the concurrency limiter.
+     * Each retry and hedge is thus timed on its own.
+     */
+    public <T> Mono<T> decorate(String upstream, String operation, CallType type, Mono<T> call) {
+        Mono<T> timed = gatewayMetrics.timed(upstream, operation, gatewayConcurrencyLimiter.attempt(call));
+        return switch (type) {
+            case READ -> retrying(upstream, operation, hedged(upstream, operation, timed));
+            case IDEMPOTENT -> retrying(upstream, operation, timed);
+            case UNSAFE -> guarded(upstream, operation, timed);
+        };
+    }
+
+    /**
+     * Product call: as {@link #decorate(String, String, CallType, Mono)}, holding one slot
+     * of the concurrency limit of {@code authorizationHeader} across all its attempts.
+     */
+    public <T> Mono<T> decorate(String upstream, String operation, CallType type, String authorizationHeader,
+                                Mono<T> call) {
+        return gatewayConcurrencyLimiter.limited(authorizationHeader, decorate(upstream, operation, type, call));
+    }
+
+    /**
+     * Streamed call: guarded by the breaker and timed, never retried since its elements
+     * may already have been emitted.
+     */
+    public <T> Flux<T> decorate(String upstream, String operation, Flux<T> call) {
+        return guarded(upstream, operation, gatewayMetrics.timed(upstream, operation, call));
+    }
+
+    /**
+     * Idempotent call: guarded by the breaker and retried on transient errors while
+     * the endpoint has retry budget left.
+     */
+    <T> Mono<T> retrying(String upstream, String operation, Mono<T> call) {
+        Endpoint endpoint = endpoint(upstream, operation);
+        HttpClientProperties.Retry config = endpoint.client().getRetry();
+        return Mono.defer(() -> {
+            endpoint.retryBudget().deposit();
+            return guard(endpoint, call)
+                    .retryWhen(Retry.backoff(config.getMaxRetries(), config.getMinBackoff())
+                            .maxBackoff(config.getMaxBackoff())
+                            .jitter(config.getJitter())
+                            .filter(e -> isTransient(e) && endpoint.withdraw())
+                            .doBeforeRetry(signal -> log.warn("Nuovo tentativo {} di {}.{}: {}",
+                                    signal.totalRetries() + 1, upstream, operation, signal.failure().getMessage()))
+                            .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        });
+    }
+
+    /**
+     * Idempotent read, to be wrapped by {@link #retrying}: when hedging is enabled and the
+     * call has not answered within the hedge delay, an identical call is sent and the
+     * first signal of the two wins. The other one is cancelled, which closes its
+     * connection. A hedge is only sent while the endpoint has hedge budget left.
+     */
+    <T> Mono<T> hedged(String upstream, String operation, Mono<T> call) {
+        Endpoint endpoint = endpoint(upstream, operation);
+        if (!endpoint.client().getHedge().isEnabled()) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            endpoint.hedgeBudget().deposit();
+            Mono<T> hedge = Mono.delay(hedgeDelay(upstream, operation, endpoint))
+                    .flatMap(tick -> {
+                        if (!endpoint.hedgeBudget().withdraw()) {
+                            endpoint.hedgesRateLimited().increment();
+                            return Mono.<T>never();
+                        }
+                        endpoint.hedgesSent().increment();
+                        log.debug("Richiesta di copertura per {}.{}", upstream, operation);
+                        return call.doOnNext(value -> endpoint.hedgesWon().increment());
+                    });
+            return Mono.firstWithSignal(call, hedge);
+        });
+    }
+
+    /**
+     * Call that must not be repeated: guarded by the breaker only.
+     */
+    <T> Mono<T> guarded(String upstream, String operation, Mono<T> call) {
+        return guard(endpoint(upstream, operation), call);
+    }
+
+    <T> Flux<T> guarded(String upstream, String operation, Flux<T> call) {
+        Endpoint endpoint = endpoint(upstream, operation);
+        return endpoint.circuitBreaker() == null ? call : call.transformDeferred(CircuitBreakerOperator.of(endpoint.circuitBreaker()));
+    }
+
+    static boolean isTransient(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError();
+        }
+        return e instanceof WebClientRequestException || e instanceof IOException || e instanceof TimeoutException;
+    }
+
+    private <T> Mono<T> guard(Endpoint endpoint, Mono<T> call) {
+        return endpoint.circuitBreaker() == null ? call : call.transformDeferred(CircuitBreakerOperator.of(endpoint.circuitBreaker()));
+    }
+
+    /**
+     * Fixed {@code hedge.delay}, or the observed p95 of the successful calls of the
+     * endpoint, read from the {@link GatewayMetrics#TIMER} percentiles at most once per
+     * second.
+     */
+    private Duration hedgeDelay(String upstream, String operation, Endpoint endpoint) {
+        HttpClientProperties.Hedge config = endpoint.client().getHedge();
+        if (config.getDelay() != null) {
+            return config.getDelay();
+        }
+        long now = System.nanoTime();
+        long refreshedAt = endpoint.hedgeDelayRefreshedAt().get();
+        if (now - refreshedAt >= HEDGE_DELAY_REFRESH && endpoint.hedgeDelayRefreshedAt().compareAndSet(refreshedAt, now)) {
+            double observed = 0;
+            for (Timer timer : meterRegistry.find(GatewayMetrics.TIMER)
+                    .tags("upstream", upstream, "operation", operation, "outcome", Outcome.SUCCESS.name())
+                    .timers()) {
+                for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                    if (isHedgePercentile(percentile.percentile())) {
+                        observed = Math.max(observed, percentile.value(TimeUnit.NANOSECONDS));
+                    }
+                }
+            }
+            long delay = observed > 0
+                    ? Math.max((long) observed, config.getMinDelay().toNanos())
+                    : config.getInitialDelay().toNanos();
+            endpoint.hedgeDelayNanos().set(delay);
+        }
+        return Duration.ofNanos(endpoint.hedgeDelayNanos().get());
+    }
+
+    private static boolean isHedgePercentile(double percentile) {
+        return Math.abs(percentile - HEDGE_PERCENTILE) < PERCENTILE_TOLERANCE;
+    }
+
+    /**
+     * The hedge delay of an upstream without a fixed {@code hedge.delay} follows the p95 of
+     * its calls, which is only there if {@link GatewayMetrics#TIMER} publishes it: looked up
+     * like Spring Boot does, by meter name, then its prefix, then {@code all}.
+     */
+    private void checkHedgePercentile(MetricsProperties metricsProperties) {
+        Map<String, double[]> percentiles = metricsProperties.getDistribution().getPercentiles();
+        double[] published = Stream.of(GatewayMetrics.TIMER, "gateway", "all")
+                .map(percentiles::get)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+        boolean p95 = published != null && Arrays.stream(published).anyMatch(GatewayResilience::isHedgePercentile);
+        clients.forEach((upstream, client) -> {
+            HttpClientProperties.Hedge hedge = client.getHedge();
+            if (hedge.isEnabled() && hedge.getDelay() == null && !p95) {
+                throw new IllegalStateException("Copertura di " + upstream + " senza hedge.delay: "
+                        + "management.metrics.distribution.percentiles." + GatewayMetrics.TIMER + " deve includere "
+                        + HEDGE_PERCENTILE);
+            }
+        });
+    }
+
+    private Endpoint endpoint(String upstream, String operation) {
+        return endpoints.computeIfAbsent(upstream + "." + operation, name -> {
+            HttpClientProperties client = clients.get(upstream);
+            HttpClientProperties.CircuitBreaker config = client.getCircuitBreaker();
+            CircuitBreaker circuitBreaker = config.isEnabled()
+                    ? circuitBreakerRegistry.circuitBreaker(name, CircuitBreakerConfig.custom()
+                            .failureRateThreshold(config.getFailureRateThreshold())
+                            .slidingWindowSize(config.getSlidingWindowSize())
+                            .minimumNumberOfCalls(config.getMinimumNumberOfCalls())
+                            .waitDurationInOpenState(config.getWaitDurationInOpenState())
+                            .permittedNumberOfCallsInHalfOpenState(config.getPermittedCallsInHalfOpenState())
+                            .recordException(GatewayResilience::isTransient)
+                            .build())
+                    : null;
+            if (circuitBreaker != null) {
+                circuitBreaker.getEventPublisher().onStateTransition(event ->
+                        log.warn("Circuit breaker {}: {}", name, event.getStateTransition()));
+            }
+            HttpClientProperties.Retry retry = client.getRetry();
+            HttpClientProperties.Hedge hedge = client.getHedge();
+            return new Endpoint(client, circuitBreaker,
+                    new Budget(retry.getBudgetRatio(), retry.getBudgetBurst()),
+                    retriesCounter(upstream, operation, "retried"),
+                    retriesCounter(upstream, operation, "budget_exhausted"),
+                    new Budget(hedge.getMaxRate(), hedge.getMaxBurst()),
+                    new AtomicLong(hedge.getInitialDelay().toNanos()),
+                    new AtomicLong(System.nanoTime() - HEDGE_DELAY_REFRESH),
+                    hedgesCounter(upstream, operation, "sent"),
+                    hedgesCounter(upstream, operation, "won"),
+                    hedgesCounter(upstream, operation, "rate_limited"));
+        });
+    }
+
+    private Counter retriesCounter(String upstream, String operation, String result) {
+        return counter(RETRIES_METRIC, "Retries of the calls to the marketplace APIs", upstream, operation, result);
+    }
+
+    private Counter hedgesCounter(String upstream, String operation, String result) {
+        return counter(HEDGES_METRIC, "Hedged requests to the marketplace APIs", upstream, operation, result);
+    }
+
+    private Counter counter(String name, String description, String upstream, String operation, String result) {
+        return Counter.builder(name)
+                .description(description)
+                .tags("upstream", upstream, "operation", operation, "result", result)
+                .register(meterRegistry);
+    }
+
+    private record Endpoint(HttpClientProperties client, CircuitBreaker circuitBreaker, Budget retryBudget,
+                            Counter retried, Counter budgetExhausted,
+                            Budget hedgeBudget, AtomicLong hedgeDelayNanos, AtomicLong hedgeDelayRefreshedAt,
+                            Counter hedgesSent, Counter hedgesWon, Counter hedgesRateLimited) {
+
+        boolean withdraw() {
+            if (retryBudget.withdraw()) {
+                retried.increment();
+                return true;
+            }
+            budgetExhausted.increment();
+            return false;
+        }
+    }
+
+    /**
+     * Token bucket of the retries or hedges of one endpoint, in thousandths of a token:
+     * every call deposits {@code ratio}, every retry or hedge withdraws one, the balance
+     * never exceeds {@code burst}. They thus stay below {@code ratio} of the calls once
+     * the initial burst is spent.
+     */
+    static final class Budget {
+
+        private final long deposit;
+        private final long capacity;
+        private final AtomicLong balance;
+
+        Budget(double ratio, int burst) {
+            this.deposit = Math.round(ratio * TOKEN);
+            this.capacity = (long) burst * TOKEN;
+            this.balance = new AtomicLong(capacity);
+        }
+
+        void deposit() {
+            balance.accumulateAndGet(deposit, (current, amount) -> Math.min(capacity, current + amount));
+        }
+
+        boolean withdraw() {
+            long current;
+            do {
+                current = balance.get();
+                if (current < TOKEN) {
+                    return false;
+                }
+            } while (!balance.compareAndSet(current, current - TOKEN));
+            return true;
+        }
+    }
+}
@@ -3,10 +3,11 @@ package com.poleepo.service;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
-import java.util.UUID;
+import static com.poleepo.config.CostantConfig.X_CORRELATION_ID;
 
 @Component
 @Slf4j
@@ -14,10 +15,16 @@ public class LoggingInterceptor implements HandlerInterceptor {
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        String correlationId = UUID.randomUUID().toString();
+        String correlationId = CorrelationId.resolve(request.getHeader(X_CORRELATION_ID));
+        MDC.put(CorrelationId.MDC_KEY, correlationId);
         log.info("Request URI: {} ", request.getRequestURI());
         log.info("X-Correlation-ID: {} ", correlationId);
-        response.setHeader("X-Correlation-ID", correlationId);
+        response.setHeader(X_CORRELATION_ID, correlationId);
         return true;
     }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        MDC.remove(CorrelationId.MDC_KEY);
+    }
 }
@@ -0,0 +1,33 @@
+package com.poleepo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import static com.poleepo.config.CostantConfig.REACTIVE_PROFILE;
+import static com.poleepo.config.CostantConfig.X_CORRELATION_ID;
+
+/**
+ * WebFlux counterpart of {@link LoggingInterceptor}, active with the reactive profile.
+ * The correlation id is written in the Reactor context, from which it is restored in
+ * the MDC on whatever thread the request continues.
+ */
+@Component
+@Profile(REACTIVE_PROFILE)
+@Slf4j
+public class LoggingWebFilter implements WebFilter {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String correlationId = CorrelationId.resolve(exchange.getRequest().getHeaders().getFirst(X_CORRELATION_ID));
+        log.info("Request URI: {} ", exchange.getRequest().getURI().getPath());
+        log.info("X-Correlation-ID: {} ", correlationId);
+        exchange.getResponse().getHeaders().set(X_CORRELATION_ID, correlationId);
+        return chain.filter(exchange)
+                .contextWrite(context -> context.put(CorrelationId.MDC_KEY, correlationId));
+    }
+}
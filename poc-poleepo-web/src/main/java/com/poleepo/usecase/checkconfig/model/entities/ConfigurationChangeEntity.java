@@ -0,0 +1,31 @@
+package com.poleepo.usecase.checkconfig.model.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "configuration_change")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConfigurationChangeEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "store_id", nullable = false)
+    private Long storeId;
+
+    @Column(name = "source", nullable = false)
+    private Long source;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+}
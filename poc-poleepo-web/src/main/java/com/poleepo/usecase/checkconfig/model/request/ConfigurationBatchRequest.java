@@ -0,0 +1,23 @@
+package com.poleepo.usecase.checkconfig.model.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConfigurationBatchRequest {
+
+    @NotNull
+    private String store;
+    @NotNull
+    private String source;
+    @NotNull
+    private String apiToken;
+    @NotNull
+    private String shopId;
+}
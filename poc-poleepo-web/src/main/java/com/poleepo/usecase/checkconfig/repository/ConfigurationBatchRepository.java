@@ -0,0 +1,74 @@
+package com.poleepo.usecase.checkconfig.repository;
+
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.usecase.checkconfig.model.entities.ConfigurationEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Bulk statements on the configuration tables. The ids are left to the database and never
+ * read back, so the inserts go out as JDBC batches of {@code check.config.batch.jdbc-batch-size}
+ * rows, which MySQL receives as multi-row inserts with {@code rewriteBatchedStatements=true}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ConfigurationBatchRepository {
+
+    private static final String INSERT_CONFIGURATION = "INSERT INTO configuration (store_id, source, api_token, shop_id) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE id = id";
+    private static final String INSERT_CHANGE = "INSERT INTO configuration_change (store_id, source, changed_at) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CheckConfigProperties checkConfigProperties;
+
+    /**
+     * Store and source of the given configurations already in the table, one query per
+     * JDBC batch.
+     */
+    public List<ConfigurationEntity> findExisting(List<ConfigurationEntity> configurations) {
+        List<ConfigurationEntity> existing = new ArrayList<>();
+        int batchSize = checkConfigProperties.getBatch().getJdbcBatchSize();
+        for (int from = 0; from < configurations.size(); from += batchSize) {
+            List<ConfigurationEntity> chunk = configurations.subList(from, Math.min(from + batchSize, configurations.size()));
+            String tuples = String.join(", ", Collections.nCopies(chunk.size(), "(?, ?)"));
+            Object[] args = chunk.stream()
+                    .flatMap(configuration -> Stream.of(configuration.getStoreId(), configuration.getSource()))
+                    .toArray();
+            existing.addAll(jdbcTemplate.query("SELECT store_id, source FROM configuration WHERE (store_id, source) IN (" + tuples + ")",
+                    (rs, rowNum) -> ConfigurationEntity.builder()
+                            .storeId(rs.getLong("store_id"))
+                            .source(rs.getLong("source"))
+                            .build(),
+                    args));
+        }
+        return existing;
+    }
+
+    public void insertAll(List<ConfigurationEntity> configurations) {
+        jdbcTemplate.batchUpdate(INSERT_CONFIGURATION, configurations, checkConfigProperties.getBatch().getJdbcBatchSize(),
+                (ps, configuration) -> {
+                    ps.setLong(1, configuration.getStoreId());
+                    ps.setLong(2, configuration.getSource());
+                    ps.setString(3, configuration.getApiToken());
+                    ps.setString(4, configuration.getShopId());
+                });
+    }
+
+    public void insertChanges(List<ConfigurationEntity> configurations, Instant changedAt) {
+        Timestamp timestamp = Timestamp.from(changedAt);
+        jdbcTemplate.batchUpdate(INSERT_CHANGE, configurations, checkConfigProperties.getBatch().getJdbcBatchSize(),
+                (ps, configuration) -> {
+                    ps.setLong(1, configuration.getStoreId());
+                    ps.setLong(2, configuration.getSource());
+                    ps.setTimestamp(3, timestamp);
+                });
+    }
+}
@@ -0,0 +1,26 @@
+package com.poleepo.usecase.checkconfig.repository;
+
+import com.poleepo.usecase.checkconfig.model.entities.ConfigurationChangeEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ConfigurationChangeRepository extends JpaRepository<ConfigurationChangeEntity, Long> {
+
+    List<ConfigurationChangeEntity> findByIdGreaterThanOrderByIdAsc(Long id);
+
+    Optional<ConfigurationChangeEntity> findTopByOrderByIdDesc();
+
+    @Modifying
+    @Transactional
+    @Query("delete from ConfigurationChangeEntity c where c.changedAt < :before")
+    int deleteChangedBefore(@Param("before") Instant before);
+}
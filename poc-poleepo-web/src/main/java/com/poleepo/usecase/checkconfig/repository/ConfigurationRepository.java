@@ -2,7 +2,11 @@ package com.poleepo.usecase.checkconfig.repository;
 
 import com.poleepo.usecase.checkconfig.model.entities.ConfigurationEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -10,4 +14,17 @@ import java.util.Optional;
 public interface ConfigurationRepository extends JpaRepository<ConfigurationEntity, Long> {
 
     Optional<ConfigurationEntity> findAllByStoreIdAndSource(Long storeId, Long source);
+
+    /**
+     * Inserts the configuration unless one exists for the store and source, in a single
+     * statement relying on {@code uk_configuration_store_source}. Returns 1 when inserted,
+     * 0 when it already existed: the datasource URL needs {@code useAffectedRows=true},
+     * otherwise the driver reports the matched row as 1.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO configuration (store_id, source, api_token, shop_id) VALUES (:storeId, :source, :apiToken, :shopId) "
+            + "ON DUPLICATE KEY UPDATE id = id", nativeQuery = true)
+    int insertIfAbsent(@Param("storeId") Long storeId, @Param("source") Long source,
+                       @Param("apiToken") String apiToken, @Param("shopId") String shopId);
 }
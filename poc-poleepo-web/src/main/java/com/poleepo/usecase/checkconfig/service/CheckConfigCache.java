@@ -0,0 +1,100 @@
+package com.poleepo.usecase.checkconfig.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.poleepo.exception.ConfigurationNotValidException;
+import com.poleepo.exception.GenericException;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.usecase.checkconfig.model.request.ConfigurationRequest;
+import com.poleepo.usecase.checkconfig.model.response.CheckConfigResponseDto;
+import com.poleepo.usecase.retrievecategory.model.ShopDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Shop ids returned by the check-config service, keyed by API token. Entries live for
+ * {@code check.config.shops.ttl}; a token rejected with 401 is cached as unauthorized for
+ * {@code unauthorized-ttl}, so retries with a bad token do not reach the upstream.
+ * Concurrent lookups of a missing token share one upstream call; other failures are not
+ * cached. {@link #evict} drops a token, e.g. after shops were added to the account.
+ * Hit/miss metrics are published under the {@code cache.*} meters with tag
+ * {@code cache=checkConfigShops}.
+ */
+@Component
+@Slf4j
+public class CheckConfigCache {
+
+    public static final String CACHE_NAME = "checkConfigShops";
+
+    private final ICheckGatewayDriver checkGatewayDriver;
+    private final AsyncCache<String, Shops> cache;
+
+    public CheckConfigCache(ICheckGatewayDriver checkGatewayDriver, CheckConfigProperties checkConfigProperties, MeterRegistry meterRegistry) {
+        this.checkGatewayDriver = checkGatewayDriver;
+        CheckConfigProperties.Shops config = checkConfigProperties.getShops();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfter(Expiry.<String, Shops>writing((token, shops) -> shops.authorized() ? config.getTtl() : config.getUnauthorizedTtl()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Set<String> shopIds(@NonNull String store, @NonNull String source, @NonNull ConfigurationRequest configurationRequest) {
+        return shopIdsReactive(store, source, configurationRequest).block();
+    }
+
+    /**
+     * Shop ids of the token of {@code configurationRequest}; fails with
+     * {@link ConfigurationNotValidException} when the token is rejected. A subscriber
+     * cancelling does not cancel the shared call other lookups may be waiting on.
+     */
+    public Mono<Set<String>> shopIdsReactive(@NonNull String store, @NonNull String source, @NonNull ConfigurationRequest configurationRequest) {
+        return Mono.defer(() -> {
+            String token = configurationRequest.getApiToken();
+            CompletableFuture<Shops> shops = cache.get(token, (key, executor) -> load(store, source, configurationRequest));
+            return Mono.fromFuture(shops, true)
+                    // Caffeine evicts a failed load asynchronously: drop it here so the next caller retries at once
+                    .doOnError(e -> cache.asMap().remove(token, shops))
+                    .map(loaded -> {
+                        if (!loaded.authorized()) {
+                            throw new ConfigurationNotValidException("Token API non autorizzato per il negozio e la fonte specificati");
+                        }
+                        return loaded.shopIds();
+                    });
+        });
+    }
+
+    public void evict(@NonNull String apiToken) {
+        cache.synchronous().invalidate(apiToken);
+    }
+
+    private CompletableFuture<Shops> load(String store, String source, ConfigurationRequest configurationRequest) {
+        return checkGatewayDriver.callCheckConfigReactive(store, source, configurationRequest)
+                .map(CheckConfigCache::toShops)
+                .switchIfEmpty(Mono.error(() -> new GenericException("Errore durante la chiamata al servizio di configurazione")))
+                .onErrorResume(ConfigurationNotValidException.class, e -> Mono.just(Shops.UNAUTHORIZED))
+                .toFuture();
+    }
+
+    private static Shops toShops(CheckConfigResponseDto response) {
+        List<ShopDto> shops = Objects.requireNonNullElse(response.getShops(), List.of());
+        return new Shops(shops.stream().map(ShopDto::getId).filter(Objects::nonNull).collect(Collectors.toUnmodifiableSet()), true);
+    }
+
+    private record Shops(Set<String> shopIds, boolean authorized) {
+
+        static final Shops UNAUTHORIZED = new Shops(Set.of(), false);
+    }
+}
@@ -1,14 +1,22 @@
 package com.poleepo.usecase.checkconfig.service;
 
+import com.poleepo.config.WebClientConfig;
+import com.poleepo.exception.ConfigurationNotValidException;
 import com.poleepo.exception.GenericException;
 import com.poleepo.usecase.checkconfig.model.response.CheckConfigResponseDto;
 import com.poleepo.usecase.checkconfig.model.request.ConfigurationRequest;
 import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.service.GatewayMetrics;
+import com.poleepo.service.GatewayResilience;
+import com.poleepo.service.GatewayResilience.CallType;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
 @Service
@@ -16,30 +24,42 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class CheckGatewayDriver implements ICheckGatewayDriver {
 
-    private final WebClient.Builder webClientBuilder;
+    @Qualifier(WebClientConfig.CHECK_CONFIG_WEB_CLIENT)
+    private final WebClient webClient;
     private final CheckConfigProperties checkConfigProperties;
+    private final GatewayResilience gatewayResilience;
 
     @Override
     public CheckConfigResponseDto callCheckConfig(@NonNull String store, @NonNull String source, @NonNull ConfigurationRequest configurationRequest) {
-        log.info("Calling check config for store: {} and source: {}", store, source);
-
-        final WebClient webClient = webClientBuilder.build();
+        return callCheckConfigReactive(store, source, configurationRequest).block();
+    }
 
-        try {
-            Mono<CheckConfigResponseDto> responseMono = webClient
-                    .get()
-                    .uri(checkConfigProperties.getUrl())
-                    .header("Authorization", "Bearer " + configurationRequest.getApiToken())
-                    .retrieve()
-                    .onStatus(status -> !status.is2xxSuccessful(), clientResponse -> Mono.error(new RuntimeException("Errore chiamata API: " + clientResponse.statusCode())))
-                    .bodyToMono(CheckConfigResponseDto.class);
+    @Override
+    public Mono<CheckConfigResponseDto> callCheckConfigReactive(@NonNull String store, @NonNull String source, @NonNull ConfigurationRequest configurationRequest) {
+        return gatewayResilience.decorate(GatewayMetrics.CHECK_CONFIG, "checkConfig", CallType.READ, Mono.defer(() -> {
+                    log.info("Calling check config for store: {} and source: {}", store, source);
+                    return webClient
+                            .get()
+                            .uri(checkConfigProperties.getUrl())
+                            .header("Authorization", "Bearer " + configurationRequest.getApiToken())
+                            .retrieve()
+                            .onStatus(status -> status.value() == HttpStatus.UNAUTHORIZED.value(), clientResponse -> Mono.error(unauthorized()))
+                            // 5xx are left to the default handler, so that they can be retried
+                            .onStatus(status -> !status.is2xxSuccessful() && !status.is5xxServerError(), clientResponse -> Mono.error(new RuntimeException("Errore chiamata API: " + clientResponse.statusCode())))
+                            .bodyToMono(CheckConfigResponseDto.class);
+                }))
+                .doOnSuccess(response -> log.info("Successfully received response from check config endpoint"))
+                .onErrorMap(e -> {
+                    if (e instanceof ConfigurationNotValidException || e instanceof WebClientResponseException.Unauthorized) {
+                        log.warn("Token API rifiutato dal servizio di configurazione");
+                        return unauthorized();
+                    }
+                    log.error("Error calling check config endpoint", e);
+                    return new GenericException("Errore durante la chiamata al servizio di configurazione");
+                });
+    }
 
-            CheckConfigResponseDto response = responseMono.block();
-            log.info("Successfully received response from check config endpoint");
-            return response;
-        } catch (Exception e) {
-            log.error("Error calling check config endpoint", e);
-            throw new GenericException("Errore durante la chiamata al servizio di configurazione");
-        }
+    private static ConfigurationNotValidException unauthorized() {
+        return new ConfigurationNotValidException("Token API non autorizzato per il negozio e la fonte specificati");
     }
 }
@@ -0,0 +1,175 @@
+package com.poleepo.usecase.checkconfig.service;
+
+import com.poleepo.enumeration.ErrorCode;
+import com.poleepo.exception.ConfigurationNotValidException;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.service.CredentialRegistry;
+import com.poleepo.usecase.checkconfig.model.entities.ConfigurationEntity;
+import com.poleepo.usecase.checkconfig.model.request.ConfigurationBatchRequest;
+import com.poleepo.usecase.checkconfig.model.request.ConfigurationRequest;
+import com.poleepo.usecase.checkconfig.model.response.ConfigurationBatchResult;
+import jakarta.validation.Validator;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registers a list of configurations with the same checks as POST /configurations, but
+ * looking up the shops once per distinct token, at most
+ * {@code check.config.batch.concurrency} at a time, and inserting all the accepted ones
+ * in JDBC batches. Results come back in request order and a rejected configuration only
+ * fails its own result.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ConfigurationBatchServiceImpl implements IConfigurationBatchService {
+
+    private final CheckConfigCache checkConfigCache;
+    private final ConfigurationCache configurationCache;
+    private final CredentialRegistry credentialRegistry;
+    private final CheckConfigProperties checkConfigProperties;
+    private final Validator validator;
+
+    @Override
+    public Mono<List<ConfigurationBatchResult>> createConfigurations(@NonNull List<ConfigurationBatchRequest> requests) {
+        return Mono.defer(() -> {
+            log.info("Inizio batch configurazioni, elementi: {}", requests.size());
+            ConfigurationBatchResult[] results = new ConfigurationBatchResult[requests.size()];
+            Map<String, List<Integer>> indexesByToken = new LinkedHashMap<>();
+            Set<String> storeSources = new HashSet<>();
+            for (int index = 0; index < requests.size(); index++) {
+                ErrorCode rejected = validate(requests.get(index), storeSources);
+                if (rejected != null) {
+                    results[index] = failure(index, rejected);
+                } else {
+                    indexesByToken.computeIfAbsent(requests.get(index).getApiToken(), token -> new ArrayList<>()).add(index);
+                }
+            }
+            return Flux.fromIterable(indexesByToken.values())
+                    .flatMap(indexes -> checkShops(requests, indexes, results), checkConfigProperties.getBatch().getConcurrency())
+                    .flatMapIterable(indexes -> indexes)
+                    .collectList()
+                    .flatMap(accepted -> insert(requests, accepted, results))
+                    .then(Mono.fromSupplier(() -> Arrays.asList(results)))
+                    .doOnNext(response -> log.info("Fine batch configurazioni, inserite: {}",
+                            response.stream().filter(ConfigurationBatchResult::isSuccess).count()));
+        });
+    }
+
+    private ErrorCode validate(ConfigurationBatchRequest request, Set<String> storeSources) {
+        if (request == null || !validator.validate(request).isEmpty()) {
+            return ErrorCode.MISSING_REQUIRED_FIELD;
+        }
+        if (!isNumber(request.getStore()) || !isNumber(request.getSource())
+                || !credentialRegistry.isCheckConfigTokenValid(request.getApiToken(), request.getShopId())) {
+            return ErrorCode.CONFIGURATION_NOT_VALID;
+        }
+        // a store and source repeated in the batch is rejected like an existing configuration
+        if (!storeSources.add(request.getStore() + ':' + request.getSource())) {
+            return ErrorCode.CONFIGURATION_NOT_VALID;
+        }
+        return null;
+    }
+
+    /**
+     * Looks up the shops of the token shared by {@code indexes} and returns
+     * those whose shop it lists; the others get their failed result.
+     */
+    private Mono<List<Integer>> checkShops(List<ConfigurationBatchRequest> requests, List<Integer> indexes, ConfigurationBatchResult[] results) {
+        ConfigurationBatchRequest first = requests.get(indexes.get(0));
+        ConfigurationRequest checkRequest = ConfigurationRequest.builder()
+                .apiToken(first.getApiToken())
+                .shopId(first.getShopId())
+                .build();
+        return checkConfigCache.shopIdsReactive(first.getStore(), first.getSource(), checkRequest)
+                .map(shopIds -> {
+                    List<Integer> accepted = new ArrayList<>();
+                    for (Integer index : indexes) {
+                        if (shopIds.contains(requests.get(index).getShopId())) {
+                            accepted.add(index);
+                        } else {
+                            results[index] = failure(index, ErrorCode.CONFIGURATION_NOT_FOUND);
+                        }
+                    }
+                    return accepted;
+                })
+                .onErrorResume(e -> {
+                    log.error("Errore nella verifica di {} configurazioni del batch: {}", indexes.size(), e.getMessage());
+                    ErrorCode errorCode = e instanceof ConfigurationNotValidException ? ErrorCode.CONFIGURATION_NOT_VALID : ErrorCode.GENERIC;
+                    indexes.forEach(index -> results[index] = failure(index, errorCode));
+                    return Mono.just(List.of());
+                });
+    }
+
+    private Mono<Void> insert(List<ConfigurationBatchRequest> requests, List<Integer> accepted, ConfigurationBatchResult[] results) {
+        Map<ConfigurationEntity, Integer> indexByEntity = new IdentityHashMap<>();
+        for (Integer index : accepted) {
+            indexByEntity.put(toConfigurationEntity(requests.get(index)), index);
+        }
+        return Mono.fromCallable(() -> configurationCache.insertAllIfAbsent(new ArrayList<>(indexByEntity.keySet())))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(inserted -> {
+                    Set<ConfigurationEntity> insertedEntities = Collections.newSetFromMap(new IdentityHashMap<>());
+                    insertedEntities.addAll(inserted);
+                    indexByEntity.forEach((entity, index) -> results[index] = insertedEntities.contains(entity)
+                            ? success(index, entity.getShopId())
+                            : failure(index, ErrorCode.CONFIGURATION_NOT_VALID));
+                })
+                .onErrorResume(e -> {
+                    log.error("Errore durante il salvataggio del batch di configurazioni: {}", e.getMessage());
+                    indexByEntity.values().forEach(index -> results[index] = failure(index, ErrorCode.GENERIC));
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static ConfigurationEntity toConfigurationEntity(ConfigurationBatchRequest request) {
+        return ConfigurationEntity.builder()
+                .storeId(Long.valueOf(request.getStore()))
+                .source(Long.valueOf(request.getSource()))
+                .apiToken(request.getApiToken())
+                .shopId(request.getShopId())
+                .build();
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            Long.parseLong(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static ConfigurationBatchResult success(int index, String shopId) {
+        return ConfigurationBatchResult.builder()
+                .index(index)
+                .success(true)
+                .data(shopId)
+                .build();
+    }
+
+    private static ConfigurationBatchResult failure(int index, ErrorCode errorCode) {
+        return ConfigurationBatchResult.builder()
+                .index(index)
+                .success(false)
+                .error(errorCode.getCode())
+                .message(errorCode.getMessage())
+                .build();
+    }
+}
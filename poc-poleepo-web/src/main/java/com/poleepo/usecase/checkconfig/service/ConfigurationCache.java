@@ -0,0 +1,163 @@
+package com.poleepo.usecase.checkconfig.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.usecase.checkconfig.model.entities.ConfigurationChangeEntity;
+import com.poleepo.usecase.checkconfig.model.entities.ConfigurationEntity;
+import com.poleepo.usecase.checkconfig.repository.ConfigurationBatchRepository;
+import com.poleepo.usecase.checkconfig.repository.ConfigurationChangeRepository;
+import com.poleepo.usecase.checkconfig.repository.ConfigurationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of the configuration of each store and source. Missing
+ * configurations are cached too, so a lookup only reaches MySQL the first time.
+ * {@link #insertIfAbsent} writes a row in {@code configuration_change} in the same
+ * transaction as the configuration: every instance polls that table and drops the
+ * entries changed elsewhere, the local one is dropped at once.
+ * Hit/miss metrics are published under the {@code cache.*} meters with tag
+ * {@code cache=configuration}.
+ */
+@Component
+@Slf4j
+public class ConfigurationCache {
+
+    public static final String CACHE_NAME = "configuration";
+
+    private final ConfigurationRepository configurationRepository;
+    private final ConfigurationChangeRepository configurationChangeRepository;
+    private final ConfigurationBatchRepository configurationBatchRepository;
+    private final CheckConfigProperties.Cache config;
+    private final Cache<Key, Optional<ConfigurationEntity>> cache;
+    private volatile Long lastChangeId;
+
+    public ConfigurationCache(ConfigurationRepository configurationRepository, ConfigurationChangeRepository configurationChangeRepository,
+                              ConfigurationBatchRepository configurationBatchRepository, CheckConfigProperties checkConfigProperties,
+                              MeterRegistry meterRegistry) {
+        this.configurationRepository = configurationRepository;
+        this.configurationChangeRepository = configurationChangeRepository;
+        this.configurationBatchRepository = configurationBatchRepository;
+        this.config = checkConfigProperties.getCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Optional<ConfigurationEntity> find(@NonNull Long storeId, @NonNull Long source) {
+        return cache.get(new Key(storeId, source), key -> configurationRepository.findAllByStoreIdAndSource(storeId, source));
+    }
+
+    /**
+     * Same lookup as {@link #find}: a cached entry is returned on the calling thread, a
+     * miss is loaded on the bounded elastic scheduler.
+     */
+    public Mono<Optional<ConfigurationEntity>> findReactive(@NonNull Long storeId, @NonNull Long source) {
+        return Mono.defer(() -> {
+            Optional<ConfigurationEntity> cached = cache.getIfPresent(new Key(storeId, source));
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return Mono.fromCallable(() -> find(storeId, source))
+                    .subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    /**
+     * Inserts the configuration unless the store and source already have one; returns
+     * whether it was inserted. The local entry is dropped either way, since a cached miss
+     * is wrong once the insert found a row.
+     */
+    @Transactional
+    public boolean insertIfAbsent(@NonNull ConfigurationEntity configurationEntity) {
+        Key key = Key.of(configurationEntity);
+        boolean inserted = configurationRepository.insertIfAbsent(configurationEntity.getStoreId(), configurationEntity.getSource(),
+                configurationEntity.getApiToken(), configurationEntity.getShopId()) > 0;
+        if (inserted) {
+            configurationChangeRepository.save(ConfigurationChangeEntity.builder()
+                    .storeId(key.storeId())
+                    .source(key.source())
+                    .changedAt(Instant.now())
+                    .build());
+        }
+        cache.invalidate(key);
+        return inserted;
+    }
+
+    /**
+     * Bulk version of {@link #insertIfAbsent}: the configurations whose store and source
+     * already exist are skipped with a single lookup, the others are inserted in JDBC
+     * batches together with their change rows. Returns the inserted configurations.
+     */
+    @Transactional
+    public List<ConfigurationEntity> insertAllIfAbsent(@NonNull List<ConfigurationEntity> configurations) {
+        if (configurations.isEmpty()) {
+            return List.of();
+        }
+        Set<Key> existing = configurationBatchRepository.findExisting(configurations).stream()
+                .map(Key::of)
+                .collect(Collectors.toSet());
+        List<ConfigurationEntity> inserted = configurations.stream()
+                .filter(configuration -> !existing.contains(Key.of(configuration)))
+                .toList();
+        if (!inserted.isEmpty()) {
+            configurationBatchRepository.insertAll(inserted);
+            configurationBatchRepository.insertChanges(inserted, Instant.now());
+        }
+        configurations.forEach(configuration -> cache.invalidate(Key.of(configuration)));
+        return inserted;
+    }
+
+    @Scheduled(fixedDelayString = "#{@checkConfigProperties.cache.pollInterval.toMillis()}")
+    public void pollChanges() {
+        try {
+            if (lastChangeId == null) {
+                // nothing is cached before the first poll: start from the latest change
+                lastChangeId = configurationChangeRepository.findTopByOrderByIdDesc()
+                        .map(ConfigurationChangeEntity::getId)
+                        .orElse(0L);
+                return;
+            }
+            List<ConfigurationChangeEntity> changes = configurationChangeRepository.findByIdGreaterThanOrderByIdAsc(lastChangeId);
+            for (ConfigurationChangeEntity change : changes) {
+                cache.invalidate(new Key(change.getStoreId(), change.getSource()));
+                lastChangeId = change.getId();
+            }
+            if (!changes.isEmpty()) {
+                log.info("Invalidate {} configurazioni modificate", changes.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Errore durante la lettura delle modifiche alle configurazioni: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT1H")
+    public void purgeChanges() {
+        int purged = configurationChangeRepository.deleteChangedBefore(Instant.now().minus(config.getChangeRetention()));
+        log.info("Eliminate {} modifiche alle configurazioni", purged);
+    }
+
+    private record Key(Long storeId, Long source) {
+
+        static Key of(ConfigurationEntity configuration) {
+            return new Key(configuration.getStoreId(), configuration.getSource());
+        }
+    }
+}
@@ -2,73 +2,98 @@ package com.poleepo.usecase.checkconfig.service;
 
 import com.poleepo.exception.ConfigurationAlreadyExistException;
 import com.poleepo.exception.ConfigurationNotValidException;
-import com.poleepo.exception.GenericException;
 import com.poleepo.exception.ShopNotFoundException;
-import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.service.CredentialRegistry;
 import com.poleepo.usecase.checkconfig.model.entities.ConfigurationEntity;
 import com.poleepo.usecase.checkconfig.model.request.ConfigurationRequest;
-import com.poleepo.usecase.checkconfig.model.response.CheckConfigResponseDto;
-import com.poleepo.usecase.checkconfig.repository.ConfigurationRepository;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Set;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ConfigurationServiceImpl implements IConfigurationService{
 
-    private final ICheckGatewayDriver checkGatewayDriver;
-    private final ConfigurationRepository configurationRepository;
-    private final CheckConfigProperties checkConfigProperties;
+    private final CheckConfigCache checkConfigCache;
+    private final ConfigurationCache configurationCache;
+    private final CredentialRegistry credentialRegistry;
 
 
     @Override
     public boolean createOrUpdateConfiguration(@NonNull String store, @NonNull String source, @NonNull ConfigurationRequest configurationRequest) {
 
-        boolean checkApiToken = getAuthorizationHeader(configurationRequest.getApiToken(), configurationRequest.getShopId());
-        if(!checkApiToken){
-            throw new ConfigurationNotValidException("Token API non autorizzato per il negozio e la fonte specificati");
+        checkApiToken(configurationRequest);
+
+        configurationCache.find(Long.valueOf(store), Long.valueOf(source))
+                .ifPresent(config -> configurationAlreadyExists(store, source));
+
+        verifyShop(checkConfigCache.shopIds(store, source, configurationRequest), configurationRequest);
+
+        if (!configurationCache.insertIfAbsent(toConfigurationEntity(store, source, configurationRequest))) {
+            configurationAlreadyExists(store, source);
         }
 
-        configurationRepository.findAllByStoreIdAndSource(Long.valueOf(store), Long.valueOf(source))
-                .ifPresent(config -> {
-                    log.info("Configuration already exists for store: {} and source: {}", store, source);
-                    throw new ConfigurationAlreadyExistException("Configurazione già esistente per il negozio e la fonte specificati");
-                });
+        return true;
+
+    }
+
+    /**
+     * Same flow as {@link #createOrUpdateConfiguration}: the blocking JPA calls run
+     * on the bounded elastic scheduler so they never hold an event-loop thread.
+     */
+    @Override
+    public Mono<Boolean> createOrUpdateConfigurationReactive(@NonNull String store, @NonNull String source, @NonNull ConfigurationRequest configurationRequest) {
+        return Mono.fromRunnable(() -> checkApiToken(configurationRequest))
+                .then(Mono.defer(() -> configurationCache.findReactive(Long.valueOf(store), Long.valueOf(source))))
+                .flatMap(existing -> {
+                    existing.ifPresent(config -> configurationAlreadyExists(store, source));
+                    return checkConfigCache.shopIdsReactive(store, source, configurationRequest);
+                })
+                .flatMap(shopIds -> {
+                    verifyShop(shopIds, configurationRequest);
+                    return Mono.fromCallable(() -> configurationCache.insertIfAbsent(toConfigurationEntity(store, source, configurationRequest)))
+                            .subscribeOn(Schedulers.boundedElastic());
+                })
+                .doOnNext(inserted -> {
+                    if (!inserted) {
+                        configurationAlreadyExists(store, source);
+                    }
+                })
+                .thenReturn(true);
+    }
 
-        final CheckConfigResponseDto checkConfigResponseDto = checkGatewayDriver.callCheckConfig(store, source, configurationRequest);
+    private void checkApiToken(ConfigurationRequest configurationRequest) {
+        boolean checkApiToken = credentialRegistry.isCheckConfigTokenValid(configurationRequest.getApiToken(), configurationRequest.getShopId());
+        if(!checkApiToken){
+            throw new ConfigurationNotValidException("Token API non autorizzato per il negozio e la fonte specificati");
+        }
+    }
 
-        boolean verifyShop = checkConfigResponseDto.getShops().stream()
-                .anyMatch(shop -> shop.getId().equals(configurationRequest.getShopId()));
+    private void configurationAlreadyExists(String store, String source) {
+        log.info("Configuration already exists for store: {} and source: {}", store, source);
+        throw new ConfigurationAlreadyExistException("Configurazione già esistente per il negozio e la fonte specificati");
+    }
 
-        if (!verifyShop) {
+    private void verifyShop(Set<String> shopIds, ConfigurationRequest configurationRequest) {
+        if (!shopIds.contains(configurationRequest.getShopId())) {
+            // the shop may have been added after the list was cached: reload it on the next attempt
+            checkConfigCache.evict(configurationRequest.getApiToken());
             throw new ShopNotFoundException("Shop non trovato nella configurazione");
         }
+    }
 
-        final ConfigurationEntity configurationEntity = ConfigurationEntity.builder()
+    private ConfigurationEntity toConfigurationEntity(String store, String source, ConfigurationRequest configurationRequest) {
+        return ConfigurationEntity.builder()
                 .storeId(Long.valueOf(store))
                 .source(Long.valueOf(source))
                 .apiToken(configurationRequest.getApiToken())
                 .shopId(configurationRequest.getShopId())
                 .build();
-        configurationRepository.save(configurationEntity);
-
-        return true;
-
-    }
-
-    private boolean getAuthorizationHeader(String apiToken, String shopId) {
-        String[] splitToken = checkConfigProperties.getAvailableToken().split(",");
-        switch (shopId) {
-            case "10205":
-                return apiToken.equals(splitToken[1]);
-            case "10124":
-            case "10015":
-                return apiToken.equals(splitToken[0]);
-            default:
-                return false;
-        }
     }
 }
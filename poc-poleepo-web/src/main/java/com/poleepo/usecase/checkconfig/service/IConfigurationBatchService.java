@@ -0,0 +1,13 @@
+package com.poleepo.usecase.checkconfig.service;
+
+import com.poleepo.usecase.checkconfig.model.request.ConfigurationBatchRequest;
+import com.poleepo.usecase.checkconfig.model.response.ConfigurationBatchResult;
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface IConfigurationBatchService {
+
+    Mono<List<ConfigurationBatchResult>> createConfigurations(@NonNull List<ConfigurationBatchRequest> requests);
+}
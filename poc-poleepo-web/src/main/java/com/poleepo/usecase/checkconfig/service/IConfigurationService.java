@@ -2,8 +2,11 @@ package com.poleepo.usecase.checkconfig.service;
 
 import com.poleepo.usecase.checkconfig.model.request.ConfigurationRequest;
 import lombok.NonNull;
+import reactor.core.publisher.Mono;
 
 public interface IConfigurationService {
 
     boolean createOrUpdateConfiguration(@NonNull String store, @NonNull String source, @NonNull ConfigurationRequest configurationRequest);
+
+    Mono<Boolean> createOrUpdateConfigurationReactive(@NonNull String store, @NonNull String source, @NonNull ConfigurationRequest configurationRequest);
 }
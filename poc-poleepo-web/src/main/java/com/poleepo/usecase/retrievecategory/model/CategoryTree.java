@@ -15,6 +15,6 @@ public class CategoryTree {
 
     private String id;
     private String name;
-    private List<CategoryDto> children;
+    private List<CategoryTree> children;
 
 }
@@ -0,0 +1,114 @@
+package com.poleepo.usecase.retrievecategory.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.usecase.retrievecategory.model.CategoryDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Bounded cache of the flattened leaf categories, keyed by the authorization
+ * header sent to the marketplace. Entries are reloaded asynchronously once they
+ * are older than the refresh interval; until the hard expiry the previous list is
+ * served, also when the reload fails.
+ * While a token is missing or expired the cache holds a single in-flight load for
+ * it: concurrent callers join that load and share its result or its error instead
+ * of calling the upstream again. Joined calls are counted by
+ * {@code categories.upstream.coalesced}.
+ * Loads go through the reactive gateway calls, so no thread is parked while the
+ * upstream answers, whichever web stack serves the request.
+ * Hit/miss/load metrics are published under the {@code cache.*} meters with tag
+ * {@code cache=categories}.
+ */
+@Component
+@Slf4j
+public class CategoryCache {
+
+    public static final String CACHE_NAME = "categories";
+    public static final String COALESCED_METRIC = "categories.upstream.coalesced";
+
+    private final ICategoryGatewayDriver categoryGatewayDriver;
+    private final CategoryFlattener categoryFlattener;
+    private final boolean streaming;
+    private final AsyncLoadingCache<String, List<CategoryDto>> cache;
+    private final Counter coalescedRequests;
+
+    public CategoryCache(ICategoryGatewayDriver categoryGatewayDriver, CategoryFlattener categoryFlattener,
+                         CategoryProperties categoryProperties, MeterRegistry meterRegistry) {
+        this.categoryGatewayDriver = categoryGatewayDriver;
+        this.categoryFlattener = categoryFlattener;
+        this.streaming = categoryProperties.isStreaming();
+
+        CategoryProperties.Cache config = categoryProperties.getCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .refreshAfterWrite(config.getRefreshAfterWrite())
+                .expireAfterWrite(config.getExpireAfterWrite())
+                .recordStats()
+                .buildAsync(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.coalescedRequests = Counter.builder(COALESCED_METRIC)
+                .description("Category requests served by an upstream call already in flight for the same token")
+                .register(meterRegistry);
+    }
+
+    public List<CategoryDto> get(@NonNull String authorizationHeader) {
+        CompletableFuture<List<CategoryDto>> categories = lookup(authorizationHeader);
+        try {
+            return categories.join();
+        } catch (CompletionException e) {
+            // Caffeine evicts a failed load asynchronously: drop it here so the next caller retries at once
+            cache.asMap().remove(authorizationHeader, categories);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #get(String)}: a subscriber cancelling does
+     * not cancel the shared load other callers may be waiting on.
+     */
+    public Mono<List<CategoryDto>> getReactive(@NonNull String authorizationHeader) {
+        return Mono.defer(() -> {
+            CompletableFuture<List<CategoryDto>> categories = lookup(authorizationHeader);
+            return Mono.fromFuture(categories, true)
+                    .doOnError(e -> cache.asMap().remove(authorizationHeader, categories));
+        });
+    }
+
+    private CompletableFuture<List<CategoryDto>> lookup(String authorizationHeader) {
+        boolean[] leader = new boolean[1];
+        CompletableFuture<List<CategoryDto>> categories = cache.get(authorizationHeader, (token, executor) -> {
+            leader[0] = true;
+            return load(token, executor);
+        });
+        if (!leader[0] && !categories.isDone()) {
+            coalescedRequests.increment();
+        }
+        return categories;
+    }
+
+    private CompletableFuture<List<CategoryDto>> load(String authorizationHeader, Executor executor) {
+        log.info("Loading categories in cache");
+        Mono<List<CategoryDto>> categories = streaming
+                ? categoryGatewayDriver.getLeafCategoriesReactive(authorizationHeader).collectList()
+                : categoryGatewayDriver.getCategoriesReactive(authorizationHeader).map(categoryFlattener::flatten);
+        return categories
+                .<List<CategoryDto>>map(List::copyOf)
+                .defaultIfEmpty(List.of())
+                .toFuture();
+    }
+}
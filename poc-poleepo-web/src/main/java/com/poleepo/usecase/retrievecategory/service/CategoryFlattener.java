@@ -0,0 +1,137 @@
+package com.poleepo.usecase.retrievecategory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.usecase.retrievecategory.model.CategoryDto;
+import com.poleepo.usecase.retrievecategory.model.CategoryTree;
+import com.poleepo.usecase.retrievecategory.model.response.CategoryResponse;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Converts the category tree returned by the marketplace into the flat list of
+ * leaf categories exposed by GET /categories, either from the deserialized tree or
+ * straight from the raw response body.
+ */
+@Component
+@RequiredArgsConstructor
+public class CategoryFlattener {
+
+    private static final String ROOT = "root";
+
+    private final ObjectMapper mapper;
+
+    public List<CategoryDto> flatten(@NonNull List<CategoryResponse> categories) {
+        List<CategoryDto> leafCategories = new ArrayList<>();
+        StringBuilder path = new StringBuilder(128);
+
+        for (CategoryResponse rootCategory : categories) {
+            path.setLength(0);
+            path.append(ROOT).append('/').append(rootCategory.getName());
+            if (rootCategory.getChildren() != null) {
+                buildLeafDtos(rootCategory.getChildren(), path, leafCategories);
+            }else {
+                leafCategories.add(toDto(rootCategory.getName(), path, rootCategory.getId()));
+            }
+        }
+        return leafCategories;
+    }
+
+    /**
+     * Depth-first walk of the typed tree with an explicit stack, so that the depth of
+     * the taxonomy is not bounded by the thread stack. The path of the current node is
+     * kept in a single builder, truncated back when leaving a level.
+     */
+    private static void buildLeafDtos(List<CategoryTree> roots, StringBuilder path, List<CategoryDto> result) {
+        Deque<Iterator<CategoryTree>> levels = new ArrayDeque<>();
+        int[] pathLengths = new int[16];
+        levels.push(roots.iterator());
+        pathLengths[0] = path.length();
+
+        while (!levels.isEmpty()) {
+            Iterator<CategoryTree> level = levels.peek();
+            if (!level.hasNext()) {
+                levels.pop();
+                continue;
+            }
+            CategoryTree node = level.next();
+            path.setLength(pathLengths[levels.size() - 1]);
+            path.append('/').append(node.getName());
+
+            if (node.getChildren() == null || node.getChildren().isEmpty()) {
+                result.add(toDto(node.getName(), path, node.getId()));
+            } else {
+                if (levels.size() == pathLengths.length) {
+                    pathLengths = Arrays.copyOf(pathLengths, pathLengths.length * 2);
+                }
+                pathLengths[levels.size()] = path.length();
+                levels.push(node.getChildren().iterator());
+            }
+        }
+    }
+
+    private static CategoryDto toDto(String name, CharSequence path, String sourceId) {
+        CategoryDto dto = new CategoryDto();
+        dto.setName(name);
+        dto.setPath(path.toString());
+        dto.setSourceId(sourceId);
+        return dto;
+    }
+
+    /**
+     * Streaming variant: parses the raw upstream body chunk by chunk and emits each
+     * leaf as soon as it is complete, without materializing the category tree. Each
+     * buffer is released once parsed; buffers still queued when the subscriber cancels
+     * or the parsing fails are released as they are discarded.
+     */
+    public Flux<CategoryDto> flatten(@NonNull Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            LeafCategoryParser parser = newParser();
+            return body.concatMapIterable(buffer -> parse(parser, buffer))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(end(parser))));
+        });
+    }
+
+    private LeafCategoryParser newParser() {
+        try {
+            return new LeafCategoryParser(mapper.getFactory());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<CategoryDto> parse(LeafCategoryParser parser, DataBuffer buffer) {
+        List<CategoryDto> leaves = new ArrayList<>();
+        try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+            while (chunks.hasNext()) {
+                leaves.addAll(parser.feed(chunks.next()));
+            }
+            return leaves;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private static List<CategoryDto> end(LeafCategoryParser parser) {
+        try {
+            return parser.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
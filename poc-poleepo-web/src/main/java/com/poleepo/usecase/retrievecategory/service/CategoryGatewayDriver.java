@@ -1,13 +1,23 @@
 package com.poleepo.usecase.retrievecategory.service;
 
+import com.poleepo.config.WebClientConfig;
 import com.poleepo.exception.GenericException;
+import com.poleepo.usecase.retrievecategory.model.CategoryDto;
 import com.poleepo.usecase.retrievecategory.model.response.CategoryResponse;
 import com.poleepo.properties.CategoryProperties;
+import com.poleepo.service.GatewayMetrics;
+import com.poleepo.service.GatewayResilience;
+import com.poleepo.service.GatewayResilience.CallType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -16,34 +26,64 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CategoryGatewayDriver implements ICategoryGatewayDriver {
 
-    private final WebClient.Builder webClientBuilder;
+    @Qualifier(WebClientConfig.CATEGORY_WEB_CLIENT)
+    private final WebClient webClient;
     private final CategoryProperties categoryProperties;
+    private final CategoryFlattener categoryFlattener;
+    private final GatewayResilience gatewayResilience;
 
     @Override
     public List<CategoryResponse> getCategories(String authorizationHeader) {
-        log.info("Calling categories API - begin");
-
-        try {
-            List<CategoryResponse> categories = webClientBuilder.build()
-                    .get()
-                    .uri(categoryProperties.getUrl())
-                    .header("Authorization", authorizationHeader)
-                    .retrieve()
-                    .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResponse -> {
-                                log.error("Error calling categories API: HTTP {}", clientResponse.statusCode());
-                                throw new GenericException("Errore durante la chiamata al servizio delle categorie");
-                            })
-                    .bodyToMono(new ParameterizedTypeReference<List<CategoryResponse>>() {})
-                    .block();
-
-            log.info("Successfully retrieved {} categories", categories != null ? categories.size() : 0);
-            log.info("Calling categories API - end");
-            return categories;
-
-        } catch (Exception e) {
-            log.error("Error calling categories API: {}", e.getMessage(), e);
-            throw new GenericException("Errore durante la chiamata al servizio delle categorie");
-        }
+        return getCategoriesReactive(authorizationHeader).block();
+    }
+
+    @Override
+    public List<CategoryDto> getLeafCategories(String authorizationHeader) {
+        return getLeafCategoriesReactive(authorizationHeader).collectList().block();
+    }
+
+    @Override
+    public Mono<List<CategoryResponse>> getCategoriesReactive(String authorizationHeader) {
+        return gatewayResilience.decorate(GatewayMetrics.CATEGORY, "getCategories", CallType.READ, Mono.defer(() -> {
+                    log.info("Calling categories API - begin");
+                    return retrieve(authorizationHeader)
+                            .bodyToMono(new ParameterizedTypeReference<List<CategoryResponse>>() {});
+                }))
+                .doOnSuccess(categories -> {
+                    log.info("Successfully retrieved {} categories", categories != null ? categories.size() : 0);
+                    log.info("Calling categories API - end");
+                })
+                .onErrorMap(this::toGenericException);
+    }
+
+    @Override
+    public Flux<CategoryDto> getLeafCategoriesReactive(String authorizationHeader) {
+        // leaves are emitted while the body is read: a retry would emit them twice
+        return gatewayResilience.decorate(GatewayMetrics.CATEGORY, "getLeafCategories", Flux.defer(() -> {
+                    log.info("Calling categories API in streaming - begin");
+                    return retrieve(authorizationHeader)
+                            .bodyToFlux(DataBuffer.class)
+                            .transform(categoryFlattener::flatten);
+                }))
+                .doOnComplete(() -> log.info("Calling categories API in streaming - end"))
+                .onErrorMap(this::toGenericException);
+    }
+
+    private WebClient.ResponseSpec retrieve(String authorizationHeader) {
+        return webClient
+                .get()
+                .uri(categoryProperties.getUrl())
+                .header("Authorization", authorizationHeader)
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError,
+                        clientResponse -> {
+                            log.error("Error calling categories API: HTTP {}", clientResponse.statusCode());
+                            throw new GenericException("Errore durante la chiamata al servizio delle categorie");
+                        });
+    }
+
+    private Throwable toGenericException(Throwable e) {
+        log.error("Error calling categories API: {}", e.getMessage(), e);
+        return new GenericException("Errore durante la chiamata al servizio delle categorie");
     }
 }
@@ -0,0 +1,100 @@
+package com.poleepo.usecase.retrievecategory.service;
+
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.service.CredentialRegistry;
+import com.poleepo.usecase.retrievecategory.model.CategoryDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Set of the leaf category ids the marketplace accepts, used to reject a product with
+ * an unknown or non-leaf category before any upstream call. It is rebuilt every
+ * {@code category.config.index.refresh-interval} from the {@link CategoryCache} entry of
+ * the default token, so it follows the same flattening as GET /categories and costs no
+ * extra upstream call. The ids are kept in an immutable {@link Set#copyOf} set, a single
+ * open-addressing array over the strings already held by the cache, looked up in O(1).
+ * Until the first load succeeds every category is let through and the marketplace
+ * decides; a failed reload keeps the previous index. Rejections are counted by
+ * {@value #REJECTED_METRIC}.
+ */
+@Component
+@Slf4j
+public class CategoryIndex {
+
+    public static final String SIZE_METRIC = "categories.index.size";
+    public static final String REJECTED_METRIC = "categories.index.rejected";
+
+    private final CategoryCache categoryCache;
+    private final CredentialRegistry credentialRegistry;
+    private final CategoryProperties.Index config;
+    private final Counter rejected;
+    private volatile Set<String> leafIds;
+
+    public CategoryIndex(CategoryCache categoryCache, CredentialRegistry credentialRegistry,
+                         CategoryProperties categoryProperties, MeterRegistry meterRegistry) {
+        this.categoryCache = categoryCache;
+        this.credentialRegistry = credentialRegistry;
+        this.config = categoryProperties.getIndex();
+        this.rejected = Counter.builder(REJECTED_METRIC)
+                .description("Product requests rejected for a category missing from the index")
+                .register(meterRegistry);
+        Gauge.builder(SIZE_METRIC, this, index -> {
+                    Set<String> ids = index.leafIds;
+                    return ids == null ? 0 : ids.size();
+                })
+                .description("Leaf categories in the index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether a product with {@code categorySourceId} must be rejected without calling
+     * the marketplace.
+     */
+    public boolean rejects(String categorySourceId) {
+        Set<String> ids = leafIds;
+        if (!config.isEnabled() || ids == null || categorySourceId == null || ids.contains(categorySourceId)) {
+            return false;
+        }
+        rejected.increment();
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "#{@categoryProperties.index.refreshInterval.toMillis()}")
+    public void refresh() {
+        reload().subscribe();
+    }
+
+    Mono<Void> reload() {
+        String authorizationHeader = credentialRegistry.categoryDefaultToken();
+        if (!config.isEnabled() || authorizationHeader == null) {
+            return Mono.empty();
+        }
+        return categoryCache.getReactive(authorizationHeader)
+                .doOnNext(this::install)
+                .doOnError(e -> log.warn("Aggiornamento dell'indice delle categorie fallito, resta in uso il precedente: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private void install(List<CategoryDto> categories) {
+        if (categories.isEmpty()) {
+            // an empty taxonomy would reject every product: keep the previous index
+            log.warn("Nessuna categoria restituita, resta in uso l'indice precedente");
+            return;
+        }
+        leafIds = Set.copyOf(categories.stream()
+                .map(CategoryDto::getSourceId)
+                .filter(Objects::nonNull)
+                .toList());
+        log.info("Indice delle categorie aggiornato, categorie foglia: {}", leafIds.size());
+    }
+}
@@ -1,11 +1,18 @@
 package com.poleepo.usecase.retrievecategory.service;
 
+import com.poleepo.usecase.retrievecategory.model.CategoryDto;
 import com.poleepo.usecase.retrievecategory.model.response.CategoryResponse;
 import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
 public interface ICategoryGatewayDriver {
 
     List<CategoryResponse> getCategories(@NonNull String authorizationHeader);
+    List<CategoryDto> getLeafCategories(@NonNull String authorizationHeader);
+
+    Mono<List<CategoryResponse>> getCategoriesReactive(@NonNull String authorizationHeader);
+    Flux<CategoryDto> getLeafCategoriesReactive(@NonNull String authorizationHeader);
 }
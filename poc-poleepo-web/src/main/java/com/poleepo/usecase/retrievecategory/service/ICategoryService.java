@@ -2,10 +2,13 @@ package com.poleepo.usecase.retrievecategory.service;
 
 import com.poleepo.usecase.retrievecategory.model.CategoryDto;
 import lombok.NonNull;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
 public interface ICategoryService {
 
     List<CategoryDto> getCategory(@NonNull String storeId, @NonNull String source, String authorizationHeader);
+
+    Mono<List<CategoryDto>> getCategoryReactive(@NonNull String storeId, @NonNull String source, String authorizationHeader);
 }
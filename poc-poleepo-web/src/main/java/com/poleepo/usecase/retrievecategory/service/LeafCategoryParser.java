@@ -0,0 +1,175 @@
+package com.poleepo.usecase.retrievecategory.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.poleepo.usecase.retrievecategory.model.CategoryDto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental parser of the upstream category tree. The body is fed chunk by chunk
+ * to a non-blocking Jackson parser and the leaf categories are returned as soon as
+ * their object is closed, so only the chain of open ancestors is kept in memory.
+ * Produces the same paths as {@link CategoryFlattener#flatten(List)}.
+ * Not thread safe: one instance per response body.
+ */
+class LeafCategoryParser {
+
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final String CHILDREN = "children";
+
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+
+    private Node current;
+    private int skipDepth;
+
+    LeafCategoryParser(JsonFactory jsonFactory) throws IOException {
+        this.parser = jsonFactory.createNonBlockingByteBufferParser();
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    List<CategoryDto> feed(ByteBuffer chunk) throws IOException {
+        feeder.feedInput(chunk);
+        return drain();
+    }
+
+    List<CategoryDto> end() throws IOException {
+        feeder.endOfInput();
+        List<CategoryDto> leaves = drain();
+        if (current != null) {
+            throw new IOException("Unexpected end of categories body");
+        }
+        return leaves;
+    }
+
+    private List<CategoryDto> drain() throws IOException {
+        List<CategoryDto> leaves = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (skipDepth > 0) {
+                if (token.isStructStart()) {
+                    skipDepth++;
+                } else if (token.isStructEnd()) {
+                    skipDepth--;
+                }
+                continue;
+            }
+            switch (token) {
+                case START_OBJECT -> {
+                    if (current != null && parser.getParsingContext().getParent().inObject()) {
+                        skipDepth = 1;
+                    } else {
+                        current = new Node(current);
+                    }
+                }
+                case END_OBJECT -> close(leaves);
+                case START_ARRAY -> {
+                    if (current != null) {
+                        if (CHILDREN.equals(parser.currentName()) && parser.getParsingContext().getParent().inObject()) {
+                            current.hasChildren = true;
+                        } else {
+                            skipDepth = 1;
+                        }
+                    }
+                }
+                default -> {
+                    if (current != null && token.isScalarValue()) {
+                        String field = parser.currentName();
+                        if (ID.equals(field)) {
+                            current.id = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                        } else if (NAME.equals(field)) {
+                            current.name = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                        }
+                    }
+                }
+            }
+        }
+        return leaves;
+    }
+
+    private void close(List<CategoryDto> leaves) {
+        Node node = current;
+        current = node.parent;
+
+        if (node.parent == null) {
+            if (!node.hasChildren) {
+                emit(node, leaves);
+            }
+        } else {
+            node.parent.childCount++;
+            if (node.childCount == 0) {
+                emit(node, leaves);
+            }
+        }
+        if (node.pending != null) {
+            for (Node leaf : node.pending) {
+                leaves.add(toDto(leaf));
+            }
+        }
+    }
+
+    /**
+     * Emits the leaf right away when every ancestor name is already known, otherwise
+     * parks it on the outermost ancestor still missing its name (or already holding
+     * parked leaves, to keep the document order) until that ancestor is closed.
+     */
+    private void emit(Node leaf, List<CategoryDto> leaves) {
+        Node unnamed = null;
+        for (Node ancestor = leaf.parent; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor.name == null || ancestor.pending != null) {
+                unnamed = ancestor;
+            }
+        }
+
+        if (unnamed == null) {
+            leaves.add(toDto(leaf));
+        } else {
+            if (unnamed.pending == null) {
+                unnamed.pending = new ArrayList<>();
+            }
+            unnamed.pending.add(leaf);
+        }
+    }
+
+    private static CategoryDto toDto(Node leaf) {
+        CategoryDto dto = new CategoryDto();
+        dto.setName(leaf.name);
+        dto.setPath(path(leaf));
+        dto.setSourceId(leaf.id);
+        return dto;
+    }
+
+    private static String path(Node node) {
+        List<String> names = new ArrayList<>(node.depth + 1);
+        for (Node ancestor = node; ancestor != null; ancestor = ancestor.parent) {
+            names.add(ancestor.name);
+        }
+        StringBuilder path = new StringBuilder("root");
+        for (int i = names.size() - 1; i >= 0; i--) {
+            path.append('/').append(names.get(i));
+        }
+        return path.toString();
+    }
+
+    private static final class Node {
+        private final Node parent;
+        private final int depth;
+        private String id;
+        private String name;
+        private boolean hasChildren;
+        private int childCount;
+        private List<Node> pending;
+
+        private Node(Node parent) {
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+    }
+}
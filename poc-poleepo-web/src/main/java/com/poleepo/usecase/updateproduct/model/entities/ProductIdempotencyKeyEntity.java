@@ -0,0 +1,40 @@
+package com.poleepo.usecase.updateproduct.model.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "product_idempotency_key")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductIdempotencyKeyEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "store", nullable = false, length = 50)
+    private String store;
+
+    @Column(name = "source", nullable = false, length = 50)
+    private String source;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    @Column(name = "fingerprint", nullable = false, length = 64)
+    private String fingerprint;
+
+    @Column(name = "response", nullable = false, columnDefinition = "text")
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
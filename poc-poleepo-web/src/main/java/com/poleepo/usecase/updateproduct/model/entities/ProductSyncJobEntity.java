@@ -0,0 +1,67 @@
+package com.poleepo.usecase.updateproduct.model.entities;
+
+import com.poleepo.enumeration.ProductSyncJobStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "product_sync_job", uniqueConstraints = @UniqueConstraint(name = "uk_product_sync_job_idempotency_key",
+        columnNames = {"store", "source", "idempotency_key"}))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSyncJobEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private ProductSyncJobStatus status;
+
+    @Column(name = "store", nullable = false, length = 50)
+    private String store;
+
+    @Column(name = "source", nullable = false, length = 50)
+    private String source;
+
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    @Column(name = "product_key", length = 50)
+    private String productKey;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "product_id", length = 50)
+    private String productId;
+
+    @Column(name = "error")
+    private Integer error;
+
+    @Column(name = "message")
+    private String message;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "lease_token", length = 36)
+    private String leaseToken;
+
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -0,0 +1,19 @@
+package com.poleepo.usecase.updateproduct.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductBatchResult {
+
+    private int index;
+    private boolean success;
+    private int error;
+    private String message;
+    private ProductResponse data;
+}
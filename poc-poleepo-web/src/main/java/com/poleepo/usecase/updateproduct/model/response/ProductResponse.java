@@ -23,4 +23,8 @@ public class ProductResponse {
     @NotNull
     private Integer quantity;
     private Integer sourceId;
+    /** True when the information/offer call was not sent because nothing changed since the last push. */
+    private boolean productCallSkipped;
+    /** True when the quantity call was not sent because the quantity did not change since the last push. */
+    private boolean quantityCallSkipped;
 }
@@ -0,0 +1,24 @@
+package com.poleepo.usecase.updateproduct.model.response;
+
+import com.poleepo.enumeration.ProductSyncJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSyncJobResponse {
+
+    private Long id;
+    private ProductSyncJobStatus status;
+    private String productId;
+    private Integer error;
+    private String message;
+    private Instant createdAt;
+    private Instant updatedAt;
+}
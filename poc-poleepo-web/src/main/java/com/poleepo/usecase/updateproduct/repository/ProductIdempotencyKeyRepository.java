@@ -0,0 +1,24 @@
+package com.poleepo.usecase.updateproduct.repository;
+
+import com.poleepo.usecase.updateproduct.model.entities.ProductIdempotencyKeyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface ProductIdempotencyKeyRepository extends JpaRepository<ProductIdempotencyKeyEntity, Long> {
+
+    Optional<ProductIdempotencyKeyEntity> findByStoreAndSourceAndIdempotencyKeyAndCreatedAtAfter(
+            String store, String source, String idempotencyKey, Instant createdAfter);
+
+    @Modifying
+    @Transactional
+    @Query("delete from ProductIdempotencyKeyEntity k where k.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
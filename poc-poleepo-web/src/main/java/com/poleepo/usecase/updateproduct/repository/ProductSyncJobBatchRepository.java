@@ -0,0 +1,62 @@
+package com.poleepo.usecase.updateproduct.repository;
+
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.usecase.updateproduct.model.entities.ProductSyncJobEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk inserts into {@code product_sync_job}. The jobs of a batch are written in one
+ * transaction, as JDBC batches of {@code product.config.jobs.jdbc-batch-size} rows that
+ * MySQL receives as multi-row inserts with {@code rewriteBatchedStatements=true}; the
+ * generated ids are read back from each batch.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductSyncJobBatchRepository {
+
+    private static final String INSERT_JOB = "INSERT INTO product_sync_job "
+            + "(status, store, source, product_key, payload, attempts, created_at, updated_at) "
+            + "VALUES (:status, :store, :source, :productKey, :payload, 0, :createdAt, :updatedAt)";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ProductProperties productProperties;
+
+    /**
+     * Inserts the jobs and sets their ids, in order.
+     */
+    @Transactional
+    public List<ProductSyncJobEntity> insertAll(List<ProductSyncJobEntity> jobs) {
+        int batchSize = productProperties.getJobs().getJdbcBatchSize();
+        for (int from = 0; from < jobs.size(); from += batchSize) {
+            List<ProductSyncJobEntity> chunk = jobs.subList(from, Math.min(from + batchSize, jobs.size()));
+            SqlParameterSource[] args = chunk.stream()
+                    .map(job -> new MapSqlParameterSource()
+                            .addValue("status", job.getStatus().name())
+                            .addValue("store", job.getStore())
+                            .addValue("source", job.getSource())
+                            .addValue("productKey", job.getProductKey())
+                            .addValue("payload", job.getPayload())
+                            .addValue("createdAt", Timestamp.from(job.getCreatedAt()))
+                            .addValue("updatedAt", Timestamp.from(job.getUpdatedAt())))
+                    .toArray(SqlParameterSource[]::new);
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            namedParameterJdbcTemplate.batchUpdate(INSERT_JOB, args, keyHolder, new String[]{"id"});
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            }
+        }
+        return jobs;
+    }
+}
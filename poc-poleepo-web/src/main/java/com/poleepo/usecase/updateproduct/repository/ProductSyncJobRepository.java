@@ -0,0 +1,106 @@
+package com.poleepo.usecase.updateproduct.repository;
+
+import com.poleepo.enumeration.ProductSyncJobStatus;
+import com.poleepo.usecase.updateproduct.model.entities.ProductSyncJobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ProductSyncJobRepository extends JpaRepository<ProductSyncJobEntity, Long> {
+
+    Optional<ProductSyncJobEntity> findByStoreAndSourceAndIdempotencyKey(String store, String source, String idempotencyKey);
+
+    /**
+     * Locks up to {@code limit} PENDING jobs due by {@code now}, oldest first. A job is
+     * left out while its product has a RUNNING job or an older PENDING one, so the jobs
+     * of a product run one at a time and in order, also within one claim. Rows locked
+     * by another instance are skipped rather than waited for, so concurrent pollers get
+     * disjoint jobs. Only meaningful inside a transaction, see {@link #claimPending}.
+     */
+    @Query(value = "SELECT * FROM product_sync_job j WHERE j.status = 'PENDING' "
+            + "AND (j.next_attempt_at IS NULL OR j.next_attempt_at <= :now) "
+            + "AND (j.product_key IS NULL OR NOT EXISTS (SELECT 1 FROM product_sync_job o "
+            + "WHERE o.store = j.store AND o.source = j.source AND o.product_key = j.product_key "
+            + "AND (o.status = 'RUNNING' OR (o.status = 'PENDING' AND o.id < j.id)))) "
+            + "ORDER BY j.id LIMIT :limit FOR UPDATE OF j SKIP LOCKED", nativeQuery = true)
+    List<ProductSyncJobEntity> lockPending(@Param("now") Instant now, @Param("limit") int limit);
+
+    /**
+     * Moves up to {@code limit} PENDING jobs to RUNNING in one transaction: a job is never
+     * handed to two workers, and a single query claims the whole batch. Each job gets a
+     * new lease token; the worker's later writes only apply while the token is unchanged.
+     */
+    @Transactional
+    default List<ProductSyncJobEntity> claimPending(Instant now, int limit) {
+        List<ProductSyncJobEntity> jobs = lockPending(now, limit);
+        for (ProductSyncJobEntity job : jobs) {
+            job.setStatus(ProductSyncJobStatus.RUNNING);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setLeaseToken(UUID.randomUUID().toString());
+            job.setUpdatedAt(now);
+        }
+        return jobs;
+    }
+
+    /**
+     * Stores the outcome of an attempt, unless the job was requeued or claimed again
+     * since: returns whether the worker still held the lease.
+     */
+    @Transactional
+    default boolean saveOutcome(ProductSyncJobEntity job) {
+        return updateIfLeased(job.getId(), job.getLeaseToken(), job.getStatus(), job.getProductId(), job.getError(),
+                job.getMessage(), job.getNextAttemptAt(), job.getUpdatedAt()) > 0;
+    }
+
+    @Modifying
+    @Transactional
+    @Query("update ProductSyncJobEntity j set j.status = :status, j.productId = :productId, j.error = :error, "
+            + "j.message = :message, j.nextAttemptAt = :nextAttemptAt, j.updatedAt = :now "
+            + "where j.id = :id and j.leaseToken = :leaseToken")
+    int updateIfLeased(@Param("id") Long id, @Param("leaseToken") String leaseToken, @Param("status") ProductSyncJobStatus status,
+                       @Param("productId") String productId, @Param("error") Integer error, @Param("message") String message,
+                       @Param("nextAttemptAt") Instant nextAttemptAt, @Param("now") Instant now);
+
+    /**
+     * Stores the id of the product created by a RUNNING job before its quantity is sent,
+     * so that a later attempt does not create the product again.
+     */
+    @Modifying
+    @Transactional
+    @Query("update ProductSyncJobEntity j set j.productId = :productId, j.updatedAt = :now "
+            + "where j.id = :id and j.leaseToken = :leaseToken")
+    int recordProductId(@Param("id") Long id, @Param("leaseToken") String leaseToken, @Param("productId") String productId,
+                        @Param("now") Instant now);
+
+    /**
+     * Refreshes the RUNNING jobs still held under {@code leaseTokens}, so that a slow
+     * sync is not mistaken for one left behind.
+     */
+    @Modifying
+    @Transactional
+    @Query("update ProductSyncJobEntity j set j.updatedAt = :now "
+            + "where j.status = com.poleepo.enumeration.ProductSyncJobStatus.RUNNING and j.leaseToken in :leaseTokens")
+    int heartbeat(@Param("leaseTokens") Collection<String> leaseTokens, @Param("now") Instant now);
+
+    /**
+     * Puts back in the queue the RUNNING jobs without a heartbeat since {@code before},
+     * left behind by an instance stopped while syncing them. Their lease is dropped, so
+     * a late answer of that instance is not stored.
+     */
+    @Modifying
+    @Transactional
+    @Query("update ProductSyncJobEntity j set j.status = com.poleepo.enumeration.ProductSyncJobStatus.PENDING, "
+            + "j.leaseToken = null, j.updatedAt = :now "
+            + "where j.status = com.poleepo.enumeration.ProductSyncJobStatus.RUNNING and j.updatedAt < :before")
+    int requeueStale(@Param("before") Instant before, @Param("now") Instant now);
+}
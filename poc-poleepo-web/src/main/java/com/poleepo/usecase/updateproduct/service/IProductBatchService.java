@@ -0,0 +1,13 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductBatchResult;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+
+public interface IProductBatchService {
+
+    Flux<ProductBatchResult> createOrUpdateProducts(@NonNull Flux<ProductRequest> productRequests, @NonNull String source, @NonNull String store, String authorizationHeader);
+
+    Flux<ProductBatchResult> createOrUpdateProductsNdjson(@NonNull Flux<String> lines, @NonNull String source, @NonNull String store, String authorizationHeader);
+}
@@ -3,8 +3,37 @@ package com.poleepo.usecase.updateproduct.service;
 import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
 import com.poleepo.usecase.updateproduct.model.response.ProductResponse;
 import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
 
 public interface IProductService {
 
     ProductResponse createOrUpdateProduct(@NonNull  ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader);
+
+    Mono<ProductResponse> createOrUpdateProductReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader);
+
+    /**
+     * Same as {@link #createOrUpdateProduct}, run at most once per {@code idempotencyKey}: repeats get the first result.
+     */
+    ProductResponse createOrUpdateProduct(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader, @NonNull String idempotencyKey);
+
+    Mono<ProductResponse> createOrUpdateProductReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader, @NonNull String idempotencyKey);
+
+    /**
+     * Same calls as {@link #createOrUpdateProductReactive}, emitting the id the upstream gave to the product.
+     */
+    Mono<String> syncProductReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader);
+
+    /**
+     * Same as {@link #syncProductReactive}, subscribing to {@code onCreated} with the id of a
+     * newly created product before its quantity is sent.
+     */
+    Mono<String> syncProductReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader, @NonNull Function<String, Mono<Void>> onCreated);
+
+    /**
+     * Sends only the quantity of {@code productId}, created by an earlier call for the same
+     * request whose quantity was not sent.
+     */
+    Mono<String> syncQuantityReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader, @NonNull String productId);
 }
@@ -0,0 +1,35 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductSyncJobResponse;
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface IProductSyncJobService {
+
+    ProductSyncJobResponse enqueue(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store);
+
+    Mono<ProductSyncJobResponse> enqueueReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store);
+
+    /**
+     * Stores the job once per store, source and key: a repeated key gets the job already
+     * stored, a key reused with a different product fails with IdempotencyKeyReusedException.
+     */
+    ProductSyncJobResponse enqueue(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, @NonNull String idempotencyKey);
+
+    Mono<ProductSyncJobResponse> enqueueReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, @NonNull String idempotencyKey);
+
+    /**
+     * Stores one job per product in a single transaction, returned in request order. A
+     * product failing validation gets a FAILED result with its error code and no job.
+     */
+    List<ProductSyncJobResponse> enqueueAll(@NonNull List<ProductRequest> productRequests, @NonNull String source, @NonNull String store);
+
+    Mono<List<ProductSyncJobResponse>> enqueueAllReactive(@NonNull List<ProductRequest> productRequests, @NonNull String source, @NonNull String store);
+
+    ProductSyncJobResponse getJob(@NonNull Long id);
+
+    Mono<ProductSyncJobResponse> getJobReactive(@NonNull Long id);
+}
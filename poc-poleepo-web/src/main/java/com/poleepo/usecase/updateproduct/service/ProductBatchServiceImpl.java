@@ -0,0 +1,119 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.enumeration.ErrorCode;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductBatchResult;
+import jakarta.validation.Validator;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Syncs a list of products with the upstream, at most {@code product.config.batch.concurrency}
+ * at a time. Each product goes through the same create/update then quantity calls as
+ * PUT /products; results come back in request order and a failed product only fails its own
+ * result. Items with the same {@code sourceId} are synced one after the other, in request
+ * order, so the last one in the batch is the last one written upstream.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProductBatchServiceImpl implements IProductBatchService {
+
+    private final IProductService productService;
+    private final ProductProperties productProperties;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Override
+    public Flux<ProductBatchResult> createOrUpdateProducts(@NonNull Flux<ProductRequest> productRequests, @NonNull String source, @NonNull String store, String authorizationHeader) {
+        return process(productRequests.map(BatchItem::new), source, store, authorizationHeader);
+    }
+
+    @Override
+    public Flux<ProductBatchResult> createOrUpdateProductsNdjson(@NonNull Flux<String> lines, @NonNull String source, @NonNull String store, String authorizationHeader) {
+        return process(lines.filter(line -> !line.isBlank()).map(this::parse), source, store, authorizationHeader);
+    }
+
+    private Flux<ProductBatchResult> process(Flux<BatchItem> items, String source, String store, String authorizationHeader) {
+        int concurrency = productProperties.getBatch().getConcurrency();
+        log.info("Inizio batch prodotti per store: {}, source: {}, concorrenza: {}", store, source, concurrency);
+        Map<String, Mono<ProductBatchResult>> lastBySourceId = new HashMap<>();
+        return items
+                .index()
+                .map(item -> chain(lastBySourceId, item.getT1().intValue(), item.getT2(), source, store, authorizationHeader))
+                .flatMapSequential(Function.identity(), concurrency)
+                .doOnComplete(() -> log.info("Fine batch prodotti per store: {}, source: {}", store, source));
+    }
+
+    /**
+     * Runs the item after the previous one with the same {@code sourceId} has completed.
+     * Items are chained in request order and subscribed in that order, so the one waited
+     * on is always already running.
+     */
+    private Mono<ProductBatchResult> chain(Map<String, Mono<ProductBatchResult>> lastBySourceId, int index, BatchItem item,
+                                           String source, String store, String authorizationHeader) {
+        Mono<ProductBatchResult> result = Mono.defer(() -> process(index, item, source, store, authorizationHeader));
+        String sourceId = item.request() != null ? item.request().getSourceId() : null;
+        if (sourceId == null) {
+            return result;
+        }
+        Mono<ProductBatchResult> previous = lastBySourceId.get(sourceId);
+        Mono<ProductBatchResult> chained = (previous == null ? result : previous.then(result)).cache();
+        lastBySourceId.put(sourceId, chained);
+        return chained;
+    }
+
+    private Mono<ProductBatchResult> process(int index, BatchItem item, String source, String store, String authorizationHeader) {
+        if (item.request() == null) {
+            return Mono.just(failure(index, ErrorCode.GENERIC));
+        }
+        if (!validator.validate(item.request()).isEmpty()) {
+            return Mono.just(failure(index, ErrorCode.MISSING_REQUIRED_FIELD));
+        }
+        return productService.createOrUpdateProductReactive(item.request(), source, store, authorizationHeader)
+                .map(response -> ProductBatchResult.builder()
+                        .index(index)
+                        .success(true)
+                        .data(response)
+                        .build())
+                .onErrorResume(e -> {
+                    log.error("Errore sul prodotto {} del batch: {}", index, e.getMessage());
+                    return Mono.just(failure(index, ProductErrorCodes.of(e)));
+                });
+    }
+
+    private BatchItem parse(String line) {
+        try {
+            return new BatchItem(objectMapper.readValue(line, ProductRequest.class));
+        } catch (JsonProcessingException e) {
+            log.error("Riga NDJSON non valida: {}", e.getOriginalMessage());
+            return new BatchItem(null);
+        }
+    }
+
+    private static ProductBatchResult failure(int index, ErrorCode errorCode) {
+        return ProductBatchResult.builder()
+                .index(index)
+                .success(false)
+                .error(errorCode.getCode())
+                .message(errorCode.getMessage())
+                .build();
+    }
+
+    /**
+     * One element of the batch; {@code request} is null when its NDJSON line could not be read.
+     */
+    private record BatchItem(ProductRequest request) {
+    }
+}
@@ -0,0 +1,126 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Last offer and quantity pushed to the upstream for each product, keyed by the upstream
+ * product id. The offer (title, category, price, vat) is kept as a 64-bit digest, the
+ * quantity as is: a push repeating what was last sent successfully can skip that call.
+ * Entries are only written after the upstream accepted the call, and expire after
+ * {@code product.config.change-detection.expire-after-write} so a product changed on the
+ * marketplace by someone else is eventually pushed again.
+ * Skipped calls are counted by {@code products.upstream.skipped}, tagged with {@code call},
+ * once the push they belong to has succeeded, see {@link #recordSkipped}.
+ */
+@Component
+public class ProductChangeDetector {
+
+    public static final String CACHE_NAME = "productFingerprints";
+    public static final String SKIPPED_METRIC = "products.upstream.skipped";
+
+    private final boolean enabled;
+    private final Cache<String, Fingerprint> fingerprints;
+    private final Counter skippedProductCalls;
+    private final Counter skippedQuantityCalls;
+
+    public ProductChangeDetector(ProductProperties productProperties, MeterRegistry meterRegistry) {
+        ProductProperties.ChangeDetection config = productProperties.getChangeDetection();
+        this.enabled = config.isEnabled();
+        this.fingerprints = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, fingerprints, CACHE_NAME);
+        this.skippedProductCalls = skippedCounter(meterRegistry, "product");
+        this.skippedQuantityCalls = skippedCounter(meterRegistry, "quantity");
+    }
+
+    /**
+     * Which upstream calls are needed to bring product {@code productId} to {@code productRequest}.
+     */
+    public Changes detect(@NonNull String productId, @NonNull ProductRequest productRequest) {
+        Fingerprint last = enabled ? fingerprints.getIfPresent(productId) : null;
+        if (last == null) {
+            return Changes.ALL;
+        }
+        boolean offerChanged = last.offer() == null || last.offer() != offerDigest(productRequest);
+        boolean quantityChanged = !Objects.equals(last.quantity(), productRequest.getQuantity());
+        return new Changes(offerChanged, quantityChanged);
+    }
+
+    /**
+     * Counts the calls skipped by a push that completed successfully.
+     */
+    public void recordSkipped(@NonNull Changes changes) {
+        if (!changes.offerChanged()) {
+            skippedProductCalls.increment();
+        }
+        if (!changes.quantityChanged()) {
+            skippedQuantityCalls.increment();
+        }
+    }
+
+    public void offerSynced(@NonNull String productId, @NonNull ProductRequest productRequest) {
+        if (enabled) {
+            long offer = offerDigest(productRequest);
+            fingerprints.asMap().merge(productId, new Fingerprint(offer, null),
+                    (last, synced) -> new Fingerprint(offer, last.quantity()));
+        }
+    }
+
+    public void quantitySynced(@NonNull String productId, @NonNull ProductRequest productRequest) {
+        if (enabled && productRequest.getQuantity() != null) {
+            Integer quantity = productRequest.getQuantity();
+            fingerprints.asMap().merge(productId, new Fingerprint(null, quantity),
+                    (last, synced) -> new Fingerprint(last.offer(), quantity));
+        }
+    }
+
+    private static long offerDigest(ProductRequest productRequest) {
+        String offer = productRequest.getTitle() + '\u0000' + productRequest.getCategorySourceId() + '\u0000'
+                + productRequest.getPrice() + '\u0000' + productRequest.getVatRate();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(offer.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Counter skippedCounter(MeterRegistry meterRegistry, String call) {
+        return Counter.builder(SKIPPED_METRIC)
+                .description("Upstream product calls skipped because the data did not change since the last push")
+                .tag("call", call)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Upstream calls needed by a push: {@code offerChanged} for the information/offer call,
+     * {@code quantityChanged} for the quantity call.
+     */
+    public record Changes(boolean offerChanged, boolean quantityChanged) {
+
+        public static final Changes ALL = new Changes(true, true);
+    }
+
+    /**
+     * Last pushed state; a null part has not been pushed yet.
+     */
+    private record Fingerprint(Long offer, Integer quantity) {
+    }
+}
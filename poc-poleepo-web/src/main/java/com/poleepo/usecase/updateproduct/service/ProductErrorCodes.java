@@ -0,0 +1,33 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.poleepo.enumeration.ErrorCode;
+import com.poleepo.exception.CategoryNotValidException;
+import com.poleepo.exception.ProductNotCreatedException;
+import com.poleepo.exception.ProductNotUpdatedException;
+import com.poleepo.exception.UpstreamThrottledException;
+
+/**
+ * Error code reported for a product that failed outside of a request, where
+ * {@code PoleepoExceptionHandler} cannot map the exception.
+ */
+final class ProductErrorCodes {
+
+    private ProductErrorCodes() {
+    }
+
+    static ErrorCode of(Throwable e) {
+        if (e instanceof ProductNotCreatedException) {
+            return ErrorCode.PRODUCT_NOT_CREATED;
+        }
+        if (e instanceof ProductNotUpdatedException) {
+            return ErrorCode.PRODUCT_NOT_UPDATED;
+        }
+        if (e instanceof UpstreamThrottledException) {
+            return ErrorCode.UPSTREAM_THROTTLED;
+        }
+        if (e instanceof CategoryNotValidException) {
+            return ErrorCode.CATEGORY_NOT_VALID;
+        }
+        return ErrorCode.GENERIC;
+    }
+}
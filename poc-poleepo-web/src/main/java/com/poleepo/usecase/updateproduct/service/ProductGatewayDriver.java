@@ -1,116 +1,152 @@
 package com.poleepo.usecase.updateproduct.service;
 
-import com.poleepo.exception.GenericException;
+import com.poleepo.config.WebClientConfig;
 import com.poleepo.exception.ProductNotCreatedException;
 import com.poleepo.exception.ProductNotUpdatedException;
+import com.poleepo.exception.UpstreamThrottledException;
 import com.poleepo.usecase.updateproduct.model.request.CreateOrUpdateProductRequest;
 import com.poleepo.properties.ProductProperties;
+import com.poleepo.service.GatewayMetrics;
+import com.poleepo.service.GatewayResilience;
+import com.poleepo.service.GatewayResilience.CallType;
 import com.poleepo.usecase.updateproduct.model.request.UpdateQuantityRequest;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProductGatewayDriver implements IProductGatewayDriver{
 
-    private final WebClient.Builder webClientBuilder;
+    @Qualifier(WebClientConfig.PRODUCT_WEB_CLIENT)
+    private final WebClient webClient;
     private final ProductProperties productProperties;
+    private final GatewayResilience gatewayResilience;
 
     @Override
     public String createProduct(@NonNull String authorizationHeader, @NonNull CreateOrUpdateProductRequest createOrUpdateProductRequest) {
-        log.info("Calling create products API - begin");
-
-        try {
-            String id = webClientBuilder.build()
-                    .post()
-                    .uri(productProperties.getUrlCreate())
-                    .header("Authorization", authorizationHeader)
-                    .bodyValue(createOrUpdateProductRequest)
-                    .retrieve()
-                    .onStatus(HttpStatusCode::is4xxClientError,
-                            clientResponse -> {
-                                log.error("Error calling create products API: HTTP {}", clientResponse.statusCode());
-                                throw new ProductNotCreatedException("Errore durante la chiamata al servizio di creazione dei prodotti");
-                            })
-                    .bodyToMono(new ParameterizedTypeReference<>() {})
-                    .map(response -> {
-                        return (String) ((java.util.Map<String, Object>) response).get("id");
-                    })
-                    .block();
-            log.info("Calling create products API - end");
-            return id;
-
-        } catch (Exception e) {
-            log.error("Error calling create products API: {}", e.getMessage(), e);
-            throw new ProductNotCreatedException("Errore durante la chiamata al servizio dei products");
-        }
+        return createProductReactive(authorizationHeader, createOrUpdateProductRequest).block();
     }
 
     @Override
     public String updateProduct(@NonNull String authorizationHeader, @NonNull String productId,@NonNull CreateOrUpdateProductRequest createOrUpdateProductRequest) {
-        log.info("Calling update products API - begin");
+        return updateProductReactive(authorizationHeader, productId, createOrUpdateProductRequest).block();
+    }
 
-        try {
-            String id = webClientBuilder.build()
-                    .put()
-                    .uri(productProperties.getUrlUpdate().replace("#ID", productId))
-                    .header("Authorization", authorizationHeader)
-                    .bodyValue(createOrUpdateProductRequest)
-                    .retrieve()
-                    .onStatus(HttpStatusCode::is4xxClientError,
-                            clientResponse -> {
-                                log.error("Error calling products API: HTTP {}", clientResponse.statusCode());
-                                throw new ProductNotUpdatedException("Errore durante la chiamata al servizio dei products");
-                            })
-                    .bodyToMono(new ParameterizedTypeReference<>() {})
-                    .map(response -> {
-                        return (String) ((java.util.Map<String, Object>) response).get("id");
-                    })
-                    .block();
+    @Override
+    public String updateQuantity(@NonNull String authorizationHeader, @NonNull String productId, @NonNull UpdateQuantityRequest quantityRequest) {
+        return updateQuantityReactive(authorizationHeader, productId, quantityRequest).block();
+    }
 
-            log.info("Calling update products API - end");
-            return id;
+    @Override
+    public Mono<String> createProductReactive(@NonNull String authorizationHeader, @NonNull CreateOrUpdateProductRequest createOrUpdateProductRequest) {
+        return gatewayResilience.decorate(GatewayMetrics.PRODUCT, "createProduct", CallType.UNSAFE, authorizationHeader, Mono.defer(() -> {
+                    log.info("Calling create products API - begin");
+                    return webClient
+                            .post()
+                            .uri(productProperties.getUrlCreate())
+                            .header("Authorization", authorizationHeader)
+                            .bodyValue(createOrUpdateProductRequest)
+                            .retrieve()
+                            .onStatus(ProductGatewayDriver::isClientError,
+                                    clientResponse -> {
+                                        log.error("Error calling create products API: HTTP {}", clientResponse.statusCode());
+                                        throw new ProductNotCreatedException("Errore durante la chiamata al servizio di creazione dei prodotti");
+                                    })
+                            .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                            .map(response -> (String) response.get("id"));
+                }))
+                .doOnSuccess(id -> log.info("Calling create products API - end"))
+                .onErrorMap(e -> {
+                    if (isThrottled(e)) {
+                        return throttled();
+                    }
+                    log.error("Error calling create products API: {}", e.getMessage(), e);
+                    return new ProductNotCreatedException("Errore durante la chiamata al servizio dei products");
+                });
+    }
 
-        } catch (Exception e) {
-            log.error("Error calling update products API: {}", e.getMessage(), e);
-            throw new ProductNotUpdatedException("Errore durante la chiamata al servizio dei products");
-        }
+    @Override
+    public Mono<String> updateProductReactive(@NonNull String authorizationHeader, @NonNull String productId, @NonNull CreateOrUpdateProductRequest createOrUpdateProductRequest) {
+        return gatewayResilience.decorate(GatewayMetrics.PRODUCT, "updateProduct", CallType.UNSAFE, authorizationHeader, Mono.defer(() -> {
+                    log.info("Calling update products API - begin");
+                    return webClient
+                            .put()
+                            .uri(productProperties.getUrlUpdate().replace("#ID", productId))
+                            .header("Authorization", authorizationHeader)
+                            .bodyValue(createOrUpdateProductRequest)
+                            .retrieve()
+                            .onStatus(ProductGatewayDriver::isClientError,
+                                    clientResponse -> {
+                                        log.error("Error calling products API: HTTP {}", clientResponse.statusCode());
+                                        throw new ProductNotUpdatedException("Errore durante la chiamata al servizio dei products");
+                                    })
+                            .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                            .map(response -> (String) response.get("id"));
+                }))
+                .doOnSuccess(id -> log.info("Calling update products API - end"))
+                .onErrorMap(e -> {
+                    if (isThrottled(e)) {
+                        return throttled();
+                    }
+                    log.error("Error calling update products API: {}", e.getMessage(), e);
+                    return new ProductNotUpdatedException("Errore durante la chiamata al servizio dei products");
+                });
     }
 
     @Override
-    public String updateQuantity(@NonNull String authorizationHeader, @NonNull String productId, @NonNull UpdateQuantityRequest quantityRequest) {
-        log.info("Calling update quantity for products API - begin");
+    public Mono<String> updateQuantityReactive(@NonNull String authorizationHeader, @NonNull String productId, @NonNull UpdateQuantityRequest quantityRequest) {
+        return gatewayResilience.decorate(GatewayMetrics.PRODUCT, "updateQuantity", CallType.IDEMPOTENT, authorizationHeader, Mono.defer(() -> {
+                    log.info("Calling update quantity for products API - begin");
+                    return webClient
+                            .put()
+                            .uri(productProperties.getUrlUpdateQuantity().replace("#ID", productId))
+                            .header("Authorization", authorizationHeader)
+                            .bodyValue(quantityRequest)
+                            .retrieve()
+                            .onStatus(ProductGatewayDriver::isClientError,
+                                    clientResponse -> {
+                                        log.error("Error calling update quantity products API: HTTP {}", clientResponse.statusCode());
+                                        throw new ProductNotUpdatedException("Errore durante la chiamata al servizio aggiornamento quantity products");
+                                    })
+                            .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                            .map(response -> (String) response.get("id"));
+                }))
+                .doOnSuccess(id -> log.info("Calling update quantity products API - end"))
+                .onErrorMap(e -> {
+                    if (isThrottled(e)) {
+                        return throttled();
+                    }
+                    log.error("Error calling update products API: {}", e.getMessage(), e);
+                    return new ProductNotUpdatedException("Errore durante la chiamata al servizio aggiornamento quantity products");
+                });
+    }
 
-        try {
-            String id = webClientBuilder.build()
-                    .put()
-                    .uri(productProperties.getUrlUpdateQuantity().replace("#ID", productId))
-                    .header("Authorization", authorizationHeader)
-                    .bodyValue(quantityRequest)
-                    .retrieve()
-                    .onStatus(HttpStatusCode::is4xxClientError,
-                            clientResponse -> {
-                                log.error("Error calling update quantity products API: HTTP {}", clientResponse.statusCode());
-                                throw new ProductNotUpdatedException("Errore durante la chiamata al servizio aggiornamento quantity products");
-                            })
-                    .bodyToMono(new ParameterizedTypeReference<>() {})
-                    .map(response -> {
-                        return (String) ((java.util.Map<String, Object>) response).get("id");
-                    })
-                    .block();
+    /**
+     * 4xx other than 429: a 429 is left to the default handler, so that the concurrency
+     * limiter sees it.
+     */
+    private static boolean isClientError(HttpStatusCode status) {
+        return status.is4xxClientError() && status.value() != HttpStatus.TOO_MANY_REQUESTS.value();
+    }
 
-            log.info("Calling update quantity products API - end");
-            return id;
+    private static boolean isThrottled(Throwable e) {
+        return e instanceof UpstreamThrottledException || e instanceof WebClientResponseException.TooManyRequests;
+    }
 
-        } catch (Exception e) {
-            log.error("Error calling update products API: {}", e.getMessage(), e);
-            throw new ProductNotUpdatedException("Errore durante la chiamata al servizio aggiornamento quantity products");
-        }
+    private static UpstreamThrottledException throttled() {
+        log.warn("Servizio dei products sovraccarico per il token");
+        return new UpstreamThrottledException("Servizio dei products sovraccarico, riprovare più tardi");
     }
 }
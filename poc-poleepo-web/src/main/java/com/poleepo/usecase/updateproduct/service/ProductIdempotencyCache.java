@@ -0,0 +1,163 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.poleepo.exception.GenericException;
+import com.poleepo.exception.IdempotencyKeyReusedException;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.usecase.updateproduct.model.entities.ProductIdempotencyKeyEntity;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductResponse;
+import com.poleepo.usecase.updateproduct.repository.ProductIdempotencyKeyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Results of PUT /products keyed by store, source and {@code Idempotency-Key}. The first
+ * request with a key runs the upstream calls; repeats within the TTL get the stored
+ * response, and repeats arriving while it runs wait for it instead of creating the
+ * product again. A failed execution is not stored, so the client can retry with the
+ * same key. Reusing a key with a different body fails with
+ * {@link IdempotencyKeyReusedException}.
+ * Served replays are counted by {@code products.idempotency.replayed}; hit/miss metrics
+ * are published under the {@code cache.*} meters with tag {@code cache=productIdempotency}.
+ */
+@Component
+@Slf4j
+public class ProductIdempotencyCache {
+
+    public static final String CACHE_NAME = "productIdempotency";
+    public static final String REPLAYED_METRIC = "products.idempotency.replayed";
+
+    private final ProductIdempotencyKeyRepository productIdempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final ProductProperties.Idempotency config;
+    private final AsyncCache<String, StoredResponse> cache;
+    private final Counter replayed;
+
+    public ProductIdempotencyCache(ProductIdempotencyKeyRepository productIdempotencyKeyRepository, ObjectMapper objectMapper,
+                                   ProductProperties productProperties, MeterRegistry meterRegistry) {
+        this.productIdempotencyKeyRepository = productIdempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.config = productProperties.getIdempotency();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.replayed = Counter.builder(REPLAYED_METRIC)
+                .description("PUT /products served from the result of a previous request with the same Idempotency-Key")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code execution} once per key. A subscriber cancelling does not cancel the
+     * execution other requests with the same key may be waiting on.
+     */
+    public Mono<ProductResponse> execute(@NonNull String idempotencyKey, @NonNull String store, @NonNull String source,
+                                         @NonNull ProductRequest productRequest, @NonNull Supplier<Mono<ProductResponse>> execution) {
+        return Mono.defer(() -> {
+            String key = store + ':' + source + ':' + idempotencyKey;
+            String fingerprint = fingerprint(productRequest);
+            boolean[] leader = new boolean[1];
+            CompletableFuture<StoredResponse> result = cache.get(key, (k, executor) -> {
+                leader[0] = true;
+                return load(idempotencyKey, store, source, fingerprint, execution).toFuture();
+            });
+            if (!leader[0]) {
+                log.info("Richiesta con Idempotency-Key già ricevuta per store: {}, source: {}", store, source);
+                replayed.increment();
+            }
+            return Mono.fromFuture(result, true)
+                    // Caffeine evicts a failed execution asynchronously: drop it here so a retry runs again at once
+                    .doOnError(e -> cache.asMap().remove(key, result))
+                    .map(stored -> replay(stored, fingerprint));
+        });
+    }
+
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT1H")
+    public void purgeExpired() {
+        if (config.isPersistent()) {
+            int purged = productIdempotencyKeyRepository.deleteCreatedBefore(Instant.now().minus(config.getTtl()));
+            log.info("Eliminate {} Idempotency-Key scadute", purged);
+        }
+    }
+
+    private Mono<StoredResponse> load(String idempotencyKey, String store, String source, String fingerprint,
+                                      Supplier<Mono<ProductResponse>> execution) {
+        Mono<StoredResponse> executed = Mono.defer(execution)
+                .map(response -> new StoredResponse(fingerprint, response));
+        if (!config.isPersistent()) {
+            return executed;
+        }
+        return Mono.fromCallable(() -> productIdempotencyKeyRepository
+                        .findByStoreAndSourceAndIdempotencyKeyAndCreatedAtAfter(store, source, idempotencyKey, Instant.now().minus(config.getTtl()))
+                        .map(this::toStoredResponse)
+                        .orElse(null))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(stored -> replayed.increment())
+                .switchIfEmpty(executed.flatMap(stored -> save(idempotencyKey, store, source, stored)));
+    }
+
+    private Mono<StoredResponse> save(String idempotencyKey, String store, String source, StoredResponse stored) {
+        return Mono.fromCallable(() -> productIdempotencyKeyRepository.save(ProductIdempotencyKeyEntity.builder()
+                        .store(store)
+                        .source(source)
+                        .idempotencyKey(idempotencyKey)
+                        .fingerprint(stored.fingerprint())
+                        .response(objectMapper.writeValueAsString(stored.response()))
+                        .createdAt(Instant.now())
+                        .build()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenReturn(stored)
+                // the product is already synced: a failed write only loses the replay on other instances
+                .onErrorResume(e -> {
+                    log.error("Errore durante il salvataggio della Idempotency-Key: {}", e.getMessage());
+                    return Mono.just(stored);
+                });
+    }
+
+    private StoredResponse toStoredResponse(ProductIdempotencyKeyEntity entity) {
+        try {
+            return new StoredResponse(entity.getFingerprint(), objectMapper.readValue(entity.getResponse(), ProductResponse.class));
+        } catch (JsonProcessingException e) {
+            throw new GenericException("Errore durante la lettura della Idempotency-Key");
+        }
+    }
+
+    private static ProductResponse replay(StoredResponse stored, String fingerprint) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException("Idempotency-Key già usata con una richiesta diversa");
+        }
+        return stored.response();
+    }
+
+    private String fingerprint(ProductRequest productRequest) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(productRequest));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new GenericException("Errore durante il calcolo della Idempotency-Key");
+        }
+    }
+
+    private record StoredResponse(String fingerprint, ProductResponse response) {
+    }
+}
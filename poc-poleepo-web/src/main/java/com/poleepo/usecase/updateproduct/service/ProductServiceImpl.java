@@ -1,6 +1,9 @@
 package com.poleepo.usecase.updateproduct.service;
 
-import com.poleepo.properties.ProductProperties;
+import com.poleepo.exception.CategoryNotValidException;
+import com.poleepo.exception.ProductNotUpdatedException;
+import com.poleepo.service.CredentialRegistry;
+import com.poleepo.usecase.retrievecategory.service.CategoryIndex;
 import com.poleepo.usecase.updateproduct.model.request.CreateOrUpdateProductRequest;
 import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
 import com.poleepo.usecase.updateproduct.model.request.UpdateQuantityRequest;
@@ -9,24 +12,145 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ProductServiceImpl  implements IProductService{
 
-    private static final String BEARER = "Bearer ";
+    private static final Function<String, Mono<Void>> NOT_TRACKED = productId -> Mono.empty();
 
     private final IProductGatewayDriver productGatewayDriver;
-    private final ProductProperties productProperties;
+    private final CredentialRegistry credentialRegistry;
+    private final ProductIdempotencyCache productIdempotencyCache;
+    private final ProductChangeDetector productChangeDetector;
+    private final QuantityUpdateCoalescer quantityUpdateCoalescer;
+    private final CategoryIndex categoryIndex;
 
 
     @Override
     public ProductResponse createOrUpdateProduct(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader) {
+        return createOrUpdateProductReactive(productRequest, source, store, authorizationHeader).block();
+    }
 
-        String response;
+    @Override
+    public Mono<ProductResponse> createOrUpdateProductReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader) {
+        return Mono.defer(() -> {
+            final CreateOrUpdateProductRequest createOrUpdateProductRequest = toCreateOrUpdateProductRequest(productRequest);
+            final ProductChangeDetector.Changes changes = detectChanges(productRequest);
+            return sync(productRequest, createOrUpdateProductRequest, changes, source, authorizationHeader)
+                    .thenReturn(toProductResponse(productRequest, createOrUpdateProductRequest, changes));
+        });
+    }
+
+    @Override
+    public ProductResponse createOrUpdateProduct(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader, @NonNull String idempotencyKey) {
+        return createOrUpdateProductReactive(productRequest, source, store, authorizationHeader, idempotencyKey).block();
+    }
+
+    @Override
+    public Mono<ProductResponse> createOrUpdateProductReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader, @NonNull String idempotencyKey) {
+        return productIdempotencyCache.execute(idempotencyKey, store, source, productRequest,
+                () -> createOrUpdateProductReactive(productRequest, source, store, authorizationHeader));
+    }
+
+    @Override
+    public Mono<String> syncProductReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader) {
+        return syncProductReactive(productRequest, source, store, authorizationHeader, NOT_TRACKED);
+    }
 
-        final CreateOrUpdateProductRequest createOrUpdateProductRequest = CreateOrUpdateProductRequest.builder()
+    @Override
+    public Mono<String> syncProductReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader, @NonNull Function<String, Mono<Void>> onCreated) {
+        return Mono.defer(() -> sync(productRequest, toCreateOrUpdateProductRequest(productRequest), detectChanges(productRequest), source, authorizationHeader, onCreated));
+    }
+
+    @Override
+    public Mono<String> syncQuantityReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, String authorizationHeader, @NonNull String productId) {
+        return Mono.defer(() -> {
+            UpdateQuantityRequest quantityRequest = UpdateQuantityRequest.builder()
+                    .quantity(productRequest.getQuantity())
+                    .shopId(Integer.valueOf(source))
+                    .build();
+            return productGatewayDriver.updateQuantityReactive(getAuthorizationHeader(authorizationHeader, source), productId, quantityRequest)
+                    .then(Mono.fromRunnable(() -> productChangeDetector.quantitySynced(productId, productRequest)))
+                    .thenReturn(productId);
+        });
+    }
+
+    private Mono<String> sync(ProductRequest productRequest, CreateOrUpdateProductRequest createOrUpdateProductRequest, ProductChangeDetector.Changes changes, String source, String authorizationHeader) {
+        return sync(productRequest, createOrUpdateProductRequest, changes, source, authorizationHeader, NOT_TRACKED);
+    }
+
+    private Mono<String> sync(ProductRequest productRequest, CreateOrUpdateProductRequest createOrUpdateProductRequest, ProductChangeDetector.Changes changes, String source, String authorizationHeader, Function<String, Mono<Void>> onCreated) {
+        checkCategory(productRequest, changes);
+        Mono<String> response;
+        if(isNewProduct(productRequest)){
+            createOrUpdateProductRequest.setShopId(Integer.valueOf(source));
+            response = productGatewayDriver.createProductReactive(getAuthorizationHeader(authorizationHeader, source), createOrUpdateProductRequest)
+                    .doOnNext(productId -> productChangeDetector.offerSynced(productId, productRequest))
+                    .flatMap(productId -> onCreated.apply(productId).thenReturn(productId));
+        }else if(changes.offerChanged()){
+            createOrUpdateProductRequest.setShopId(Integer.valueOf(productRequest.getSourceId()));
+            response = productGatewayDriver.updateProductReactive(getAuthorizationHeader(authorizationHeader, productRequest.getSourceId()), productRequest.getSourceId(), createOrUpdateProductRequest)
+                    .doOnNext(productId -> productChangeDetector.offerSynced(productRequest.getSourceId(), productRequest));
+        }else{
+            createOrUpdateProductRequest.setShopId(Integer.valueOf(productRequest.getSourceId()));
+            response = Mono.just(productRequest.getSourceId());
+        }
+
+        return response
+                .switchIfEmpty(Mono.error(() -> new ProductNotUpdatedException("Id prodotto non restituito dal servizio dei products")))
+                .flatMap(productId -> {
+                    if (!changes.quantityChanged()) {
+                        return Mono.just(productId);
+                    }
+                    String quantityAuthorizationHeader = getAuthorizationHeader(authorizationHeader, String.valueOf(createOrUpdateProductRequest.getShopId()));
+                    UpdateQuantityRequest quantityRequest = toUpdateQuantityRequest(productRequest, createOrUpdateProductRequest);
+                    String fingerprintKey = isNewProduct(productRequest) ? productId : productRequest.getSourceId();
+                    Runnable quantitySynced = () -> productChangeDetector.quantitySynced(fingerprintKey, productRequest);
+                    if (quantityUpdateCoalescer.isEnabled()) {
+                        quantityUpdateCoalescer.submit(quantityAuthorizationHeader, productId, quantityRequest, quantitySynced);
+                        return Mono.just(productId);
+                    }
+                    return productGatewayDriver.updateQuantityReactive(quantityAuthorizationHeader, productId, quantityRequest)
+                            .then(Mono.fromRunnable(quantitySynced))
+                            .thenReturn(productId);
+                })
+                .doOnNext(productId -> productChangeDetector.recordSkipped(changes));
+    }
+
+    private static boolean isNewProduct(ProductRequest productRequest) {
+        return productRequest.getSourceId() == null || productRequest.getSourceId().isEmpty();
+    }
+
+    /**
+     * Rejects locally a category the marketplace would refuse, when the product call
+     * that carries it is about to be sent.
+     */
+    private void checkCategory(ProductRequest productRequest, ProductChangeDetector.Changes changes) {
+        if (changes.offerChanged() && categoryIndex.rejects(productRequest.getCategorySourceId())) {
+            log.warn("Categoria {} non valida, prodotto non inviato al marketplace", productRequest.getCategorySourceId());
+            throw new CategoryNotValidException("Categoria non valida: " + productRequest.getCategorySourceId());
+        }
+    }
+
+    private ProductChangeDetector.Changes detectChanges(ProductRequest productRequest) {
+        if (isNewProduct(productRequest)) {
+            return ProductChangeDetector.Changes.ALL;
+        }
+        ProductChangeDetector.Changes changes = productChangeDetector.detect(productRequest.getSourceId(), productRequest);
+        if (!changes.quantityChanged() && quantityUpdateCoalescer.isEnabled() && quantityUpdateCoalescer.isPending(productRequest.getSourceId())) {
+            // the detector knows the last quantity synced, not the one still buffered or in flight
+            return new ProductChangeDetector.Changes(changes.offerChanged(), true);
+        }
+        return changes;
+    }
+
+    private CreateOrUpdateProductRequest toCreateOrUpdateProductRequest(ProductRequest productRequest) {
+        return CreateOrUpdateProductRequest.builder()
                 .information(CreateOrUpdateProductRequest.Information.builder()
                         .title(productRequest.getTitle())
                         .category(productRequest.getCategorySourceId())
@@ -36,22 +160,16 @@ public class ProductServiceImpl  implements IProductService{
                         .vat(productRequest.getVatRate())
                         .build())
                 .build();
+    }
 
-        if(productRequest.getSourceId() == null || productRequest.getSourceId().isEmpty()){
-            createOrUpdateProductRequest.setShopId(Integer.valueOf(source));
-            response = productGatewayDriver.createProduct(getAuthorizationHeader(authorizationHeader, source), createOrUpdateProductRequest);
-        }else{
-            createOrUpdateProductRequest.setShopId(Integer.valueOf(productRequest.getSourceId()));
-            response = productGatewayDriver.updateProduct(getAuthorizationHeader(authorizationHeader,productRequest.getSourceId()),productRequest.getSourceId(), createOrUpdateProductRequest);
-        }
-
-        final UpdateQuantityRequest quantityRequest = UpdateQuantityRequest.builder()
+    private UpdateQuantityRequest toUpdateQuantityRequest(ProductRequest productRequest, CreateOrUpdateProductRequest createOrUpdateProductRequest) {
+        return UpdateQuantityRequest.builder()
                 .quantity(productRequest.getQuantity())
                 .shopId(createOrUpdateProductRequest.getShopId())
                 .build();
+    }
 
-        productGatewayDriver.updateQuantity(getAuthorizationHeader(authorizationHeader, String.valueOf(createOrUpdateProductRequest.getShopId())), response, quantityRequest);
-
+    private ProductResponse toProductResponse(ProductRequest productRequest, CreateOrUpdateProductRequest createOrUpdateProductRequest, ProductChangeDetector.Changes changes) {
         return ProductResponse.builder()
                 .title(productRequest.getTitle())
                 .categorySourceId(productRequest.getCategorySourceId())
@@ -59,24 +177,12 @@ public class ProductServiceImpl  implements IProductService{
                 .vatRate(productRequest.getVatRate())
                 .quantity(productRequest.getQuantity())
                 .sourceId(createOrUpdateProductRequest.getShopId())
+                .productCallSkipped(!changes.offerChanged())
+                .quantityCallSkipped(!changes.quantityChanged())
                 .build();
-
     }
 
     private String getAuthorizationHeader(String authorizationHeader,String sourceId) {
-        if (authorizationHeader != null) {
-            return authorizationHeader;
-        }else{
-            String[] splitToken = productProperties.getAvailableToken().split(",");
-            if (sourceId == null) {
-                return BEARER + productProperties.getDefaultToken();
-            } else if (sourceId.equals("10205")) {
-                return BEARER + splitToken[1];
-            } else if (sourceId.equals("10124") || sourceId.equals("10015")) {
-                return BEARER + splitToken[0];
-            } else {
-                return BEARER + productProperties.getDefaultToken();
-            }
-        }
+        return authorizationHeader != null ? authorizationHeader : credentialRegistry.productAuthorizationHeader(sourceId);
     }
 }
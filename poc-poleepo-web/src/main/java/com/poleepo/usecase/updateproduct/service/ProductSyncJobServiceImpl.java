@@ -0,0 +1,188 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.enumeration.ErrorCode;
+import com.poleepo.enumeration.ProductSyncJobStatus;
+import com.poleepo.exception.GenericException;
+import com.poleepo.exception.IdempotencyKeyReusedException;
+import com.poleepo.exception.JobNotFoundException;
+import com.poleepo.usecase.updateproduct.model.entities.ProductSyncJobEntity;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductSyncJobResponse;
+import com.poleepo.usecase.updateproduct.repository.ProductSyncJobBatchRepository;
+import com.poleepo.usecase.updateproduct.repository.ProductSyncJobRepository;
+import jakarta.validation.Validator;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Stores product syncs in the {@code product_sync_job} table, drained by {@link ProductSyncJobWorker}.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProductSyncJobServiceImpl implements IProductSyncJobService {
+
+    private final ProductSyncJobRepository productSyncJobRepository;
+    private final ProductSyncJobBatchRepository productSyncJobBatchRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Override
+    public ProductSyncJobResponse enqueue(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store) {
+        ProductSyncJobEntity job = productSyncJobRepository.save(pendingJob(productRequest, source, store, Instant.now()));
+        log.info("Accodato job {} di sincronizzazione prodotto per store: {}, source: {}", job.getId(), store, source);
+        return toProductSyncJobResponse(job);
+    }
+
+    @Override
+    public Mono<ProductSyncJobResponse> enqueueReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store) {
+        return Mono.fromCallable(() -> enqueue(productRequest, source, store))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public ProductSyncJobResponse enqueue(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, @NonNull String idempotencyKey) {
+        ProductSyncJobEntity pending = pendingJob(productRequest, source, store, Instant.now());
+        pending.setIdempotencyKey(idempotencyKey);
+        return productSyncJobRepository.findByStoreAndSourceAndIdempotencyKey(store, source, idempotencyKey)
+                .map(job -> replay(job, pending.getPayload()))
+                .orElseGet(() -> {
+                    try {
+                        ProductSyncJobEntity job = productSyncJobRepository.save(pending);
+                        log.info("Accodato job {} di sincronizzazione prodotto per store: {}, source: {}", job.getId(), store, source);
+                        return toProductSyncJobResponse(job);
+                    } catch (DataIntegrityViolationException e) {
+                        // uk_product_sync_job_idempotency_key: a concurrent request with the same key stored its job first
+                        log.info("Idempotency-Key già accodata da una richiesta concorrente per store: {}, source: {}", store, source);
+                        return productSyncJobRepository.findByStoreAndSourceAndIdempotencyKey(store, source, idempotencyKey)
+                                .map(job -> replay(job, pending.getPayload()))
+                                .orElseThrow(() -> e);
+                    }
+                });
+    }
+
+    @Override
+    public Mono<ProductSyncJobResponse> enqueueReactive(@NonNull ProductRequest productRequest, @NonNull String source, @NonNull String store, @NonNull String idempotencyKey) {
+        return Mono.fromCallable(() -> enqueue(productRequest, source, store, idempotencyKey))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public List<ProductSyncJobResponse> enqueueAll(@NonNull List<ProductRequest> productRequests, @NonNull String source, @NonNull String store) {
+        Instant now = Instant.now();
+        List<ProductSyncJobEntity> jobs = new ArrayList<>(productRequests.size());
+        List<Supplier<ProductSyncJobResponse>> responses = new ArrayList<>(productRequests.size());
+        for (ProductRequest productRequest : productRequests) {
+            ErrorCode rejection = rejection(productRequest);
+            if (rejection != null) {
+                ProductSyncJobResponse rejected = rejected(rejection);
+                responses.add(() -> rejected);
+                continue;
+            }
+            ProductSyncJobEntity job = pendingJob(productRequest, source, store, now);
+            jobs.add(job);
+            responses.add(() -> toProductSyncJobResponse(job));
+        }
+        if (!jobs.isEmpty()) {
+            productSyncJobBatchRepository.insertAll(jobs);
+        }
+        log.info("Accodati {} job di sincronizzazione prodotto per store: {}, source: {}, scartati: {}",
+                jobs.size(), store, source, productRequests.size() - jobs.size());
+        return responses.stream()
+                .map(Supplier::get)
+                .toList();
+    }
+
+    @Override
+    public Mono<List<ProductSyncJobResponse>> enqueueAllReactive(@NonNull List<ProductRequest> productRequests, @NonNull String source, @NonNull String store) {
+        return Mono.fromCallable(() -> enqueueAll(productRequests, source, store))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public ProductSyncJobResponse getJob(@NonNull Long id) {
+        return productSyncJobRepository.findById(id)
+                .map(ProductSyncJobServiceImpl::toProductSyncJobResponse)
+                .orElseThrow(() -> new JobNotFoundException("Job " + id + " non trovato"));
+    }
+
+    @Override
+    public Mono<ProductSyncJobResponse> getJobReactive(@NonNull Long id) {
+        return Mono.fromCallable(() -> getJob(id))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private ProductSyncJobEntity pendingJob(ProductRequest productRequest, String source, String store, Instant now) {
+        return ProductSyncJobEntity.builder()
+                .status(ProductSyncJobStatus.PENDING)
+                .store(store)
+                .source(source)
+                .productKey(productRequest.getSourceId())
+                .payload(toPayload(productRequest))
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    /**
+     * Same checks as the synchronous batch: an item rejected here is never stored as a job.
+     */
+    private ErrorCode rejection(ProductRequest productRequest) {
+        if (productRequest == null) {
+            return ErrorCode.GENERIC;
+        }
+        if (!validator.validate(productRequest).isEmpty()) {
+            return ErrorCode.MISSING_REQUIRED_FIELD;
+        }
+        return null;
+    }
+
+    private static ProductSyncJobResponse rejected(ErrorCode errorCode) {
+        return ProductSyncJobResponse.builder()
+                .status(ProductSyncJobStatus.FAILED)
+                .error(errorCode.getCode())
+                .message(errorCode.getMessage())
+                .build();
+    }
+
+    private static ProductSyncJobResponse replay(ProductSyncJobEntity job, String payload) {
+        if (!job.getPayload().equals(payload)) {
+            throw new IdempotencyKeyReusedException("Idempotency-Key già usata con una richiesta diversa");
+        }
+        log.info("Idempotency-Key già usata, restituito il job {}", job.getId());
+        return toProductSyncJobResponse(job);
+    }
+
+    private String toPayload(ProductRequest productRequest) {
+        try {
+            return objectMapper.writeValueAsString(productRequest);
+        } catch (JsonProcessingException e) {
+            log.error("Errore durante la serializzazione del prodotto: {}", e.getOriginalMessage());
+            throw new GenericException("Errore durante la serializzazione del prodotto");
+        }
+    }
+
+    private static ProductSyncJobResponse toProductSyncJobResponse(ProductSyncJobEntity job) {
+        return ProductSyncJobResponse.builder()
+                .id(job.getId())
+                .status(job.getStatus())
+                .productId(job.getProductId())
+                .error(job.getError())
+                .message(job.getMessage())
+                .createdAt(job.getCreatedAt())
+                .updatedAt(job.getUpdatedAt())
+                .build();
+    }
+}
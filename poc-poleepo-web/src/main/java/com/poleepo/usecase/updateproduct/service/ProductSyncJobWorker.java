@@ -0,0 +1,157 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.enumeration.ErrorCode;
+import com.poleepo.enumeration.ProductSyncJobStatus;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.usecase.updateproduct.model.entities.ProductSyncJobEntity;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.repository.ProductSyncJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the {@code product_sync_job} table. Each poll claims as many PENDING jobs as there
+ * are free slots out of {@code product.config.jobs.concurrency} and syncs them without
+ * waiting, so a slow marketplace holds slots, not the scheduler thread. Jobs are claimed
+ * in batches with {@code SELECT ... FOR UPDATE SKIP LOCKED}, several instances can poll
+ * the same table. A failed job goes back to PENDING until {@code maxAttempts}; the id of
+ * a product created before the failure is kept, so a retry only sends its quantity.
+ * Jobs carry no credentials: the marketplace token is resolved from the shop when the
+ * job is dispatched. Jobs in flight get a heartbeat every {@code heartbeatInterval}, and
+ * their outcome is stored only under the lease token of the claim, so a job requeued
+ * meanwhile is never overwritten by its former worker.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "product.config.jobs", name = "worker-enabled", havingValue = "true", matchIfMissing = true)
+public class ProductSyncJobWorker {
+
+    private final ProductSyncJobRepository productSyncJobRepository;
+    private final IProductService productService;
+    private final ProductProperties productProperties;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Set<String> leaseTokens = ConcurrentHashMap.newKeySet();
+
+    @Scheduled(fixedDelayString = "#{@productProperties.jobs.pollInterval.toMillis()}")
+    public void poll() {
+        int free = productProperties.getJobs().getConcurrency() - inFlight.get();
+        if (free <= 0) {
+            return;
+        }
+        List<ProductSyncJobEntity> claimed = productSyncJobRepository
+                .claimPending(Instant.now(), Math.min(free, productProperties.getJobs().getClaimSize()));
+        for (ProductSyncJobEntity job : claimed) {
+            inFlight.incrementAndGet();
+            leaseTokens.add(job.getLeaseToken());
+            process(job)
+                    .doFinally(signal -> {
+                        leaseTokens.remove(job.getLeaseToken());
+                        inFlight.decrementAndGet();
+                    })
+                    .subscribe();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "#{@productProperties.jobs.heartbeatInterval.toMillis()}")
+    public void heartbeat() {
+        if (!leaseTokens.isEmpty()) {
+            productSyncJobRepository.heartbeat(List.copyOf(leaseTokens), Instant.now());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "#{@productProperties.jobs.staleAfter.toMillis()}")
+    public void requeueStale() {
+        Instant now = Instant.now();
+        int requeued = productSyncJobRepository.requeueStale(now.minus(productProperties.getJobs().getStaleAfter()), now);
+        if (requeued > 0) {
+            log.warn("Rimessi in coda {} job di sincronizzazione prodotto rimasti in esecuzione", requeued);
+        }
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private Mono<Void> process(ProductSyncJobEntity job) {
+        log.info("Inizio job {} di sincronizzazione prodotto, tentativo {}", job.getId(), job.getAttempts());
+        return Mono.fromCallable(() -> objectMapper.readValue(job.getPayload(), ProductRequest.class))
+                .flatMap(request -> sync(job, request))
+                .map(productId -> completed(job, productId))
+                .onErrorResume(e -> {
+                    log.error("Errore nel job {} di sincronizzazione prodotto: {}", job.getId(), e.getMessage());
+                    return Mono.just(failed(job, ProductErrorCodes.of(e)));
+                })
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(this::saveOutcome)
+                .doOnNext(saved -> log.info("Fine job {} di sincronizzazione prodotto, stato: {}", saved.getId(), saved.getStatus()))
+                .onErrorResume(e -> {
+                    log.error("Errore durante il salvataggio del job {}: {}", job.getId(), e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void saveOutcome(ProductSyncJobEntity job) {
+        if (!productSyncJobRepository.saveOutcome(job)) {
+            log.warn("Job {} rimesso in coda durante l'esecuzione, esito non salvato", job.getId());
+        }
+    }
+
+    private Mono<String> sync(ProductSyncJobEntity job, ProductRequest request) {
+        // no header is stored with the job: the token is looked up in the CredentialRegistry at every attempt
+        if (job.getProductId() != null) {
+            log.info("Job {}: prodotto {} gia' creato, invio della sola quantita'", job.getId(), job.getProductId());
+            return productService.syncQuantityReactive(request, job.getSource(), job.getStore(), null, job.getProductId());
+        }
+        return productService.syncProductReactive(request, job.getSource(), job.getStore(), null,
+                productId -> checkpoint(job, productId));
+    }
+
+    private Mono<Void> checkpoint(ProductSyncJobEntity job, String productId) {
+        job.setProductId(productId);
+        return Mono.fromRunnable(() -> productSyncJobRepository.recordProductId(job.getId(), job.getLeaseToken(), productId, Instant.now()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    private static ProductSyncJobEntity completed(ProductSyncJobEntity job, String productId) {
+        job.setStatus(ProductSyncJobStatus.COMPLETED);
+        job.setProductId(productId);
+        // clear the outcome of a previous failed attempt
+        job.setError(null);
+        job.setMessage(null);
+        job.setUpdatedAt(Instant.now());
+        return job;
+    }
+
+    private ProductSyncJobEntity failed(ProductSyncJobEntity job, ErrorCode errorCode) {
+        ProductProperties.Jobs jobs = productProperties.getJobs();
+        Instant now = Instant.now();
+        // a rejected category fails the same way at every attempt
+        if (errorCode != ErrorCode.CATEGORY_NOT_VALID && job.getAttempts() < jobs.getMaxAttempts()) {
+            job.setStatus(ProductSyncJobStatus.PENDING);
+            job.setNextAttemptAt(now.plus(jobs.getRetryBackoff().multipliedBy(job.getAttempts())));
+        } else {
+            job.setStatus(ProductSyncJobStatus.FAILED);
+        }
+        job.setError(errorCode.getCode());
+        job.setMessage(errorCode.getMessage());
+        job.setUpdatedAt(now);
+        return job;
+    }
+}
@@ -0,0 +1,173 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.usecase.updateproduct.model.request.UpdateQuantityRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind buffer for the quantity calls, enabled by
+ * {@code product.config.quantity-coalescing.enabled}. Only the latest quantity submitted
+ * for a product is kept: the buffer is flushed every {@code window}, or as soon as it
+ * holds {@code max-pending} products, and on shutdown. Flushes never overlap, so an older
+ * quantity cannot reach the upstream after a newer one. A failed call is retried at the
+ * next flush, unless a newer quantity arrived meanwhile, up to {@code max-attempts}.
+ * {@link #isPending} tells whether a product has a quantity buffered or being sent, which
+ * is newer than the last one the change detector saw synced.
+ * Buffered products are published by {@code products.quantity.pending}; submits replacing
+ * a buffered quantity by {@code products.quantity.coalesced}; sent calls by
+ * {@code products.quantity.flushed}, tagged with {@code result}.
+ */
+@Component
+@Slf4j
+public class QuantityUpdateCoalescer {
+
+    public static final String PENDING_METRIC = "products.quantity.pending";
+    public static final String COALESCED_METRIC = "products.quantity.coalesced";
+    public static final String FLUSHED_METRIC = "products.quantity.flushed";
+
+    private final IProductGatewayDriver productGatewayDriver;
+    private final ProductProperties.QuantityCoalescing config;
+    private final Map<String, PendingQuantity> pending = new ConcurrentHashMap<>();
+    private final Set<String> sending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final Counter coalesced;
+    private final Counter flushedSuccess;
+    private final Counter flushedFailure;
+
+    public QuantityUpdateCoalescer(IProductGatewayDriver productGatewayDriver, ProductProperties productProperties,
+                                   MeterRegistry meterRegistry) {
+        this.productGatewayDriver = productGatewayDriver;
+        this.config = productProperties.getQuantityCoalescing();
+        Gauge.builder(PENDING_METRIC, pending, Map::size)
+                .description("Products with a quantity waiting to be sent upstream")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder(COALESCED_METRIC)
+                .description("Quantity updates replaced by a newer one before reaching the upstream")
+                .register(meterRegistry);
+        this.flushedSuccess = flushedCounter(meterRegistry, "success");
+        this.flushedFailure = flushedCounter(meterRegistry, "failure");
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Whether a quantity of {@code productId} is buffered or being sent.
+     */
+    public boolean isPending(@NonNull String productId) {
+        return pending.containsKey(productId) || sending.contains(productId);
+    }
+
+    /**
+     * Buffers the quantity of {@code productId}, replacing the one not yet sent.
+     * {@code onSent} runs once the upstream accepted it.
+     */
+    public void submit(@NonNull String authorizationHeader, @NonNull String productId,
+                       @NonNull UpdateQuantityRequest quantityRequest, @NonNull Runnable onSent) {
+        PendingQuantity previous = pending.put(productId, new PendingQuantity(authorizationHeader, quantityRequest, onSent, 0));
+        if (previous != null) {
+            coalesced.increment();
+        }
+        if (pending.size() >= config.getMaxPending()) {
+            flush().subscribe();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "#{@productProperties.quantityCoalescing.window.toMillis()}")
+    public void flushWindow() {
+        if (!pending.isEmpty()) {
+            flush().subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        log.info("Invio di {} quantità in attesa prima dello spegnimento", pending.size());
+        // wait for a flush still running, then flush again until retries are drained
+        Mono.defer(this::flush)
+                .filter(flushed -> pending.isEmpty())
+                .repeatWhenEmpty(attempts -> attempts.delayElements(config.getWindow().dividedBy(10)))
+                .timeout(config.getShutdownTimeout(), Mono.empty())
+                .onErrorResume(e -> Mono.empty())
+                .block();
+        if (!pending.isEmpty()) {
+            log.error("Quantità non inviate allo spegnimento per {} prodotti", pending.size());
+        }
+    }
+
+    int pendingSize() {
+        return pending.size();
+    }
+
+    /**
+     * Sends the buffered quantities; completes empty without doing anything when another flush is running.
+     */
+    Mono<Boolean> flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        List<String> productIds = List.copyOf(pending.keySet());
+        return Flux.fromIterable(productIds)
+                .flatMap(productId -> {
+                    // marked as sending before leaving the buffer, so isPending never misses it
+                    sending.add(productId);
+                    PendingQuantity quantity = pending.remove(productId);
+                    if (quantity == null) {
+                        sending.remove(productId);
+                        return Mono.empty();
+                    }
+                    return send(productId, quantity).doFinally(signal -> sending.remove(productId));
+                }, config.getConcurrency())
+                .then(Mono.just(true))
+                .doFinally(signal -> flushing.set(false));
+    }
+
+    private Mono<Void> send(String productId, PendingQuantity quantity) {
+        return productGatewayDriver.updateQuantityReactive(quantity.authorizationHeader(), productId, quantity.request())
+                .doOnSuccess(response -> {
+                    flushedSuccess.increment();
+                    quantity.onSent().run();
+                })
+                .onErrorResume(e -> {
+                    flushedFailure.increment();
+                    int attempts = quantity.attempts() + 1;
+                    if (attempts < config.getMaxAttempts()
+                            && pending.putIfAbsent(productId, new PendingQuantity(quantity.authorizationHeader(), quantity.request(), quantity.onSent(), attempts)) == null) {
+                        log.warn("Quantità del prodotto {} non inviata, nuovo tentativo al prossimo invio: {}", productId, e.getMessage());
+                    } else {
+                        log.error("Quantità del prodotto {} non inviata: {}", productId, e.getMessage());
+                    }
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static Counter flushedCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(FLUSHED_METRIC)
+                .description("Buffered quantity updates sent upstream")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record PendingQuantity(String authorizationHeader, UpdateQuantityRequest request, Runnable onSent, int attempts) {
+    }
+}
@@ -0,0 +1,161 @@
+package com.poleepo.config;
+
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.HttpClientProperties;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.service.CredentialRegistry;
+import com.poleepo.service.GatewayConcurrencyLimiter;
+import com.poleepo.service.GatewayMetrics;
+import com.poleepo.service.GatewayResilience;
+import com.poleepo.usecase.updateproduct.model.request.CreateOrUpdateProductRequest;
+import com.poleepo.usecase.updateproduct.service.ProductGatewayDriver;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsProperties;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the blocking gateway calls on virtual threads, as they run with the
+ * {@code virtual} profile, and records {@code jdk.VirtualThreadPinned} JFR events:
+ * a block() that pins its carrier would show up here.
+ */
+class VirtualThreadPinningTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int CALLS = 50;
+
+    private HttpServer upstream;
+    private ConnectionProvider connectionProvider;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        upstream.createContext("/products", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"id\": \"42\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.stop(0);
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
+    }
+
+    private List<RecordedEvent> pinnedEvents(ThrowingRunnable workload) throws Exception {
+        List<RecordedEvent> events = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent(PINNED_EVENT, events::add);
+            recording.startAsync();
+            workload.run();
+            recording.stop();
+        }
+        return events;
+    }
+
+    @Test
+    void createProduct_WhenCalledFromVirtualThreads_ShouldNotPinCarrier() throws Exception {
+        // Given
+        String baseUrl = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/products";
+        ProductProperties productProperties = ProductProperties.builder()
+                .urlCreate(baseUrl)
+                .client(HttpClientProperties.builder().maxConnections(10).build())
+                .concurrencyLimit(ProductProperties.ConcurrencyLimit.builder().queueTimeout(Duration.ofSeconds(10)).build())
+                .build();
+        WebClientConfig webClientConfig = new WebClientConfig();
+        connectionProvider = webClientConfig.productPool(productProperties);
+        GatewayMetrics gatewayMetrics = new GatewayMetrics(new SimpleMeterRegistry());
+        WebClient webClient = webClientConfig.productWebClient(WebClient.builder(), productProperties, connectionProvider, gatewayMetrics);
+        GatewayConcurrencyLimiter gatewayConcurrencyLimiter = new GatewayConcurrencyLimiter(productProperties,
+                new CredentialRegistry(CategoryProperties.builder().build(), productProperties, CheckConfigProperties.builder().build()),
+                new SimpleMeterRegistry());
+        GatewayResilience gatewayResilience = new GatewayResilience(productProperties, CategoryProperties.builder().build(),
+                CheckConfigProperties.builder().build(), new MetricsProperties(), new SimpleMeterRegistry(), gatewayMetrics,
+                gatewayConcurrencyLimiter);
+        ProductGatewayDriver productGatewayDriver = new ProductGatewayDriver(webClient, productProperties, gatewayResilience);
+        // one-off class initialisation (codecs, Netty channels) is not what this test is about
+        productGatewayDriver.createProduct("Bearer token", CreateOrUpdateProductRequest.builder().shopId(10124).build());
+
+        // When
+        List<String> ids = new CopyOnWriteArrayList<>();
+        List<RecordedEvent> pinned = pinnedEvents(() -> {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<String>> calls = new ArrayList<>();
+                for (int i = 0; i < CALLS; i++) {
+                    calls.add(executor.submit(() -> productGatewayDriver.createProduct("Bearer token",
+                            CreateOrUpdateProductRequest.builder().shopId(10124).build())));
+                }
+                for (Future<String> call : calls) {
+                    ids.add(call.get(10, TimeUnit.SECONDS));
+                }
+            }
+        });
+
+        // Then
+        assertEquals(CALLS, ids.size());
+        assertTrue(ids.stream().allMatch("42"::equals));
+        assertTrue(pinned.isEmpty(), () -> "Virtual thread pinned: " + pinned.get(0));
+    }
+
+    @Test
+    void pinnedEvents_WhenBlockingInsideSynchronized_ShouldDetectPinning() throws Exception {
+        // Given
+        Object monitor = new Object();
+
+        // When
+        List<RecordedEvent> pinned = pinnedEvents(() -> Thread.ofVirtual().start(() -> {
+            synchronized (monitor) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }).join());
+
+        // Then
+        assertFalse(pinned.isEmpty());
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
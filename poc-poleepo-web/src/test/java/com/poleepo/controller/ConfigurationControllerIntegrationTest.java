@@ -3,7 +3,10 @@ package com.poleepo.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.poleepo.enumeration.ErrorCode;
 import com.poleepo.model.response.ResponseDto;
+import com.poleepo.usecase.checkconfig.model.request.ConfigurationBatchRequest;
 import com.poleepo.usecase.checkconfig.model.request.ConfigurationRequest;
+import com.poleepo.usecase.checkconfig.model.response.ConfigurationBatchResult;
+import com.poleepo.usecase.checkconfig.service.IConfigurationBatchService;
 import com.poleepo.usecase.checkconfig.service.IConfigurationService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +15,9 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -33,6 +39,9 @@ class ConfigurationControllerIntegrationTest {
     @MockitoBean
     private IConfigurationService configurationService;
 
+    @MockitoBean
+    private IConfigurationBatchService configurationBatchService;
+
     private static final String BASE_URL = "/configurations";
     private static final String X_STORE_HEADER = "X-STORE";
     private static final String X_SOURCE_HEADER = "X-SOURCE";
@@ -313,4 +322,29 @@ class ConfigurationControllerIntegrationTest {
 
         verify(configurationService).createOrUpdateConfiguration(longStore, longSource, request);
     }
+
+    @Test
+    void createConfigurations_ShouldReturnResultPerItem() throws Exception {
+        // Given
+        List<ConfigurationBatchRequest> requests = List.of(
+                ConfigurationBatchRequest.builder().store("1").source("2").apiToken("token1").shopId("10124").build(),
+                ConfigurationBatchRequest.builder().store("2").source("2").apiToken("token1").shopId("99999").build());
+        when(configurationBatchService.createConfigurations(requests)).thenReturn(Mono.just(List.of(
+                ConfigurationBatchResult.builder().index(0).success(true).data("10124").build(),
+                ConfigurationBatchResult.builder().index(1).success(false)
+                        .error(ErrorCode.CONFIGURATION_NOT_FOUND.getCode())
+                        .message(ErrorCode.CONFIGURATION_NOT_FOUND.getMessage())
+                        .build())));
+
+        // When & Then
+        mockMvc.perform(post(BASE_URL + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data[0].success").value(true))
+                .andExpect(jsonPath("$.data[0].data").value("10124"))
+                .andExpect(jsonPath("$.data[1].success").value(false))
+                .andExpect(jsonPath("$.data[1].error").value(ErrorCode.CONFIGURATION_NOT_FOUND.getCode()));
+    }
 }
@@ -1,19 +1,33 @@
 package com.poleepo.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.enumeration.ProductSyncJobStatus;
+import com.poleepo.exception.CategoryNotValidException;
+import com.poleepo.exception.IdempotencyKeyReusedException;
+import com.poleepo.exception.JobNotFoundException;
 import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductBatchResult;
 import com.poleepo.usecase.updateproduct.model.response.ProductResponse;
+import com.poleepo.usecase.updateproduct.model.response.ProductSyncJobResponse;
+import com.poleepo.usecase.updateproduct.service.IProductBatchService;
 import com.poleepo.usecase.updateproduct.service.IProductService;
+import com.poleepo.usecase.updateproduct.service.IProductSyncJobService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.poleepo.config.CostantConfig.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -29,6 +43,12 @@ class ProductControllerIntegrationTest {
     @MockitoBean
     private IProductService productService;
 
+    @MockitoBean
+    private IProductBatchService productBatchService;
+
+    @MockitoBean
+    private IProductSyncJobService productSyncJobService;
+
     @Test
     void createOrUpdateProduct_success() throws Exception {
         // Arrange
@@ -177,4 +197,258 @@ class ProductControllerIntegrationTest {
 
         verify(productService, never()).createOrUpdateProduct(any(), any(), any(), any());
     }
+
+    @Test
+    void createOrUpdateProducts_jsonBatch() throws Exception {
+        // Arrange
+        List<ProductRequest> requests = List.of(
+                ProductRequest.builder().title("A").categorySourceId("C").price(1.0).vatRate(22.0).quantity(1).build(),
+                ProductRequest.builder().title("B").build());
+        when(productBatchService.createOrUpdateProducts(any(), eq("test-source"), eq("test-store"), isNull()))
+                .thenReturn(Flux.just(
+                        ProductBatchResult.builder().index(0).success(true).data(ProductResponse.builder().title("A").build()).build(),
+                        ProductBatchResult.builder().index(1).success(false).error(2).message("Missing required field").build()));
+
+        // Act & Assert
+        mockMvc.perform(put(BASE_URI + "/products/batch")
+                        .header(X_STORE, "test-store")
+                        .header(X_SOURCE, "test-source")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data[0].success").value(true))
+                .andExpect(jsonPath("$.data[0].data.title").value("A"))
+                .andExpect(jsonPath("$.data[1].index").value(1))
+                .andExpect(jsonPath("$.data[1].error").value(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createOrUpdateProducts_ndjsonBatch() throws Exception {
+        // Arrange
+        String body = "{\"title\":\"A\"}\n{\"title\":\"B\"}\n";
+        List<String> received = new ArrayList<>();
+        when(productBatchService.createOrUpdateProductsNdjson(any(), eq("test-source"), eq("test-store"), eq("Bearer token")))
+                .thenAnswer(invocation -> ((Flux<String>) invocation.getArgument(0))
+                        .doOnNext(received::add)
+                        .index()
+                        .map(line -> ProductBatchResult.builder().index(line.getT1().intValue()).success(true).build()));
+
+        // Act & Assert
+        mockMvc.perform(put(BASE_URI + "/products/batch")
+                        .header(X_STORE, "test-store")
+                        .header(X_SOURCE, "test-source")
+                        .header("Authorization", "Bearer token")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[1].index").value(1));
+
+        assertEquals(List.of("{\"title\":\"A\"}", "{\"title\":\"B\"}"), received);
+    }
+
+    @Test
+    void createOrUpdateProduct_async_returnsAcceptedWithJobId() throws Exception {
+        // Arrange
+        ProductRequest request = ProductRequest.builder()
+                .title("Test Product")
+                .categorySourceId("CAT123")
+                .price(29.99)
+                .vatRate(22.0)
+                .quantity(10)
+                .build();
+        when(productSyncJobService.enqueue(any(ProductRequest.class), eq("test-source"), eq("test-store")))
+                .thenReturn(ProductSyncJobResponse.builder().id(42L).status(ProductSyncJobStatus.PENDING).build());
+
+        // Act & Assert
+        mockMvc.perform(put(BASE_URI + "/products")
+                        .param("async", "true")
+                        .header(X_STORE, "test-store")
+                        .header(X_SOURCE, "test-source")
+                        .header("Authorization", "Bearer token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", BASE_URI + "/products/jobs/42"))
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.id").value(42))
+                .andExpect(jsonPath("$.data.status").value("PENDING"));
+
+        verify(productService, never()).createOrUpdateProduct(any(), any(), any(), any());
+    }
+
+    @Test
+    void createOrUpdateProduct_asyncWithIdempotencyKey_enqueuesOncePerKey() throws Exception {
+        // Arrange
+        ProductRequest request = ProductRequest.builder()
+                .title("Test Product")
+                .categorySourceId("CAT123")
+                .price(29.99)
+                .vatRate(22.0)
+                .quantity(10)
+                .build();
+        when(productSyncJobService.enqueue(any(ProductRequest.class), eq("test-source"), eq("test-store"), eq("key-1")))
+                .thenReturn(ProductSyncJobResponse.builder().id(42L).status(ProductSyncJobStatus.PENDING).build());
+
+        // Act & Assert
+        mockMvc.perform(put(BASE_URI + "/products")
+                        .param("async", "true")
+                        .header(X_STORE, "test-store")
+                        .header(X_SOURCE, "test-source")
+                        .header(IDEMPOTENCY_KEY, "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", BASE_URI + "/products/jobs/42"))
+                .andExpect(jsonPath("$.data.id").value(42));
+
+        verify(productSyncJobService, never()).enqueue(any(), any(), any());
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void createOrUpdateProduct_async_whenInvalid_doesNotEnqueue() throws Exception {
+        // Act & Assert
+        mockMvc.perform(put(BASE_URI + "/products")
+                        .param("async", "true")
+                        .header(X_STORE, "test-store")
+                        .header(X_SOURCE, "test-source")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"A\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.error").value(2));
+
+        verifyNoInteractions(productSyncJobService);
+    }
+
+    @Test
+    void createOrUpdateProducts_async_returnsAcceptedWithJobIdsInOrder() throws Exception {
+        // Arrange
+        List<ProductRequest> requests = List.of(
+                ProductRequest.builder().title("Product A").quantity(1).build(),
+                ProductRequest.builder().title("Product B").quantity(2).build());
+        when(productSyncJobService.enqueueAll(anyList(), eq("test-source"), eq("test-store")))
+                .thenReturn(List.of(
+                        ProductSyncJobResponse.builder().id(42L).status(ProductSyncJobStatus.PENDING).build(),
+                        ProductSyncJobResponse.builder().id(43L).status(ProductSyncJobStatus.PENDING).build()));
+
+        // Act & Assert
+        mockMvc.perform(put(BASE_URI + "/products/batch")
+                        .param("async", "true")
+                        .header(X_STORE, "test-store")
+                        .header(X_SOURCE, "test-source")
+                        .header("Authorization", "Bearer token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data[0].id").value(42))
+                .andExpect(jsonPath("$.data[1].id").value(43));
+
+        verifyNoInteractions(productBatchService);
+    }
+
+    @Test
+    void getJob_returnsStatusAndProductId() throws Exception {
+        // Arrange
+        when(productSyncJobService.getJob(42L))
+                .thenReturn(ProductSyncJobResponse.builder().id(42L).status(ProductSyncJobStatus.COMPLETED).productId("12345").build());
+
+        // Act & Assert
+        mockMvc.perform(get(BASE_URI + "/products/jobs/42"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.data.productId").value("12345"));
+    }
+
+    @Test
+    void getJob_whenMissing_returnsJobNotFound() throws Exception {
+        // Arrange
+        when(productSyncJobService.getJob(7L)).thenThrow(new JobNotFoundException("Job 7 non trovato"));
+
+        // Act & Assert
+        mockMvc.perform(get(BASE_URI + "/products/jobs/7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.error").value(7));
+    }
+
+    @Test
+    void createOrUpdateProduct_withIdempotencyKey_usesIdempotentService() throws Exception {
+        // Arrange
+        ProductRequest request = ProductRequest.builder()
+                .title("Test Product")
+                .categorySourceId("CAT123")
+                .price(29.99)
+                .vatRate(22.0)
+                .quantity(10)
+                .build();
+        when(productService.createOrUpdateProduct(any(ProductRequest.class), eq("test-source"), eq("test-store"), isNull(), eq("key-1")))
+                .thenReturn(ProductResponse.builder().title("Test Product").sourceId(123).build());
+
+        // Act & Assert
+        mockMvc.perform(put(BASE_URI + "/products")
+                        .header(X_STORE, "test-store")
+                        .header(X_SOURCE, "test-source")
+                        .header(IDEMPOTENCY_KEY, "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.sourceId").value(123));
+
+        verify(productService, never()).createOrUpdateProduct(any(), any(), any(), any());
+    }
+
+    @Test
+    void createOrUpdateProduct_withReusedIdempotencyKey_returnsIdempotencyError() throws Exception {
+        // Arrange
+        ProductRequest request = ProductRequest.builder()
+                .title("Test Product")
+                .categorySourceId("CAT123")
+                .price(29.99)
+                .vatRate(22.0)
+                .quantity(10)
+                .build();
+        when(productService.createOrUpdateProduct(any(ProductRequest.class), any(), any(), any(), eq("key-1")))
+                .thenThrow(new IdempotencyKeyReusedException("Idempotency-Key già usata con una richiesta diversa"));
+
+        // Act & Assert
+        mockMvc.perform(put(BASE_URI + "/products")
+                        .header(X_STORE, "test-store")
+                        .header(X_SOURCE, "test-source")
+                        .header(IDEMPOTENCY_KEY, "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.error").value(8));
+    }
+
+    @Test
+    void createOrUpdateProduct_whenCategoryNotValid_returnsCategoryNotValid() throws Exception {
+        // Arrange
+        ProductRequest request = ProductRequest.builder()
+                .title("Test Product")
+                .categorySourceId("UNKNOWN")
+                .price(29.99)
+                .vatRate(22.0)
+                .quantity(10)
+                .build();
+        when(productService.createOrUpdateProduct(any(ProductRequest.class), any(), any(), any()))
+                .thenThrow(new CategoryNotValidException("Categoria non valida: UNKNOWN"));
+
+        // Act & Assert
+        mockMvc.perform(put(BASE_URI + "/products")
+                        .header(X_STORE, "test-store")
+                        .header(X_SOURCE, "test-source")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.error").value(10));
+    }
 }
@@ -0,0 +1,278 @@
+package com.poleepo.controller;
+
+import com.poleepo.enumeration.ErrorCode;
+import com.poleepo.enumeration.ProductSyncJobStatus;
+import com.poleepo.exception.JobNotFoundException;
+import com.poleepo.exception.ProductNotUpdatedException;
+import com.poleepo.service.CorrelationId;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductBatchResult;
+import com.poleepo.usecase.updateproduct.model.response.ProductResponse;
+import com.poleepo.usecase.updateproduct.model.response.ProductSyncJobResponse;
+import com.poleepo.usecase.updateproduct.service.IProductBatchService;
+import com.poleepo.usecase.updateproduct.service.IProductService;
+import com.poleepo.usecase.updateproduct.service.IProductSyncJobService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static com.poleepo.config.CostantConfig.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(ReactiveProductController.class)
+@ActiveProfiles(REACTIVE_PROFILE)
+class ReactiveProductControllerIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private IProductService productService;
+
+    @MockitoBean
+    private IProductBatchService productBatchService;
+
+    @MockitoBean
+    private IProductSyncJobService productSyncJobService;
+
+    private static ProductRequest validRequest() {
+        return ProductRequest.builder()
+                .title("Test Product")
+                .categorySourceId("CAT123")
+                .price(29.99)
+                .vatRate(22.0)
+                .quantity(10)
+                .build();
+    }
+
+    @Test
+    void createOrUpdateProduct_success() {
+        // Arrange
+        ProductResponse expectedResponse = ProductResponse.builder()
+                .title("Test Product")
+                .categorySourceId("CAT123")
+                .price(29.99)
+                .vatRate(22.0)
+                .quantity(10)
+                .sourceId(123)
+                .build();
+
+        when(productService.createOrUpdateProductReactive(any(ProductRequest.class), eq("test-source"), eq("test-store"), eq("Bearer token")))
+                .thenReturn(Mono.just(expectedResponse));
+
+        // Act & Assert
+        webTestClient.put().uri(BASE_URI + "/products")
+                .header(X_STORE, "test-store")
+                .header(X_SOURCE, "test-source")
+                .header("Authorization", "Bearer token")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(validRequest())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("X-Correlation-ID")
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(true)
+                .jsonPath("$.data.title").isEqualTo("Test Product")
+                .jsonPath("$.data.sourceId").isEqualTo(123);
+
+        verify(productService, never()).createOrUpdateProduct(any(), any(), any(), any());
+    }
+
+    @Test
+    void createOrUpdateProduct_shouldReuseIncomingCorrelationIdAndExposeItToTheService() {
+        // Arrange
+        when(productService.createOrUpdateProductReactive(any(ProductRequest.class), eq("test-source"), eq("test-store"), isNull()))
+                .thenReturn(Mono.deferContextual(context -> Mono.just(ProductResponse.builder()
+                        .title(context.get(CorrelationId.MDC_KEY))
+                        .build())));
+
+        // Act & Assert
+        webTestClient.put().uri(BASE_URI + "/products")
+                .header(X_STORE, "test-store")
+                .header(X_SOURCE, "test-source")
+                .header(X_CORRELATION_ID, "client-request-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(validRequest())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(X_CORRELATION_ID, "client-request-1")
+                .expectBody()
+                .jsonPath("$.data.title").isEqualTo("client-request-1");
+    }
+
+    @Test
+    void createOrUpdateProduct_missingRequiredFields() {
+        // Act & Assert
+        webTestClient.put().uri(BASE_URI + "/products")
+                .header(X_STORE, "test-store")
+                .header(X_SOURCE, "test-source")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.error").isEqualTo(ErrorCode.MISSING_REQUIRED_FIELD.getCode());
+
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void createOrUpdateProduct_serviceError() {
+        // Arrange
+        when(productService.createOrUpdateProductReactive(any(ProductRequest.class), anyString(), anyString(), isNull()))
+                .thenReturn(Mono.error(new ProductNotUpdatedException("Errore durante la chiamata al servizio dei products")));
+
+        // Act & Assert
+        webTestClient.put().uri(BASE_URI + "/products")
+                .header(X_STORE, "test-store")
+                .header(X_SOURCE, "test-source")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(validRequest())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.error").isEqualTo(ErrorCode.PRODUCT_NOT_UPDATED.getCode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createOrUpdateProducts_ndjsonBatch() {
+        // Arrange
+        when(productBatchService.createOrUpdateProductsNdjson(any(), eq("test-source"), eq("test-store"), isNull()))
+                .thenAnswer(invocation -> ((Flux<String>) invocation.getArgument(0))
+                        .index()
+                        .map(line -> ProductBatchResult.builder()
+                                .index(line.getT1().intValue())
+                                .success(line.getT2().contains("A"))
+                                .build()));
+
+        // Act & Assert
+        webTestClient.put().uri(BASE_URI + "/products/batch")
+                .header(X_STORE, "test-store")
+                .header(X_SOURCE, "test-source")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"title\":\"A\"}\n{\"title\":\"B\"}\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(true)
+                .jsonPath("$.data.length()").isEqualTo(2)
+                .jsonPath("$.data[0].success").isEqualTo(true)
+                .jsonPath("$.data[1].success").isEqualTo(false);
+    }
+
+    @Test
+    void createOrUpdateProducts_jsonBatch() {
+        // Arrange
+        when(productBatchService.createOrUpdateProducts(any(), eq("test-source"), eq("test-store"), isNull()))
+                .thenAnswer(invocation -> Flux.from(invocation.<Flux<ProductRequest>>getArgument(0))
+                        .index()
+                        .map(item -> ProductBatchResult.builder()
+                                .index(item.getT1().intValue())
+                                .success(true)
+                                .data(ProductResponse.builder().title(item.getT2().getTitle()).build())
+                                .build()));
+
+        // Act & Assert
+        webTestClient.put().uri(BASE_URI + "/products/batch")
+                .header(X_STORE, "test-store")
+                .header(X_SOURCE, "test-source")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(validRequest(), validRequest()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.length()").isEqualTo(2)
+                .jsonPath("$.data[1].index").isEqualTo(1)
+                .jsonPath("$.data[1].data.title").isEqualTo("Test Product");
+    }
+
+    @Test
+    void createOrUpdateProduct_async_returnsAcceptedWithJobId() {
+        // Arrange
+        when(productSyncJobService.enqueueReactive(any(ProductRequest.class), eq("test-source"), eq("test-store")))
+                .thenReturn(Mono.just(ProductSyncJobResponse.builder().id(42L).status(ProductSyncJobStatus.PENDING).build()));
+
+        // Act & Assert
+        webTestClient.put().uri(BASE_URI + "/products?async=true")
+                .header(X_STORE, "test-store")
+                .header(X_SOURCE, "test-source")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(validRequest())
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectHeader().valueEquals("Location", BASE_URI + "/products/jobs/42")
+                .expectBody()
+                .jsonPath("$.data.id").isEqualTo(42)
+                .jsonPath("$.data.status").isEqualTo("PENDING");
+
+        verify(productService, never()).createOrUpdateProductReactive(any(), any(), any(), any());
+    }
+
+    @Test
+    void createOrUpdateProducts_async_returnsAcceptedWithJobIdsInOrder() {
+        // Arrange
+        when(productSyncJobService.enqueueAllReactive(anyList(), eq("test-source"), eq("test-store")))
+                .thenReturn(Mono.just(List.of(
+                        ProductSyncJobResponse.builder().id(42L).status(ProductSyncJobStatus.PENDING).build(),
+                        ProductSyncJobResponse.builder().id(43L).status(ProductSyncJobStatus.PENDING).build())));
+
+        // Act & Assert
+        webTestClient.put().uri(BASE_URI + "/products/batch?async=true")
+                .header(X_STORE, "test-store")
+                .header(X_SOURCE, "test-source")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(validRequest(), validRequest()))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .jsonPath("$.data[0].id").isEqualTo(42)
+                .jsonPath("$.data[1].id").isEqualTo(43);
+    }
+
+    @Test
+    void getJob_whenMissing_returnsJobNotFound() {
+        // Arrange
+        when(productSyncJobService.getJobReactive(7L)).thenReturn(Mono.error(new JobNotFoundException("Job 7 non trovato")));
+
+        // Act & Assert
+        webTestClient.get().uri(BASE_URI + "/products/jobs/7")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.error").isEqualTo(ErrorCode.JOB_NOT_FOUND.getCode());
+    }
+
+    @Test
+    void createOrUpdateProduct_withIdempotencyKey_usesIdempotentService() {
+        // Arrange
+        when(productService.createOrUpdateProductReactive(any(ProductRequest.class), eq("test-source"), eq("test-store"), isNull(), eq("key-1")))
+                .thenReturn(Mono.just(ProductResponse.builder().title("Test Product").sourceId(123).build()));
+
+        // Act & Assert
+        webTestClient.put().uri(BASE_URI + "/products")
+                .header(X_STORE, "test-store")
+                .header(X_SOURCE, "test-source")
+                .header(IDEMPOTENCY_KEY, "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(validRequest())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.sourceId").isEqualTo(123);
+
+        verify(productService, never()).createOrUpdateProductReactive(any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,102 @@
+package com.poleepo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.poleepo.config.CostantConfig.X_CORRELATION_ID;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorrelationIdTest {
+
+    private final AtomicReference<ClientRequest> sent = new AtomicReference<>();
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+        Hooks.disableAutomaticContextPropagation();
+    }
+
+    private WebClient webClient() {
+        return WebClient.builder()
+                .exchangeFunction(request -> {
+                    sent.set(request);
+                    return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+                })
+                .filter(CorrelationId.propagationFilter())
+                .build();
+    }
+
+    @Test
+    void resolve_WhenHeaderIsValid_ShouldReuseIt() {
+        assertEquals("order-42:retry_1.a", CorrelationId.resolve("order-42:retry_1.a"));
+    }
+
+    @Test
+    void resolve_WhenHeaderMissingOrUnsafe_ShouldGenerateRandomUuid() {
+        for (String incoming : new String[]{null, "", "abc\nforged log line", "x".repeat(65)}) {
+            UUID generated = UUID.fromString(CorrelationId.resolve(incoming));
+            assertEquals(4, generated.version());
+            assertEquals(2, generated.variant());
+        }
+        assertNotEquals(CorrelationId.generate(), CorrelationId.generate());
+    }
+
+    @Test
+    void propagationFilter_ShouldSendIdOfReactorContext() {
+        // When
+        webClient().get().uri("http://upstream/categories").retrieve().toBodilessEntity()
+                .contextWrite(context -> context.put(CorrelationId.MDC_KEY, "from-context"))
+                .block();
+
+        // Then
+        assertEquals("from-context", sent.get().headers().getFirst(X_CORRELATION_ID));
+    }
+
+    @Test
+    void propagationFilter_WhenNoContext_ShouldSendIdOfMdc() {
+        // Given
+        MDC.put(CorrelationId.MDC_KEY, "from-mdc");
+
+        // When
+        webClient().get().uri("http://upstream/categories").retrieve().toBodilessEntity().block();
+
+        // Then
+        assertEquals("from-mdc", sent.get().headers().getFirst(X_CORRELATION_ID));
+    }
+
+    @Test
+    void propagationFilter_WhenNoCorrelationId_ShouldNotAddHeader() {
+        // When
+        webClient().get().uri("http://upstream/categories").retrieve().toBodilessEntity().block();
+
+        // Then
+        assertFalse(sent.get().headers().containsKey(X_CORRELATION_ID));
+    }
+
+    @Test
+    void automaticPropagation_ShouldRestoreMdcAfterThreadHop() {
+        // Given
+        Hooks.enableAutomaticContextPropagation();
+        MDC.put(CorrelationId.MDC_KEY, "request-1");
+
+        // When
+        String seen = Mono.just("value")
+                .publishOn(Schedulers.boundedElastic())
+                .map(value -> String.valueOf(MDC.get(CorrelationId.MDC_KEY)))
+                .block();
+
+        // Then
+        assertEquals("request-1", seen);
+    }
+}
@@ -0,0 +1,95 @@
+package com.poleepo.service;
+
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.ProductProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialRegistryTest {
+
+    private CategoryProperties categoryProperties;
+    private ProductProperties productProperties;
+    private CheckConfigProperties checkConfigProperties;
+    private CredentialRegistry credentialRegistry;
+
+    @BeforeEach
+    void setUp() {
+        categoryProperties = CategoryProperties.builder().availableToken("cat1,cat2").defaultToken("cat1").build();
+        productProperties = ProductProperties.builder().availableToken("prod1,prod2").defaultToken("prodDefault")
+                .shopTokens(Map.of("10124", 0, "10015", 0, "10205", 1)).build();
+        checkConfigProperties = CheckConfigProperties.builder().availableToken("check1,check2").build();
+        credentialRegistry = registry();
+    }
+
+    private CredentialRegistry registry() {
+        return new CredentialRegistry(categoryProperties, productProperties, checkConfigProperties);
+    }
+
+    @Test
+    void productAuthorizationHeader_ShouldResolveTokenOfShop() {
+        assertEquals("Bearer prod1", credentialRegistry.productAuthorizationHeader("10124"));
+        assertEquals("Bearer prod1", credentialRegistry.productAuthorizationHeader("10015"));
+        assertEquals("Bearer prod2", credentialRegistry.productAuthorizationHeader("10205"));
+        assertSame(credentialRegistry.productAuthorizationHeader("10124"), credentialRegistry.productAuthorizationHeader("10124"));
+    }
+
+    @Test
+    void productAuthorizationHeader_WhenShopUnknownOrNull_ShouldUseDefaultToken() {
+        assertEquals("Bearer prodDefault", credentialRegistry.productAuthorizationHeader("99999"));
+        assertEquals("Bearer prodDefault", credentialRegistry.productAuthorizationHeader(null));
+    }
+
+    @Test
+    void productAuthorizationHeader_WhenShopTokenMissing_ShouldUseDefaultToken() {
+        // Given
+        productProperties.setAvailableToken("prod1");
+
+        // When & Then
+        assertEquals("Bearer prodDefault", registry().productAuthorizationHeader("10205"));
+    }
+
+    @Test
+    void isCheckConfigTokenValid_ShouldMatchTokenOfShop() {
+        assertTrue(credentialRegistry.isCheckConfigTokenValid("check1", "10124"));
+        assertTrue(credentialRegistry.isCheckConfigTokenValid("check2", "10205"));
+        assertFalse(credentialRegistry.isCheckConfigTokenValid("check2", "10124"));
+        assertFalse(credentialRegistry.isCheckConfigTokenValid("check1", "99999"));
+        assertFalse(credentialRegistry.isCheckConfigTokenValid(null, "10124"));
+    }
+
+    @Test
+    void isCategoryHeaderValid_ShouldAcceptTokenWithOrWithoutBearer() {
+        assertTrue(credentialRegistry.isCategoryHeaderValid("cat2"));
+        assertTrue(credentialRegistry.isCategoryHeaderValid("Bearer cat2"));
+        assertFalse(credentialRegistry.isCategoryHeaderValid("Bearer cat3"));
+        assertEquals("cat1", credentialRegistry.categoryDefaultToken());
+    }
+
+    @Test
+    void isCategoryHeaderValid_WhenDefaultTokenMissing_ShouldRejectEveryToken() {
+        // Given
+        categoryProperties.setDefaultToken(null);
+
+        // When & Then
+        assertFalse(registry().isCategoryHeaderValid("cat1"));
+    }
+
+    @Test
+    void productAuthorizationHeader_WhenShopNotConfigured_ShouldUseDefaultToken() {
+        // Given
+        productProperties.setShopTokens(Map.of("10124", 1));
+
+        // When
+        CredentialRegistry registry = registry();
+
+        // Then
+        assertEquals("Bearer prod2", registry.productAuthorizationHeader("10124"));
+        assertEquals("Bearer prodDefault", registry.productAuthorizationHeader("10205"));
+        assertFalse(registry.isCheckConfigTokenValid("check2", "10205"));
+    }
+}
@@ -0,0 +1,253 @@
+package com.poleepo.service;
+
+import com.poleepo.exception.UpstreamThrottledException;
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.ProductProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayConcurrencyLimiterTest {
+
+    private static final String TOKEN = "Bearer secret-token";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private GatewayConcurrencyLimiter limiter(ProductProperties.ConcurrencyLimit.ConcurrencyLimitBuilder config) {
+        ProductProperties productProperties = ProductProperties.builder()
+                .defaultToken("secret-token")
+                .concurrencyLimit(config.build())
+                .build();
+        CredentialRegistry credentialRegistry = new CredentialRegistry(CategoryProperties.builder().build(), productProperties,
+                CheckConfigProperties.builder().build());
+        return new GatewayConcurrencyLimiter(productProperties, credentialRegistry, meterRegistry);
+    }
+
+    private double gauge(String name) {
+        Gauge gauge = meterRegistry.find(name).tag("token", GatewayConcurrencyLimiter.fingerprint(TOKEN)).gauge();
+        assertNotNull(gauge);
+        return gauge.value();
+    }
+
+    private static WebClientResponseException error(HttpStatus status) {
+        return WebClientResponseException.create(status.value(), status.getReasonPhrase(), HttpHeaders.EMPTY, null, null);
+    }
+
+    @Test
+    void limited_WhenUnderLimit_ShouldRunCallAndPublishGaugesWithoutToken() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder().initialLimit(5));
+
+        // When
+        String result = limiter.limited(TOKEN, Mono.just("42")).block();
+
+        // Then
+        assertEquals("42", result);
+        assertEquals(5, gauge(GatewayConcurrencyLimiter.LIMIT_METRIC), 0.5);
+        assertEquals(0, gauge(GatewayConcurrencyLimiter.IN_FLIGHT_METRIC));
+        assertEquals(0, gauge(GatewayConcurrencyLimiter.QUEUE_METRIC));
+        assertTrue(meterRegistry.getMeters().stream()
+                .flatMap(meter -> meter.getId().getTags().stream())
+                .noneMatch(tag -> tag.getValue().contains("secret-token")));
+    }
+
+    @Test
+    void limited_WhenOverLimit_ShouldQueueUntilSlotIsFree() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder()
+                .initialLimit(1).queueTimeout(Duration.ofSeconds(5)));
+        Sinks.One<String> first = Sinks.one();
+        AtomicReference<String> firstResult = new AtomicReference<>();
+        limiter.limited(TOKEN, first.asMono()).subscribe(firstResult::set);
+        AtomicInteger secondStarted = new AtomicInteger();
+
+        // When
+        StepVerifier.create(limiter.limited(TOKEN, Mono.fromCallable(() -> {
+                            secondStarted.incrementAndGet();
+                            return "second";
+                        })))
+                .then(() -> {
+                    assertEquals(0, secondStarted.get());
+                    assertEquals(1, gauge(GatewayConcurrencyLimiter.QUEUE_METRIC));
+                    first.tryEmitValue("first");
+                })
+                // Then
+                .expectNext("second")
+                .verifyComplete();
+        assertEquals("first", firstResult.get());
+        assertEquals(1, secondStarted.get());
+        assertEquals(0, gauge(GatewayConcurrencyLimiter.QUEUE_METRIC));
+    }
+
+    @Test
+    void limited_WhenQueueFull_ShouldRejectAtOnce() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder()
+                .initialLimit(1).maxQueue(0));
+        limiter.limited(TOKEN, Mono.never()).subscribe();
+
+        // When & Then
+        StepVerifier.create(limiter.limited(TOKEN, Mono.just("second")))
+                .expectError(UpstreamThrottledException.class)
+                .verify(Duration.ofSeconds(1));
+        assertEquals(1, meterRegistry.find(GatewayConcurrencyLimiter.REJECTED_METRIC).counter().count());
+    }
+
+    @Test
+    void limited_WhenQueuedTooLong_ShouldReject() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder()
+                .initialLimit(1).queueTimeout(Duration.ofMillis(50)));
+        limiter.limited(TOKEN, Mono.never()).subscribe();
+
+        // When & Then
+        StepVerifier.create(limiter.limited(TOKEN, Mono.just("second")))
+                .expectError(UpstreamThrottledException.class)
+                .verify(Duration.ofSeconds(1));
+        assertEquals(0, gauge(GatewayConcurrencyLimiter.QUEUE_METRIC));
+    }
+
+    @Test
+    void limited_WhenQueuedCallIsCancelled_ShouldLeaveQueue() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder()
+                .initialLimit(1).queueTimeout(Duration.ofSeconds(5)));
+        Sinks.One<String> first = Sinks.one();
+        limiter.limited(TOKEN, first.asMono()).subscribe();
+
+        // When
+        limiter.limited(TOKEN, Mono.just("second")).subscribe().dispose();
+        first.tryEmitValue("first");
+
+        // Then
+        assertEquals(0, gauge(GatewayConcurrencyLimiter.QUEUE_METRIC));
+        assertEquals(0, gauge(GatewayConcurrencyLimiter.IN_FLIGHT_METRIC));
+    }
+
+    @Test
+    void limited_WhenUpstreamThrottles_ShouldDecreaseLimit() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder()
+                .initialLimit(10).backoffRatio(0.5));
+
+        // When
+        for (HttpStatus status : new HttpStatus[]{HttpStatus.TOO_MANY_REQUESTS, HttpStatus.SERVICE_UNAVAILABLE}) {
+            StepVerifier.create(limiter.limited(TOKEN, Mono.error(error(status))))
+                    .expectError(WebClientResponseException.class)
+                    .verify();
+        }
+
+        // Then
+        assertEquals(2.5, gauge(GatewayConcurrencyLimiter.LIMIT_METRIC));
+    }
+
+    @Test
+    void limited_WhenClientError_ShouldKeepLimit() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder().initialLimit(10));
+
+        // When
+        StepVerifier.create(limiter.limited(TOKEN, Mono.error(error(HttpStatus.BAD_REQUEST))))
+                .expectError(WebClientResponseException.class)
+                .verify();
+
+        // Then
+        assertEquals(10, gauge(GatewayConcurrencyLimiter.LIMIT_METRIC));
+    }
+
+    @Test
+    void limited_WhenCallsSucceedAtLimit_ShouldIncreaseLimitUpToMax() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder()
+                .initialLimit(1).maxLimit(2));
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            limiter.limited(TOKEN, Mono.just(i)).block();
+        }
+
+        // Then
+        assertEquals(2, gauge(GatewayConcurrencyLimiter.LIMIT_METRIC));
+    }
+
+    @Test
+    void limited_WhenLimitIsNotUsed_ShouldKeepLimit() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder().initialLimit(10));
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            limiter.limited(TOKEN, Mono.just(i)).block();
+        }
+
+        // Then
+        assertEquals(10, gauge(GatewayConcurrencyLimiter.LIMIT_METRIC));
+    }
+
+    @Test
+    void limited_WhenCallIsSlow_ShouldDecreaseLimit() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder()
+                .initialLimit(10).backoffRatio(0.5).latencyThreshold(Duration.ofMillis(10)));
+
+        // When
+        limiter.limited(TOKEN, Mono.delay(Duration.ofMillis(50)).thenReturn("slow")).block();
+
+        // Then
+        assertEquals(5, gauge(GatewayConcurrencyLimiter.LIMIT_METRIC));
+    }
+
+    @Test
+    void limited_WhenRetryBacksOff_ShouldMeasureOnlyTheLastAttempt() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder()
+                .initialLimit(10).backoffRatio(0.5).latencyThreshold(Duration.ofMillis(10)));
+
+        // When
+        limiter.limited(TOKEN, Mono.delay(Duration.ofMillis(50)).then(limiter.attempt(Mono.just("retried")))).block();
+
+        // Then
+        assertEquals(10, gauge(GatewayConcurrencyLimiter.LIMIT_METRIC));
+    }
+
+    @Test
+    void limited_WhenTokenIsUnknown_ShouldShareOneLimit() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder()
+                .initialLimit(1).maxQueue(0));
+        limiter.limited("Bearer caller-1", Mono.never()).subscribe();
+
+        // When & Then
+        StepVerifier.create(limiter.limited("Bearer caller-2", Mono.just("second")))
+                .expectError(UpstreamThrottledException.class)
+                .verify(Duration.ofSeconds(5));
+        assertEquals(1, meterRegistry.find(GatewayConcurrencyLimiter.LIMIT_METRIC).gauges().size());
+        assertNotNull(meterRegistry.find(GatewayConcurrencyLimiter.LIMIT_METRIC).tag("token", GatewayConcurrencyLimiter.UNKNOWN_TOKEN).gauge());
+    }
+
+    @Test
+    void limited_WhenDisabled_ShouldPassCallThrough() {
+        // Given
+        GatewayConcurrencyLimiter limiter = limiter(ProductProperties.ConcurrencyLimit.builder().enabled(false));
+
+        // When
+        String result = limiter.limited(TOKEN, Mono.just("42")).block();
+
+        // Then
+        assertEquals("42", result);
+        assertNull(meterRegistry.find(GatewayConcurrencyLimiter.LIMIT_METRIC).gauge());
+    }
+}
@@ -0,0 +1,102 @@
+package com.poleepo.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private GatewayMetrics gatewayMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        gatewayMetrics = new GatewayMetrics(meterRegistry);
+    }
+
+    private WebClient webClient(ExchangeFunction exchangeFunction) {
+        return WebClient.builder()
+                .exchangeFunction(exchangeFunction)
+                .filter(gatewayMetrics.statusFilter())
+                .build();
+    }
+
+    private static ExchangeFunction respond(HttpStatus status) {
+        return request -> Mono.just(ClientResponse.create(status).body("{\"id\":\"1\"}").build());
+    }
+
+    private Timer timer(String operation, String outcome, String status) {
+        return meterRegistry.find(GatewayMetrics.TIMER)
+                .tags("upstream", GatewayMetrics.PRODUCT, "operation", operation, "outcome", outcome, "status", status)
+                .timer();
+    }
+
+    @Test
+    void timed_WhenCallSucceeds_ShouldRecordStatusAndSuccessOutcome() {
+        // Given
+        WebClient webClient = webClient(respond(HttpStatus.CREATED));
+
+        // When
+        String body = gatewayMetrics.timed(GatewayMetrics.PRODUCT, "createProduct",
+                webClient.post().uri("http://upstream/products").retrieve().bodyToMono(String.class)).block();
+
+        // Then
+        assertEquals("{\"id\":\"1\"}", body);
+        Timer timer = timer("createProduct", "SUCCESS", "201");
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    void timed_WhenUpstreamFails_ShouldRecordStatusAndServerErrorOutcome() {
+        // Given
+        WebClient webClient = webClient(respond(HttpStatus.SERVICE_UNAVAILABLE));
+
+        // When & Then
+        StepVerifier.create(gatewayMetrics.timed(GatewayMetrics.PRODUCT, "updateProduct",
+                        webClient.put().uri("http://upstream/products/1").retrieve().bodyToMono(String.class)))
+                .expectError()
+                .verify();
+        assertEquals(1, timer("updateProduct", "SERVER_ERROR", "503").count());
+    }
+
+    @Test
+    void timed_WhenNoResponse_ShouldRecordIoError() {
+        // Given
+        WebClient webClient = webClient(request -> Mono.error(new IOException("Connection refused")));
+
+        // When & Then
+        StepVerifier.create(gatewayMetrics.timed(GatewayMetrics.PRODUCT, "updateQuantity",
+                        webClient.put().uri("http://upstream/products/1/quantity").retrieve().bodyToMono(String.class)))
+                .expectError()
+                .verify();
+        assertEquals(1, timer("updateQuantity", "UNKNOWN", "IO_ERROR").count());
+    }
+
+    @Test
+    void timed_WhenStreaming_ShouldRecordOnceBodyCompletes() {
+        // Given
+        WebClient webClient = webClient(respond(HttpStatus.OK));
+
+        // When
+        Flux<String> call = gatewayMetrics.timed(GatewayMetrics.PRODUCT, "streamProducts",
+                webClient.get().uri("http://upstream/products").retrieve().bodyToFlux(String.class));
+
+        // Then
+        StepVerifier.create(call).expectNextCount(1).verifyComplete();
+        assertEquals(1, timer("streamProducts", "SUCCESS", "200").count());
+    }
+}
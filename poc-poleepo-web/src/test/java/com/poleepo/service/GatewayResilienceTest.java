@@ -0,0 +1,389 @@
+package com.poleepo.service;
+
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.HttpClientProperties;
+import com.poleepo.properties.ProductProperties;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayResilienceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MetricsProperties metricsProperties = new MetricsProperties();
+
+    GatewayResilienceTest() {
+        metricsProperties.getDistribution().getPercentiles().put(GatewayMetrics.TIMER, new double[]{0.5, 0.95, 0.99});
+    }
+
+    private GatewayResilience gatewayResilience(HttpClientProperties.Retry retry,
+                                                HttpClientProperties.CircuitBreaker circuitBreaker) {
+        return gatewayResilience(HttpClientProperties.builder().retry(retry).circuitBreaker(circuitBreaker).build());
+    }
+
+    private GatewayResilience gatewayResilience(HttpClientProperties client) {
+        return new GatewayResilience(ProductProperties.builder().client(client).build(),
+                CategoryProperties.builder().build(), CheckConfigProperties.builder().build(), metricsProperties, meterRegistry,
+                new GatewayMetrics(meterRegistry), new GatewayConcurrencyLimiter(ProductProperties.builder().build(),
+                        new CredentialRegistry(CategoryProperties.builder().build(), ProductProperties.builder().build(),
+                                CheckConfigProperties.builder().build()), meterRegistry));
+    }
+
+    private static HttpClientProperties.Retry.RetryBuilder fastRetry() {
+        return HttpClientProperties.Retry.builder().minBackoff(Duration.ofMillis(1)).maxBackoff(Duration.ofMillis(5));
+    }
+
+    private static WebClientResponseException error(HttpStatus status) {
+        return WebClientResponseException.create(status.value(), status.getReasonPhrase(), HttpHeaders.EMPTY, null, null);
+    }
+
+    /**
+     * Call failing with the given errors in sequence, then succeeding.
+     */
+    private static Mono<String> failing(AtomicInteger attempts, Throwable... errors) {
+        return Mono.defer(() -> {
+            int attempt = attempts.getAndIncrement();
+            return attempt < errors.length ? Mono.error(errors[attempt]) : Mono.just("ok");
+        });
+    }
+
+    private double retries(String result) {
+        return meterRegistry.find(GatewayResilience.RETRIES_METRIC).tag("result", result).counter().count();
+    }
+
+    private double hedges(String result) {
+        return meterRegistry.find(GatewayResilience.HEDGES_METRIC).tag("result", result).counter().count();
+    }
+
+    private GatewayResilience hedging(HttpClientProperties.Hedge.HedgeBuilder hedge) {
+        return gatewayResilience(HttpClientProperties.builder().hedge(hedge.enabled(true).build()).build());
+    }
+
+    /**
+     * Call answering after the given delays, one per subscription, recording cancellations.
+     */
+    private static Mono<String> answering(AtomicInteger attempts, AtomicInteger cancelled, Duration... delays) {
+        return Mono.defer(() -> {
+            int attempt = attempts.getAndIncrement();
+            return Mono.delay(delays[attempt]).map(tick -> "attempt-" + attempt).doOnCancel(cancelled::incrementAndGet);
+        });
+    }
+
+    @Test
+    void retrying_WhenServerErrorThenSuccess_ShouldRetry() {
+        // Given
+        GatewayResilience gatewayResilience = gatewayResilience(fastRetry().build(),
+                HttpClientProperties.CircuitBreaker.builder().build());
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        String result = gatewayResilience.retrying(GatewayMetrics.PRODUCT, "updateQuantity",
+                failing(attempts, error(HttpStatus.SERVICE_UNAVAILABLE), new IOException("Connection reset"))).block();
+
+        // Then
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, retries("retried"));
+    }
+
+    @Test
+    void retrying_WhenClientError_ShouldNotRetry() {
+        // Given
+        GatewayResilience gatewayResilience = gatewayResilience(fastRetry().build(),
+                HttpClientProperties.CircuitBreaker.builder().build());
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When & Then
+        StepVerifier.create(gatewayResilience.retrying(GatewayMetrics.PRODUCT, "updateQuantity",
+                        failing(attempts, error(HttpStatus.BAD_REQUEST))))
+                .expectErrorMatches(e -> e instanceof WebClientResponseException.BadRequest)
+                .verify();
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void retrying_WhenRetriesExhausted_ShouldReturnOriginalError() {
+        // Given
+        GatewayResilience gatewayResilience = gatewayResilience(fastRetry().maxRetries(1).build(),
+                HttpClientProperties.CircuitBreaker.builder().build());
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When & Then
+        StepVerifier.create(gatewayResilience.retrying(GatewayMetrics.PRODUCT, "updateQuantity",
+                        failing(attempts, error(HttpStatus.BAD_GATEWAY), error(HttpStatus.BAD_GATEWAY))))
+                .expectErrorMatches(e -> e instanceof WebClientResponseException.BadGateway)
+                .verify();
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void retrying_WhenBudgetSpent_ShouldFailWithoutRetry() {
+        // Given
+        GatewayResilience gatewayResilience = gatewayResilience(fastRetry().budgetBurst(1).budgetRatio(0).build(),
+                HttpClientProperties.CircuitBreaker.builder().build());
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+
+        // When
+        gatewayResilience.retrying(GatewayMetrics.PRODUCT, "updateQuantity",
+                failing(first, error(HttpStatus.SERVICE_UNAVAILABLE))).block();
+
+        // Then
+        StepVerifier.create(gatewayResilience.retrying(GatewayMetrics.PRODUCT, "updateQuantity",
+                        failing(second, error(HttpStatus.SERVICE_UNAVAILABLE))))
+                .expectError(WebClientResponseException.ServiceUnavailable.class)
+                .verify();
+        assertEquals(2, first.get());
+        assertEquals(1, second.get());
+        assertEquals(1, retries("retried"));
+        assertEquals(1, retries("budget_exhausted"));
+    }
+
+    @Test
+    void guarded_WhenServerError_ShouldNotRetry() {
+        // Given
+        GatewayResilience gatewayResilience = gatewayResilience(fastRetry().build(),
+                HttpClientProperties.CircuitBreaker.builder().build());
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When & Then
+        StepVerifier.create(gatewayResilience.guarded(GatewayMetrics.PRODUCT, "createProduct",
+                        failing(attempts, error(HttpStatus.SERVICE_UNAVAILABLE))))
+                .expectError(WebClientResponseException.ServiceUnavailable.class)
+                .verify();
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void guarded_WhenFailureRateExceeded_ShouldOpenAndRejectCalls() {
+        // Given
+        GatewayResilience gatewayResilience = gatewayResilience(fastRetry().build(),
+                HttpClientProperties.CircuitBreaker.builder().slidingWindowSize(4).minimumNumberOfCalls(4).build());
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(gatewayResilience.guarded(GatewayMetrics.PRODUCT, "createProduct",
+                            Mono.error(error(HttpStatus.INTERNAL_SERVER_ERROR))))
+                    .expectError()
+                    .verify();
+        }
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When & Then
+        StepVerifier.create(gatewayResilience.guarded(GatewayMetrics.PRODUCT, "createProduct", failing(attempts)))
+                .expectError(CallNotPermittedException.class)
+                .verify();
+        assertEquals(0, attempts.get());
+        assertEquals(1, meterRegistry.find("resilience4j.circuitbreaker.state")
+                .tags("name", "product.createProduct", "state", "open").gauge().value());
+    }
+
+    @Test
+    void guarded_WhenClientErrors_ShouldKeepBreakerClosed() {
+        // Given
+        GatewayResilience gatewayResilience = gatewayResilience(fastRetry().build(),
+                HttpClientProperties.CircuitBreaker.builder().slidingWindowSize(4).minimumNumberOfCalls(4).build());
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(gatewayResilience.guarded(GatewayMetrics.PRODUCT, "createProduct",
+                            Mono.error(error(HttpStatus.CONFLICT))))
+                    .expectError()
+                    .verify();
+        }
+
+        // When & Then
+        StepVerifier.create(gatewayResilience.guarded(GatewayMetrics.PRODUCT, "createProduct",
+                        Flux.just("a", "b")))
+                .expectNext("a", "b")
+                .verifyComplete();
+    }
+
+    @Test
+    void guarded_WhenBreakerDisabled_ShouldPassCallThrough() {
+        // Given
+        GatewayResilience gatewayResilience = gatewayResilience(fastRetry().build(),
+                HttpClientProperties.CircuitBreaker.builder().enabled(false).build());
+
+        // When & Then
+        StepVerifier.create(gatewayResilience.guarded(GatewayMetrics.PRODUCT, "createProduct", Mono.just("ok")))
+                .expectNext("ok")
+                .verifyComplete();
+        assertNull(meterRegistry.find("resilience4j.circuitbreaker.state").gauge());
+    }
+
+    @Test
+    void hedged_WhenDisabled_ShouldSendOneRequest() {
+        // Given
+        GatewayResilience gatewayResilience = gatewayResilience(HttpClientProperties.builder().build());
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        String result = gatewayResilience.hedged(GatewayMetrics.PRODUCT, "getProduct",
+                answering(attempts, new AtomicInteger(), Duration.ofMillis(50))).block();
+
+        // Then
+        assertEquals("attempt-0", result);
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void hedged_WhenFirstAttemptIsSlow_ShouldReturnHedgeAndCancelFirst() {
+        // Given
+        GatewayResilience gatewayResilience = hedging(HttpClientProperties.Hedge.builder().delay(Duration.ofMillis(20)));
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+
+        // When
+        String result = gatewayResilience.hedged(GatewayMetrics.PRODUCT, "getProduct",
+                answering(attempts, cancelled, Duration.ofSeconds(5), Duration.ofMillis(10))).block(Duration.ofSeconds(2));
+
+        // Then
+        assertEquals("attempt-1", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1, cancelled.get());
+        assertEquals(1, hedges("sent"));
+        assertEquals(1, hedges("won"));
+    }
+
+    @Test
+    void hedged_WhenFirstAttemptIsFast_ShouldNotSendHedge() {
+        // Given
+        GatewayResilience gatewayResilience = hedging(HttpClientProperties.Hedge.builder().delay(Duration.ofMillis(500)));
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        String result = gatewayResilience.hedged(GatewayMetrics.PRODUCT, "getProduct",
+                answering(attempts, new AtomicInteger(), Duration.ofMillis(10))).block();
+
+        // Then
+        assertEquals("attempt-0", result);
+        assertEquals(1, attempts.get());
+        assertEquals(0, hedges("sent"));
+    }
+
+    @Test
+    void hedged_WhenHedgeBudgetSpent_ShouldWaitForFirstAttempt() {
+        // Given
+        GatewayResilience gatewayResilience = hedging(HttpClientProperties.Hedge.builder()
+                .delay(Duration.ofMillis(5)).maxRate(0).maxBurst(0));
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        String result = gatewayResilience.hedged(GatewayMetrics.PRODUCT, "getProduct",
+                answering(attempts, new AtomicInteger(), Duration.ofMillis(100))).block();
+
+        // Then
+        assertEquals("attempt-0", result);
+        assertEquals(1, attempts.get());
+        assertEquals(0, hedges("sent"));
+        assertEquals(1, hedges("rate_limited"));
+    }
+
+    @Test
+    void hedged_WhenNoFixedDelay_ShouldWaitForObservedP95() {
+        // Given
+        GatewayResilience gatewayResilience = hedging(HttpClientProperties.Hedge.builder().initialDelay(Duration.ofMillis(1)));
+        Timer timer = Timer.builder(GatewayMetrics.TIMER)
+                .tags("upstream", GatewayMetrics.PRODUCT, "operation", "getProduct", "outcome", "SUCCESS", "status", "200")
+                .publishPercentiles(0.95)
+                .register(meterRegistry);
+        for (int i = 0; i < 20; i++) {
+            timer.record(Duration.ofSeconds(1));
+        }
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        String result = gatewayResilience.hedged(GatewayMetrics.PRODUCT, "getProduct",
+                answering(attempts, new AtomicInteger(), Duration.ofMillis(100))).block();
+
+        // Then
+        assertEquals("attempt-0", result);
+        assertEquals(1, attempts.get());
+        assertEquals(0, hedges("sent"));
+    }
+
+    @Test
+    void hedged_WhenPercentileNotExactlyP95_ShouldStillReadObservedP95() {
+        // Given
+        GatewayResilience gatewayResilience = hedging(HttpClientProperties.Hedge.builder().initialDelay(Duration.ofMillis(1)));
+        Timer timer = Timer.builder(GatewayMetrics.TIMER)
+                .tags("upstream", GatewayMetrics.PRODUCT, "operation", "getProduct", "outcome", "SUCCESS", "status", "200")
+                .publishPercentiles(0.1 * 9.5)
+                .register(meterRegistry);
+        for (int i = 0; i < 20; i++) {
+            timer.record(Duration.ofSeconds(1));
+        }
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        String result = gatewayResilience.hedged(GatewayMetrics.PRODUCT, "getProduct",
+                answering(attempts, new AtomicInteger(), Duration.ofMillis(100))).block();
+
+        // Then
+        assertEquals("attempt-0", result);
+        assertEquals(1, attempts.get());
+        assertEquals(0, hedges("sent"));
+    }
+
+    @Test
+    void constructor_WhenHedgingOnObservedP95NotPublished_ShouldFail() {
+        // Given
+        metricsProperties.getDistribution().getPercentiles().put(GatewayMetrics.TIMER, new double[]{0.5, 0.99});
+        HttpClientProperties.Hedge.HedgeBuilder hedge = HttpClientProperties.Hedge.builder();
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> hedging(hedge));
+    }
+
+    @Test
+    void constructor_WhenHedgingWithFixedDelay_ShouldNotNeedP95() {
+        // Given
+        metricsProperties.getDistribution().getPercentiles().clear();
+
+        // When & Then
+        assertDoesNotThrow(() -> hedging(HttpClientProperties.Hedge.builder().delay(Duration.ofMillis(50))));
+    }
+
+    @Test
+    void decorate_WhenIdempotentCallFailsOnce_ShouldRetryAndTimeEachAttempt() {
+        // Given
+        GatewayResilience gatewayResilience = gatewayResilience(fastRetry().build(), HttpClientProperties.CircuitBreaker.builder().build());
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        String result = gatewayResilience.decorate(GatewayMetrics.PRODUCT, "updateQuantity", GatewayResilience.CallType.IDEMPOTENT,
+                failing(attempts, error(HttpStatus.BAD_GATEWAY))).block();
+
+        // Then
+        assertEquals("ok", result);
+        assertEquals(2, attempts.get());
+        assertEquals(2, meterRegistry.find(GatewayMetrics.TIMER).tag("operation", "updateQuantity").timers().stream()
+                .mapToLong(Timer::count).sum());
+    }
+
+    @Test
+    void decorate_WhenUnsafeCallFails_ShouldNotRetry() {
+        // Given
+        GatewayResilience gatewayResilience = gatewayResilience(fastRetry().build(), HttpClientProperties.CircuitBreaker.builder().build());
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When & Then
+        StepVerifier.create(gatewayResilience.decorate(GatewayMetrics.PRODUCT, "createProduct", GatewayResilience.CallType.UNSAFE,
+                        failing(attempts, error(HttpStatus.BAD_GATEWAY))))
+                .expectError(WebClientResponseException.class)
+                .verify();
+        assertEquals(1, attempts.get());
+    }
+}
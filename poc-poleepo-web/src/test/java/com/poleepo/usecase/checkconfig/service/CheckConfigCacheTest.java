@@ -0,0 +1,123 @@
+package com.poleepo.usecase.checkconfig.service;
+
+import com.poleepo.exception.ConfigurationNotValidException;
+import com.poleepo.exception.GenericException;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.usecase.checkconfig.model.request.ConfigurationRequest;
+import com.poleepo.usecase.checkconfig.model.response.CheckConfigResponseDto;
+import com.poleepo.usecase.retrievecategory.model.ShopDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckConfigCacheTest {
+
+    @Mock
+    private ICheckGatewayDriver checkGatewayDriver;
+
+    private CheckConfigCache checkConfigCache;
+    private ConfigurationRequest configurationRequest;
+
+    @BeforeEach
+    void setUp() {
+        checkConfigCache = new CheckConfigCache(checkGatewayDriver, CheckConfigProperties.builder().build(), new SimpleMeterRegistry());
+        configurationRequest = ConfigurationRequest.builder()
+                .apiToken("01611f91d942dddb17d961d9211d7b01")
+                .shopId("10124")
+                .build();
+    }
+
+    private static Mono<CheckConfigResponseDto> shops(String... shopIds) {
+        return Mono.just(CheckConfigResponseDto.builder()
+                .active(true)
+                .shops(List.of(shopIds).stream().map(id -> ShopDto.builder().id(id).build()).toList())
+                .build());
+    }
+
+    @Test
+    void shopIds_WhenCalledTwice_ShouldCallCheckConfigOnce() {
+        // Given
+        when(checkGatewayDriver.callCheckConfigReactive("1", "2", configurationRequest)).thenReturn(shops("10124", "10015"));
+
+        // When
+        Set<String> first = checkConfigCache.shopIds("1", "2", configurationRequest);
+        Set<String> second = checkConfigCache.shopIds("3", "2", configurationRequest);
+
+        // Then
+        assertEquals(Set.of("10124", "10015"), first);
+        assertSame(first, second);
+        verify(checkGatewayDriver, times(1)).callCheckConfigReactive(anyString(), anyString(), any());
+    }
+
+    @Test
+    void shopIdsReactive_WhenTokenRejected_ShouldCacheTheRejection() {
+        // Given
+        when(checkGatewayDriver.callCheckConfigReactive("1", "2", configurationRequest))
+                .thenReturn(Mono.error(new ConfigurationNotValidException("Token API non autorizzato per il negozio e la fonte specificati")));
+
+        // When & Then
+        StepVerifier.create(checkConfigCache.shopIdsReactive("1", "2", configurationRequest))
+                .expectError(ConfigurationNotValidException.class)
+                .verify();
+        StepVerifier.create(checkConfigCache.shopIdsReactive("1", "2", configurationRequest))
+                .expectError(ConfigurationNotValidException.class)
+                .verify();
+        verify(checkGatewayDriver, times(1)).callCheckConfigReactive("1", "2", configurationRequest);
+    }
+
+    @Test
+    void shopIdsReactive_WhenCheckConfigFails_ShouldNotCacheTheFailure() {
+        // Given
+        when(checkGatewayDriver.callCheckConfigReactive("1", "2", configurationRequest))
+                .thenReturn(Mono.error(new GenericException("Errore durante la chiamata al servizio di configurazione")))
+                .thenReturn(shops("10124"));
+
+        // When & Then
+        StepVerifier.create(checkConfigCache.shopIdsReactive("1", "2", configurationRequest))
+                .expectError(GenericException.class)
+                .verify();
+        StepVerifier.create(checkConfigCache.shopIdsReactive("1", "2", configurationRequest))
+                .expectNext(Set.of("10124"))
+                .verifyComplete();
+    }
+
+    @Test
+    void shopIdsReactive_WhenNoResponse_ShouldFailWithGenericException() {
+        // Given
+        when(checkGatewayDriver.callCheckConfigReactive("1", "2", configurationRequest)).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(checkConfigCache.shopIdsReactive("1", "2", configurationRequest))
+                .expectError(GenericException.class)
+                .verify();
+    }
+
+    @Test
+    void evict_ShouldReloadShopsOfToken() {
+        // Given
+        when(checkGatewayDriver.callCheckConfigReactive("1", "2", configurationRequest))
+                .thenReturn(shops("10124"))
+                .thenReturn(shops("10124", "10205"));
+        checkConfigCache.shopIds("1", "2", configurationRequest);
+
+        // When
+        checkConfigCache.evict(configurationRequest.getApiToken());
+
+        // Then
+        assertEquals(Set.of("10124", "10205"), checkConfigCache.shopIds("1", "2", configurationRequest));
+    }
+}
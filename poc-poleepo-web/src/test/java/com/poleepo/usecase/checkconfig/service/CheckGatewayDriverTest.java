@@ -1,19 +1,30 @@
 package com.poleepo.usecase.checkconfig.service;
 
+import com.poleepo.exception.ConfigurationNotValidException;
 import com.poleepo.exception.GenericException;
 import com.poleepo.usecase.checkconfig.model.response.CheckConfigResponseDto;
 import com.poleepo.usecase.retrievecategory.model.ShopDto;
 import com.poleepo.usecase.checkconfig.model.request.ConfigurationRequest;
 import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.service.CredentialRegistry;
+import com.poleepo.service.GatewayConcurrencyLimiter;
+import com.poleepo.service.GatewayMetrics;
+import com.poleepo.service.GatewayResilience;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsProperties;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.util.List;
 
@@ -25,9 +36,6 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class CheckGatewayDriverTest {
 
-    @Mock
-    private WebClient.Builder webClientBuilder;
-
     @Mock
     private WebClient webClient;
 
@@ -43,6 +51,15 @@ class CheckGatewayDriverTest {
     @Mock
     private CheckConfigProperties checkConfigProperties;
 
+    @Spy
+    private GatewayResilience gatewayResilience = new GatewayResilience(ProductProperties.builder().build(),
+            CategoryProperties.builder().build(), CheckConfigProperties.builder().build(), new MetricsProperties(),
+            new SimpleMeterRegistry(), new GatewayMetrics(new SimpleMeterRegistry()),
+            new GatewayConcurrencyLimiter(ProductProperties.builder().build(),
+                    new CredentialRegistry(CategoryProperties.builder().build(), ProductProperties.builder().build(),
+                            CheckConfigProperties.builder().build()),
+                    new SimpleMeterRegistry()));
+
     @InjectMocks
     private CheckGatewayDriver checkGatewayDriver;
 
@@ -70,7 +87,6 @@ class CheckGatewayDriverTest {
                 .build();
 
         // Setup basic WebClient mocking chain
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.header(anyString(), anyString())).thenReturn(requestHeadersSpec);
@@ -98,7 +114,6 @@ class CheckGatewayDriverTest {
         assertEquals(expectedResponse.getShops().size(), result.getShops().size());
         assertEquals("shop123", result.getShops().getFirst().getId());
 
-        verify(webClientBuilder).build();
         verify(webClient).get();
         verify(requestHeadersUriSpec).uri(testUrl);
         verify(requestHeadersSpec).header("Authorization", "Bearer test-api-token");
@@ -124,7 +139,6 @@ class CheckGatewayDriverTest {
                 checkGatewayDriver.callCheckConfig(store, source, configurationRequest));
 
         assertEquals("Errore durante la chiamata al servizio di configurazione", exception.getMessage());
-        verify(webClientBuilder).build();
         verify(requestHeadersSpec).header("Authorization", "Bearer test-api-token");
     }
 
@@ -292,7 +306,7 @@ class CheckGatewayDriverTest {
     }
 
     @Test
-    void callCheckConfig_VerifyWebClientBuilderInteraction() {
+    void callCheckConfig_VerifySharedWebClientInteraction() {
         // Given
         String store = "store123";
         String source = "source456";
@@ -305,9 +319,66 @@ class CheckGatewayDriverTest {
 
         // When
         checkGatewayDriver.callCheckConfig(store, source, configurationRequest);
+        checkGatewayDriver.callCheckConfig(store, source, configurationRequest);
+
+        // Then
+        verify(webClient, times(2)).get();
+        verifyNoMoreInteractions(webClient);
+    }
+
+    @Test
+    void callCheckConfigReactive_WhenSuccessfulResponse_ShouldEmitResponseOnSubscribe() {
+        // Given
+        String testUrl = "https://api.test.com/check-config";
+
+        when(checkConfigProperties.getUrl()).thenReturn(testUrl);
+        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(CheckConfigResponseDto.class))
+                .thenReturn(Mono.just(expectedResponse));
+
+        // When
+        Mono<CheckConfigResponseDto> result = checkGatewayDriver.callCheckConfigReactive("store123", "source456", configurationRequest);
 
         // Then
-        verify(webClientBuilder, times(1)).build();
-        verifyNoMoreInteractions(webClientBuilder);
+        verify(webClient, never()).get();
+        StepVerifier.create(result)
+                .expectNext(expectedResponse)
+                .verifyComplete();
+        verify(webClient).get();
+    }
+
+    @Test
+    void callCheckConfigReactive_WhenApiFails_ShouldEmitGenericException() {
+        // Given
+        String testUrl = "https://api.test.com/check-config";
+
+        when(checkConfigProperties.getUrl()).thenReturn(testUrl);
+        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(CheckConfigResponseDto.class))
+                .thenReturn(Mono.error(new WebClientResponseException(
+                        "Internal Server Error", 500, "Internal Server Error", null, null, null)));
+
+        // When & Then
+        StepVerifier.create(checkGatewayDriver.callCheckConfigReactive("store123", "source456", configurationRequest))
+                .expectErrorMatches(e -> e instanceof GenericException
+                        && "Errore durante la chiamata al servizio di configurazione".equals(e.getMessage()))
+                .verify();
+    }
+
+    @Test
+    void callCheckConfigReactive_WhenTokenRejected_ShouldEmitConfigurationNotValidException() {
+        // Given
+        String testUrl = "https://api.test.com/check-config";
+
+        when(checkConfigProperties.getUrl()).thenReturn(testUrl);
+        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(CheckConfigResponseDto.class))
+                .thenReturn(Mono.error(WebClientResponseException.create(
+                        401, "Unauthorized", null, null, null)));
+
+        // When & Then
+        StepVerifier.create(checkGatewayDriver.callCheckConfigReactive("store123", "source456", configurationRequest))
+                .expectError(ConfigurationNotValidException.class)
+                .verify();
     }
 }
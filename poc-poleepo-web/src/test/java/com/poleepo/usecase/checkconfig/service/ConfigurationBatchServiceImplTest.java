@@ -0,0 +1,225 @@
+package com.poleepo.usecase.checkconfig.service;
+
+import com.poleepo.enumeration.ErrorCode;
+import com.poleepo.exception.ConfigurationNotValidException;
+import com.poleepo.exception.GenericException;
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.service.CredentialRegistry;
+import com.poleepo.usecase.checkconfig.model.entities.ConfigurationEntity;
+import com.poleepo.usecase.checkconfig.model.request.ConfigurationBatchRequest;
+import com.poleepo.usecase.checkconfig.model.request.ConfigurationRequest;
+import com.poleepo.usecase.checkconfig.model.response.CheckConfigResponseDto;
+import com.poleepo.usecase.checkconfig.model.response.ConfigurationBatchResult;
+import com.poleepo.usecase.retrievecategory.model.ShopDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConfigurationBatchServiceImplTest {
+
+    private static final String TOKEN_1 = "token1";
+    private static final String TOKEN_2 = "token2";
+
+    @Mock
+    private ICheckGatewayDriver checkGatewayDriver;
+
+    @Mock
+    private ConfigurationCache configurationCache;
+
+    private ValidatorFactory validatorFactory;
+    private ConfigurationBatchServiceImpl configurationBatchService;
+
+    @BeforeEach
+    void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        CheckConfigProperties checkConfigProperties = CheckConfigProperties.builder()
+                .availableToken(TOKEN_1 + "," + TOKEN_2)
+                .build();
+        CredentialRegistry credentialRegistry = new CredentialRegistry(CategoryProperties.builder().build(),
+                ProductProperties.builder()
+                .shopTokens(Map.of("10124", 0, "10015", 0, "10205", 1)).build(), checkConfigProperties);
+        CheckConfigCache checkConfigCache = new CheckConfigCache(checkGatewayDriver, checkConfigProperties, new SimpleMeterRegistry());
+        configurationBatchService = new ConfigurationBatchServiceImpl(checkConfigCache, configurationCache, credentialRegistry,
+                checkConfigProperties, validatorFactory.getValidator());
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    private static ConfigurationBatchRequest configuration(String store, String apiToken, String shopId) {
+        return ConfigurationBatchRequest.builder()
+                .store(store)
+                .source("2")
+                .apiToken(apiToken)
+                .shopId(shopId)
+                .build();
+    }
+
+    private static Mono<CheckConfigResponseDto> shops(String... shopIds) {
+        return Mono.just(CheckConfigResponseDto.builder()
+                .active(true)
+                .shops(Arrays.stream(shopIds).map(id -> ShopDto.builder().id(id).build()).toList())
+                .build());
+    }
+
+    private void insertAllAccepted() {
+        when(configurationCache.insertAllIfAbsent(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void createConfigurations_ShouldCheckEachTokenOnceAndInsertAllTogether() {
+        // Given
+        List<ConfigurationBatchRequest> requests = List.of(
+                configuration("1", TOKEN_1, "10124"),
+                configuration("2", TOKEN_1, "10015"),
+                configuration("3", TOKEN_2, "10205"));
+        when(checkGatewayDriver.callCheckConfigReactive(eq("1"), eq("2"), any(ConfigurationRequest.class))).thenReturn(shops("10124", "10015"));
+        when(checkGatewayDriver.callCheckConfigReactive(eq("3"), eq("2"), any(ConfigurationRequest.class))).thenReturn(shops("10205"));
+        insertAllAccepted();
+
+        // When
+        List<ConfigurationBatchResult> results = configurationBatchService.createConfigurations(requests).block();
+
+        // Then
+        assertEquals(List.of(0, 1, 2), results.stream().map(ConfigurationBatchResult::getIndex).toList());
+        assertTrue(results.stream().allMatch(ConfigurationBatchResult::isSuccess));
+        assertEquals("10205", results.get(2).getData());
+        verify(checkGatewayDriver, times(2)).callCheckConfigReactive(anyString(), anyString(), any());
+        verify(configurationCache, times(1)).insertAllIfAbsent(argThat(list -> list.size() == 3));
+    }
+
+    @Test
+    void createConfigurations_WhenItemsInvalid_ShouldFailOnlyThoseItems() {
+        // Given
+        List<ConfigurationBatchRequest> requests = List.of(
+                configuration("1", TOKEN_1, null),
+                configuration("1", "wrong-token", "10124"),
+                configuration("abc", TOKEN_1, "10124"),
+                configuration("1", TOKEN_1, "10124"),
+                configuration("1", TOKEN_1, "10015"));
+        when(checkGatewayDriver.callCheckConfigReactive(eq("1"), eq("2"), any(ConfigurationRequest.class))).thenReturn(shops("10124"));
+        insertAllAccepted();
+
+        // When
+        List<ConfigurationBatchResult> results = configurationBatchService.createConfigurations(requests).block();
+
+        // Then
+        assertEquals(ErrorCode.MISSING_REQUIRED_FIELD.getCode(), results.get(0).getError());
+        assertEquals(ErrorCode.CONFIGURATION_NOT_VALID.getCode(), results.get(1).getError());
+        assertEquals(ErrorCode.CONFIGURATION_NOT_VALID.getCode(), results.get(2).getError());
+        assertTrue(results.get(3).isSuccess());
+        assertEquals(ErrorCode.CONFIGURATION_NOT_VALID.getCode(), results.get(4).getError());
+        verify(checkGatewayDriver, times(1)).callCheckConfigReactive(anyString(), anyString(), any());
+    }
+
+    @Test
+    void createConfigurations_WhenShopNotListed_ShouldFailWithConfigurationNotFound() {
+        // Given
+        List<ConfigurationBatchRequest> requests = List.of(
+                configuration("1", TOKEN_1, "10124"),
+                configuration("2", TOKEN_1, "10015"));
+        when(checkGatewayDriver.callCheckConfigReactive(eq("1"), eq("2"), any(ConfigurationRequest.class))).thenReturn(shops("10124"));
+        insertAllAccepted();
+
+        // When
+        List<ConfigurationBatchResult> results = configurationBatchService.createConfigurations(requests).block();
+
+        // Then
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(ErrorCode.CONFIGURATION_NOT_FOUND.getCode(), results.get(1).getError());
+    }
+
+    @Test
+    void createConfigurations_WhenCheckConfigFails_ShouldFailItemsOfThatToken() {
+        // Given
+        List<ConfigurationBatchRequest> requests = List.of(
+                configuration("1", TOKEN_1, "10124"),
+                configuration("3", TOKEN_2, "10205"));
+        when(checkGatewayDriver.callCheckConfigReactive(eq("1"), eq("2"), any(ConfigurationRequest.class)))
+                .thenReturn(Mono.error(new GenericException("Errore durante la chiamata al servizio di configurazione")));
+        when(checkGatewayDriver.callCheckConfigReactive(eq("3"), eq("2"), any(ConfigurationRequest.class))).thenReturn(shops("10205"));
+        insertAllAccepted();
+
+        // When
+        List<ConfigurationBatchResult> results = configurationBatchService.createConfigurations(requests).block();
+
+        // Then
+        assertEquals(ErrorCode.GENERIC.getCode(), results.get(0).getError());
+        assertTrue(results.get(1).isSuccess());
+    }
+
+    @Test
+    void createConfigurations_WhenTokenRejected_ShouldFailItemsOfThatTokenAsNotValid() {
+        // Given
+        List<ConfigurationBatchRequest> requests = List.of(configuration("1", TOKEN_1, "10124"));
+        when(checkGatewayDriver.callCheckConfigReactive(eq("1"), eq("2"), any(ConfigurationRequest.class)))
+                .thenReturn(Mono.error(new ConfigurationNotValidException("Token API non autorizzato per il negozio e la fonte specificati")));
+        when(configurationCache.insertAllIfAbsent(List.of())).thenReturn(List.of());
+
+        // When
+        List<ConfigurationBatchResult> results = configurationBatchService.createConfigurations(requests).block();
+
+        // Then
+        assertEquals(ErrorCode.CONFIGURATION_NOT_VALID.getCode(), results.get(0).getError());
+    }
+
+    @Test
+    void createConfigurations_WhenAlreadyExisting_ShouldFailThatItem() {
+        // Given
+        List<ConfigurationBatchRequest> requests = List.of(
+                configuration("1", TOKEN_1, "10124"),
+                configuration("2", TOKEN_1, "10124"));
+        when(checkGatewayDriver.callCheckConfigReactive(eq("1"), eq("2"), any(ConfigurationRequest.class))).thenReturn(shops("10124"));
+        when(configurationCache.insertAllIfAbsent(anyList())).thenAnswer(invocation -> {
+            List<ConfigurationEntity> configurations = invocation.getArgument(0);
+            return configurations.stream().filter(configuration -> configuration.getStoreId() == 2L).toList();
+        });
+
+        // When
+        List<ConfigurationBatchResult> results = configurationBatchService.createConfigurations(requests).block();
+
+        // Then
+        assertEquals(ErrorCode.CONFIGURATION_NOT_VALID.getCode(), results.get(0).getError());
+        assertTrue(results.get(1).isSuccess());
+    }
+
+    @Test
+    void createConfigurations_WhenInsertFails_ShouldFailAcceptedItems() {
+        // Given
+        List<ConfigurationBatchRequest> requests = List.of(
+                configuration("1", TOKEN_1, "10124"),
+                configuration("1", "wrong-token", "10124"));
+        when(checkGatewayDriver.callCheckConfigReactive(eq("1"), eq("2"), any(ConfigurationRequest.class))).thenReturn(shops("10124"));
+        when(configurationCache.insertAllIfAbsent(anyList())).thenThrow(new IllegalStateException("db down"));
+
+        // When
+        List<ConfigurationBatchResult> results = configurationBatchService.createConfigurations(requests).block();
+
+        // Then
+        assertEquals(ErrorCode.GENERIC.getCode(), results.get(0).getError());
+        assertEquals(ErrorCode.CONFIGURATION_NOT_VALID.getCode(), results.get(1).getError());
+    }
+}
@@ -0,0 +1,187 @@
+package com.poleepo.usecase.checkconfig.service;
+
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.usecase.checkconfig.model.entities.ConfigurationChangeEntity;
+import com.poleepo.usecase.checkconfig.model.entities.ConfigurationEntity;
+import com.poleepo.usecase.checkconfig.repository.ConfigurationBatchRepository;
+import com.poleepo.usecase.checkconfig.repository.ConfigurationChangeRepository;
+import com.poleepo.usecase.checkconfig.repository.ConfigurationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConfigurationCacheTest {
+
+    @Mock
+    private ConfigurationRepository configurationRepository;
+
+    @Mock
+    private ConfigurationChangeRepository configurationChangeRepository;
+
+    @Mock
+    private ConfigurationBatchRepository configurationBatchRepository;
+
+    private ConfigurationCache configurationCache;
+    private ConfigurationEntity configuration;
+
+    @BeforeEach
+    void setUp() {
+        configurationCache = new ConfigurationCache(configurationRepository, configurationChangeRepository,
+                configurationBatchRepository, CheckConfigProperties.builder().build(), new SimpleMeterRegistry());
+        configuration = ConfigurationEntity.builder()
+                .storeId(1L)
+                .source(2L)
+                .shopId("10124")
+                .apiToken("01611f91d942dddb17d961d9211d7b01")
+                .build();
+    }
+
+    @Test
+    void find_WhenCalledTwice_ShouldQueryDatabaseOnce() {
+        // Given
+        when(configurationRepository.findAllByStoreIdAndSource(1L, 2L)).thenReturn(Optional.of(configuration));
+
+        // When
+        Optional<ConfigurationEntity> first = configurationCache.find(1L, 2L);
+        Optional<ConfigurationEntity> second = configurationCache.find(1L, 2L);
+
+        // Then
+        assertEquals(Optional.of(configuration), first);
+        assertSame(first, second);
+        verify(configurationRepository, times(1)).findAllByStoreIdAndSource(1L, 2L);
+    }
+
+    @Test
+    void find_WhenMissing_ShouldCacheTheMiss() {
+        // Given
+        when(configurationRepository.findAllByStoreIdAndSource(1L, 2L)).thenReturn(Optional.empty());
+
+        // When
+        configurationCache.find(1L, 2L);
+        Optional<ConfigurationEntity> second = configurationCache.find(1L, 2L);
+
+        // Then
+        assertTrue(second.isEmpty());
+        verify(configurationRepository, times(1)).findAllByStoreIdAndSource(1L, 2L);
+    }
+
+    @Test
+    void findReactive_WhenCached_ShouldNotQueryDatabase() {
+        // Given
+        when(configurationRepository.findAllByStoreIdAndSource(1L, 2L)).thenReturn(Optional.of(configuration));
+        configurationCache.find(1L, 2L);
+
+        // When & Then
+        StepVerifier.create(configurationCache.findReactive(1L, 2L))
+                .expectNext(Optional.of(configuration))
+                .verifyComplete();
+        verify(configurationRepository, times(1)).findAllByStoreIdAndSource(1L, 2L);
+    }
+
+    @Test
+    void insertIfAbsent_ShouldRecordChangeAndInvalidateEntry() {
+        // Given
+        when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(configuration));
+        when(configurationRepository.insertIfAbsent(1L, 2L, "01611f91d942dddb17d961d9211d7b01", "10124")).thenReturn(1);
+        configurationCache.find(1L, 2L);
+
+        // When
+        boolean inserted = configurationCache.insertIfAbsent(configuration);
+
+        // Then
+        assertTrue(inserted);
+        assertEquals(Optional.of(configuration), configurationCache.find(1L, 2L));
+        ArgumentCaptor<ConfigurationChangeEntity> captor = ArgumentCaptor.forClass(ConfigurationChangeEntity.class);
+        verify(configurationChangeRepository).save(captor.capture());
+        assertEquals(1L, captor.getValue().getStoreId());
+        assertEquals(2L, captor.getValue().getSource());
+        assertNotNull(captor.getValue().getChangedAt());
+    }
+
+    @Test
+    void insertIfAbsent_WhenAlreadyExisting_ShouldNotRecordChange() {
+        // Given
+        when(configurationRepository.insertIfAbsent(1L, 2L, "01611f91d942dddb17d961d9211d7b01", "10124")).thenReturn(0);
+
+        // When
+        boolean inserted = configurationCache.insertIfAbsent(configuration);
+
+        // Then
+        assertFalse(inserted);
+        verifyNoInteractions(configurationChangeRepository);
+    }
+
+    @Test
+    void insertAllIfAbsent_ShouldSkipExistingAndInsertOthersInBatch() {
+        // Given
+        ConfigurationEntity other = ConfigurationEntity.builder().storeId(3L).source(2L).shopId("10205").apiToken("token2").build();
+        when(configurationRepository.findAllByStoreIdAndSource(3L, 2L))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(other));
+        when(configurationBatchRepository.findExisting(List.of(configuration, other)))
+                .thenReturn(List.of(ConfigurationEntity.builder().storeId(1L).source(2L).build()));
+        configurationCache.find(3L, 2L);
+
+        // When
+        List<ConfigurationEntity> inserted = configurationCache.insertAllIfAbsent(List.of(configuration, other));
+
+        // Then
+        assertEquals(List.of(other), inserted);
+        verify(configurationBatchRepository).insertAll(List.of(other));
+        verify(configurationBatchRepository).insertChanges(eq(List.of(other)), any());
+        assertEquals(Optional.of(other), configurationCache.find(3L, 2L));
+    }
+
+    @Test
+    void pollChanges_WhenChangedByAnotherInstance_ShouldInvalidateEntry() {
+        // Given
+        when(configurationChangeRepository.findTopByOrderByIdDesc())
+                .thenReturn(Optional.of(ConfigurationChangeEntity.builder().id(10L).build()));
+        when(configurationChangeRepository.findByIdGreaterThanOrderByIdAsc(10L))
+                .thenReturn(List.of(ConfigurationChangeEntity.builder().id(11L).storeId(1L).source(2L).build()));
+        when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(configuration));
+        configurationCache.pollChanges();
+        configurationCache.find(1L, 2L);
+
+        // When
+        configurationCache.pollChanges();
+
+        // Then
+        assertEquals(Optional.of(configuration), configurationCache.find(1L, 2L));
+        configurationCache.pollChanges();
+        verify(configurationChangeRepository).findByIdGreaterThanOrderByIdAsc(11L);
+    }
+
+    @Test
+    void pollChanges_WhenDatabaseFails_ShouldKeepServingCachedEntries() {
+        // Given
+        when(configurationRepository.findAllByStoreIdAndSource(1L, 2L)).thenReturn(Optional.of(configuration));
+        when(configurationChangeRepository.findTopByOrderByIdDesc()).thenThrow(new IllegalStateException("db down"));
+        configurationCache.find(1L, 2L);
+
+        // When
+        configurationCache.pollChanges();
+
+        // Then
+        assertEquals(Optional.of(configuration), configurationCache.find(1L, 2L));
+        verify(configurationRepository, times(1)).findAllByStoreIdAndSource(1L, 2L);
+    }
+}
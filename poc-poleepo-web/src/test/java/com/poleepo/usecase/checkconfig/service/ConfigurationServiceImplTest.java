@@ -1,22 +1,30 @@
 package com.poleepo.usecase.checkconfig.service;
 
 import com.poleepo.exception.ConfigurationAlreadyExistException;
+import com.poleepo.exception.ConfigurationNotValidException;
 import com.poleepo.exception.ShopNotFoundException;
+import com.poleepo.properties.CategoryProperties;
 import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.service.CredentialRegistry;
 import com.poleepo.usecase.checkconfig.model.entities.ConfigurationEntity;
 import com.poleepo.usecase.checkconfig.model.request.ConfigurationRequest;
 import com.poleepo.usecase.checkconfig.model.response.CheckConfigResponseDto;
+import com.poleepo.usecase.checkconfig.repository.ConfigurationChangeRepository;
 import com.poleepo.usecase.checkconfig.repository.ConfigurationRepository;
 import com.poleepo.usecase.retrievecategory.model.ShopDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,9 +41,12 @@ class ConfigurationServiceImplTest {
     private ConfigurationRepository configurationRepository;
 
     @Mock
-    private CheckConfigProperties checkConfigProperties;
+    private ConfigurationChangeRepository configurationChangeRepository;
+
+    private final CredentialRegistry credentialRegistry = new CredentialRegistry(CategoryProperties.builder().build(),
+            ProductProperties.builder().shopTokens(Map.of("10124", 0, "10015", 0, "10205", 1)).build(),
+            CheckConfigProperties.builder().availableToken("01611f91d942dddb17d961d9211d7b01,token2").build());
 
-    @InjectMocks
     private ConfigurationServiceImpl configurationService;
 
     private ConfigurationRequest configurationRequest;
@@ -44,6 +55,10 @@ class ConfigurationServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        ConfigurationCache configurationCache = new ConfigurationCache(configurationRepository, configurationChangeRepository,
+                null, CheckConfigProperties.builder().build(), new SimpleMeterRegistry());
+        CheckConfigCache checkConfigCache = new CheckConfigCache(checkGatewayDriver, CheckConfigProperties.builder().build(), new SimpleMeterRegistry());
+        configurationService = new ConfigurationServiceImpl(checkConfigCache, configurationCache, credentialRegistry);
         configurationRequest = ConfigurationRequest.builder()
                 .shopId("10124")
                 .apiToken("01611f91d942dddb17d961d9211d7b01")
@@ -77,11 +92,10 @@ class ConfigurationServiceImplTest {
 
         when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
                 .thenReturn(Optional.empty());
-        when(checkGatewayDriver.callCheckConfig(store, source, configurationRequest))
-                .thenReturn(checkConfigResponse);
-        when(configurationRepository.save(any(ConfigurationEntity.class)))
-                .thenReturn(existingConfiguration);
-        when(checkConfigProperties.getAvailableToken()).thenReturn("01611f91d942dddb17d961d9211d7b01,token2");
+        when(checkGatewayDriver.callCheckConfigReactive(store, source, configurationRequest))
+                .thenReturn(Mono.just(checkConfigResponse));
+        when(configurationRepository.insertIfAbsent(anyLong(), anyLong(), anyString(), anyString()))
+                .thenReturn(1);
 
         // When
         boolean result = configurationService.createOrUpdateConfiguration(store, source, configurationRequest);
@@ -89,8 +103,8 @@ class ConfigurationServiceImplTest {
         // Then
         assertTrue(result);
         verify(configurationRepository).findAllByStoreIdAndSource(1L, 2L);
-        verify(checkGatewayDriver).callCheckConfig(store, source, configurationRequest);
-        verify(configurationRepository).save(any(ConfigurationEntity.class));
+        verify(checkGatewayDriver).callCheckConfigReactive(store, source, configurationRequest);
+        verify(configurationRepository).insertIfAbsent(anyLong(), anyLong(), anyString(), anyString());
     }
 
     @Test
@@ -101,7 +115,6 @@ class ConfigurationServiceImplTest {
 
         when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
                 .thenReturn(Optional.of(existingConfiguration));
-        when(checkConfigProperties.getAvailableToken()).thenReturn("01611f91d942dddb17d961d9211d7b01,token2");
 
         // When & Then
         ConfigurationAlreadyExistException exception = assertThrows(
@@ -111,8 +124,8 @@ class ConfigurationServiceImplTest {
 
         assertEquals("Configurazione già esistente per il negozio e la fonte specificati", exception.getMessage());
         verify(configurationRepository).findAllByStoreIdAndSource(1L, 2L);
-        verify(checkGatewayDriver, never()).callCheckConfig(anyString(), anyString(), any());
-        verify(configurationRepository, never()).save(any());
+        verify(checkGatewayDriver, never()).callCheckConfigReactive(anyString(), anyString(), any());
+        verify(configurationRepository, never()).insertIfAbsent(any(), any(), any(), any());
     }
 
     @Test
@@ -135,9 +148,8 @@ class ConfigurationServiceImplTest {
 
         when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
                 .thenReturn(Optional.empty());
-        when(checkGatewayDriver.callCheckConfig(store, source, configurationRequest))
-                .thenReturn(responseWithDifferentShop);
-        when(checkConfigProperties.getAvailableToken()).thenReturn("01611f91d942dddb17d961d9211d7b01,token2");
+        when(checkGatewayDriver.callCheckConfigReactive(store, source, configurationRequest))
+                .thenReturn(Mono.just(responseWithDifferentShop));
 
         // When & Then
         ShopNotFoundException exception = assertThrows(
@@ -147,8 +159,37 @@ class ConfigurationServiceImplTest {
 
         assertEquals("Shop non trovato nella configurazione", exception.getMessage());
         verify(configurationRepository).findAllByStoreIdAndSource(1L, 2L);
-        verify(checkGatewayDriver).callCheckConfig(store, source, configurationRequest);
-        verify(configurationRepository, never()).save(any());
+        verify(checkGatewayDriver).callCheckConfigReactive(store, source, configurationRequest);
+        verify(configurationRepository, never()).insertIfAbsent(any(), any(), any(), any());
+    }
+
+    @Test
+    void createOrUpdateConfiguration_WhenShopAddedAfterNotFound_ShouldReloadShopsAndCreate() {
+        // Given
+        String store = "1";
+        String source = "2";
+
+        CheckConfigResponseDto responseWithoutShop = CheckConfigResponseDto.builder()
+                .active(true)
+                .shops(List.of(ShopDto.builder().id("shop999").build()))
+                .build();
+
+        when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
+                .thenReturn(Optional.empty());
+        when(checkGatewayDriver.callCheckConfigReactive(store, source, configurationRequest))
+                .thenReturn(Mono.just(responseWithoutShop))
+                .thenReturn(Mono.just(checkConfigResponse));
+        when(configurationRepository.insertIfAbsent(1L, 2L, configurationRequest.getApiToken(), configurationRequest.getShopId()))
+                .thenReturn(1);
+        assertThrows(ShopNotFoundException.class,
+                () -> configurationService.createOrUpdateConfiguration(store, source, configurationRequest));
+
+        // When
+        configurationService.createOrUpdateConfiguration(store, source, configurationRequest);
+
+        // Then
+        verify(checkGatewayDriver, times(2)).callCheckConfigReactive(store, source, configurationRequest);
+        verify(configurationRepository).insertIfAbsent(1L, 2L, configurationRequest.getApiToken(), configurationRequest.getShopId());
     }
 
     @Test
@@ -164,9 +205,8 @@ class ConfigurationServiceImplTest {
 
         when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
                 .thenReturn(Optional.empty());
-        when(checkGatewayDriver.callCheckConfig(store, source, configurationRequest))
-                .thenReturn(emptyResponse);
-        when(checkConfigProperties.getAvailableToken()).thenReturn("01611f91d942dddb17d961d9211d7b01,token2");
+        when(checkGatewayDriver.callCheckConfigReactive(store, source, configurationRequest))
+                .thenReturn(Mono.just(emptyResponse));
 
         // When & Then
         ShopNotFoundException exception = assertThrows(
@@ -211,23 +251,17 @@ class ConfigurationServiceImplTest {
 
         when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
                 .thenReturn(Optional.empty());
-        when(checkGatewayDriver.callCheckConfig(store, source, specificRequest))
-                .thenReturn(multiShopResponse);
-        when(configurationRepository.save(any(ConfigurationEntity.class)))
-                .thenReturn(existingConfiguration);
-        when(checkConfigProperties.getAvailableToken()).thenReturn("01611f91d942dddb17d961d9211d7b01,token2");
+        when(checkGatewayDriver.callCheckConfigReactive(store, source, specificRequest))
+                .thenReturn(Mono.just(multiShopResponse));
+        when(configurationRepository.insertIfAbsent(anyLong(), anyLong(), anyString(), anyString()))
+                .thenReturn(1);
 
         // When
         boolean result = configurationService.createOrUpdateConfiguration(store, source, specificRequest);
 
         // Then
         assertTrue(result);
-        verify(configurationRepository).save(argThat(config ->
-                config.getStoreId().equals(1L) &&
-                config.getSource().equals(2L) &&
-                config.getShopId().equals("10124") &&
-                config.getApiToken().equals("01611f91d942dddb17d961d9211d7b01")
-        ));
+        verify(configurationRepository).insertIfAbsent(1L, 2L, "01611f91d942dddb17d961d9211d7b01", "10124");
     }
 
     @Test
@@ -238,18 +272,17 @@ class ConfigurationServiceImplTest {
 
         when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
                 .thenReturn(Optional.empty());
-        when(checkGatewayDriver.callCheckConfig(store, source, configurationRequest))
-                .thenReturn(checkConfigResponse);
-        when(configurationRepository.save(any(ConfigurationEntity.class)))
+        when(checkGatewayDriver.callCheckConfigReactive(store, source, configurationRequest))
+                .thenReturn(Mono.just(checkConfigResponse));
+        when(configurationRepository.insertIfAbsent(anyLong(), anyLong(), anyString(), anyString()))
                 .thenThrow(new RuntimeException("Database error"));
-        when(checkConfigProperties.getAvailableToken()).thenReturn("01611f91d942dddb17d961d9211d7b01,token2");
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () ->
                 configurationService.createOrUpdateConfiguration(store, source, configurationRequest));
 
         assertEquals("Database error", exception.getMessage());
-        verify(configurationRepository).save(any(ConfigurationEntity.class));
+        verify(configurationRepository).insertIfAbsent(anyLong(), anyLong(), anyString(), anyString());
     }
 
     @Test
@@ -260,17 +293,16 @@ class ConfigurationServiceImplTest {
 
         when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
                 .thenReturn(Optional.empty());
-        when(checkGatewayDriver.callCheckConfig(store, source, configurationRequest))
-                .thenThrow(new RuntimeException("Gateway error"));
-        when(checkConfigProperties.getAvailableToken()).thenReturn("01611f91d942dddb17d961d9211d7b01,token2");
+        when(checkGatewayDriver.callCheckConfigReactive(store, source, configurationRequest))
+                .thenReturn(Mono.error(new RuntimeException("Gateway error")));
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () ->
                 configurationService.createOrUpdateConfiguration(store, source, configurationRequest));
 
         assertEquals("Gateway error", exception.getMessage());
-        verify(checkGatewayDriver).callCheckConfig(store, source, configurationRequest);
-        verify(configurationRepository, never()).save(any());
+        verify(checkGatewayDriver).callCheckConfigReactive(store, source, configurationRequest);
+        verify(configurationRepository, never()).insertIfAbsent(any(), any(), any(), any());
     }
 
     @Test
@@ -281,22 +313,109 @@ class ConfigurationServiceImplTest {
 
         when(configurationRepository.findAllByStoreIdAndSource(123L, 456L))
                 .thenReturn(Optional.empty());
-        when(checkGatewayDriver.callCheckConfig(store, source, configurationRequest))
-                .thenReturn(checkConfigResponse);
-        when(configurationRepository.save(any(ConfigurationEntity.class)))
-                .thenReturn(existingConfiguration);
-        when(checkConfigProperties.getAvailableToken()).thenReturn("01611f91d942dddb17d961d9211d7b01,token2");
+        when(checkGatewayDriver.callCheckConfigReactive(store, source, configurationRequest))
+                .thenReturn(Mono.just(checkConfigResponse));
+        when(configurationRepository.insertIfAbsent(anyLong(), anyLong(), anyString(), anyString()))
+                .thenReturn(1);
 
         // When
         configurationService.createOrUpdateConfiguration(store, source, configurationRequest);
 
         // Then
-        verify(configurationRepository).save(argThat(entity -> {
-            assertEquals(123L, entity.getStoreId());
-            assertEquals(456L, entity.getSource());
-            assertEquals("10124", entity.getShopId());
-            assertEquals("01611f91d942dddb17d961d9211d7b01", entity.getApiToken());
-            return true;
-        }));
+        verify(configurationRepository).insertIfAbsent(123L, 456L, "01611f91d942dddb17d961d9211d7b01", "10124");
+    }
+
+    @Test
+    void createOrUpdateConfigurationReactive_WhenConfigurationDoesNotExist_ShouldCreateSuccessfully() {
+        // Given
+        String store = "1";
+        String source = "2";
+
+        when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
+                .thenReturn(Optional.empty());
+        when(checkGatewayDriver.callCheckConfigReactive(store, source, configurationRequest))
+                .thenReturn(Mono.just(checkConfigResponse));
+        when(configurationRepository.insertIfAbsent(anyLong(), anyLong(), anyString(), anyString()))
+                .thenReturn(1);
+
+        // When & Then
+        StepVerifier.create(configurationService.createOrUpdateConfigurationReactive(store, source, configurationRequest))
+                .expectNext(true)
+                .verifyComplete();
+        verify(configurationRepository).insertIfAbsent(anyLong(), anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void createOrUpdateConfigurationReactive_WhenTokenNotAuthorized_ShouldFailWithoutCallingUpstream() {
+        // Given
+        configurationRequest.setApiToken("wrong-token");
+
+        // When & Then
+        StepVerifier.create(configurationService.createOrUpdateConfigurationReactive("1", "2", configurationRequest))
+                .expectError(ConfigurationNotValidException.class)
+                .verify();
+        verifyNoInteractions(configurationRepository, checkGatewayDriver);
+    }
+
+    @Test
+    void createOrUpdateConfigurationReactive_WhenConfigurationAlreadyExists_ShouldFail() {
+        // Given
+        when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
+                .thenReturn(Optional.of(existingConfiguration));
+
+        // When & Then
+        StepVerifier.create(configurationService.createOrUpdateConfigurationReactive("1", "2", configurationRequest))
+                .expectError(ConfigurationAlreadyExistException.class)
+                .verify();
+        verifyNoInteractions(checkGatewayDriver);
+        verify(configurationRepository, never()).insertIfAbsent(any(), any(), any(), any());
+    }
+
+    @Test
+    void createOrUpdateConfigurationReactive_WhenShopNotFound_ShouldFailWithoutSaving() {
+        // Given
+        checkConfigResponse.setShops(Collections.emptyList());
+        when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
+                .thenReturn(Optional.empty());
+        when(checkGatewayDriver.callCheckConfigReactive("1", "2", configurationRequest))
+                .thenReturn(Mono.just(checkConfigResponse));
+
+        // When & Then
+        StepVerifier.create(configurationService.createOrUpdateConfigurationReactive("1", "2", configurationRequest))
+                .expectError(ShopNotFoundException.class)
+                .verify();
+        verify(configurationRepository, never()).insertIfAbsent(any(), any(), any(), any());
+    }
+
+    @Test
+    void createOrUpdateConfiguration_WhenInsertedConcurrently_ShouldThrowException() {
+        // Given
+        when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
+                .thenReturn(Optional.empty());
+        when(checkGatewayDriver.callCheckConfigReactive("1", "2", configurationRequest))
+                .thenReturn(Mono.just(checkConfigResponse));
+        when(configurationRepository.insertIfAbsent(1L, 2L, "01611f91d942dddb17d961d9211d7b01", "10124"))
+                .thenReturn(0);
+
+        // When & Then
+        assertThrows(ConfigurationAlreadyExistException.class,
+                () -> configurationService.createOrUpdateConfiguration("1", "2", configurationRequest));
+        verifyNoInteractions(configurationChangeRepository);
+    }
+
+    @Test
+    void createOrUpdateConfigurationReactive_WhenInsertedConcurrently_ShouldFail() {
+        // Given
+        when(configurationRepository.findAllByStoreIdAndSource(1L, 2L))
+                .thenReturn(Optional.empty());
+        when(checkGatewayDriver.callCheckConfigReactive("1", "2", configurationRequest))
+                .thenReturn(Mono.just(checkConfigResponse));
+        when(configurationRepository.insertIfAbsent(1L, 2L, "01611f91d942dddb17d961d9211d7b01", "10124"))
+                .thenReturn(0);
+
+        // When & Then
+        StepVerifier.create(configurationService.createOrUpdateConfigurationReactive("1", "2", configurationRequest))
+                .expectError(ConfigurationAlreadyExistException.class)
+                .verify();
     }
 }
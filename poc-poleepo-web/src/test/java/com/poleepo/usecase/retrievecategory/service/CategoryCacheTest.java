@@ -0,0 +1,275 @@
+package com.poleepo.usecase.retrievecategory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.exception.GenericException;
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.usecase.retrievecategory.model.CategoryDto;
+import com.poleepo.usecase.retrievecategory.model.response.CategoryResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CategoryCacheTest {
+
+    private static final String TOKEN = "Bearer token1";
+
+    @Mock
+    private ICategoryGatewayDriver categoryGatewayDriver;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private CategoryCache newCache(Duration refreshAfterWrite, Duration expireAfterWrite) {
+        CategoryProperties properties = CategoryProperties.builder()
+                .cache(CategoryProperties.Cache.builder()
+                        .maximumSize(10)
+                        .refreshAfterWrite(refreshAfterWrite)
+                        .expireAfterWrite(expireAfterWrite)
+                        .build())
+                .build();
+        return new CategoryCache(categoryGatewayDriver, new CategoryFlattener(new ObjectMapper()), properties, meterRegistry);
+    }
+
+    private static List<CategoryResponse> upstream(String name) {
+        return List.of(CategoryResponse.builder().id("1").name(name).build());
+    }
+
+    @Test
+    void get_WhenCalledTwice_ShouldCallUpstreamOnce() {
+        // Given
+        CategoryCache cache = newCache(Duration.ofMinutes(10), Duration.ofHours(1));
+        when(categoryGatewayDriver.getCategoriesReactive(TOKEN)).thenReturn(Mono.just(upstream("Electronics")));
+
+        // When
+        List<CategoryDto> first = cache.get(TOKEN);
+        List<CategoryDto> second = cache.get(TOKEN);
+
+        // Then
+        assertEquals(1, first.size());
+        assertEquals("root/Electronics", first.get(0).getPath());
+        assertSame(first, second);
+        verify(categoryGatewayDriver, times(1)).getCategoriesReactive(TOKEN);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", CategoryCache.CACHE_NAME).tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", CategoryCache.CACHE_NAME).tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void get_WhenDifferentTokens_ShouldCacheSeparately() {
+        // Given
+        CategoryCache cache = newCache(Duration.ofMinutes(10), Duration.ofHours(1));
+        when(categoryGatewayDriver.getCategoriesReactive("token-a")).thenReturn(Mono.just(upstream("A")));
+        when(categoryGatewayDriver.getCategoriesReactive("token-b")).thenReturn(Mono.just(upstream("B")));
+
+        // When & Then
+        assertEquals("A", cache.get("token-a").get(0).getName());
+        assertEquals("B", cache.get("token-b").get(0).getName());
+        verify(categoryGatewayDriver).getCategoriesReactive("token-a");
+        verify(categoryGatewayDriver).getCategoriesReactive("token-b");
+    }
+
+    @Test
+    void get_WhenRefreshDue_ShouldServeStaleAndReloadInBackground() throws InterruptedException {
+        // Given
+        CategoryCache cache = newCache(Duration.ofMillis(50), Duration.ofHours(1));
+        CountDownLatch reloadRelease = new CountDownLatch(1);
+        when(categoryGatewayDriver.getCategoriesReactive(TOKEN))
+                .thenReturn(Mono.just(upstream("Old")))
+                .thenReturn(Mono.fromCallable(() -> {
+                    reloadRelease.await(5, TimeUnit.SECONDS);
+                    return upstream("New");
+                }).subscribeOn(Schedulers.boundedElastic()));
+        assertEquals("Old", cache.get(TOKEN).get(0).getName());
+        Thread.sleep(100);
+
+        // When
+        List<CategoryDto> stale = cache.get(TOKEN);
+        reloadRelease.countDown();
+
+        // Then
+        assertEquals("Old", stale.get(0).getName());
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertEquals("New", cache.get(TOKEN).get(0).getName()));
+    }
+
+    @Test
+    void get_WhenRefreshFails_ShouldKeepServingStaleEntry() throws InterruptedException {
+        // Given
+        CategoryCache cache = newCache(Duration.ofMillis(50), Duration.ofHours(1));
+        when(categoryGatewayDriver.getCategoriesReactive(TOKEN))
+                .thenReturn(Mono.just(upstream("Old")))
+                .thenReturn(Mono.error(new GenericException("Errore durante la chiamata al servizio delle categorie")));
+        cache.get(TOKEN);
+        Thread.sleep(100);
+
+        // When
+        cache.get(TOKEN);
+
+        // Then
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> verify(categoryGatewayDriver, times(2)).getCategoriesReactive(TOKEN));
+        assertEquals("Old", cache.get(TOKEN).get(0).getName());
+    }
+
+    @Test
+    void get_WhenFirstLoadFails_ShouldPropagateException() {
+        // Given
+        CategoryCache cache = newCache(Duration.ofMinutes(10), Duration.ofHours(1));
+        when(categoryGatewayDriver.getCategoriesReactive(TOKEN))
+                .thenReturn(Mono.error(new GenericException("Errore durante la chiamata al servizio delle categorie")));
+
+        // When & Then
+        GenericException exception = assertThrows(GenericException.class, () -> cache.get(TOKEN));
+        assertEquals("Errore durante la chiamata al servizio delle categorie", exception.getMessage());
+    }
+
+    private List<Future<List<CategoryDto>>> concurrentGets(CategoryCache cache, ExecutorService executor, int callers) {
+        List<Future<List<CategoryDto>>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> cache.get(TOKEN)));
+        }
+        return results;
+    }
+
+    private double coalesced() {
+        return meterRegistry.get(CategoryCache.COALESCED_METRIC).counter().count();
+    }
+
+    @Test
+    void get_WhenConcurrentMisses_ShouldShareSingleUpstreamCall() throws Exception {
+        // Given
+        CategoryCache cache = newCache(Duration.ofMinutes(10), Duration.ofHours(1));
+        CountDownLatch upstreamRelease = new CountDownLatch(1);
+        when(categoryGatewayDriver.getCategoriesReactive(TOKEN)).thenReturn(Mono.fromCallable(() -> {
+            upstreamRelease.await(5, TimeUnit.SECONDS);
+            return upstream("Electronics");
+        }).subscribeOn(Schedulers.boundedElastic()));
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+
+        try {
+            // When
+            List<Future<List<CategoryDto>>> results = concurrentGets(cache, executor, 10);
+            await().atMost(Duration.ofSeconds(5)).until(() -> coalesced() == 9.0);
+            upstreamRelease.countDown();
+
+            // Then
+            for (Future<List<CategoryDto>> result : results) {
+                assertEquals("Electronics", result.get(5, TimeUnit.SECONDS).get(0).getName());
+            }
+            verify(categoryGatewayDriver, times(1)).getCategoriesReactive(TOKEN);
+            assertEquals(9.0, coalesced());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_WhenConcurrentMissesAndUpstreamFails_ShouldShareErrorAndRetryAfterwards() throws Exception {
+        // Given
+        CategoryCache cache = newCache(Duration.ofMinutes(10), Duration.ofHours(1));
+        CountDownLatch upstreamRelease = new CountDownLatch(1);
+        when(categoryGatewayDriver.getCategoriesReactive(TOKEN))
+                .thenReturn(Mono.<List<CategoryResponse>>fromCallable(() -> {
+                    upstreamRelease.await(5, TimeUnit.SECONDS);
+                    throw new GenericException("Errore durante la chiamata al servizio delle categorie");
+                }).subscribeOn(Schedulers.boundedElastic()))
+                .thenReturn(Mono.just(upstream("Electronics")));
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        try {
+            // When
+            List<Future<List<CategoryDto>>> results = concurrentGets(cache, executor, 5);
+            await().atMost(Duration.ofSeconds(5)).until(() -> coalesced() == 4.0);
+            upstreamRelease.countDown();
+
+            // Then
+            for (Future<List<CategoryDto>> result : results) {
+                ExecutionException exception = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(GenericException.class, exception.getCause());
+            }
+            verify(categoryGatewayDriver, times(1)).getCategoriesReactive(TOKEN);
+            assertEquals("Electronics", cache.get(TOKEN).get(0).getName());
+            verify(categoryGatewayDriver, times(2)).getCategoriesReactive(TOKEN);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getReactive_WhenCalledTwice_ShouldCallUpstreamOnce() {
+        // Given
+        CategoryCache cache = newCache(Duration.ofMinutes(10), Duration.ofHours(1));
+        when(categoryGatewayDriver.getCategoriesReactive(TOKEN)).thenReturn(Mono.just(upstream("Electronics")));
+
+        // When
+        List<CategoryDto> first = cache.getReactive(TOKEN).block();
+
+        // Then
+        StepVerifier.create(cache.getReactive(TOKEN))
+                .expectNext(first)
+                .verifyComplete();
+        assertEquals("root/Electronics", first.get(0).getPath());
+        verify(categoryGatewayDriver, times(1)).getCategoriesReactive(TOKEN);
+    }
+
+    @Test
+    void getReactive_WhenLoadFails_ShouldEmitErrorAndRetryOnNextSubscription() {
+        // Given
+        CategoryCache cache = newCache(Duration.ofMinutes(10), Duration.ofHours(1));
+        when(categoryGatewayDriver.getCategoriesReactive(TOKEN))
+                .thenReturn(Mono.error(new GenericException("Errore durante la chiamata al servizio delle categorie")))
+                .thenReturn(Mono.just(upstream("Electronics")));
+
+        // When & Then
+        StepVerifier.create(cache.getReactive(TOKEN))
+                .expectError(GenericException.class)
+                .verify();
+        StepVerifier.create(cache.getReactive(TOKEN))
+                .assertNext(categories -> assertEquals("Electronics", categories.get(0).getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void get_WhenStreaming_ShouldCacheLeafCategories() {
+        // Given
+        CategoryProperties properties = CategoryProperties.builder().streaming(true).build();
+        CategoryCache cache = new CategoryCache(categoryGatewayDriver, new CategoryFlattener(new ObjectMapper()), properties, meterRegistry);
+        when(categoryGatewayDriver.getLeafCategoriesReactive(TOKEN))
+                .thenReturn(Flux.just(CategoryDto.builder().sourceId("1").name("Electronics").path("root/Electronics").build()));
+
+        // When
+        List<CategoryDto> result = cache.get(TOKEN);
+
+        // Then
+        assertEquals(List.of("root/Electronics"), result.stream().map(CategoryDto::getPath).toList());
+        assertSame(result, cache.get(TOKEN));
+        verify(categoryGatewayDriver, times(1)).getLeafCategoriesReactive(TOKEN);
+        verify(categoryGatewayDriver, never()).getCategoriesReactive(any());
+    }
+}
@@ -0,0 +1,197 @@
+package com.poleepo.usecase.retrievecategory.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.usecase.retrievecategory.model.CategoryDto;
+import com.poleepo.usecase.retrievecategory.model.CategoryTree;
+import com.poleepo.usecase.retrievecategory.model.response.CategoryResponse;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryFlattenerTest {
+
+    private static final String CATEGORIES = """
+            [
+              {"id": "1", "name": "Abbigliamento", "children": [
+                {"id": "2", "name": "Maglie", "children": [
+                  {"id": "4", "name": "T-Shirt"},
+                  {"id": "5", "name": "Slim fit"}
+                ]},
+                {"id": "3", "name": "Camicie", "children": []}
+              ]},
+              {"id": "8", "name": "Accessori"},
+              {"id": "9", "name": "Vuota", "children": []}
+            ]
+            """;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final CategoryFlattener categoryFlattener = new CategoryFlattener(mapper);
+
+    private List<CategoryDto> stream(String json, int chunkSize) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            chunks.add(DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + chunkSize))));
+        }
+        return categoryFlattener.flatten(Flux.fromIterable(chunks)).collectList().block();
+    }
+
+    private static List<String> paths(List<CategoryDto> categories) {
+        return categories.stream().map(CategoryDto::getPath).toList();
+    }
+
+    @Test
+    void flattenStream_ShouldMatchTreeFlattening() throws Exception {
+        // Given
+        List<CategoryResponse> tree = mapper.readValue(CATEGORIES, new TypeReference<>() {});
+
+        // When
+        List<CategoryDto> expected = categoryFlattener.flatten(tree);
+        List<CategoryDto> result = stream(CATEGORIES, 7);
+
+        // Then
+        assertEquals(expected, result);
+        assertEquals(List.of("root/Abbigliamento/Maglie/T-Shirt", "root/Abbigliamento/Maglie/Slim fit",
+                "root/Abbigliamento/Camicie", "root/Accessori"), paths(result));
+        assertEquals("4", result.get(0).getSourceId());
+        assertEquals("T-Shirt", result.get(0).getName());
+    }
+
+    @Test
+    void flatten_WhenDeepTree_ShouldKeepFullPath() throws Exception {
+        // Given
+        String json = """
+                [{"id": "1", "name": "a", "children": [{"id": "2", "name": "b", "children": [
+                  {"id": "3", "name": "c", "children": [{"id": "4", "name": "d", "children": [{"id": "5", "name": "e"}]}]},
+                  {"id": "6", "name": "f"}
+                ]}]}]
+                """;
+        List<CategoryResponse> tree = mapper.readValue(json, new TypeReference<>() {});
+
+        // When
+        List<CategoryDto> result = categoryFlattener.flatten(tree);
+
+        // Then
+        assertEquals(List.of("root/a/b/c/d/e", "root/a/b/f"), paths(result));
+        assertEquals(List.of("5", "6"), result.stream().map(CategoryDto::getSourceId).toList());
+        assertEquals(paths(stream(json, 9)), paths(result));
+    }
+
+    @Test
+    void flatten_WhenVeryDeepTree_ShouldNotOverflowStack() {
+        // Given
+        int depth = 20_000;
+        CategoryTree leaf = CategoryTree.builder().id("leaf").name("x").build();
+        CategoryTree node = leaf;
+        for (int i = 0; i < depth; i++) {
+            node = CategoryTree.builder().id(String.valueOf(i)).name("n").children(List.of(node)).build();
+        }
+        List<CategoryResponse> tree = List.of(CategoryResponse.builder().id("r").name("r").children(List.of(node)).build());
+
+        // When
+        List<CategoryDto> result = categoryFlattener.flatten(tree);
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals("leaf", result.get(0).getSourceId());
+        assertEquals("root/r".length() + depth * "/n".length() + "/x".length(), result.get(0).getPath().length());
+    }
+
+    @Test
+    void flattenStream_WhenSingleByteChunks_ShouldParseSameLeaves() {
+        assertEquals(paths(stream(CATEGORIES, CATEGORIES.length())), paths(stream(CATEGORIES, 1)));
+    }
+
+    @Test
+    void flattenStream_WhenDeepTree_ShouldKeepFullPath() {
+        // Given
+        String json = """
+                [{"id": "1", "name": "a", "children": [{"id": "2", "name": "b", "children": [
+                  {"id": "3", "name": "c", "children": [{"id": "4", "name": "d", "children": [{"id": 5, "name": "e"}]}]}
+                ]}]}]
+                """;
+
+        // When
+        List<CategoryDto> result = stream(json, 5);
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals("root/a/b/c/d/e", result.get(0).getPath());
+        assertEquals("5", result.get(0).getSourceId());
+    }
+
+    @Test
+    void flattenStream_WhenNameAfterChildren_ShouldKeepPathAndOrder() {
+        // Given
+        String json = """
+                [{"children": [
+                    {"id": "2", "children": [{"id": "4", "name": "x"}], "name": "b"},
+                    {"id": "3", "name": "c"}
+                  ], "id": "1", "name": "a"}]
+                """;
+
+        // When
+        List<CategoryDto> result = stream(json, 3);
+
+        // Then
+        assertEquals(List.of("root/a/b/x", "root/a/c"), paths(result));
+    }
+
+    @Test
+    void flattenStream_WhenUnknownFields_ShouldIgnoreThem() {
+        // Given
+        String json = """
+                [{"id": "1", "name": "a", "meta": {"children": [{"id": "99", "name": "no"}]},
+                  "tags": [{"name": "no"}, ["no"]], "children": [{"id": "2", "name": "b", "active": true}]}]
+                """;
+
+        // When
+        List<CategoryDto> result = stream(json, 4);
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals("root/a/b", result.get(0).getPath());
+        assertEquals("2", result.get(0).getSourceId());
+    }
+
+    @Test
+    void flattenStream_WhenEmptyBody_ShouldReturnEmptyList() {
+        assertTrue(categoryFlattener.flatten(Flux.empty()).collectList().block().isEmpty());
+        assertTrue(stream("[]", 1).isEmpty());
+    }
+
+    @Test
+    void flattenStream_WhenCancelledMidStream_ShouldReleaseQueuedBuffers() {
+        // Given
+        NettyDataBufferFactory factory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        byte[] bytes = CATEGORIES.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += 16) {
+            chunks.add(factory.allocateBuffer(16).write(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + 16))));
+        }
+
+        // When
+        List<CategoryDto> first = categoryFlattener.flatten(Flux.fromIterable(chunks).hide()).take(1).collectList().block();
+
+        // Then
+        assertEquals(1, first.size());
+        assertTrue(chunks.stream().noneMatch(chunk -> ((PooledDataBuffer) chunk).isAllocated()));
+    }
+
+    @Test
+    void flattenStream_WhenTruncatedBody_ShouldFail() {
+        assertThrows(RuntimeException.class, () -> stream("[{\"id\": \"1\", \"name\": \"a\"", 4));
+    }
+}
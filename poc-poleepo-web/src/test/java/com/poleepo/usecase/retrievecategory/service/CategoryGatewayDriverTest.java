@@ -1,19 +1,35 @@
 package com.poleepo.usecase.retrievecategory.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.poleepo.exception.GenericException;
+import com.poleepo.usecase.retrievecategory.model.CategoryDto;
 import com.poleepo.usecase.retrievecategory.model.response.CategoryResponse;
 import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.service.CredentialRegistry;
+import com.poleepo.service.GatewayConcurrencyLimiter;
+import com.poleepo.service.GatewayMetrics;
+import com.poleepo.service.GatewayResilience;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsProperties;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -27,9 +43,6 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class CategoryGatewayDriverTest {
 
-    @Mock
-    private WebClient.Builder webClientBuilder;
-
     @Mock
     private WebClient webClient;
 
@@ -45,6 +58,18 @@ class CategoryGatewayDriverTest {
     @Mock
     private CategoryProperties categoryProperties;
 
+    @Spy
+    private CategoryFlattener categoryFlattener = new CategoryFlattener(new ObjectMapper());
+
+    @Spy
+    private GatewayResilience gatewayResilience = new GatewayResilience(ProductProperties.builder().build(),
+            CategoryProperties.builder().build(), CheckConfigProperties.builder().build(), new MetricsProperties(),
+            new SimpleMeterRegistry(), new GatewayMetrics(new SimpleMeterRegistry()),
+            new GatewayConcurrencyLimiter(ProductProperties.builder().build(),
+                    new CredentialRegistry(CategoryProperties.builder().build(), ProductProperties.builder().build(),
+                            CheckConfigProperties.builder().build()),
+                    new SimpleMeterRegistry()));
+
     @InjectMocks
     private CategoryGatewayDriver categoryGatewayDriver;
 
@@ -68,7 +93,6 @@ class CategoryGatewayDriverTest {
         );
 
         when(categoryProperties.getUrl()).thenReturn(apiUrl);
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(apiUrl)).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.header("Authorization", authorizationHeader)).thenReturn(requestHeadersSpec);
@@ -89,7 +113,6 @@ class CategoryGatewayDriverTest {
         assertEquals("Clothing", result.get(1).getName());
 
         verify(categoryProperties).getUrl();
-        verify(webClientBuilder).build();
         verify(webClient).get();
         verify(requestHeadersUriSpec).uri(apiUrl);
         verify(requestHeadersSpec).header("Authorization", authorizationHeader);
@@ -105,7 +128,6 @@ class CategoryGatewayDriverTest {
         List<CategoryResponse> emptyCategories = Collections.emptyList();
 
         when(categoryProperties.getUrl()).thenReturn(apiUrl);
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(apiUrl)).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.header("Authorization", authorizationHeader)).thenReturn(requestHeadersSpec);
@@ -122,7 +144,6 @@ class CategoryGatewayDriverTest {
         assertTrue(result.isEmpty());
 
         verify(categoryProperties).getUrl();
-        verify(webClientBuilder).build();
     }
 
     @Test
@@ -132,7 +153,6 @@ class CategoryGatewayDriverTest {
         String apiUrl = "https://api.example.com/categories";
 
         when(categoryProperties.getUrl()).thenReturn(apiUrl);
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(apiUrl)).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.header("Authorization", authorizationHeader)).thenReturn(requestHeadersSpec);
@@ -149,7 +169,6 @@ class CategoryGatewayDriverTest {
         assertEquals("Errore durante la chiamata al servizio delle categorie", exception.getMessage());
 
         verify(categoryProperties).getUrl();
-        verify(webClientBuilder).build();
     }
 
     @Test
@@ -159,7 +178,6 @@ class CategoryGatewayDriverTest {
         String apiUrl = "https://api.example.com/categories";
 
         when(categoryProperties.getUrl()).thenReturn(apiUrl);
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(apiUrl)).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.header("Authorization", authorizationHeader)).thenReturn(requestHeadersSpec);
@@ -175,7 +193,6 @@ class CategoryGatewayDriverTest {
         assertEquals("Errore durante la chiamata al servizio delle categorie", exception.getMessage());
 
         verify(categoryProperties).getUrl();
-        verify(webClientBuilder).build();
     }
 
     @Test
@@ -193,7 +210,6 @@ class CategoryGatewayDriverTest {
         );
 
         when(categoryProperties.getUrl()).thenReturn(apiUrl);
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(apiUrl)).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.header("Authorization", authorizationHeader)).thenReturn(requestHeadersSpec);
@@ -213,7 +229,6 @@ class CategoryGatewayDriverTest {
         assertNull(result.get(0).getChildren());
 
         verify(categoryProperties).getUrl();
-        verify(webClientBuilder).build();
     }
 
     @Test
@@ -227,7 +242,6 @@ class CategoryGatewayDriverTest {
 
         // Setup mocks for first call
         when(categoryProperties.getUrl()).thenReturn(apiUrl);
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(apiUrl)).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.header(eq("Authorization"), anyString())).thenReturn(requestHeadersSpec);
@@ -271,7 +285,6 @@ class CategoryGatewayDriverTest {
         );
 
         when(categoryProperties.getUrl()).thenReturn(apiUrl);
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(apiUrl)).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.header("Authorization", authorizationHeader)).thenReturn(requestHeadersSpec);
@@ -299,6 +312,98 @@ class CategoryGatewayDriverTest {
         assertNull(parent2.getChildren());
 
         verify(categoryProperties).getUrl();
-        verify(webClientBuilder).build();
+    }
+
+    @Test
+    void getLeafCategories_WhenSuccessfulResponse_ShouldStreamLeaves() {
+        // Given
+        String authorizationHeader = "Bearer token123";
+        String apiUrl = "https://api.example.com/categories";
+        String body = "[{\"id\": \"1\", \"name\": \"Abbigliamento\", \"children\": [{\"id\": \"2\", \"name\": \"Maglie\"}]}]";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        Flux<DataBuffer> chunks = Flux.just(
+                DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, 0, 20)),
+                DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, 20, bytes.length)));
+
+        when(categoryProperties.getUrl()).thenReturn(apiUrl);
+        when(webClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(apiUrl)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.header("Authorization", authorizationHeader)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.onStatus(any(Predicate.class), any())).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(DataBuffer.class)).thenReturn(chunks);
+
+        // When
+        List<CategoryDto> result = categoryGatewayDriver.getLeafCategories(authorizationHeader);
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals("root/Abbigliamento/Maglie", result.get(0).getPath());
+        assertEquals("2", result.get(0).getSourceId());
+    }
+
+    @Test
+    void getLeafCategories_WhenMalformedBody_ShouldThrowGenericException() {
+        // Given
+        String authorizationHeader = "Bearer token123";
+        String apiUrl = "https://api.example.com/categories";
+        Flux<DataBuffer> chunks = Flux.just(DefaultDataBufferFactory.sharedInstance
+                .wrap("[{\"id\": }".getBytes(StandardCharsets.UTF_8)));
+
+        when(categoryProperties.getUrl()).thenReturn(apiUrl);
+        when(webClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(apiUrl)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.header("Authorization", authorizationHeader)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.onStatus(any(Predicate.class), any())).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(DataBuffer.class)).thenReturn(chunks);
+
+        // When & Then
+        GenericException exception = assertThrows(GenericException.class,
+                () -> categoryGatewayDriver.getLeafCategories(authorizationHeader));
+        assertEquals("Errore durante la chiamata al servizio delle categorie", exception.getMessage());
+    }
+
+    @Test
+    void getCategoriesReactive_WhenSuccessfulResponse_ShouldEmitCategories() {
+        // Given
+        String authorizationHeader = "Bearer token123";
+        String apiUrl = "https://api.example.com/categories";
+        List<CategoryResponse> categories = List.of(CategoryResponse.builder().id("1").name("Electronics").build());
+
+        when(categoryProperties.getUrl()).thenReturn(apiUrl);
+        when(webClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(apiUrl)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.header("Authorization", authorizationHeader)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.onStatus(any(Predicate.class), any())).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(any(ParameterizedTypeReference.class))).thenReturn(Mono.just(categories));
+
+        // When & Then
+        StepVerifier.create(categoryGatewayDriver.getCategoriesReactive(authorizationHeader))
+                .expectNext(categories)
+                .verifyComplete();
+    }
+
+    @Test
+    void getLeafCategoriesReactive_WhenUpstreamFails_ShouldEmitGenericException() {
+        // Given
+        String authorizationHeader = "Bearer token123";
+        String apiUrl = "https://api.example.com/categories";
+
+        when(categoryProperties.getUrl()).thenReturn(apiUrl);
+        when(webClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(apiUrl)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.header("Authorization", authorizationHeader)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.onStatus(any(Predicate.class), any())).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(DataBuffer.class))
+                .thenReturn(Flux.error(WebClientResponseException.create(HttpStatus.BAD_GATEWAY.value(), "Bad Gateway", null, null, null)));
+
+        // When & Then
+        StepVerifier.create(categoryGatewayDriver.getLeafCategoriesReactive(authorizationHeader))
+                .expectErrorMatches(e -> e instanceof GenericException
+                        && "Errore durante la chiamata al servizio delle categorie".equals(e.getMessage()))
+                .verify();
     }
 }
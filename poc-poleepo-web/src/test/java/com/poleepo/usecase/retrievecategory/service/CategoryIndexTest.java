@@ -0,0 +1,117 @@
+package com.poleepo.usecase.retrievecategory.service;
+
+import com.poleepo.exception.GenericException;
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.service.CredentialRegistry;
+import com.poleepo.usecase.retrievecategory.model.CategoryDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CategoryIndexTest {
+
+    private static final String TOKEN = "Bearer token1";
+
+    @Mock
+    private CategoryCache categoryCache;
+
+    @Mock
+    private CredentialRegistry credentialRegistry;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CategoryIndex newIndex(boolean enabled) {
+        return new CategoryIndex(categoryCache, credentialRegistry, CategoryProperties.builder()
+                .index(CategoryProperties.Index.builder().enabled(enabled).build())
+                .build(), meterRegistry);
+    }
+
+    private static CategoryDto leaf(String sourceId) {
+        return CategoryDto.builder().name("Leaf " + sourceId).path("root/Leaf " + sourceId).sourceId(sourceId).build();
+    }
+
+    @Test
+    void rejects_WhenLoaded_ShouldRejectOnlyUnknownCategories() {
+        // Given
+        CategoryIndex index = newIndex(true);
+        when(credentialRegistry.categoryDefaultToken()).thenReturn(TOKEN);
+        when(categoryCache.getReactive(TOKEN)).thenReturn(Mono.just(List.of(leaf("11"), leaf("12"))));
+
+        // When
+        index.reload().block();
+
+        // Then
+        assertFalse(index.rejects("11"));
+        assertTrue(index.rejects("1"));
+        assertEquals(2, meterRegistry.find(CategoryIndex.SIZE_METRIC).gauge().value());
+        assertEquals(1, meterRegistry.find(CategoryIndex.REJECTED_METRIC).counter().count());
+    }
+
+    @Test
+    void rejects_WhenNotLoaded_ShouldLetEveryCategoryThrough() {
+        // Given
+        CategoryIndex index = newIndex(true);
+
+        // When & Then
+        assertFalse(index.rejects("unknown"));
+        verifyNoInteractions(categoryCache);
+    }
+
+    @Test
+    void reload_WhenUpstreamFails_ShouldKeepPreviousIndex() {
+        // Given
+        CategoryIndex index = newIndex(true);
+        when(credentialRegistry.categoryDefaultToken()).thenReturn(TOKEN);
+        when(categoryCache.getReactive(TOKEN))
+                .thenReturn(Mono.just(List.of(leaf("11"))))
+                .thenReturn(Mono.error(new GenericException("Errore durante la chiamata al servizio delle categorie")));
+        index.reload().block();
+
+        // When
+        index.reload().block();
+
+        // Then
+        assertFalse(index.rejects("11"));
+        assertTrue(index.rejects("12"));
+    }
+
+    @Test
+    void reload_WhenUpstreamReturnsNoCategories_ShouldKeepPreviousIndex() {
+        // Given
+        CategoryIndex index = newIndex(true);
+        when(credentialRegistry.categoryDefaultToken()).thenReturn(TOKEN);
+        when(categoryCache.getReactive(TOKEN))
+                .thenReturn(Mono.just(List.of(leaf("11"))))
+                .thenReturn(Mono.just(List.of()));
+        index.reload().block();
+
+        // When
+        index.reload().block();
+
+        // Then
+        assertFalse(index.rejects("11"));
+        assertEquals(1, meterRegistry.find(CategoryIndex.SIZE_METRIC).gauge().value());
+    }
+
+    @Test
+    void rejects_WhenDisabled_ShouldNeverLoadNorReject() {
+        // Given
+        CategoryIndex index = newIndex(false);
+
+        // When
+        index.reload().block();
+
+        // Then
+        assertFalse(index.rejects("unknown"));
+        verifyNoInteractions(categoryCache);
+    }
+}
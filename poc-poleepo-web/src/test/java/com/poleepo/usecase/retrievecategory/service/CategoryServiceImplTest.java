@@ -1,31 +1,38 @@
 package com.poleepo.usecase.retrievecategory.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.poleepo.exception.GenericException;
 import com.poleepo.usecase.retrievecategory.model.CategoryDto;
 import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.service.CredentialRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class CategoryServiceImplTest {
 
     @Mock
-    private ICategoryGatewayDriver categoryGatewayDriver;
-    @Mock
-    private ObjectMapper mapper;
-    @Mock
-    private CategoryProperties categoryProperties;
+    private CategoryCache categoryCache;
+    @Spy
+    private CredentialRegistry credentialRegistry = new CredentialRegistry(
+            CategoryProperties.builder().availableToken("token1,token2").defaultToken("token1").build(),
+            ProductProperties.builder().build(), CheckConfigProperties.builder().build());
 
     @InjectMocks
     private CategoryServiceImpl categoryService;
@@ -40,15 +47,12 @@ class CategoryServiceImplTest {
         String storeId = "1";
         String source = "test";
         String token = "token1";
-        String availableTokens = "token1,token2";
-        when(categoryProperties.getAvailableToken()).thenReturn(availableTokens);
-        when(categoryProperties.getDefaultToken()).thenReturn("token1");
-        when(categoryGatewayDriver.getCategories(token)).thenReturn(Collections.emptyList());
+        when(categoryCache.get(token)).thenReturn(Collections.emptyList());
 
         // Correzione: passare solo il token senza "Bearer "
         List<CategoryDto> result = categoryService.getCategory(storeId, source, "token1");
         assertNotNull(result);
-        verify(categoryGatewayDriver).getCategories(token);
+        verify(categoryCache).get(token);
     }
 
     @Test
@@ -56,13 +60,11 @@ class CategoryServiceImplTest {
         String storeId = "1";
         String source = "test";
         String token = "token3";
-        String availableTokens = "token1,token2";
-        when(categoryProperties.getAvailableToken()).thenReturn(availableTokens);
-        when(categoryProperties.getDefaultToken()).thenReturn("token1");
 
         assertThrows(GenericException.class, () ->
                 categoryService.getCategory(storeId, source, "Bearer token3")
         );
+        verify(categoryCache, never()).get(anyString());
     }
 
     @Test
@@ -70,12 +72,39 @@ class CategoryServiceImplTest {
         String storeId = "1";
         String source = "test";
         String defaultToken = "token1";
-        when(categoryProperties.getDefaultToken()).thenReturn(defaultToken);
-        when(categoryProperties.getAvailableToken()).thenReturn(defaultToken);
-        when(categoryGatewayDriver.getCategories(defaultToken)).thenReturn(Collections.emptyList());
+        when(categoryCache.get(defaultToken)).thenReturn(Collections.emptyList());
 
         List<CategoryDto> result = categoryService.getCategory(storeId, source, null);
         assertNotNull(result);
-        verify(categoryGatewayDriver).getCategories(defaultToken);
+        verify(categoryCache).get(defaultToken);
+    }
+
+    @Test
+    void getCategoryReactive_tokenValido() {
+        List<CategoryDto> categories = List.of(CategoryDto.builder().name("Electronics").build());
+        when(categoryCache.getReactive("Bearer token2")).thenReturn(Mono.just(categories));
+
+        StepVerifier.create(categoryService.getCategoryReactive("1", "test", "Bearer token2"))
+                .expectNext(categories)
+                .verifyComplete();
+        verify(categoryCache, never()).get(anyString());
+    }
+
+    @Test
+    void getCategoryReactive_tokenNonValido() {
+
+        StepVerifier.create(categoryService.getCategoryReactive("1", "test", "token3"))
+                .expectError(GenericException.class)
+                .verify();
+        verify(categoryCache, never()).getReactive(anyString());
+    }
+
+    @Test
+    void getCategoryReactive_senzaToken_usaTokenDiDefault() {
+        when(categoryCache.getReactive("token1")).thenReturn(Mono.just(Collections.emptyList()));
+
+        StepVerifier.create(categoryService.getCategoryReactive("1", "test", null))
+                .expectNext(Collections.emptyList())
+                .verifyComplete();
     }
 }
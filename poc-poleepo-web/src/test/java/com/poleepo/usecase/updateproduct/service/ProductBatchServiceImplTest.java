@@ -0,0 +1,217 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.enumeration.ErrorCode;
+import com.poleepo.exception.ProductNotCreatedException;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductBatchResult;
+import com.poleepo.usecase.updateproduct.model.response.ProductResponse;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductBatchServiceImplTest {
+
+    private static final String SOURCE = "10124";
+    private static final String STORE = "1";
+    private static final String AUTH = "Bearer token";
+
+    @Mock
+    private IProductService productService;
+
+    private ValidatorFactory validatorFactory;
+    private ProductBatchServiceImpl productBatchService;
+
+    @BeforeEach
+    void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        ProductProperties productProperties = ProductProperties.builder()
+                .batch(ProductProperties.Batch.builder().concurrency(4).build())
+                .build();
+        productBatchService = new ProductBatchServiceImpl(productService, productProperties, new ObjectMapper(), validatorFactory.getValidator());
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    private static ProductRequest product(String title) {
+        return ProductRequest.builder()
+                .title(title)
+                .categorySourceId("CAT1")
+                .price(10.0)
+                .vatRate(22.0)
+                .quantity(1)
+                .build();
+    }
+
+    private static ProductRequest existing(String sourceId, int quantity) {
+        return ProductRequest.builder()
+                .title("Product " + sourceId)
+                .categorySourceId("CAT1")
+                .price(10.0)
+                .vatRate(22.0)
+                .quantity(quantity)
+                .sourceId(sourceId)
+                .build();
+    }
+
+    private static ProductResponse response(ProductRequest request) {
+        return ProductResponse.builder().title(request.getTitle()).quantity(request.getQuantity()).build();
+    }
+
+    @Test
+    void createOrUpdateProducts_ShouldKeepRequestOrderWhenUpstreamAnswersOutOfOrder() {
+        // Given
+        List<ProductRequest> requests = IntStream.range(0, 10).mapToObj(i -> product("P" + i)).toList();
+        when(productService.createOrUpdateProductReactive(any(ProductRequest.class), eq(SOURCE), eq(STORE), eq(AUTH)))
+                .thenAnswer(invocation -> {
+                    ProductRequest request = invocation.getArgument(0);
+                    long delay = 50 - Long.parseLong(request.getTitle().substring(1)) * 5;
+                    return Mono.just(response(request)).delayElement(Duration.ofMillis(delay));
+                });
+
+        // When
+        List<ProductBatchResult> results = productBatchService
+                .createOrUpdateProducts(Flux.fromIterable(requests), SOURCE, STORE, AUTH)
+                .collectList()
+                .block();
+
+        // Then
+        assertEquals(10, results.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, results.get(i).getIndex());
+            assertTrue(results.get(i).isSuccess());
+            assertEquals("P" + i, results.get(i).getData().getTitle());
+        }
+    }
+
+    @Test
+    void createOrUpdateProducts_ShouldNotExceedConfiguredConcurrency() {
+        // Given
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(productService.createOrUpdateProductReactive(any(ProductRequest.class), eq(SOURCE), eq(STORE), eq(AUTH)))
+                .thenAnswer(invocation -> Mono.defer(() -> {
+                            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                            return Mono.just(response(invocation.getArgument(0))).delayElement(Duration.ofMillis(10));
+                        })
+                        .doOnNext(result -> inFlight.decrementAndGet()));
+
+        // When
+        List<ProductBatchResult> results = productBatchService
+                .createOrUpdateProducts(Flux.range(0, 40).map(i -> product("P" + i)), SOURCE, STORE, AUTH)
+                .collectList()
+                .block();
+
+        // Then
+        assertEquals(40, results.size());
+        assertEquals(4, maxInFlight.get());
+    }
+
+    @Test
+    void createOrUpdateProducts_WhenSourceIdRepeats_ShouldSyncItsItemsOneAfterTheOther() {
+        // Given
+        List<ProductRequest> requests = List.of(
+                existing("10205", 7),
+                existing("10206", 1),
+                existing("10205", 5));
+        List<String> events = new CopyOnWriteArrayList<>();
+        when(productService.createOrUpdateProductReactive(any(ProductRequest.class), eq(SOURCE), eq(STORE), eq(AUTH)))
+                .thenAnswer(invocation -> {
+                    ProductRequest request = invocation.getArgument(0);
+                    String item = request.getSourceId() + ":" + request.getQuantity();
+                    long delay = request.getQuantity() == 7 ? 100 : 5;
+                    return Mono.defer(() -> {
+                                events.add("start " + item);
+                                return Mono.just(response(request)).delayElement(Duration.ofMillis(delay));
+                            })
+                            .doOnNext(result -> events.add("end " + item));
+                });
+
+        // When
+        List<ProductBatchResult> results = productBatchService
+                .createOrUpdateProducts(Flux.fromIterable(requests), SOURCE, STORE, AUTH)
+                .collectList()
+                .block();
+
+        // Then
+        assertEquals(List.of(0, 1, 2), results.stream().map(ProductBatchResult::getIndex).toList());
+        assertTrue(events.indexOf("end 10205:7") < events.indexOf("start 10205:5"));
+        assertTrue(events.indexOf("end 10206:1") < events.indexOf("end 10205:7"));
+    }
+
+    @Test
+    void createOrUpdateProducts_WhenSomeItemsFail_ShouldReportThemWithoutFailingTheBatch() {
+        // Given
+        ProductRequest ok = product("ok");
+        ProductRequest failing = product("ko");
+        ProductRequest invalid = ProductRequest.builder().title("no price").build();
+        when(productService.createOrUpdateProductReactive(eq(ok), eq(SOURCE), eq(STORE), eq(AUTH)))
+                .thenReturn(Mono.just(response(ok)));
+        when(productService.createOrUpdateProductReactive(eq(failing), eq(SOURCE), eq(STORE), eq(AUTH)))
+                .thenReturn(Mono.error(new ProductNotCreatedException("Errore durante la chiamata al servizio dei products")));
+
+        // When
+        List<ProductBatchResult> results = productBatchService
+                .createOrUpdateProducts(Flux.just(ok, failing, invalid), SOURCE, STORE, AUTH)
+                .collectList()
+                .block();
+
+        // Then
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(ErrorCode.PRODUCT_NOT_CREATED.getCode(), results.get(1).getError());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals(ErrorCode.MISSING_REQUIRED_FIELD.getCode(), results.get(2).getError());
+        verify(productService, never()).createOrUpdateProductReactive(eq(invalid), any(), any(), any());
+    }
+
+    @Test
+    void createOrUpdateProductsNdjson_ShouldParseEachLineAndReportMalformedOnes() {
+        // Given
+        when(productService.createOrUpdateProductReactive(any(ProductRequest.class), eq(SOURCE), eq(STORE), eq(AUTH)))
+                .thenAnswer(invocation -> Mono.just(response(invocation.getArgument(0))));
+        Flux<String> lines = Flux.just(
+                "{\"title\":\"A\",\"categorySourceId\":\"C\",\"price\":1.0,\"vatRate\":22.0,\"quantity\":1}",
+                "",
+                "{\"title\":\"B\",",
+                "{\"title\":\"C\",\"categorySourceId\":\"C\",\"price\":1.0,\"vatRate\":22.0,\"quantity\":2}");
+
+        // When
+        List<ProductBatchResult> results = productBatchService
+                .createOrUpdateProductsNdjson(lines, SOURCE, STORE, AUTH)
+                .collectList()
+                .block();
+
+        // Then
+        assertEquals(3, results.size());
+        assertEquals("A", results.get(0).getData().getTitle());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(ErrorCode.GENERIC.getCode(), results.get(1).getError());
+        assertEquals("C", results.get(2).getData().getTitle());
+        assertEquals(2, results.get(2).getIndex());
+    }
+}
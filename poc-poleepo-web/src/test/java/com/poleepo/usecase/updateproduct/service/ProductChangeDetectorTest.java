@@ -0,0 +1,108 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductChangeDetectorTest {
+
+    private static final String PRODUCT_ID = "10124";
+
+    private MeterRegistry meterRegistry;
+    private ProductChangeDetector productChangeDetector;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        productChangeDetector = new ProductChangeDetector(ProductProperties.builder().build(), meterRegistry);
+    }
+
+    private static ProductRequest product(String title, double price, Integer quantity) {
+        return ProductRequest.builder()
+                .title(title)
+                .categorySourceId("Category1")
+                .price(price)
+                .vatRate(22.0)
+                .quantity(quantity)
+                .sourceId(PRODUCT_ID)
+                .build();
+    }
+
+    private double skipped(String call) {
+        return meterRegistry.get(ProductChangeDetector.SKIPPED_METRIC).tag("call", call).counter().count();
+    }
+
+    @Test
+    void detect_WhenNeverPushed_ShouldRequireBothCalls() {
+        assertEquals(ProductChangeDetector.Changes.ALL, productChangeDetector.detect(PRODUCT_ID, product("A", 10.0, 1)));
+    }
+
+    @Test
+    void detect_WhenSameAsLastPush_ShouldSkipBothCalls() {
+        // Given
+        productChangeDetector.offerSynced(PRODUCT_ID, product("A", 10.0, 1));
+        productChangeDetector.quantitySynced(PRODUCT_ID, product("A", 10.0, 1));
+
+        // When
+        ProductChangeDetector.Changes changes = productChangeDetector.detect(PRODUCT_ID, product("A", 10.0, 1));
+
+        // Then
+        assertFalse(changes.offerChanged());
+        assertFalse(changes.quantityChanged());
+        assertEquals(0.0, skipped("product"));
+    }
+
+    @Test
+    void recordSkipped_ShouldCountOnlyTheSkippedCalls() {
+        // When
+        productChangeDetector.recordSkipped(new ProductChangeDetector.Changes(false, true));
+        productChangeDetector.recordSkipped(ProductChangeDetector.Changes.ALL);
+
+        // Then
+        assertEquals(1.0, skipped("product"));
+        assertEquals(0.0, skipped("quantity"));
+    }
+
+    @Test
+    void detect_WhenOfferOrQuantityChanged_ShouldRequireOnlyThatCall() {
+        // Given
+        productChangeDetector.offerSynced(PRODUCT_ID, product("A", 10.0, 1));
+        productChangeDetector.quantitySynced(PRODUCT_ID, product("A", 10.0, 1));
+
+        // When & Then
+        assertEquals(new ProductChangeDetector.Changes(true, false), productChangeDetector.detect(PRODUCT_ID, product("B", 10.0, 1)));
+        assertEquals(new ProductChangeDetector.Changes(true, false), productChangeDetector.detect(PRODUCT_ID, product("A", 10.5, 1)));
+        assertEquals(new ProductChangeDetector.Changes(false, true), productChangeDetector.detect(PRODUCT_ID, product("A", 10.0, 2)));
+    }
+
+    @Test
+    void detect_WhenOnlyOfferPushed_ShouldStillRequireQuantityCall() {
+        // Given
+        productChangeDetector.offerSynced(PRODUCT_ID, product("A", 10.0, 1));
+
+        // When
+        ProductChangeDetector.Changes changes = productChangeDetector.detect(PRODUCT_ID, product("A", 10.0, 1));
+
+        // Then
+        assertFalse(changes.offerChanged());
+        assertTrue(changes.quantityChanged());
+    }
+
+    @Test
+    void detect_WhenDisabled_ShouldAlwaysRequireBothCalls() {
+        // Given
+        ProductChangeDetector disabled = new ProductChangeDetector(ProductProperties.builder()
+                .changeDetection(ProductProperties.ChangeDetection.builder().enabled(false).build())
+                .build(), meterRegistry);
+        disabled.offerSynced(PRODUCT_ID, product("A", 10.0, 1));
+        disabled.quantitySynced(PRODUCT_ID, product("A", 10.0, 1));
+
+        // When & Then
+        assertEquals(ProductChangeDetector.Changes.ALL, disabled.detect(PRODUCT_ID, product("A", 10.0, 1)));
+    }
+}
@@ -2,17 +2,32 @@ package com.poleepo.usecase.updateproduct.service;
 
 import com.poleepo.exception.ProductNotCreatedException;
 import com.poleepo.exception.ProductNotUpdatedException;
+import com.poleepo.exception.UpstreamThrottledException;
 import com.poleepo.properties.ProductProperties;
 import com.poleepo.usecase.updateproduct.model.request.CreateOrUpdateProductRequest;
+import com.poleepo.usecase.updateproduct.model.request.UpdateQuantityRequest;
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
+import com.poleepo.service.CredentialRegistry;
+import com.poleepo.service.GatewayConcurrencyLimiter;
+import com.poleepo.service.GatewayMetrics;
+import com.poleepo.service.GatewayResilience;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsProperties;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.util.Map;
 
@@ -23,9 +38,6 @@ import static org.mockito.Mockito.*;
 
 class ProductGatewayDriverTest {
 
-    @Mock
-    private WebClient.Builder webClientBuilder;
-
     @Mock
     private WebClient webClient;
 
@@ -44,6 +56,15 @@ class ProductGatewayDriverTest {
     @Mock
     private ProductProperties productProperties;
 
+    @Spy
+    private GatewayResilience gatewayResilience = new GatewayResilience(ProductProperties.builder().build(),
+            CategoryProperties.builder().build(), CheckConfigProperties.builder().build(), new MetricsProperties(),
+            new SimpleMeterRegistry(), new GatewayMetrics(new SimpleMeterRegistry()),
+            new GatewayConcurrencyLimiter(ProductProperties.builder().build(),
+                    new CredentialRegistry(CategoryProperties.builder().build(), ProductProperties.builder().build(),
+                            CheckConfigProperties.builder().build()),
+                    new SimpleMeterRegistry()));
+
     @InjectMocks
     private ProductGatewayDriver productGatewayDriver;
 
@@ -69,7 +90,6 @@ class ProductGatewayDriverTest {
         Map<String, Object> responseMap = Map.of("id", expectedId);
 
         when(productProperties.getUrlCreate()).thenReturn(createUrl);
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.post()).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.uri(createUrl)).thenReturn(requestBodySpec);
         when(requestBodySpec.header("Authorization", authHeader)).thenReturn(requestBodySpec);
@@ -84,7 +104,6 @@ class ProductGatewayDriverTest {
         // Assert
         assertEquals(expectedId, result);
         verify(productProperties, times(1)).getUrlCreate();
-        verify(webClientBuilder, times(1)).build();
         verify(webClient, times(1)).post();
     }
 
@@ -96,7 +115,6 @@ class ProductGatewayDriverTest {
         String createUrl = "http://api.test/products";
 
         when(productProperties.getUrlCreate()).thenReturn(createUrl);
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.post()).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.uri(createUrl)).thenReturn(requestBodySpec);
         when(requestBodySpec.header("Authorization", authHeader)).thenReturn(requestBodySpec);
@@ -124,7 +142,6 @@ class ProductGatewayDriverTest {
         Map<String, Object> responseMap = Map.of("id", expectedId);
 
         when(productProperties.getUrlUpdate()).thenReturn(updateUrlTemplate);
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.put()).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.uri(expectedUpdateUrl)).thenReturn(requestBodySpec);
         when(requestBodySpec.header("Authorization", authHeader)).thenReturn(requestBodySpec);
@@ -139,7 +156,6 @@ class ProductGatewayDriverTest {
         // Assert
         assertEquals(expectedId, result);
         verify(productProperties, times(1)).getUrlUpdate();
-        verify(webClientBuilder, times(1)).build();
         verify(webClient, times(1)).put();
         verify(requestBodyUriSpec, times(1)).uri(expectedUpdateUrl);
     }
@@ -154,7 +170,6 @@ class ProductGatewayDriverTest {
         String expectedUpdateUrl = "http://api.test/products/123";
 
         when(productProperties.getUrlUpdate()).thenReturn(updateUrlTemplate);
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.put()).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.uri(expectedUpdateUrl)).thenReturn(requestBodySpec);
         when(requestBodySpec.header("Authorization", authHeader)).thenReturn(requestBodySpec);
@@ -182,7 +197,6 @@ class ProductGatewayDriverTest {
         Map<String, Object> responseMap = Map.of("id", expectedId);
 
         when(productProperties.getUrlUpdate()).thenReturn(updateUrlTemplate);
-        when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.put()).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.uri(expectedUpdateUrl)).thenReturn(requestBodySpec);
         when(requestBodySpec.header("Authorization", authHeader)).thenReturn(requestBodySpec);
@@ -198,4 +212,73 @@ class ProductGatewayDriverTest {
         assertEquals(expectedId, result);
         verify(requestBodyUriSpec, times(1)).uri(expectedUpdateUrl);
     }
+
+    @Test
+    void updateQuantityReactive_success() {
+        // Arrange
+        String authHeader = "Bearer token";
+        UpdateQuantityRequest request = UpdateQuantityRequest.builder().quantity(3).shopId(10124).build();
+        String quantityUrlTemplate = "http://api.test/products/#ID/quantity";
+        String expectedQuantityUrl = "http://api.test/products/123/quantity";
+
+        when(productProperties.getUrlUpdateQuantity()).thenReturn(quantityUrlTemplate);
+        when(webClient.put()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(expectedQuantityUrl)).thenReturn(requestBodySpec);
+        when(requestBodySpec.header("Authorization", authHeader)).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(request)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(any(ParameterizedTypeReference.class))).thenReturn(Mono.just(Map.of("id", "123")));
+
+        // Act & Assert
+        StepVerifier.create(productGatewayDriver.updateQuantityReactive(authHeader, "123", request))
+                .expectNext("123")
+                .verifyComplete();
+        verify(requestBodyUriSpec, times(1)).uri(expectedQuantityUrl);
+    }
+
+    @Test
+    void createProductReactive_upstreamError_emitsProductNotCreatedException() {
+        // Arrange
+        String authHeader = "Bearer token";
+        CreateOrUpdateProductRequest request = CreateOrUpdateProductRequest.builder().build();
+        String createUrl = "http://api.test/products";
+
+        when(productProperties.getUrlCreate()).thenReturn(createUrl);
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(createUrl)).thenReturn(requestBodySpec);
+        when(requestBodySpec.header("Authorization", authHeader)).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(request)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(any(ParameterizedTypeReference.class))).thenReturn(Mono.error(new RuntimeException("Connection reset")));
+
+        // Act & Assert
+        StepVerifier.create(productGatewayDriver.createProductReactive(authHeader, request))
+                .expectErrorMatches(e -> e instanceof ProductNotCreatedException
+                        && "Errore durante la chiamata al servizio dei products".equals(e.getMessage()))
+                .verify();
+    }
+
+    @Test
+    void updateProductReactive_upstreamTooManyRequests_emitsUpstreamThrottledException() {
+        // Arrange
+        String authHeader = "Bearer token";
+        CreateOrUpdateProductRequest request = CreateOrUpdateProductRequest.builder().build();
+
+        when(productProperties.getUrlUpdate()).thenReturn("http://api.test/products/#ID");
+        when(webClient.put()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("http://api.test/products/123")).thenReturn(requestBodySpec);
+        when(requestBodySpec.header("Authorization", authHeader)).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(request)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(any(ParameterizedTypeReference.class))).thenReturn(Mono.error(WebClientResponseException.create(
+                HttpStatus.TOO_MANY_REQUESTS.value(), "Too Many Requests", HttpHeaders.EMPTY, null, null)));
+
+        // Act & Assert
+        StepVerifier.create(productGatewayDriver.updateProductReactive(authHeader, "123", request))
+                .expectError(UpstreamThrottledException.class)
+                .verify();
+    }
 }
@@ -0,0 +1,227 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.exception.IdempotencyKeyReusedException;
+import com.poleepo.exception.ProductNotCreatedException;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.usecase.updateproduct.model.entities.ProductIdempotencyKeyEntity;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductResponse;
+import com.poleepo.usecase.updateproduct.repository.ProductIdempotencyKeyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductIdempotencyCacheTest {
+
+    private static final String KEY = "8e03978e-40d5-43e8-bc93-6894a57f9324";
+    private static final String STORE = "1";
+    private static final String SOURCE = "10124";
+
+    @Mock
+    private ProductIdempotencyKeyRepository productIdempotencyKeyRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MeterRegistry meterRegistry;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private ProductIdempotencyCache newCache(boolean persistent) {
+        ProductProperties productProperties = ProductProperties.builder()
+                .idempotency(ProductProperties.Idempotency.builder()
+                        .maximumSize(10)
+                        .ttl(Duration.ofHours(1))
+                        .persistent(persistent)
+                        .build())
+                .build();
+        return new ProductIdempotencyCache(productIdempotencyKeyRepository, objectMapper, productProperties, meterRegistry);
+    }
+
+    private static ProductRequest product(String title) {
+        return ProductRequest.builder()
+                .title(title)
+                .categorySourceId("Category1")
+                .price(100.0)
+                .vatRate(22.0)
+                .quantity(10)
+                .build();
+    }
+
+    private Mono<ProductResponse> upstream(ProductRequest request) {
+        return Mono.fromSupplier(() -> {
+            executions.incrementAndGet();
+            return ProductResponse.builder().title(request.getTitle()).sourceId(10124).build();
+        });
+    }
+
+    private double replayed() {
+        return meterRegistry.get(ProductIdempotencyCache.REPLAYED_METRIC).counter().count();
+    }
+
+    @Test
+    void execute_WhenRepeated_ShouldReplayFirstResponseWithoutUpstreamCall() {
+        // Given
+        ProductIdempotencyCache cache = newCache(false);
+        ProductRequest request = product("Product A");
+
+        // When
+        ProductResponse first = cache.execute(KEY, STORE, SOURCE, request, () -> upstream(request)).block();
+        ProductResponse second = cache.execute(KEY, STORE, SOURCE, product("Product A"), () -> upstream(request)).block();
+
+        // Then
+        assertEquals("Product A", first.getTitle());
+        assertSame(first, second);
+        assertEquals(1, executions.get());
+        assertEquals(1.0, replayed());
+        verifyNoInteractions(productIdempotencyKeyRepository);
+    }
+
+    @Test
+    void execute_WhenSameKeyOnAnotherStore_ShouldRunAgain() {
+        // Given
+        ProductIdempotencyCache cache = newCache(false);
+        ProductRequest request = product("Product A");
+
+        // When
+        cache.execute(KEY, STORE, SOURCE, request, () -> upstream(request)).block();
+        cache.execute(KEY, "2", SOURCE, request, () -> upstream(request)).block();
+
+        // Then
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void execute_WhenConcurrentDuplicate_ShouldWaitForFirstExecution() {
+        // Given
+        ProductIdempotencyCache cache = newCache(false);
+        ProductRequest request = product("Product A");
+        Sinks.One<ProductResponse> upstream = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+        Mono<ProductResponse> first = cache.execute(KEY, STORE, SOURCE, request, () -> {
+            calls.incrementAndGet();
+            return upstream.asMono();
+        });
+        Mono<ProductResponse> duplicate = cache.execute(KEY, STORE, SOURCE, request, () -> {
+            calls.incrementAndGet();
+            return upstream.asMono();
+        });
+
+        // When & Then
+        StepVerifier.create(first.zipWith(duplicate))
+                .then(() -> upstream.tryEmitValue(ProductResponse.builder().title("Product A").build()))
+                .assertNext(results -> assertSame(results.getT1(), results.getT2()))
+                .verifyComplete();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void execute_WhenFirstExecutionFails_ShouldRunAgainOnRetry() {
+        // Given
+        ProductIdempotencyCache cache = newCache(false);
+        ProductRequest request = product("Product A");
+
+        // When
+        StepVerifier.create(cache.execute(KEY, STORE, SOURCE, request,
+                        () -> Mono.error(new ProductNotCreatedException("Errore durante la chiamata al servizio dei products"))))
+                .expectError(ProductNotCreatedException.class)
+                .verify();
+        ProductResponse retried = cache.execute(KEY, STORE, SOURCE, request, () -> upstream(request)).block();
+
+        // Then
+        assertEquals("Product A", retried.getTitle());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_WhenKeyReusedWithDifferentRequest_ShouldFail() {
+        // Given
+        ProductIdempotencyCache cache = newCache(false);
+        ProductRequest request = product("Product A");
+        cache.execute(KEY, STORE, SOURCE, request, () -> upstream(request)).block();
+
+        // When & Then
+        ProductRequest other = product("Product B");
+        StepVerifier.create(cache.execute(KEY, STORE, SOURCE, other, () -> upstream(other)))
+                .expectError(IdempotencyKeyReusedException.class)
+                .verify();
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_WhenPersistentAndStoredByAnotherInstance_ShouldReplayStoredResponse() throws Exception {
+        // Given
+        ProductIdempotencyCache cache = newCache(true);
+        ProductRequest request = product("Product A");
+        ProductResponse stored = ProductResponse.builder().title("Product A").sourceId(10124).build();
+        String fingerprint = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request)));
+        when(productIdempotencyKeyRepository.findByStoreAndSourceAndIdempotencyKeyAndCreatedAtAfter(eq(STORE), eq(SOURCE), eq(KEY), any(Instant.class)))
+                .thenReturn(Optional.of(ProductIdempotencyKeyEntity.builder()
+                        .fingerprint(fingerprint)
+                        .response(objectMapper.writeValueAsString(stored))
+                        .build()));
+
+        // When
+        ProductResponse result = cache.execute(KEY, STORE, SOURCE, request, () -> upstream(request)).block();
+
+        // Then
+        assertEquals(stored, result);
+        assertEquals(0, executions.get());
+        assertEquals(1.0, replayed());
+    }
+
+    @Test
+    void execute_WhenPersistent_ShouldStoreFirstResponse() throws Exception {
+        // Given
+        ProductIdempotencyCache cache = newCache(true);
+        ProductRequest request = product("Product A");
+
+        // When
+        ProductResponse result = cache.execute(KEY, STORE, SOURCE, request, () -> upstream(request)).block();
+
+        // Then
+        ArgumentCaptor<ProductIdempotencyKeyEntity> captor = ArgumentCaptor.forClass(ProductIdempotencyKeyEntity.class);
+        verify(productIdempotencyKeyRepository).save(captor.capture());
+        assertEquals(KEY, captor.getValue().getIdempotencyKey());
+        assertEquals(STORE, captor.getValue().getStore());
+        assertEquals(64, captor.getValue().getFingerprint().length());
+        assertEquals(result, objectMapper.readValue(captor.getValue().getResponse(), ProductResponse.class));
+    }
+
+    @Test
+    void execute_WhenPersistentWriteFails_ShouldStillReturnResponse() {
+        // Given
+        ProductIdempotencyCache cache = newCache(true);
+        ProductRequest request = product("Product A");
+        when(productIdempotencyKeyRepository.save(any(ProductIdempotencyKeyEntity.class))).thenThrow(new IllegalStateException("db down"));
+
+        // When & Then
+        StepVerifier.create(cache.execute(KEY, STORE, SOURCE, request, () -> upstream(request)))
+                .assertNext(response -> assertEquals("Product A", response.getTitle()))
+                .verifyComplete();
+    }
+}
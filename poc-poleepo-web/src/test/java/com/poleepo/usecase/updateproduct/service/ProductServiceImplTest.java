@@ -1,19 +1,40 @@
 package com.poleepo.usecase.updateproduct.service;
 
+import com.poleepo.exception.CategoryNotValidException;
+import com.poleepo.exception.ProductNotUpdatedException;
+import com.poleepo.properties.CategoryProperties;
+import com.poleepo.properties.CheckConfigProperties;
 import com.poleepo.properties.ProductProperties;
+import com.poleepo.service.CredentialRegistry;
+import com.poleepo.usecase.retrievecategory.service.CategoryIndex;
 import com.poleepo.usecase.updateproduct.model.request.CreateOrUpdateProductRequest;
 import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
 import com.poleepo.usecase.updateproduct.model.request.UpdateQuantityRequest;
 import com.poleepo.usecase.updateproduct.model.response.ProductResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,8 +42,18 @@ class ProductServiceImplTest {
 
     @Mock
     private IProductGatewayDriver productGatewayDriver;
+    @Spy
+    private CredentialRegistry credentialRegistry = new CredentialRegistry(CategoryProperties.builder().build(),
+            ProductProperties.builder().availableToken("token1,token2")
+                    .shopTokens(Map.of("10124", 0, "10015", 0, "10205", 1)).build(), CheckConfigProperties.builder().build());
+    @Mock
+    private ProductIdempotencyCache productIdempotencyCache;
+    @Mock
+    private QuantityUpdateCoalescer quantityUpdateCoalescer;
     @Mock
-    private ProductProperties productProperties;
+    private CategoryIndex categoryIndex;
+    @Spy
+    private ProductChangeDetector productChangeDetector = new ProductChangeDetector(ProductProperties.builder().build(), new SimpleMeterRegistry());
     @InjectMocks
     private ProductServiceImpl productServiceImpl;
 
@@ -59,8 +90,8 @@ class ProductServiceImplTest {
                 .shopId(1)
                 .build();
 
-        when(productGatewayDriver.createProduct(anyString(), eq(createRequest))).thenReturn(expectedResponse);
-        when(productGatewayDriver.updateQuantity(anyString(), eq(expectedResponse), eq(quantityRequest))).thenReturn(expectedQuantity);
+        when(productGatewayDriver.createProductReactive(anyString(), eq(createRequest))).thenReturn(Mono.just(expectedResponse));
+        when(productGatewayDriver.updateQuantityReactive(anyString(), eq(expectedResponse), eq(quantityRequest))).thenReturn(Mono.just(expectedQuantity));
 
         // Act
         ProductResponse result = productServiceImpl.createOrUpdateProduct(productRequest, source, store, authorizationHeader);
@@ -108,9 +139,8 @@ class ProductServiceImplTest {
                 .shopId(2)
                 .build();
 
-        when(productGatewayDriver.updateProduct(anyString(), eq("2"), eq(updateRequest))).thenReturn(expectedResponse);
-        when(productGatewayDriver.updateQuantity(anyString(), eq(expectedResponse), eq(quantityRequest))).thenReturn(expectedQuantity);
-        when(productProperties.getAvailableToken()).thenReturn("token1,token2");
+        when(productGatewayDriver.updateProductReactive(anyString(), eq("2"), eq(updateRequest))).thenReturn(Mono.just(expectedResponse));
+        when(productGatewayDriver.updateQuantityReactive(anyString(), eq(expectedResponse), eq(quantityRequest))).thenReturn(Mono.just(expectedQuantity));
 
         // Act
         ProductResponse result = productServiceImpl.createOrUpdateProduct(productRequest, source, store, authorizationHeader);
@@ -124,4 +154,342 @@ class ProductServiceImplTest {
         assertEquals(2, result.getSourceId());
     }
 
-}
\ No newline at end of file
+    @Test
+    void createOrUpdateProductReactive_createsProductThenUpdatesQuantity() {
+        // Arrange
+        ProductRequest productRequest = ProductRequest.builder()
+                .title("Product A")
+                .categorySourceId("Category1")
+                .price(100.0)
+                .vatRate(22.0)
+                .quantity(10)
+                .build();
+
+        UpdateQuantityRequest quantityRequest = UpdateQuantityRequest.builder()
+                .quantity(10)
+                .shopId(1)
+                .build();
+
+        when(productGatewayDriver.createProductReactive(eq("Bearer token"), any(CreateOrUpdateProductRequest.class))).thenReturn(Mono.just("12345"));
+        when(productGatewayDriver.updateQuantityReactive("Bearer token", "12345", quantityRequest)).thenReturn(Mono.just("12345"));
+
+        // Act & Assert
+        StepVerifier.create(productServiceImpl.createOrUpdateProductReactive(productRequest, "1", "Store1", "Bearer token"))
+                .assertNext(result -> {
+                    assertEquals("Product A", result.getTitle());
+                    assertEquals(10, result.getQuantity());
+                    assertEquals(1, result.getSourceId());
+                })
+                .verifyComplete();
+        verify(productGatewayDriver, never()).createProduct(anyString(), any());
+    }
+
+    @Test
+    void createOrUpdateProductReactive_whenUpdateFails_doesNotUpdateQuantity() {
+        // Arrange
+        ProductRequest productRequest = ProductRequest.builder()
+                .title("Product B")
+                .quantity(5)
+                .sourceId("10205")
+                .build();
+
+        when(productGatewayDriver.updateProductReactive(eq("Bearer token2"), eq("10205"), any(CreateOrUpdateProductRequest.class)))
+                .thenReturn(Mono.error(new ProductNotUpdatedException("Errore durante la chiamata al servizio dei products")));
+
+        // Act & Assert
+        StepVerifier.create(productServiceImpl.createOrUpdateProductReactive(productRequest, "1", "Store1", null))
+                .expectError(ProductNotUpdatedException.class)
+                .verify();
+        verify(productGatewayDriver, never()).updateQuantityReactive(anyString(), anyString(), any());
+    }
+
+    @Test
+    void createOrUpdateProductReactive_whenUpstreamReturnsNoId_fails() {
+        // Arrange
+        ProductRequest productRequest = ProductRequest.builder()
+                .title("Product C")
+                .quantity(1)
+                .build();
+
+        when(productGatewayDriver.createProductReactive(eq("Bearer token"), any(CreateOrUpdateProductRequest.class))).thenReturn(Mono.empty());
+
+        // Act & Assert
+        StepVerifier.create(productServiceImpl.createOrUpdateProductReactive(productRequest, "1", "Store1", "Bearer token"))
+                .expectError(ProductNotUpdatedException.class)
+                .verify();
+        verify(productGatewayDriver, never()).updateQuantityReactive(anyString(), anyString(), any());
+    }
+
+    @Test
+    void syncProductReactive_emitsUpstreamProductId() {
+        // Arrange
+        ProductRequest productRequest = ProductRequest.builder()
+                .title("Product D")
+                .quantity(3)
+                .build();
+
+        UpdateQuantityRequest quantityRequest = UpdateQuantityRequest.builder()
+                .quantity(3)
+                .shopId(1)
+                .build();
+
+        when(productGatewayDriver.createProductReactive(eq("Bearer token"), any(CreateOrUpdateProductRequest.class))).thenReturn(Mono.just("12345"));
+        when(productGatewayDriver.updateQuantityReactive("Bearer token", "12345", quantityRequest)).thenReturn(Mono.empty());
+
+        // Act & Assert
+        StepVerifier.create(productServiceImpl.syncProductReactive(productRequest, "1", "Store1", "Bearer token"))
+                .expectNext("12345")
+                .verifyComplete();
+    }
+
+    @Test
+    void syncProductReactive_whenProductIsCreated_runsCallbackBeforeQuantity() {
+        // Arrange
+        ProductRequest productRequest = ProductRequest.builder()
+                .title("Product E")
+                .quantity(3)
+                .build();
+        List<String> calls = new ArrayList<>();
+
+        when(productGatewayDriver.createProductReactive(eq("Bearer token"), any(CreateOrUpdateProductRequest.class))).thenReturn(Mono.just("12345"));
+        when(productGatewayDriver.updateQuantityReactive(eq("Bearer token"), eq("12345"), any(UpdateQuantityRequest.class)))
+                .thenReturn(Mono.fromCallable(() -> {
+                    calls.add("quantity");
+                    return "12345";
+                }));
+
+        // Act & Assert
+        StepVerifier.create(productServiceImpl.syncProductReactive(productRequest, "1", "Store1", "Bearer token",
+                        productId -> Mono.fromRunnable(() -> calls.add("created " + productId))))
+                .expectNext("12345")
+                .verifyComplete();
+        assertEquals(List.of("created 12345", "quantity"), calls);
+    }
+
+    @Test
+    void syncQuantityReactive_sendsOnlyQuantity() {
+        // Arrange
+        ProductRequest productRequest = ProductRequest.builder()
+                .title("Product F")
+                .quantity(7)
+                .build();
+
+        UpdateQuantityRequest quantityRequest = UpdateQuantityRequest.builder()
+                .quantity(7)
+                .shopId(1)
+                .build();
+
+        when(productGatewayDriver.updateQuantityReactive("Bearer token", "12345", quantityRequest)).thenReturn(Mono.just("12345"));
+
+        // Act & Assert
+        StepVerifier.create(productServiceImpl.syncQuantityReactive(productRequest, "1", "Store1", "Bearer token", "12345"))
+                .expectNext("12345")
+                .verifyComplete();
+        verify(productGatewayDriver, never()).createProductReactive(anyString(), any());
+        verify(productGatewayDriver, never()).updateProductReactive(anyString(), anyString(), any());
+    }
+
+    @Test
+    void createOrUpdateProduct_whenCategoryIsRejected_skipsUpstreamCalls() {
+        // Arrange
+        ProductRequest productRequest = ProductRequest.builder()
+                .title("Product G")
+                .categorySourceId("unknown")
+                .quantity(1)
+                .build();
+        when(categoryIndex.rejects("unknown")).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(CategoryNotValidException.class,
+                () -> productServiceImpl.createOrUpdateProduct(productRequest, "1", "Store1", "Bearer token"));
+        verify(productGatewayDriver, never()).createProductReactive(anyString(), any());
+        verify(productGatewayDriver, never()).updateQuantityReactive(anyString(), any(), any());
+    }
+
+    @Test
+    void syncProductReactive_whenCategoryIsRejected_failsWithoutUpstreamCalls() {
+        // Arrange
+        ProductRequest productRequest = ProductRequest.builder()
+                .title("Product H")
+                .categorySourceId("unknown")
+                .quantity(1)
+                .build();
+        when(categoryIndex.rejects("unknown")).thenReturn(true);
+
+        // Act & Assert
+        StepVerifier.create(productServiceImpl.syncProductReactive(productRequest, "1", "Store1", "Bearer token"))
+                .expectError(CategoryNotValidException.class)
+                .verify();
+        verify(productGatewayDriver, never()).createProductReactive(anyString(), any());
+    }
+
+    @Test
+    void createOrUpdateProduct_whenOnlyQuantityChanged_doesNotCheckCategory() {
+        // Arrange
+        when(productGatewayDriver.updateProductReactive(eq("Bearer token"), eq("10124"), any(CreateOrUpdateProductRequest.class))).thenReturn(Mono.just("10124"));
+        when(productGatewayDriver.updateQuantityReactive(eq("Bearer token"), eq("10124"), any(UpdateQuantityRequest.class))).thenReturn(Mono.just("10124"));
+        productServiceImpl.createOrUpdateProduct(existingProduct(100.0, 10), "1", "Store1", "Bearer token");
+
+        // Act
+        productServiceImpl.createOrUpdateProduct(existingProduct(100.0, 7), "1", "Store1", "Bearer token");
+
+        // Assert
+        verify(categoryIndex, times(1)).rejects(any());
+    }
+
+    @Test
+    void createOrUpdateProductReactive_withIdempotencyKey_runsThroughIdempotencyCache() {
+        // Arrange
+        ProductRequest productRequest = ProductRequest.builder()
+                .title("Product E")
+                .quantity(2)
+                .build();
+        ProductResponse stored = ProductResponse.builder().title("Product E").build();
+        when(productIdempotencyCache.execute(eq("key-1"), eq("Store1"), eq("1"), eq(productRequest), any())).thenReturn(Mono.just(stored));
+
+        // Act
+        ProductResponse result = productServiceImpl.createOrUpdateProduct(productRequest, "1", "Store1", "Bearer token", "key-1");
+
+        // Assert
+        assertEquals(stored, result);
+        verify(productGatewayDriver, never()).createProductReactive(anyString(), any());
+    }
+
+    private static ProductRequest existingProduct(double price, int quantity) {
+        return ProductRequest.builder()
+                .title("Product F")
+                .categorySourceId("Category1")
+                .price(price)
+                .vatRate(22.0)
+                .quantity(quantity)
+                .sourceId("10124")
+                .build();
+    }
+
+    @Test
+    void createOrUpdateProduct_whenNothingChanged_skipsBothCalls() {
+        // Arrange
+        when(productGatewayDriver.updateProductReactive(eq("Bearer token"), eq("10124"), any(CreateOrUpdateProductRequest.class))).thenReturn(Mono.just("10124"));
+        when(productGatewayDriver.updateQuantityReactive(eq("Bearer token"), eq("10124"), any(UpdateQuantityRequest.class))).thenReturn(Mono.just("10124"));
+        productServiceImpl.createOrUpdateProduct(existingProduct(100.0, 10), "1", "Store1", "Bearer token");
+
+        // Act
+        ProductResponse result = productServiceImpl.createOrUpdateProduct(existingProduct(100.0, 10), "1", "Store1", "Bearer token");
+
+        // Assert
+        assertTrue(result.isProductCallSkipped());
+        assertTrue(result.isQuantityCallSkipped());
+        verify(productGatewayDriver, times(1)).updateProductReactive(anyString(), anyString(), any());
+        verify(productGatewayDriver, times(1)).updateQuantityReactive(anyString(), anyString(), any());
+    }
+
+    @Test
+    void createOrUpdateProduct_whenOnlyQuantityChanged_skipsProductCall() {
+        // Arrange
+        when(productGatewayDriver.updateProductReactive(eq("Bearer token"), eq("10124"), any(CreateOrUpdateProductRequest.class))).thenReturn(Mono.just("10124"));
+        when(productGatewayDriver.updateQuantityReactive(eq("Bearer token"), eq("10124"), any(UpdateQuantityRequest.class))).thenReturn(Mono.just("10124"));
+        productServiceImpl.createOrUpdateProduct(existingProduct(100.0, 10), "1", "Store1", "Bearer token");
+
+        // Act
+        ProductResponse result = productServiceImpl.createOrUpdateProduct(existingProduct(100.0, 7), "1", "Store1", "Bearer token");
+
+        // Assert
+        assertTrue(result.isProductCallSkipped());
+        assertFalse(result.isQuantityCallSkipped());
+        verify(productGatewayDriver, times(1)).updateProductReactive(anyString(), anyString(), any());
+        verify(productGatewayDriver).updateQuantityReactive("Bearer token", "10124", UpdateQuantityRequest.builder().quantity(7).shopId(10124).build());
+        verify(productChangeDetector).recordSkipped(new ProductChangeDetector.Changes(false, true));
+    }
+
+    @Test
+    void createOrUpdateProductReactive_whenPushFails_doesNotCountSkippedCalls() {
+        // Arrange
+        when(productGatewayDriver.updateProductReactive(eq("Bearer token"), eq("10124"), any(CreateOrUpdateProductRequest.class))).thenReturn(Mono.just("10124"));
+        when(productGatewayDriver.updateQuantityReactive(eq("Bearer token"), eq("10124"), any(UpdateQuantityRequest.class)))
+                .thenReturn(Mono.just("10124"))
+                .thenReturn(Mono.error(new ProductNotUpdatedException("Errore durante la chiamata al servizio dei products")));
+        productServiceImpl.createOrUpdateProduct(existingProduct(100.0, 10), "1", "Store1", "Bearer token");
+
+        // Act & Assert
+        StepVerifier.create(productServiceImpl.createOrUpdateProductReactive(existingProduct(100.0, 7), "1", "Store1", "Bearer token"))
+                .expectError(ProductNotUpdatedException.class)
+                .verify();
+        verify(productChangeDetector, never()).recordSkipped(new ProductChangeDetector.Changes(false, true));
+    }
+
+    @Test
+    void createOrUpdateProductReactive_whenOnlyOfferChanged_skipsQuantityCall() {
+        // Arrange
+        when(productGatewayDriver.updateProductReactive(eq("Bearer token"), eq("10124"), any(CreateOrUpdateProductRequest.class))).thenReturn(Mono.just("10124"));
+        when(productGatewayDriver.updateQuantityReactive(eq("Bearer token"), eq("10124"), any(UpdateQuantityRequest.class))).thenReturn(Mono.just("10124"));
+        productServiceImpl.createOrUpdateProductReactive(existingProduct(100.0, 10), "1", "Store1", "Bearer token").block();
+
+        // Act & Assert
+        StepVerifier.create(productServiceImpl.createOrUpdateProductReactive(existingProduct(90.0, 10), "1", "Store1", "Bearer token"))
+                .assertNext(result -> {
+                    assertFalse(result.isProductCallSkipped());
+                    assertTrue(result.isQuantityCallSkipped());
+                })
+                .verifyComplete();
+        verify(productGatewayDriver, times(2)).updateProductReactive(anyString(), anyString(), any());
+        verify(productGatewayDriver, times(1)).updateQuantityReactive(anyString(), anyString(), any());
+    }
+
+    @Test
+    void createOrUpdateProductReactive_whenQuantityCallFails_retriesItOnNextPush() {
+        // Arrange
+        when(productGatewayDriver.updateProductReactive(eq("Bearer token"), eq("10124"), any(CreateOrUpdateProductRequest.class))).thenReturn(Mono.just("10124"));
+        when(productGatewayDriver.updateQuantityReactive(eq("Bearer token"), eq("10124"), any(UpdateQuantityRequest.class)))
+                .thenReturn(Mono.error(new ProductNotUpdatedException("Errore durante la chiamata al servizio dei products")))
+                .thenReturn(Mono.just("10124"));
+        StepVerifier.create(productServiceImpl.createOrUpdateProductReactive(existingProduct(100.0, 10), "1", "Store1", "Bearer token"))
+                .expectError(ProductNotUpdatedException.class)
+                .verify();
+
+        // Act & Assert
+        StepVerifier.create(productServiceImpl.syncProductReactive(existingProduct(100.0, 10), "1", "Store1", "Bearer token"))
+                .expectNext("10124")
+                .verifyComplete();
+        verify(productGatewayDriver, times(1)).updateProductReactive(anyString(), anyString(), any());
+        verify(productGatewayDriver, times(2)).updateQuantityReactive(anyString(), anyString(), any());
+    }
+
+    @Test
+    void createOrUpdateProductReactive_whenCoalescingEnabled_buffersQuantity() {
+        // Arrange
+        when(quantityUpdateCoalescer.isEnabled()).thenReturn(true);
+        when(productGatewayDriver.updateProductReactive(eq("Bearer token"), eq("10124"), any(CreateOrUpdateProductRequest.class))).thenReturn(Mono.just("10124"));
+
+        // Act & Assert
+        StepVerifier.create(productServiceImpl.createOrUpdateProductReactive(existingProduct(100.0, 10), "1", "Store1", "Bearer token"))
+                .assertNext(result -> assertEquals(10, result.getQuantity()))
+                .verifyComplete();
+        verify(quantityUpdateCoalescer).submit(eq("Bearer token"), eq("10124"), eq(UpdateQuantityRequest.builder().quantity(10).shopId(10124).build()), any(Runnable.class));
+        verify(productGatewayDriver, never()).updateQuantityReactive(anyString(), anyString(), any());
+    }
+
+    @Test
+    void createOrUpdateProduct_whenQuantityGoesBackWhileBuffered_sendsLatestQuantity() {
+        // Arrange
+        ProductProperties productProperties = ProductProperties.builder()
+                .quantityCoalescing(ProductProperties.QuantityCoalescing.builder().enabled(true).build())
+                .build();
+        QuantityUpdateCoalescer coalescer = new QuantityUpdateCoalescer(productGatewayDriver, productProperties, new SimpleMeterRegistry());
+        ProductServiceImpl service = new ProductServiceImpl(productGatewayDriver, credentialRegistry, productIdempotencyCache,
+                new ProductChangeDetector(productProperties, new SimpleMeterRegistry()), coalescer, categoryIndex);
+        when(productGatewayDriver.updateProductReactive(eq("Bearer token"), eq("10124"), any(CreateOrUpdateProductRequest.class))).thenReturn(Mono.just("10124"));
+        when(productGatewayDriver.updateQuantityReactive(eq("Bearer token"), eq("10124"), any(UpdateQuantityRequest.class))).thenReturn(Mono.just("10124"));
+        service.createOrUpdateProduct(existingProduct(100.0, 5), "1", "Store1", "Bearer token");
+        coalescer.flush().block();
+
+        // Act
+        service.createOrUpdateProduct(existingProduct(100.0, 7), "1", "Store1", "Bearer token");
+        ProductResponse result = service.createOrUpdateProduct(existingProduct(100.0, 5), "1", "Store1", "Bearer token");
+        coalescer.flush().block();
+
+        // Assert
+        assertFalse(result.isQuantityCallSkipped());
+        verify(productGatewayDriver, times(2)).updateQuantityReactive("Bearer token", "10124", UpdateQuantityRequest.builder().quantity(5).shopId(10124).build());
+        verify(productGatewayDriver, never()).updateQuantityReactive("Bearer token", "10124", UpdateQuantityRequest.builder().quantity(7).shopId(10124).build());
+    }
+}
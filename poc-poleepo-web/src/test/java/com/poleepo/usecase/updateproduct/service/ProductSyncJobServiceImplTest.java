@@ -0,0 +1,279 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.enumeration.ErrorCode;
+import com.poleepo.enumeration.ProductSyncJobStatus;
+import com.poleepo.exception.IdempotencyKeyReusedException;
+import com.poleepo.exception.JobNotFoundException;
+import com.poleepo.usecase.updateproduct.model.entities.ProductSyncJobEntity;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.model.response.ProductSyncJobResponse;
+import com.poleepo.usecase.updateproduct.repository.ProductSyncJobBatchRepository;
+import com.poleepo.usecase.updateproduct.repository.ProductSyncJobRepository;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSyncJobServiceImplTest {
+
+    @Mock
+    private ProductSyncJobRepository productSyncJobRepository;
+
+    @Mock
+    private ProductSyncJobBatchRepository productSyncJobBatchRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ValidatorFactory validatorFactory;
+    private ProductSyncJobServiceImpl productSyncJobService;
+
+    @BeforeEach
+    void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        productSyncJobService = new ProductSyncJobServiceImpl(productSyncJobRepository, productSyncJobBatchRepository, objectMapper,
+                validatorFactory.getValidator());
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    private static ProductRequest product() {
+        return ProductRequest.builder()
+                .title("Product A")
+                .categorySourceId("Category1")
+                .price(100.0)
+                .vatRate(22.0)
+                .quantity(10)
+                .build();
+    }
+
+    @Test
+    void enqueue_ShouldStorePendingJobWithRequestPayload() throws Exception {
+        // Given
+        when(productSyncJobRepository.save(any(ProductSyncJobEntity.class))).thenAnswer(invocation -> {
+            ProductSyncJobEntity job = invocation.getArgument(0);
+            job.setId(42L);
+            return job;
+        });
+
+        // When
+        ProductSyncJobResponse response = productSyncJobService.enqueue(product(), "10124", "1");
+
+        // Then
+        ArgumentCaptor<ProductSyncJobEntity> captor = ArgumentCaptor.forClass(ProductSyncJobEntity.class);
+        verify(productSyncJobRepository).save(captor.capture());
+        ProductSyncJobEntity saved = captor.getValue();
+        assertEquals(ProductSyncJobStatus.PENDING, saved.getStatus());
+        assertEquals("10124", saved.getSource());
+        assertEquals("1", saved.getStore());
+        assertEquals(product(), objectMapper.readValue(saved.getPayload(), ProductRequest.class));
+        assertEquals(0, saved.getAttempts());
+        assertEquals(42L, response.getId());
+        assertEquals(ProductSyncJobStatus.PENDING, response.getStatus());
+        assertNull(response.getProductId());
+    }
+
+    @Test
+    void enqueue_WhenIdempotencyKeyIsNew_ShouldStoreJobWithKey() {
+        // Given
+        when(productSyncJobRepository.findByStoreAndSourceAndIdempotencyKey("1", "10124", "key-1")).thenReturn(Optional.empty());
+        when(productSyncJobRepository.save(any(ProductSyncJobEntity.class))).thenAnswer(invocation -> {
+            ProductSyncJobEntity job = invocation.getArgument(0);
+            job.setId(42L);
+            return job;
+        });
+
+        // When
+        ProductSyncJobResponse response = productSyncJobService.enqueue(product(), "10124", "1", "key-1");
+
+        // Then
+        ArgumentCaptor<ProductSyncJobEntity> captor = ArgumentCaptor.forClass(ProductSyncJobEntity.class);
+        verify(productSyncJobRepository).save(captor.capture());
+        assertEquals("key-1", captor.getValue().getIdempotencyKey());
+        assertEquals(42L, response.getId());
+    }
+
+    @Test
+    void enqueue_WhenIdempotencyKeyIsRepeated_ShouldReturnStoredJob() throws Exception {
+        // Given
+        ProductSyncJobEntity stored = ProductSyncJobEntity.builder()
+                .id(42L)
+                .status(ProductSyncJobStatus.RUNNING)
+                .payload(objectMapper.writeValueAsString(product()))
+                .idempotencyKey("key-1")
+                .build();
+        when(productSyncJobRepository.findByStoreAndSourceAndIdempotencyKey("1", "10124", "key-1")).thenReturn(Optional.of(stored));
+
+        // When
+        ProductSyncJobResponse response = productSyncJobService.enqueue(product(), "10124", "1", "key-1");
+
+        // Then
+        assertEquals(42L, response.getId());
+        assertEquals(ProductSyncJobStatus.RUNNING, response.getStatus());
+        verify(productSyncJobRepository, never()).save(any());
+    }
+
+    @Test
+    void enqueue_WhenIdempotencyKeyIsReusedWithAnotherProduct_ShouldThrow() throws Exception {
+        // Given
+        ProductSyncJobEntity stored = ProductSyncJobEntity.builder()
+                .id(42L)
+                .status(ProductSyncJobStatus.PENDING)
+                .payload(objectMapper.writeValueAsString(ProductRequest.builder().title("Product B").quantity(5).build()))
+                .idempotencyKey("key-1")
+                .build();
+        when(productSyncJobRepository.findByStoreAndSourceAndIdempotencyKey("1", "10124", "key-1")).thenReturn(Optional.of(stored));
+
+        // When & Then
+        assertThrows(IdempotencyKeyReusedException.class, () -> productSyncJobService.enqueue(product(), "10124", "1", "key-1"));
+        verify(productSyncJobRepository, never()).save(any());
+    }
+
+    @Test
+    void enqueue_WhenConcurrentRequestStoresSameKey_ShouldReturnItsJob() throws Exception {
+        // Given
+        ProductSyncJobEntity stored = ProductSyncJobEntity.builder()
+                .id(42L)
+                .status(ProductSyncJobStatus.PENDING)
+                .payload(objectMapper.writeValueAsString(product()))
+                .idempotencyKey("key-1")
+                .build();
+        when(productSyncJobRepository.findByStoreAndSourceAndIdempotencyKey("1", "10124", "key-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(stored));
+        when(productSyncJobRepository.save(any(ProductSyncJobEntity.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        // When
+        ProductSyncJobResponse response = productSyncJobService.enqueue(product(), "10124", "1", "key-1");
+
+        // Then
+        assertEquals(42L, response.getId());
+    }
+
+    @Test
+    void enqueueAll_ShouldStoreOnePendingJobPerProductInOrder() throws Exception {
+        // Given
+        ProductRequest other = ProductRequest.builder().title("Product B").categorySourceId("Category1").price(50.0).vatRate(22.0)
+                .quantity(5).sourceId("12345").build();
+        when(productSyncJobBatchRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<ProductSyncJobEntity> jobs = invocation.getArgument(0);
+            for (int i = 0; i < jobs.size(); i++) {
+                jobs.get(i).setId(100L + i);
+            }
+            return jobs;
+        });
+
+        // When
+        List<ProductSyncJobResponse> responses = productSyncJobService.enqueueAll(List.of(product(), other), "10124", "1");
+
+        // Then
+        ArgumentCaptor<List<ProductSyncJobEntity>> captor = ArgumentCaptor.forClass(List.class);
+        verify(productSyncJobBatchRepository).insertAll(captor.capture());
+        List<ProductSyncJobEntity> saved = captor.getValue();
+        assertEquals(2, saved.size());
+        assertEquals(product(), objectMapper.readValue(saved.get(0).getPayload(), ProductRequest.class));
+        assertEquals(other, objectMapper.readValue(saved.get(1).getPayload(), ProductRequest.class));
+        assertNull(saved.get(0).getProductKey());
+        assertEquals("12345", saved.get(1).getProductKey());
+        assertTrue(saved.stream().allMatch(job -> job.getStatus() == ProductSyncJobStatus.PENDING));
+        assertEquals(List.of(100L, 101L), responses.stream().map(ProductSyncJobResponse::getId).toList());
+        verify(productSyncJobRepository, never()).save(any());
+    }
+
+    @Test
+    void enqueueAll_WhenItemIsInvalid_ShouldRejectItWithoutStoringAJob() {
+        // Given
+        ProductRequest invalid = ProductRequest.builder().title("Product B").quantity(5).build();
+        when(productSyncJobBatchRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<ProductSyncJobEntity> jobs = invocation.getArgument(0);
+            jobs.get(0).setId(100L);
+            return jobs;
+        });
+
+        // When
+        List<ProductSyncJobResponse> responses = productSyncJobService.enqueueAll(List.of(invalid, product()), "10124", "1");
+
+        // Then
+        ArgumentCaptor<List<ProductSyncJobEntity>> captor = ArgumentCaptor.forClass(List.class);
+        verify(productSyncJobBatchRepository).insertAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertNull(responses.get(0).getId());
+        assertEquals(ProductSyncJobStatus.FAILED, responses.get(0).getStatus());
+        assertEquals(ErrorCode.MISSING_REQUIRED_FIELD.getCode(), responses.get(0).getError());
+        assertEquals(100L, responses.get(1).getId());
+        assertEquals(ProductSyncJobStatus.PENDING, responses.get(1).getStatus());
+    }
+
+    @Test
+    void enqueueAll_WhenEveryItemIsInvalid_ShouldNotInsert() {
+        // When
+        List<ProductSyncJobResponse> responses = productSyncJobService.enqueueAll(
+                List.of(ProductRequest.builder().title("Product B").build()), "10124", "1");
+
+        // Then
+        assertEquals(ErrorCode.MISSING_REQUIRED_FIELD.getCode(), responses.get(0).getError());
+        verifyNoInteractions(productSyncJobBatchRepository);
+    }
+
+    @Test
+    void getJob_WhenCompleted_ShouldExposeUpstreamProductId() {
+        // Given
+        Instant now = Instant.now();
+        when(productSyncJobRepository.findById(42L)).thenReturn(Optional.of(ProductSyncJobEntity.builder()
+                .id(42L)
+                .status(ProductSyncJobStatus.COMPLETED)
+                .productId("12345")
+                .createdAt(now)
+                .updatedAt(now)
+                .build()));
+
+        // When
+        ProductSyncJobResponse response = productSyncJobService.getJob(42L);
+
+        // Then
+        assertEquals(ProductSyncJobStatus.COMPLETED, response.getStatus());
+        assertEquals("12345", response.getProductId());
+        assertEquals(now, response.getUpdatedAt());
+    }
+
+    @Test
+    void getJob_WhenMissing_ShouldThrowJobNotFoundException() {
+        // Given
+        when(productSyncJobRepository.findById(7L)).thenReturn(Optional.empty());
+
+        // When & Then
+        JobNotFoundException exception = assertThrows(JobNotFoundException.class, () -> productSyncJobService.getJob(7L));
+        assertEquals("Job 7 non trovato", exception.getMessage());
+    }
+
+    @Test
+    void getJobReactive_WhenMissing_ShouldEmitJobNotFoundException() {
+        // Given
+        when(productSyncJobRepository.findById(7L)).thenReturn(Optional.empty());
+
+        // When & Then
+        StepVerifier.create(productSyncJobService.getJobReactive(7L))
+                .expectError(JobNotFoundException.class)
+                .verify();
+    }
+}
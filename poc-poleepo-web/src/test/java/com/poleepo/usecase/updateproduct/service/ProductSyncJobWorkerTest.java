@@ -0,0 +1,230 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poleepo.enumeration.ErrorCode;
+import com.poleepo.enumeration.ProductSyncJobStatus;
+import com.poleepo.exception.ProductNotCreatedException;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.usecase.updateproduct.model.entities.ProductSyncJobEntity;
+import com.poleepo.usecase.updateproduct.model.request.ProductRequest;
+import com.poleepo.usecase.updateproduct.repository.ProductSyncJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSyncJobWorkerTest {
+
+    @Mock
+    private ProductSyncJobRepository productSyncJobRepository;
+
+    @Mock
+    private IProductService productService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ProductSyncJobWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        ProductProperties productProperties = ProductProperties.builder()
+                .jobs(ProductProperties.Jobs.builder().concurrency(2).staleAfter(Duration.ofMinutes(5))
+                        .maxAttempts(2).retryBackoff(Duration.ofSeconds(30)).build())
+                .build();
+        worker = new ProductSyncJobWorker(productSyncJobRepository, productService, productProperties, objectMapper);
+    }
+
+    private ProductSyncJobEntity claimedJob(long id) throws Exception {
+        return ProductSyncJobEntity.builder()
+                .id(id)
+                .status(ProductSyncJobStatus.RUNNING)
+                .attempts(1)
+                .leaseToken("lease-" + id)
+                .store("1")
+                .source("10124")
+                .payload(objectMapper.writeValueAsString(ProductRequest.builder().title("Product " + id).quantity(1).build()))
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .build();
+    }
+
+    @Test
+    void poll_WhenJobSucceeds_ShouldStoreUpstreamProductId() throws Exception {
+        // Given
+        ProductSyncJobEntity job = claimedJob(1L);
+        when(productSyncJobRepository.claimPending(any(Instant.class), eq(2))).thenReturn(List.of(job));
+        when(productService.syncProductReactive(any(ProductRequest.class), eq("10124"), eq("1"), isNull(), any()))
+                .thenAnswer(invocation -> invocation.<Function<String, Mono<Void>>>getArgument(4).apply("12345").thenReturn("12345"));
+
+        // When
+        worker.poll();
+
+        // Then
+        ArgumentCaptor<ProductSyncJobEntity> captor = ArgumentCaptor.forClass(ProductSyncJobEntity.class);
+        verify(productSyncJobRepository, timeout(5000)).saveOutcome(captor.capture());
+        assertEquals(ProductSyncJobStatus.COMPLETED, captor.getValue().getStatus());
+        assertEquals("12345", captor.getValue().getProductId());
+        assertEquals(1, captor.getValue().getAttempts());
+        verify(productSyncJobRepository).recordProductId(eq(1L), eq("lease-1"), eq("12345"), any(Instant.class));
+        await().atMost(Duration.ofSeconds(5)).until(() -> worker.inFlight() == 0);
+    }
+
+    @Test
+    void poll_WhenJobFailsBeforeMaxAttempts_ShouldScheduleRetry() throws Exception {
+        // Given
+        ProductSyncJobEntity job = claimedJob(1L);
+        when(productSyncJobRepository.claimPending(any(Instant.class), anyInt())).thenReturn(List.of(job));
+        when(productService.syncProductReactive(any(ProductRequest.class), any(), any(), any(), any()))
+                .thenReturn(Mono.error(new ProductNotCreatedException("Errore durante la chiamata al servizio dei products")));
+
+        // When
+        worker.poll();
+
+        // Then
+        ArgumentCaptor<ProductSyncJobEntity> captor = ArgumentCaptor.forClass(ProductSyncJobEntity.class);
+        verify(productSyncJobRepository, timeout(5000)).saveOutcome(captor.capture());
+        assertEquals(ProductSyncJobStatus.PENDING, captor.getValue().getStatus());
+        assertEquals(ErrorCode.PRODUCT_NOT_CREATED.getCode(), captor.getValue().getError());
+        assertEquals(Duration.ofSeconds(30), Duration.between(captor.getValue().getUpdatedAt(), captor.getValue().getNextAttemptAt()));
+        assertNull(captor.getValue().getProductId());
+    }
+
+    @Test
+    void poll_WhenJobFailsAtMaxAttempts_ShouldStoreErrorCode() throws Exception {
+        // Given
+        ProductSyncJobEntity job = claimedJob(1L);
+        job.setAttempts(2);
+        when(productSyncJobRepository.claimPending(any(Instant.class), anyInt())).thenReturn(List.of(job));
+        when(productService.syncProductReactive(any(ProductRequest.class), any(), any(), any(), any()))
+                .thenReturn(Mono.error(new ProductNotCreatedException("Errore durante la chiamata al servizio dei products")));
+
+        // When
+        worker.poll();
+
+        // Then
+        ArgumentCaptor<ProductSyncJobEntity> captor = ArgumentCaptor.forClass(ProductSyncJobEntity.class);
+        verify(productSyncJobRepository, timeout(5000)).saveOutcome(captor.capture());
+        assertEquals(ProductSyncJobStatus.FAILED, captor.getValue().getStatus());
+        assertEquals(ErrorCode.PRODUCT_NOT_CREATED.getCode(), captor.getValue().getError());
+    }
+
+    @Test
+    void poll_WhenProductWasCreatedByPreviousAttempt_ShouldOnlySyncQuantity() throws Exception {
+        // Given
+        ProductSyncJobEntity job = claimedJob(1L);
+        job.setAttempts(2);
+        job.setProductId("12345");
+        job.setError(ErrorCode.PRODUCT_NOT_CREATED.getCode());
+        when(productSyncJobRepository.claimPending(any(Instant.class), anyInt())).thenReturn(List.of(job));
+        when(productService.syncQuantityReactive(any(ProductRequest.class), eq("10124"), eq("1"), isNull(), eq("12345")))
+                .thenReturn(Mono.just("12345"));
+
+        // When
+        worker.poll();
+
+        // Then
+        ArgumentCaptor<ProductSyncJobEntity> captor = ArgumentCaptor.forClass(ProductSyncJobEntity.class);
+        verify(productSyncJobRepository, timeout(5000)).saveOutcome(captor.capture());
+        assertEquals(ProductSyncJobStatus.COMPLETED, captor.getValue().getStatus());
+        assertEquals("12345", captor.getValue().getProductId());
+        assertNull(captor.getValue().getError());
+        verify(productService, never()).syncProductReactive(any(ProductRequest.class), any(), any(), any(), any());
+    }
+
+    @Test
+    void poll_WhenNoJobIsClaimed_ShouldNotSync() {
+        // Given
+        when(productSyncJobRepository.claimPending(any(Instant.class), anyInt())).thenReturn(List.of());
+
+        // When
+        worker.poll();
+
+        // Then
+        verifyNoInteractions(productService);
+        verify(productSyncJobRepository, never()).saveOutcome(any());
+    }
+
+    @Test
+    void poll_WhenAllSlotsBusy_ShouldNotClaimMoreJobs() throws Exception {
+        // Given
+        Sinks.One<String> upstream = Sinks.one();
+        when(productSyncJobRepository.claimPending(any(Instant.class), anyInt()))
+                .thenReturn(List.of(claimedJob(1L), claimedJob(2L)));
+        when(productService.syncProductReactive(any(ProductRequest.class), any(), any(), any(), any())).thenReturn(upstream.asMono());
+        worker.poll();
+
+        // When
+        worker.poll();
+
+        // Then
+        assertEquals(2, worker.inFlight());
+        verify(productSyncJobRepository, times(1)).claimPending(any(Instant.class), anyInt());
+        upstream.tryEmitValue("12345");
+        await().atMost(Duration.ofSeconds(5)).until(() -> worker.inFlight() == 0);
+    }
+
+    @Test
+    void heartbeat_ShouldRefreshOnlyTheJobsInFlight() throws Exception {
+        // Given
+        Sinks.One<String> upstream = Sinks.one();
+        when(productSyncJobRepository.claimPending(any(Instant.class), anyInt())).thenReturn(List.of(claimedJob(1L)));
+        when(productService.syncProductReactive(any(ProductRequest.class), any(), any(), any(), any())).thenReturn(upstream.asMono());
+        worker.poll();
+
+        // When
+        worker.heartbeat();
+        upstream.tryEmitValue("12345");
+        await().atMost(Duration.ofSeconds(5)).until(() -> worker.inFlight() == 0);
+        worker.heartbeat();
+
+        // Then
+        verify(productSyncJobRepository, times(1)).heartbeat(eq(List.of("lease-1")), any(Instant.class));
+    }
+
+    @Test
+    void poll_WhenLeaseWasLost_ShouldNotFailTheWorker() throws Exception {
+        // Given
+        when(productSyncJobRepository.claimPending(any(Instant.class), anyInt())).thenReturn(List.of(claimedJob(1L)));
+        when(productService.syncProductReactive(any(ProductRequest.class), any(), any(), any(), any())).thenReturn(Mono.just("12345"));
+        when(productSyncJobRepository.saveOutcome(any(ProductSyncJobEntity.class))).thenReturn(false);
+
+        // When
+        worker.poll();
+
+        // Then
+        verify(productSyncJobRepository, timeout(5000)).saveOutcome(any(ProductSyncJobEntity.class));
+        await().atMost(Duration.ofSeconds(5)).until(() -> worker.inFlight() == 0);
+    }
+
+    @Test
+    void requeueStale_ShouldPutBackJobsOlderThanStaleAfter() {
+        // Given
+        when(productSyncJobRepository.requeueStale(any(Instant.class), any(Instant.class))).thenReturn(3);
+
+        // When
+        worker.requeueStale();
+
+        // Then
+        ArgumentCaptor<Instant> before = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> now = ArgumentCaptor.forClass(Instant.class);
+        verify(productSyncJobRepository).requeueStale(before.capture(), now.capture());
+        assertEquals(Duration.ofMinutes(5), Duration.between(before.getValue(), now.getValue()));
+    }
+}
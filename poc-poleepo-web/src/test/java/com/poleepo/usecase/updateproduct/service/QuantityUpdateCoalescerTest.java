@@ -0,0 +1,184 @@
+package com.poleepo.usecase.updateproduct.service;
+
+import com.poleepo.exception.ProductNotUpdatedException;
+import com.poleepo.properties.ProductProperties;
+import com.poleepo.usecase.updateproduct.model.request.UpdateQuantityRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuantityUpdateCoalescerTest {
+
+    private static final String AUTH = "Bearer token";
+
+    @Mock
+    private IProductGatewayDriver productGatewayDriver;
+
+    private MeterRegistry meterRegistry;
+    private final AtomicInteger sent = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private QuantityUpdateCoalescer newCoalescer(int maxPending) {
+        ProductProperties productProperties = ProductProperties.builder()
+                .quantityCoalescing(ProductProperties.QuantityCoalescing.builder()
+                        .enabled(true)
+                        .window(Duration.ofMillis(100))
+                        .maxPending(maxPending)
+                        .maxAttempts(2)
+                        .shutdownTimeout(Duration.ofSeconds(2))
+                        .build())
+                .build();
+        return new QuantityUpdateCoalescer(productGatewayDriver, productProperties, meterRegistry);
+    }
+
+    private static UpdateQuantityRequest quantity(int quantity) {
+        return UpdateQuantityRequest.builder().quantity(quantity).shopId(10124).build();
+    }
+
+    private double pendingGauge() {
+        return meterRegistry.get(QuantityUpdateCoalescer.PENDING_METRIC).gauge().value();
+    }
+
+    @Test
+    void flush_WhenSameProductSubmittedSeveralTimes_ShouldSendOnlyLatestQuantity() {
+        // Given
+        QuantityUpdateCoalescer coalescer = newCoalescer(100);
+        when(productGatewayDriver.updateQuantityReactive(eq(AUTH), anyString(), any(UpdateQuantityRequest.class))).thenReturn(Mono.just("ok"));
+        coalescer.submit(AUTH, "1", quantity(5), sent::incrementAndGet);
+        coalescer.submit(AUTH, "1", quantity(4), sent::incrementAndGet);
+        coalescer.submit(AUTH, "1", quantity(3), sent::incrementAndGet);
+        coalescer.submit(AUTH, "2", quantity(7), sent::incrementAndGet);
+        assertEquals(2.0, pendingGauge());
+
+        // When
+        coalescer.flush().block();
+
+        // Then
+        verify(productGatewayDriver).updateQuantityReactive(AUTH, "1", quantity(3));
+        verify(productGatewayDriver).updateQuantityReactive(AUTH, "2", quantity(7));
+        verifyNoMoreInteractions(productGatewayDriver);
+        assertEquals(2, sent.get());
+        assertEquals(0.0, pendingGauge());
+        assertEquals(2.0, meterRegistry.get(QuantityUpdateCoalescer.COALESCED_METRIC).counter().count());
+        assertEquals(2.0, meterRegistry.get(QuantityUpdateCoalescer.FLUSHED_METRIC).tag("result", "success").counter().count());
+    }
+
+    @Test
+    void submit_WhenMaxPendingReached_ShouldFlushWithoutWaitingForWindow() {
+        // Given
+        QuantityUpdateCoalescer coalescer = newCoalescer(2);
+        when(productGatewayDriver.updateQuantityReactive(eq(AUTH), anyString(), any(UpdateQuantityRequest.class))).thenReturn(Mono.just("ok"));
+
+        // When
+        coalescer.submit(AUTH, "1", quantity(1), sent::incrementAndGet);
+        coalescer.submit(AUTH, "2", quantity(2), sent::incrementAndGet);
+
+        // Then
+        await().atMost(Duration.ofSeconds(5)).until(() -> sent.get() == 2);
+        assertEquals(0, coalescer.pendingSize());
+    }
+
+    @Test
+    void flush_WhenAnotherFlushRunning_ShouldNotSendConcurrently() {
+        // Given
+        QuantityUpdateCoalescer coalescer = newCoalescer(100);
+        Sinks.One<String> upstream = Sinks.one();
+        when(productGatewayDriver.updateQuantityReactive(AUTH, "1", quantity(5))).thenReturn(upstream.asMono());
+        coalescer.submit(AUTH, "1", quantity(5), sent::incrementAndGet);
+        coalescer.flush().subscribe();
+        coalescer.submit(AUTH, "1", quantity(3), sent::incrementAndGet);
+
+        // When
+        Boolean secondFlush = coalescer.flush().block();
+
+        // Then
+        assertNull(secondFlush);
+        verify(productGatewayDriver, never()).updateQuantityReactive(AUTH, "1", quantity(3));
+        upstream.tryEmitValue("ok");
+        when(productGatewayDriver.updateQuantityReactive(AUTH, "1", quantity(3))).thenReturn(Mono.just("ok"));
+        assertEquals(Boolean.TRUE, coalescer.flush().block());
+        verify(productGatewayDriver).updateQuantityReactive(AUTH, "1", quantity(3));
+    }
+
+    @Test
+    void flush_WhenCallFails_ShouldRetryAtNextFlushUpToMaxAttempts() {
+        // Given
+        QuantityUpdateCoalescer coalescer = newCoalescer(100);
+        when(productGatewayDriver.updateQuantityReactive(AUTH, "1", quantity(5)))
+                .thenReturn(Mono.error(new ProductNotUpdatedException("Errore durante la chiamata al servizio dei products")));
+        coalescer.submit(AUTH, "1", quantity(5), sent::incrementAndGet);
+
+        // When
+        coalescer.flush().block();
+        assertEquals(1, coalescer.pendingSize());
+        coalescer.flush().block();
+
+        // Then
+        assertEquals(0, coalescer.pendingSize());
+        verify(productGatewayDriver, times(2)).updateQuantityReactive(AUTH, "1", quantity(5));
+        assertEquals(0, sent.get());
+        assertEquals(2.0, meterRegistry.get(QuantityUpdateCoalescer.FLUSHED_METRIC).tag("result", "failure").counter().count());
+    }
+
+    @Test
+    void flush_WhenCallFailsAndNewerQuantityArrived_ShouldKeepNewerQuantity() {
+        // Given
+        QuantityUpdateCoalescer coalescer = newCoalescer(100);
+        Sinks.One<String> upstream = Sinks.one();
+        when(productGatewayDriver.updateQuantityReactive(AUTH, "1", quantity(5))).thenReturn(upstream.asMono());
+        coalescer.submit(AUTH, "1", quantity(5), sent::incrementAndGet);
+        coalescer.flush().subscribe();
+
+        // When
+        coalescer.submit(AUTH, "1", quantity(3), sent::incrementAndGet);
+        upstream.tryEmitError(new ProductNotUpdatedException("Errore durante la chiamata al servizio dei products"));
+
+        // Then
+        when(productGatewayDriver.updateQuantityReactive(AUTH, "1", quantity(3))).thenReturn(Mono.just("ok"));
+        coalescer.flush().block();
+        verify(productGatewayDriver, times(1)).updateQuantityReactive(AUTH, "1", quantity(5));
+        verify(productGatewayDriver).updateQuantityReactive(AUTH, "1", quantity(3));
+        assertEquals(1, sent.get());
+    }
+
+    @Test
+    void flushOnShutdown_ShouldWaitForRunningFlushAndSendTheRest() {
+        // Given
+        QuantityUpdateCoalescer coalescer = newCoalescer(100);
+        Sinks.One<String> upstream = Sinks.one();
+        when(productGatewayDriver.updateQuantityReactive(AUTH, "1", quantity(5))).thenReturn(upstream.asMono());
+        when(productGatewayDriver.updateQuantityReactive(AUTH, "2", quantity(2))).thenReturn(Mono.just("ok"));
+        coalescer.submit(AUTH, "1", quantity(5), sent::incrementAndGet);
+        coalescer.flush().subscribe();
+        coalescer.submit(AUTH, "2", quantity(2), sent::incrementAndGet);
+        Mono.delay(Duration.ofMillis(200)).subscribe(tick -> upstream.tryEmitValue("ok"));
+
+        // When
+        coalescer.flushOnShutdown();
+
+        // Then
+        assertEquals(0, coalescer.pendingSize());
+        assertEquals(2, sent.get());
+    }
+}